@@ -0,0 +1,91 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.kframework.mpfr.mpfr.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of calling into the native library through each
+ * {@link NativeBackend}, for operations cheap enough that the cost of the
+ * call dominates. {@code JNI} is the {@link JniBackend}; {@code DOWNCALL} is
+ * the backend chosen by the multi-release jar, which is only the
+ * java.lang.foreign downcalls on JDK 22 and later, so the {@code DOWNCALL}
+ * benchmarks fail on earlier JDKs rather than measuring JNI twice.
+ *
+ * The backends are package-private, so unlike the other benchmarks this one
+ * is in the package of the bindings.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NativeBackendBenchmark {
+
+    @Param({"JNI", "DOWNCALL"})
+    public String backend;
+
+    @Param({"BINARY64", "BINARY128"})
+    public String precision;
+
+    private NativeBackend calls;
+    private long emin;
+    private long emax;
+
+    // about 3.14 and 0.69, with as many significant bits as the precision allows
+    private mpfr_t x;
+    private mpfr_t y;
+    private mpfr_t rop;
+
+    @Setup
+    public void setup() {
+        if (backend.equals("JNI")) {
+            calls = new JniBackend();
+        } else {
+            calls = NativeBackend.INSTANCE;
+            if (calls instanceof JniBackend) {
+                throw new IllegalStateException("downcalls are not available on this JDK");
+            }
+        }
+        BinaryMathContext mc = precision.equals("BINARY64")
+                ? BinaryMathContext.BINARY64 : BinaryMathContext.BINARY128;
+        emin = BigFloat.emin(mc.minExponent, mc.precision);
+        emax = BigFloat.emax(mc.maxExponent);
+        x = new mpfr_t(mc.precision);
+        y = new mpfr_t(mc.precision);
+        rop = new mpfr_t(mc.precision);
+        mpfr_const_pi(x, MPFR_RNDN);
+        mpfr_const_log2(y, MPFR_RNDN);
+    }
+
+    @Benchmark
+    public int add() {
+        return calls.mpfr_java_add(rop.ptr, x.ptr, y.ptr, MPFR_RNDN, emin, emax);
+    }
+
+    @Benchmark
+    public int mul() {
+        return calls.mpfr_java_mul(rop.ptr, x.ptr, y.ptr, MPFR_RNDN, emin, emax);
+    }
+
+    @Benchmark
+    public int cmp() {
+        return calls.mpfr_java_cmp_total(x.ptr, y.ptr);
+    }
+}
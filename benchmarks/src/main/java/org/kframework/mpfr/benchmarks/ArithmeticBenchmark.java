@@ -0,0 +1,151 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kframework.mpfr.BigFloat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the arithmetic operations of {@link BigFloat}.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    @Benchmark
+    public BigFloat add(Operands o) {
+        return o.x.add(o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat addLong(Operands o) {
+        return o.x.add(o.l, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat subtract(Operands o) {
+        return o.x.subtract(o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat subtractLong(Operands o) {
+        return o.x.subtract(o.l, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat multiply(Operands o) {
+        return o.x.multiply(o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat multiplyLong(Operands o) {
+        return o.x.multiply(o.l, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat divide(Operands o) {
+        return o.x.divide(o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat divideLong(Operands o) {
+        return o.x.divide(o.l, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat remainder(Operands o) {
+        return o.x.remainder(o.z, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat fma(Operands o) {
+        return o.x.fma(o.y, o.z, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat fms(Operands o) {
+        return o.x.fms(o.y, o.z, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat fmma(Operands o) {
+        return BigFloat.fmma(o.x, o.y, o.z, o.x, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat sqrt(Operands o) {
+        return o.x.sqrt(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat cbrt(Operands o) {
+        return o.x.cbrt(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat root(Operands o) {
+        return o.x.root(5, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat pow(Operands o) {
+        return o.x.pow(o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat abs(Operands o) {
+        return o.x.abs(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat negate(Operands o) {
+        return o.x.negate(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat round(Operands o) {
+        return o.y.round(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat rint(Operands o) {
+        return o.x.rint(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat min(Operands o) {
+        return BigFloat.min(o.x, o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat max(Operands o) {
+        return BigFloat.max(o.x, o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat nextUp(Operands o) {
+        return o.x.nextUp(o.mc.minExponent, o.mc.maxExponent);
+    }
+
+    @Benchmark
+    public BigFloat sum(Operands o) {
+        return BigFloat.sum(o.terms, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat dot(Operands o) {
+        return BigFloat.dot(o.terms, o.terms, o.mc);
+    }
+}
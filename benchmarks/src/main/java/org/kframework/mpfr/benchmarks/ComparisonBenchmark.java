@@ -0,0 +1,57 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kframework.mpfr.BigFloat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the comparison and hashing methods of
+ * {@link BigFloat}.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparisonBenchmark {
+
+    @Benchmark
+    public int compareTo(Operands o) {
+        return o.x.compareTo(o.y);
+    }
+
+    @Benchmark
+    public int compareToLong(Operands o) {
+        return o.x.compareTo(o.l);
+    }
+
+    @Benchmark
+    public boolean lessThan(Operands o) {
+        return o.x.lessThan(o.y);
+    }
+
+    @Benchmark
+    public boolean equalTo(Operands o) {
+        return o.x.equalTo(o.y);
+    }
+
+    @Benchmark
+    public boolean equalsObject(Operands o) {
+        return o.x.equals(o.y);
+    }
+
+    @Benchmark
+    public int hash(Operands o) {
+        return o.x.hashCode();
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.kframework.mpfr.BigFloat;
+import org.kframework.mpfr.BinaryMathContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the conversions between {@link BigFloat} and
+ * other types, including strings and serialized form. The conversions to and
+ * from {@link BigInteger}, whose cost grows with the size of the integer, are
+ * measured on integers of 64 bits to 1M bits instead of at the precisions of
+ * {@link Operands}.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    /**
+     * An integer with exactly {@link #bits} significant bits, and a
+     * {@code BigFloat} of the same precision equal to it.
+     */
+    @State(Scope.Thread)
+    public static class Integers {
+        @Param({"64", "256", "1024", "4096", "16384", "65536", "262144", "1048576"})
+        public int bits;
+
+        public BinaryMathContext mc;
+        public BigInteger integer;
+        public BigFloat integral;
+
+        @Setup
+        public void setup() {
+            mc = new BinaryMathContext(bits, RoundingMode.HALF_EVEN);
+            integer = new BigInteger(bits, new Random(42)).setBit(bits - 1);
+            integral = new BigFloat(integer, mc);
+        }
+    }
+
+    @Benchmark
+    public BigFloat fromDouble(Operands o) {
+        return new BigFloat(o.d, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat fromLong(Operands o) {
+        return new BigFloat(o.l, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat fromBigInteger(Integers i) {
+        return new BigFloat(i.integer, i.mc);
+    }
+
+    @Benchmark
+    public BigFloat fromString(Operands o) {
+        return new BigFloat(o.string, o.mc);
+    }
+
+    @Benchmark
+    public double doubleValue(Operands o) {
+        return o.x.doubleValue();
+    }
+
+    @Benchmark
+    public float floatValue(Operands o) {
+        return o.x.floatValue();
+    }
+
+    @Benchmark
+    public long longValue(Operands o) {
+        return o.y.longValue();
+    }
+
+    @Benchmark
+    public BigInteger toBigInteger(Integers i) {
+        return i.integral.toBigInteger();
+    }
+
+    @Benchmark
+    public BigInteger significand(Integers i) {
+        return i.integral.significand(i.mc.minExponent, i.mc.maxExponent);
+    }
+
+    @Benchmark
+    public String toStringDefault(Operands o) {
+        return o.x.toString();
+    }
+
+    @Benchmark
+    public byte[] serialize(Operands o) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o.x);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialize(Operands o) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(o.serialized));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
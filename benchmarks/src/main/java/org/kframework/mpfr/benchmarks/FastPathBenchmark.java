@@ -0,0 +1,106 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+import org.kframework.mpfr.BigFloat;
+import org.kframework.mpfr.BinaryMathContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the speedup of computing operations in
+ * {@link BinaryMathContext#BINARY32} and {@link BinaryMathContext#BINARY64}
+ * with Java arithmetic. With {@code held} true the operands hold their values
+ * as {@code double}, as every value created in those contexts does, so the
+ * results are computed in Java and need no native memory until MPFR needs
+ * them. With {@code held} false the operands are equal values created in a
+ * context with a wider exponent range, which are only held by MPFR, so the
+ * same operations are computed by MPFR.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastPathBenchmark {
+
+    @Param({"BINARY32", "BINARY64"})
+    public String precision;
+
+    @Param({"true", "false"})
+    public boolean held;
+
+    private BinaryMathContext mc;
+
+    // about 3.14, 2.72 and 0.69
+    private BigFloat x;
+    private BigFloat y;
+    private BigFloat z;
+
+    @Setup
+    public void setup() {
+        mc = Operands.context(precision);
+        BinaryMathContext source = held ? mc
+                : new BinaryMathContext(mc.precision, RoundingMode.HALF_EVEN);
+        x = new BigFloat(Math.PI, source);
+        y = new BigFloat(Math.E, source);
+        z = new BigFloat(Math.log(2), source);
+    }
+
+    @Benchmark
+    public BigFloat add() {
+        return x.add(y, mc);
+    }
+
+    @Benchmark
+    public BigFloat multiply() {
+        return x.multiply(y, mc);
+    }
+
+    @Benchmark
+    public BigFloat divide() {
+        return x.divide(y, mc);
+    }
+
+    @Benchmark
+    public BigFloat sqrt() {
+        return x.sqrt(mc);
+    }
+
+    @Benchmark
+    public BigFloat fma() {
+        return x.fma(y, z, mc);
+    }
+
+    @Benchmark
+    public boolean lessThan() {
+        return x.lessThan(y);
+    }
+
+    /**
+     * Evaluates a polynomial by Horner's rule, so that every operation but the
+     * first has the result of the previous one as an operand.
+     */
+    @Benchmark
+    public BigFloat horner() {
+        BigFloat r = z;
+        for (int i = 0; i < 8; i++) {
+            r = r.multiply(x, mc).add(y, mc);
+        }
+        return r;
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.kframework.mpfr.BigFloat;
+import org.kframework.mpfr.BinaryMathContext;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The operands shared by all benchmarks, for every combination of precision
+ * and rounding mode. The operands have as many significant bits as the
+ * precision allows, so that no operation is accidentally exact.
+ *
+ * {@code UNNECESSARY} is not among the rounding modes because it makes
+ * almost every operation throw, and {@code HALF_UP} and {@code HALF_DOWN}
+ * are not supported by {@link BigFloat}.
+ *
+ * @author Dwight Guth
+ */
+@State(Scope.Thread)
+public class Operands {
+
+    @Param({"BINARY32", "BINARY64", "BINARY128", "256", "1024", "16384"})
+    public String precision;
+
+    @Param({"HALF_EVEN", "UP", "DOWN", "CEILING", "FLOOR"})
+    public RoundingMode roundingMode;
+
+    public BinaryMathContext mc;
+
+    // about 3.14, 2.72 and 0.69
+    public BigFloat x;
+    public BigFloat y;
+    public BigFloat z;
+
+    public long l;
+    public double d;
+    public String string;
+    public byte[] serialized;
+    public BigFloat[] terms;
+
+    static BinaryMathContext context(String precision) {
+        if (precision.equals("BINARY32")) {
+            return BinaryMathContext.BINARY32;
+        } else if (precision.equals("BINARY64")) {
+            return BinaryMathContext.BINARY64;
+        } else if (precision.equals("BINARY128")) {
+            return BinaryMathContext.BINARY128;
+        }
+        return new BinaryMathContext(Integer.parseInt(precision), RoundingMode.HALF_EVEN);
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        mc = context(precision).withRoundingMode(roundingMode);
+        BinaryMathContext nearest = mc.withRoundingMode(RoundingMode.HALF_EVEN);
+        x = BigFloat.pi(nearest);
+        y = BigFloat.e(nearest);
+        z = BigFloat.ln2(nearest);
+        l = 0x5DEECE66DL;
+        d = Math.PI;
+        Random random = new Random(42);
+        string = x.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(x);
+        out.close();
+        serialized = bytes.toByteArray();
+        terms = new BigFloat[100];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = new BigFloat(random.nextGaussian(), nearest).multiply(x, nearest);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kframework.mpfr.BigFloat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the transcendental functions and constants of
+ * {@link BigFloat}.
+ *
+ * @author Dwight Guth
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscendentalBenchmark {
+
+    @Benchmark
+    public BigFloat exp(Operands o) {
+        return o.x.exp(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat log(Operands o) {
+        return o.x.log(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat sin(Operands o) {
+        return o.x.sin(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat cos(Operands o) {
+        return o.x.cos(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat tan(Operands o) {
+        return o.x.tan(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat sec(Operands o) {
+        return o.x.sec(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat csc(Operands o) {
+        return o.x.csc(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat cot(Operands o) {
+        return o.x.cot(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat asin(Operands o) {
+        return o.z.asin(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat acos(Operands o) {
+        return o.z.acos(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat atan(Operands o) {
+        return o.x.atan(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat sinh(Operands o) {
+        return o.x.sinh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat cosh(Operands o) {
+        return o.x.cosh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat tanh(Operands o) {
+        return o.x.tanh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat sech(Operands o) {
+        return o.x.sech(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat csch(Operands o) {
+        return o.x.csch(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat coth(Operands o) {
+        return o.x.coth(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat asinh(Operands o) {
+        return o.x.asinh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat acosh(Operands o) {
+        return o.x.acosh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat atanh(Operands o) {
+        return o.z.atanh(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat atan2(Operands o) {
+        return BigFloat.atan2(o.x, o.y, o.mc);
+    }
+
+    @Benchmark
+    public BigFloat pi(Operands o) {
+        return BigFloat.pi(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat e(Operands o) {
+        return BigFloat.e(o.mc);
+    }
+
+    @Benchmark
+    public BigFloat ln2(Operands o) {
+        return BigFloat.ln2(o.mc);
+    }
+}
@@ -4,6 +4,9 @@ package org.kframework.mpfr;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.kframework.mpfr.mpfr.mpfr_t;
 
@@ -47,7 +50,14 @@ import static org.kframework.mpfr.mpfr.*;
  * {@link Math} classes which share these arithmetic operations and values.
  * Any conflicts between the IEEE 754-2008 standard and the corresponding
  * Java specifications are resolved in favor of the IEEE 754-2008 standard.
- * 
+ * When both operands of an addition, subtraction, multiplication, division,
+ * square root or comparison were created in the
+ * {@link BinaryMathContext#BINARY32 BINARY32} or
+ * {@link BinaryMathContext#BINARY64 BINARY64} context, and the operation is
+ * performed in one of those contexts, it is computed with Java {@code float}
+ * or {@code double} arithmetic, which produces the identical result much
+ * faster.
+ *
  * <p>Since the same numerical value can have different representations (with
  * different precisions and exponent ranges), the {@link BinaryMathContext}
  * parameter is used to specify the precision and exponent range of the resulting
@@ -122,9 +132,31 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
     // Serialization version
     private static final long serialVersionUID = 1051598651735015348L;
     /**
-     * The internal MPFR representation of this {@code BigFloat}.
+     * The internal MPFR representation of this {@code BigFloat}, or null if
+     * its value is only held as a {@code double}; see {@link #op()}.
      */
     private final mpfr_t op;
+    
+    /**
+     * The MPFR representation of a value held as a {@code double}, once it has
+     * been created. Racing threads may each create one, which is harmless.
+     */
+    private transient mpfr_t lazyOp;
+    
+    /**
+     * The value of this {@code BigFloat}, if {@link #hasDouble} is true. This
+     * is the case for every number other than NaN created in a context in which
+     * {@link FastPath} performs operations, so that they need not read their
+     * operands from native memory. Neither field is serialized.
+     */
+    private final transient double doubleVal;
+    private final transient boolean hasDouble;
+    
+    /**
+     * The {@link FastPath} kind of the context the value was created in, if
+     * {@link #hasDouble} is true, which gives the precision of {@link #op()}.
+     */
+    private final transient int doubleKind;
 
 
     /**
@@ -199,22 +231,59 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
     
     /**
      * The value Pi, with rounding according to the context settings.
+     * Mathematical constants are cached: once a constant has been computed at
+     * some precision, it is obtained at the same or a lower precision by
+     * rounding the cached value. See {@link #freeCache()}.
      */
     public static BigFloat pi(BinaryMathContext mc) {
-        return new Operation() {
-            
-            @Override
-            public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_const_pi(rop, rnd);
-            }
-        }.execute(mc);
+        return ConstantCache.PI.get(mc);
     }
 
     /**
-     * The value Pi, with rounding according to the context settings.
+     * The value e, the base of the natural logarithm, with rounding according
+     * to the context settings.
+     * @see #pi(BinaryMathContext)
      */
     public static BigFloat e(BinaryMathContext mc) {
-        return new BigFloat(1, mc).exp(mc);
+        return ConstantCache.E.get(mc);
+    }
+    
+    /**
+     * The value log(2), with rounding according to the context settings.
+     * @see #pi(BinaryMathContext)
+     */
+    public static BigFloat ln2(BinaryMathContext mc) {
+        return ConstantCache.LN2.get(mc);
+    }
+    
+    /**
+     * The value of Euler's constant 0.577..., with rounding according to the
+     * context settings.
+     * @see #pi(BinaryMathContext)
+     */
+    public static BigFloat euler(BinaryMathContext mc) {
+        return ConstantCache.EULER.get(mc);
+    }
+    
+    /**
+     * The value of Catalan's constant 0.915..., with rounding according to the
+     * context settings.
+     * @see #pi(BinaryMathContext)
+     */
+    public static BigFloat catalan(BinaryMathContext mc) {
+        return ConstantCache.CATALAN.get(mc);
+    }
+    
+    /**
+     * Frees the memory used to cache mathematical constants, both by this
+     * class and by the underlying MPFR library. The constants will be computed
+     * again the next time they are needed. Note that MPFR may keep a separate
+     * cache for each thread, in which case only the cache of the calling
+     * thread is freed by this method.
+     */
+    public static void freeCache() {
+        ConstantCache.clearAll();
+        mpfr_free_cache();
     }
     
     /**
@@ -236,10 +305,72 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code BigFloat}.
      */
     public BigFloat(byte[] in, BinaryMathContext mc) {
-        op = new mpfr_t(mc.precision);
-        int ternary = mpfr_set_str(op, in, 0, convertRoundingMode(mc.roundingMode));
-        boolean rounded = roundExponent(ternary, op, mc);
-        throwArithmeticException(rounded, mc);
+        this(in, 0, in.length, mc);
+    }
+    
+    /**
+     * Translates a C character array representation of a {@code BigFloat},
+     * given by a range of a {@code byte} array, into a {@code BigFloat}, as in
+     * {@link #BigFloat(byte[], BinaryMathContext)}. The bytes are copied once,
+     * into a NUL-terminated buffer reused by the calling thread, so no array
+     * of their own is allocated and this constructor is suited to parsing the
+     * fields of a larger buffer.
+     * @param in {@code byte} array that is the source of characters.
+     * @param offset the index of the first byte to parse.
+     * @param length the number of bytes to parse.
+     * @param mc the context to use.
+     * @throws ArithmeticException if the result is inexact but the rounding mode is
+     * {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     * @throws IndexOutOfBoundsException if {@code offset} or {@code length} is
+     * negative, or if {@code offset + length} is greater than {@code in.length}.
+     * @throws NumberFormatException if the bytes are not a valid representation
+     * of a {@code BigFloat}.
+     */
+    public BigFloat(final byte[] in, final int offset, final int length, BinaryMathContext mc) {
+        if (offset < 0 || length < 0 || length > in.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        op = new Operation(Metrics.PARSE, "BigFloat(byte[])") {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_set_str(rop, in, offset, length, 0, rnd, emin, emax);
+            }
+        }.compute(mc);
+        doubleVal = fastPathValue(op, mc);
+        doubleKind = fastPathKind(doubleVal, mc);
+        hasDouble = doubleKind != FastPath.NONE;
+    }
+    
+    /**
+     * Translates the remaining bytes of a {@code ByteBuffer}, from its
+     * position to its limit, into a {@code BigFloat}, as in
+     * {@link #BigFloat(byte[], BinaryMathContext)}. The position of the buffer
+     * is not changed. Whether or not the buffer is backed by an array, its
+     * bytes are copied once, into a NUL-terminated buffer reused by the
+     * calling thread.
+     * @param in the buffer holding the characters to parse.
+     * @param mc the context to use.
+     * @throws ArithmeticException if the result is inexact but the rounding mode is
+     * {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     * @throws NumberFormatException if the bytes are not a valid representation
+     * of a {@code BigFloat}.
+     */
+    public BigFloat(final ByteBuffer in, BinaryMathContext mc) {
+        op = new Operation(Metrics.PARSE, "BigFloat(ByteBuffer)") {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_set_str(rop, in, 0, rnd, emin, emax);
+            }
+        }.compute(mc);
+        doubleVal = fastPathValue(op, mc);
+        doubleKind = fastPathKind(doubleVal, mc);
+        hasDouble = doubleKind != FastPath.NONE;
     }
     
     /**
@@ -260,10 +391,42 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code BigFloat}.
      */
     public BigFloat(String in, BinaryMathContext mc) {
-        op = new mpfr_t(mc.precision);
-        int ternary = mpfr_set_str(op, in, 0, convertRoundingMode(mc.roundingMode));
-        boolean rounded = roundExponent(ternary, op, mc);
-        throwArithmeticException(rounded, mc);
+        this(in, 0, in.length(), mc);
+    }
+    
+    /**
+     * Translates the string representation of a {@code BigFloat}, given by
+     * the characters of a {@code CharSequence} from {@code start} to
+     * {@code end}, into a {@code BigFloat}, as in
+     * {@link #BigFloat(String, BinaryMathContext)}. No substring is created.
+     * @param in the sequence holding the characters to parse.
+     * @param start the index of the first character to parse.
+     * @param end the index after the last character to parse.
+     * @param mc the context to use.
+     * @throws ArithmeticException if the result is inexact but the rounding mode is
+     * {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     * @throws IndexOutOfBoundsException if {@code start} or {@code end} is
+     * negative, if {@code end} is greater than {@code in.length()}, or if
+     * {@code start} is greater than {@code end}.
+     * @throws NumberFormatException if the characters are not a valid
+     * representation of a {@code BigFloat}.
+     */
+    public BigFloat(final CharSequence in, final int start, final int end, BinaryMathContext mc) {
+        if (start < 0 || start > end || end > in.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        op = new Operation(Metrics.PARSE, "BigFloat(CharSequence)") {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_set_str(rop, in, start, end, 0, rnd, emin, emax);
+            }
+        }.compute(mc);
+        doubleVal = fastPathValue(op, mc);
+        doubleKind = fastPathKind(doubleVal, mc);
+        hasDouble = doubleKind != FastPath.NONE;
     }
     
     /**
@@ -277,11 +440,28 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @throws IllegalArgumentException if the specified rounding mode is not supported
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
-    public BigFloat(double val, BinaryMathContext mc) {
-        op = new mpfr_t(mc.precision);
-        int ternary = mpfr_set_d(op, val, convertRoundingMode(mc.roundingMode));
-        boolean rounded = roundExponent(ternary, op, mc);
-        throwArithmeticException(rounded, mc);
+    public BigFloat(final double val, BinaryMathContext mc) {
+        int kind = FastPath.kind(mc);
+        if (kind != FastPath.NONE && !Double.isNaN(val)) {
+            if (Metrics.enabled) {
+                Metrics.operation(Metrics.CONVERT);
+            }
+            doubleVal = FastPath.round(kind, val);
+            doubleKind = kind;
+            hasDouble = true;
+            op = null;
+            return;
+        }
+        op = new RoundedOperation(Metrics.CONVERT, "BigFloat(double)") {
+            
+            @Override
+            public int doIt(mpfr_t rop, int rnd) {
+                return mpfr_set_d(rop, val, rnd);
+            }
+        }.compute(mc);
+        doubleVal = 0;
+        doubleKind = FastPath.NONE;
+        hasDouble = false;
     }
     
     /**
@@ -296,11 +476,22 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @throws IllegalArgumentException if the specified rounding mode is not supported
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
-    public BigFloat(BigInteger val, BinaryMathContext mc) {
-        op = new mpfr_t(mc.precision);
-        int ternary = mpfr_set_z(op, new mpz_t(val), convertRoundingMode(mc.roundingMode));
-        boolean rounded = roundExponent(ternary, op, mc);
-        throwArithmeticException(rounded, mc);
+    public BigFloat(final BigInteger val, BinaryMathContext mc) {
+        op = new RoundedOperation(Metrics.CONVERT, "BigFloat(BigInteger)") {
+            
+            @Override
+            public int doIt(mpfr_t rop, int rnd) {
+                mpz_t z = new mpz_t(val);
+                try {
+                    return mpfr_set_z(rop, z, rnd);
+                } finally {
+                    z.clear();
+                }
+            }
+        }.compute(mc);
+        doubleVal = fastPathValue(op, mc);
+        doubleKind = fastPathKind(doubleVal, mc);
+        hasDouble = doubleKind != FastPath.NONE;
     }
     
     /**
@@ -315,9 +506,29 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @throws IllegalArgumentException if the specified rounding mode is not supported
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
-    public BigFloat(long val, BinaryMathContext mc) {
-        // mpfr doesn't have a mpfr_set_ll (for long long), so we need to convert to BigInteger first.
-        this(BigInteger.valueOf(val), mc);
+    public BigFloat(final long val, BinaryMathContext mc) {
+        int kind = FastPath.kind(mc);
+        if (kind != FastPath.NONE) {
+            if (Metrics.enabled) {
+                Metrics.operation(Metrics.CONVERT);
+            }
+            // each conversion rounds correctly, to nearest with ties to even
+            doubleVal = kind == FastPath.DOUBLE ? (double) val : (float) val;
+            doubleKind = kind;
+            hasDouble = true;
+            op = null;
+            return;
+        }
+        op = new Operation(Metrics.CONVERT, "BigFloat(long)") {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_set_sj(rop, val, rnd, emin, emax);
+            }
+        }.compute(mc);
+        doubleVal = 0;
+        doubleKind = FastPath.NONE;
+        hasDouble = false;
     }
     
     /**
@@ -374,17 +585,132 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
                 mpfr_set_inf(op, (sign ? -1 : 1));
             }
         } else {
-            op = new mpfr_t(mc.precision);
-            int ternary = mpfr_set_z_2exp(op, new mpz_t(significand), exponent-(mc.precision-1), convertRoundingMode(mc.roundingMode));
-            boolean rounded = roundExponent(ternary, op, mc);
-            throwArithmeticException(rounded, mc);
+            final BigInteger z = significand;
+            final long exp = exponent - (mc.precision - 1);
+            op = new RoundedOperation(Metrics.CONVERT, "BigFloat(boolean, BigInteger, long)") {
+                
+                @Override
+                public int doIt(mpfr_t rop, int rnd) {
+                    mpz_t mpz = new mpz_t(z);
+                    try {
+                        return mpfr_set_z_2exp(rop, mpz, exp, rnd);
+                    } finally {
+                        mpz.clear();
+                    }
+                }
+            }.compute(mc);
         }
         boolean rounded = mpfr_setsign(op, op, sign, convertRoundingMode(mc.roundingMode));
         assert !rounded;
+        doubleVal = fastPathValue(op, mc);
+        doubleKind = fastPathKind(doubleVal, mc);
+        hasDouble = doubleKind != FastPath.NONE;
     }
     
-    private BigFloat(mpfr_t op) {
+    BigFloat(mpfr_t op) {
+        this(op, Double.NaN, FastPath.NONE);
+    }
+    
+    /**
+     * Constructs a {@code BigFloat} whose value is {@code op}, if it is not
+     * null, and is also held as the specified {@code double} if {@code kind}
+     * is the {@link FastPath} kind of the context it was created in.
+     */
+    private BigFloat(mpfr_t op, double val, int kind) {
         this.op = op;
+        this.doubleVal = val;
+        this.doubleKind = kind;
+        this.hasDouble = kind != FastPath.NONE;
+    }
+    
+    /**
+     * @return a {@code BigFloat} whose value is {@code rop}, the result of an
+     * operation in the specified context.
+     */
+    private static BigFloat result(mpfr_t rop, BinaryMathContext mc) {
+        double val = fastPathValue(rop, mc);
+        return new BigFloat(rop, val, fastPathKind(val, mc));
+    }
+    
+    /**
+     * @return the value of {@code rop}, the result of an operation in the
+     * specified context, if {@link FastPath} performs operations in that
+     * context, or NaN otherwise. The conversion is exact.
+     */
+    private static double fastPathValue(mpfr_t rop, BinaryMathContext mc) {
+        if (FastPath.kind(mc) == FastPath.NONE) {
+            return Double.NaN;
+        }
+        return mpfr_get_d(rop, MPFR_RNDN);
+    }
+    
+    /**
+     * @return the {@link FastPath} kind of the specified context if the
+     * specified value, returned by {@link #fastPathValue}, can be held as a
+     * {@code double}, or {@link FastPath#NONE} otherwise.
+     */
+    private static int fastPathKind(double val, BinaryMathContext mc) {
+        return Double.isNaN(val) ? FastPath.NONE : FastPath.kind(mc);
+    }
+    
+    /**
+     * @return the internal MPFR representation of this {@code BigFloat}. A
+     * value which is only held as a {@code double} gets it here, the first
+     * time it is needed, so that results computed by {@link FastPath} and
+     * never passed to MPFR need not allocate native memory at all.
+     */
+    mpfr_t op() {
+        if (op != null) {
+            return op;
+        }
+        mpfr_t x = lazyOp;
+        if (x == null) {
+            x = new mpfr_t(FastPath.precision(doubleKind), doubleVal);
+            lazyOp = x;
+        }
+        return x;
+    }
+    
+    /**
+     * Gives a value which is only held as a {@code double} its MPFR
+     * representation before it is serialized, since neither field holding the
+     * {@code double} is serialized.
+     */
+    private Object writeReplace() {
+        return op == null ? new BigFloat(op()) : this;
+    }
+    
+    /**
+     * @return true if the value of this {@code BigFloat} is held as a
+     * {@code double}, so that {@link FastPath} can use it as an operand.
+     */
+    boolean hasDoubleValue() {
+        return hasDouble;
+    }
+    
+    /**
+     * Performs an operation with {@link FastPath} if the context and the
+     * operands allow it. Unary operations pass {@code this} as {@code b}
+     * and {@code c}, and binary operations pass it as {@code c}.
+     * @return the result, or null if it must be computed by MPFR.
+     */
+    private BigFloat hardware(int fn, BigFloat b, BigFloat c, BinaryMathContext mc) {
+        if (!hasDouble || !b.hasDouble || !c.hasDouble) {
+            return null;
+        }
+        int kind = FastPath.kind(mc);
+        if (kind == FastPath.NONE || !FastPath.fits(kind, doubleVal)
+                || !FastPath.fits(kind, b.doubleVal) || !FastPath.fits(kind, c.doubleVal)) {
+            return null;
+        }
+        double r = FastPath.apply(fn, kind, doubleVal, b.doubleVal, c.doubleVal);
+        if (Double.isNaN(r)) {
+            return null;
+        }
+        if (Metrics.enabled) {
+            Metrics.fastPath(fn);
+        }
+        return new BigFloat(null, r, kind);
     }
     
     /**
@@ -410,8 +736,8 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public byte byteValue() {
-        if (mpfr_inf_p(op)) {
-            if (mpfr_signbit(op)) {
+        if (mpfr_inf_p(op())) {
+            if (mpfr_signbit(op())) {
                 //negative
                 return Byte.MIN_VALUE;
             } else {
@@ -437,9 +763,9 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * part, is NaN or infinite, or will not fit in a {@code byte}.
      */
     public byte byteValueExact() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op) || !mpfr_integer_p(op)
-                || mpfr_greater_p(op, byteMaxValue.op)
-                || mpfr_less_p(op, byteMinValue.op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op()) || !mpfr_integer_p(op())
+                || mpfr_greater_p(op(), byteMaxValue.op())
+                || mpfr_less_p(op(), byteMinValue.op())) {
             throw new ArithmeticException("Rounding necessary");
         }
         return byteValue();
@@ -465,7 +791,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public double doubleValue() {
-        return mpfr_get_d(op, MPFR_RNDN);
+        if (hasDouble) {
+            return doubleVal;
+        }
+        return mpfr_get_d(op(), MPFR_RNDN);
     }
     
     /**
@@ -480,7 +809,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     public double doubleValueExact() {
         double d = doubleValue();
-        if (mpfr_cmp_d(op, d) != 0) {
+        if (mpfr_cmp_d(op(), d) != 0) {
             throw new ArithmeticException("Rounding necessary");
         }
         return d;
@@ -501,7 +830,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public float floatValue() {
-        return mpfr_get_flt(op, MPFR_RNDN);
+        if (hasDouble) {
+            return (float) doubleVal;
+        }
+        return mpfr_get_flt(op(), MPFR_RNDN);
     }
     
     /**
@@ -516,7 +848,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     public float floatValueExact() {
         float f = floatValue();
-        if (mpfr_cmp_d(op, f) != 0) {
+        if (mpfr_cmp_d(op(), f) != 0) {
             throw new ArithmeticException("Rounding necessary");
         }
         return f;
@@ -545,8 +877,8 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public int intValue() {
-        if (mpfr_inf_p(op)) {
-            if (mpfr_signbit(op)) {
+        if (mpfr_inf_p(op())) {
+            if (mpfr_signbit(op())) {
                 //negative
                 return Integer.MIN_VALUE;
             } else {
@@ -572,9 +904,9 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * part, is NaN or infinite, or will not fit in an {@code int}.
      */
     public int intValueExact() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op) || !mpfr_integer_p(op)
-                || mpfr_greater_p(op, intMaxValue.op)
-                || mpfr_less_p(op, intMinValue.op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op()) || !mpfr_integer_p(op())
+                || mpfr_greater_p(op(), intMaxValue.op())
+                || mpfr_less_p(op(), intMinValue.op())) {
             throw new ArithmeticException("Rounding necessary");
         }
         return intValue();
@@ -608,7 +940,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return this {@code BigFloat} converted to a {@code BigInteger}.
      */
     public BigInteger toBigInteger() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op())) {
             return BigInteger.ZERO;
         }
         return toBigIntegerInternal();
@@ -624,16 +956,22 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * fractional part.
      */
     public BigInteger toBigIntegerExact() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op) || !mpfr_integer_p(op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op()) || !mpfr_integer_p(op())) {
             throw new ArithmeticException("Rounding necessary");
         }
         return toBigIntegerInternal();
     }
 
     private BigInteger toBigIntegerInternal() {
+        Object event = Events.begin();
         mpz_t rop = new mpz_t();
-        mpfr_get_z(rop, op, MPFR_RNDZ);
-        return new BigInteger(mpz_get_str(10, rop));
+        try {
+            mpfr_get_z(rop, op(), MPFR_RNDZ);
+            return mpz_get_BigInteger(rop);
+        } finally {
+            rop.clear();
+            Events.end(event, "toBigInteger", op().prec(), RoundingMode.DOWN);
+        }
     }
     
     /**
@@ -659,8 +997,8 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public long longValue() {
-        if (mpfr_inf_p(op)) {
-            if (mpfr_signbit(op)) {
+        if (mpfr_inf_p(op())) {
+            if (mpfr_signbit(op())) {
                 //negative
                 return Long.MIN_VALUE;
             } else {
@@ -686,9 +1024,9 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * part, is NaN or infinite, or will not fit in a {@code long}.
      */
     public long longValueExact() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op) || !mpfr_integer_p(op)
-                || mpfr_greater_p(op, longMaxValue.op)
-                || mpfr_less_p(op, longMinValue.op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op()) || !mpfr_integer_p(op())
+                || mpfr_greater_p(op(), longMaxValue.op())
+                || mpfr_less_p(op(), longMinValue.op())) {
             throw new ArithmeticException("Rounding necessary");
         }
         return longValue();
@@ -717,8 +1055,8 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public short shortValue() {
-        if (mpfr_inf_p(op)) {
-            if (mpfr_signbit(op)) {
+        if (mpfr_inf_p(op())) {
+            if (mpfr_signbit(op())) {
                 //negative
                 return Short.MIN_VALUE;
             } else {
@@ -744,9 +1082,9 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * part, is NaN or infinite, or will not fit in a {@code short}.
      */
     public short shortValueExact() {
-        if (mpfr_nan_p(op) || mpfr_inf_p(op) || !mpfr_integer_p(op)
-                || mpfr_greater_p(op, shortMaxValue.op)
-                || mpfr_less_p(op, shortMinValue.op)) {
+        if (mpfr_nan_p(op()) || mpfr_inf_p(op()) || !mpfr_integer_p(op())
+                || mpfr_greater_p(op(), shortMaxValue.op())
+                || mpfr_less_p(op(), shortMinValue.op())) {
             throw new ArithmeticException("Rounding necessary");
         }
         return shortValue();
@@ -759,7 +1097,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return the precision of this {@code BigFloat}.
      */
     public int precision() {
-        return op._mpfr_prec;
+        if (op == null) {
+            return FastPath.precision(doubleKind);
+        }
+        return op.prec();
     }
     
     /**
@@ -774,7 +1115,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return The sign bit of this floating point number.
      */
     public boolean sign() {
-        return mpfr_signbit(op);
+        return op().sign() < 0;
     }
     
     /**
@@ -798,10 +1139,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         if (isPositiveZero() || isNegativeZero() || isSubnormal(minExponent)) {
             return minExponent - 1;
         }
-        if (op._mpfr_exp - 1 > maxExponent || op._mpfr_exp - 1 < minExponent) {
+        if (op().exp() - 1 > maxExponent || op().exp() - 1 < minExponent) {
             throw new ArithmeticException("exponent is not in the specified exponent range");
         }
-        return op._mpfr_exp - 1;
+        return op().exp() - 1;
     }
     
     /**
@@ -828,15 +1169,304 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         if (isInfinite() || isPositiveZero() || isNegativeZero()) {
             return BigInteger.ZERO;
         }
+        Object event = Events.begin();
         mpz_t rop = new mpz_t();
-        mpfr_get_z_2exp(rop, op);
-        BigInteger scaledSignificand = new BigInteger(mpz_get_str(10, rop)).abs();
+        BigInteger scaledSignificand;
+        try {
+            mpfr_get_z_2exp(rop, op());
+            scaledSignificand = mpz_get_BigInteger(rop).abs();
+        } finally {
+            rop.clear();
+            Events.end(event, "significand", op().prec(), null);
+        }
         if (isSubnormal(minExponent)) {
-            return scaledSignificand.shiftRight((int)(minExponent - (op._mpfr_exp - 1)));
+            return scaledSignificand.shiftRight((int)(minExponent - (op().exp() - 1)));
         }
         return scaledSignificand;
     }
     
+    /**
+     * Returns the IEEE 754 interchange encoding of this {@code BigFloat} in the
+     * specified format, in the low-order bits of an {@code int}. The value is
+     * first rounded to the precision and exponent range of the format according
+     * to its rounding mode. Infinities, zeroes and subnormal numbers are encoded
+     * as usual; NaN is encoded as a quiet NaN with an all-zero payload and the
+     * sign bit of this {@code BigFloat}. For example,
+     * {@code toIntBits(BinaryMathContext.BINARY32)} is equivalent to
+     * {@code Float.floatToIntBits(floatValue())} for every number but NaN which
+     * is exactly representable as a {@code float}. This
+     * method reads the bits of the significand directly, and allocates no Java
+     * objects.
+     *
+     * @param format the interchange format, which must be at most 32 bits wide.
+     * @return the encoding of this {@code BigFloat} in the specified format.
+     * @throws ArithmeticException if the result is inexact but the rounding mode
+     * is {@code UNNECESSARY}; or if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the specified rounding mode is not
+     * supported, if the format is wider than 32 bits, or if its exponent range
+     * is not [2-2<sup>w-1</sup>, 2<sup>w-1</sup>-1] for some number of
+     * exponent bits w.
+     * @see #fromIntBits(int, BinaryMathContext)
+     */
+    public int toIntBits(BinaryMathContext format) {
+        return (int) encode(format, exponentBits(format, 32));
+    }
+    
+    /**
+     * Returns the IEEE 754 interchange encoding of this {@code BigFloat} in the
+     * specified format, in the low-order bits of a {@code long}, as described in
+     * {@link #toIntBits(BinaryMathContext)}. For example,
+     * {@code toLongBits(BinaryMathContext.BINARY64)} is equivalent to
+     * {@code Double.doubleToLongBits(doubleValue())} for every number but NaN
+     * which is exactly representable as a {@code double}.
+     *
+     * @param format the interchange format, which must be at most 64 bits wide.
+     * @return the encoding of this {@code BigFloat} in the specified format.
+     * @throws ArithmeticException if the result is inexact but the rounding mode
+     * is {@code UNNECESSARY}; or if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the specified rounding mode is not
+     * supported, if the format is wider than 64 bits, or if its exponent range
+     * is not that of an interchange format.
+     * @see #fromLongBits(long, BinaryMathContext)
+     */
+    public long toLongBits(BinaryMathContext format) {
+        return encode(format, exponentBits(format, 64));
+    }
+    
+    /**
+     * Writes the IEEE 754 interchange encoding of this {@code BigFloat} in the
+     * specified format of any width k, as described in
+     * {@link #toIntBits(BinaryMathContext)}, to the ceil(k/64) elements of
+     * {@code dst} starting at {@code offset}, least significant first. For
+     * example, the encoding of a {@link BinaryMathContext#BINARY128} number
+     * occupies two elements, the first of which holds the low-order 64 bits of
+     * the significand. Unused bits of the last element are cleared.
+     *
+     * @param format the interchange format.
+     * @param dst the array to write the encoding to.
+     * @param offset the index of the first element to write.
+     * @throws ArithmeticException if the result is inexact but the rounding mode
+     * is {@code UNNECESSARY}; or if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the specified rounding mode is not
+     * supported, or if the exponent range of the format is not that of an
+     * interchange format.
+     * @throws IndexOutOfBoundsException if the encoding does not fit in
+     * {@code dst} at {@code offset}.
+     * @see #fromBits(long[], int, BinaryMathContext)
+     */
+    public void toBits(BinaryMathContext format, long[] dst, int offset) {
+        int w = exponentBits(format, Integer.MAX_VALUE);
+        checkBounds(dst.length, offset, (format.precision + w + 63L) / 64);
+        encode(format, w, dst, null, offset);
+    }
+    
+    /**
+     * Writes the IEEE 754 interchange encoding of this {@code BigFloat} in the
+     * specified format of any width k which is a multiple of 8, as described
+     * in {@link #toIntBits(BinaryMathContext)}, to the k/8 elements of
+     * {@code dst} starting at {@code offset}, in big-endian order.
+     *
+     * @param format the interchange format.
+     * @param dst the array to write the encoding to.
+     * @param offset the index of the first element to write.
+     * @throws ArithmeticException if the result is inexact but the rounding mode
+     * is {@code UNNECESSARY}; or if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the specified rounding mode is not
+     * supported, if the width of the format is not a multiple of 8, or if its
+     * exponent range is not that of an interchange format.
+     * @throws IndexOutOfBoundsException if the encoding does not fit in
+     * {@code dst} at {@code offset}.
+     * @see #fromBytes(byte[], int, BinaryMathContext)
+     */
+    public void toBytes(BinaryMathContext format, byte[] dst, int offset) {
+        int w = exponentBits(format, Integer.MAX_VALUE);
+        checkBounds(dst.length, offset, byteWidth(format, w));
+        encode(format, w, null, dst, offset);
+    }
+    
+    /**
+     * Returns the {@code BigFloat} whose IEEE 754 interchange encoding in the
+     * specified format is held in the low-order bits of {@code bits}. Any
+     * higher-order bits are ignored. The result has the precision of the
+     * format, and is always exact. Every NaN encoding decodes to NaN with the
+     * sign bit of the encoding; the payload is discarded. For example,
+     * {@code fromIntBits(bits, BinaryMathContext.BINARY32)} is equal to
+     * {@code new BigFloat(Float.intBitsToFloat(bits), BinaryMathContext.BINARY32)}.
+     *
+     * @param bits the encoding of the result.
+     * @param format the interchange format, which must be at most 32 bits wide.
+     * @return the decoded {@code BigFloat}.
+     * @throws ArithmeticException if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the format is wider than 32 bits, or
+     * if its exponent range is not that of an interchange format.
+     * @see #toIntBits(BinaryMathContext)
+     */
+    public static BigFloat fromIntBits(int bits, BinaryMathContext format) {
+        return decode(bits & 0xffffffffL, null, null, 0, format, exponentBits(format, 32));
+    }
+    
+    /**
+     * Returns the {@code BigFloat} whose IEEE 754 interchange encoding in the
+     * specified format is held in the low-order bits of {@code bits}, as
+     * described in {@link #fromIntBits(int, BinaryMathContext)}.
+     *
+     * @param bits the encoding of the result.
+     * @param format the interchange format, which must be at most 64 bits wide.
+     * @return the decoded {@code BigFloat}.
+     * @throws ArithmeticException if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the format is wider than 64 bits, or
+     * if its exponent range is not that of an interchange format.
+     * @see #toLongBits(BinaryMathContext)
+     */
+    public static BigFloat fromLongBits(long bits, BinaryMathContext format) {
+        return decode(bits, null, null, 0, format, exponentBits(format, 64));
+    }
+    
+    /**
+     * Returns the {@code BigFloat} whose IEEE 754 interchange encoding in the
+     * specified format is stored in {@code src} starting at {@code offset} as
+     * written by {@link #toBits(BinaryMathContext, long[], int)}, and
+     * otherwise as described in {@link #fromIntBits(int, BinaryMathContext)}.
+     *
+     * @param src the array holding the encoding.
+     * @param offset the index of the first element of the encoding.
+     * @param format the interchange format.
+     * @return the decoded {@code BigFloat}.
+     * @throws ArithmeticException if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the exponent range of the format is
+     * not that of an interchange format.
+     * @throws IndexOutOfBoundsException if the encoding does not fit in
+     * {@code src} at {@code offset}.
+     */
+    public static BigFloat fromBits(long[] src, int offset, BinaryMathContext format) {
+        int w = exponentBits(format, Integer.MAX_VALUE);
+        checkBounds(src.length, offset, (format.precision + w + 63L) / 64);
+        return decode(0, src, null, offset, format, w);
+    }
+    
+    /**
+     * Returns the {@code BigFloat} whose IEEE 754 interchange encoding in the
+     * specified format is stored in {@code src} starting at {@code offset} as
+     * written by {@link #toBytes(BinaryMathContext, byte[], int)}, and
+     * otherwise as described in {@link #fromIntBits(int, BinaryMathContext)}.
+     *
+     * @param src the array holding the encoding.
+     * @param offset the index of the first element of the encoding.
+     * @param format the interchange format.
+     * @return the decoded {@code BigFloat}.
+     * @throws ArithmeticException if the exponent range of the format is not
+     * allowed by the underlying MPFR library.
+     * @throws IllegalArgumentException if the width of the format is not a
+     * multiple of 8, or if its exponent range is not that of an interchange
+     * format.
+     * @throws IndexOutOfBoundsException if the encoding does not fit in
+     * {@code src} at {@code offset}.
+     */
+    public static BigFloat fromBytes(byte[] src, int offset, BinaryMathContext format) {
+        int w = exponentBits(format, Integer.MAX_VALUE);
+        checkBounds(src.length, offset, byteWidth(format, w));
+        return decode(0, null, src, offset, format, w);
+    }
+    
+    /**
+     * @return the number of exponent bits of the specified interchange format.
+     * @throws IllegalArgumentException if the exponent range of the format is
+     * not that of an interchange format, or if it is wider than
+     * {@code maxWidth} bits.
+     */
+    static int exponentBits(BinaryMathContext format, int maxWidth) {
+        long bias = format.maxExponent;
+        if (bias < 1 || (bias & (bias + 1)) != 0 || format.minExponent != 1 - bias) {
+            throw new IllegalArgumentException("not an interchange format");
+        }
+        checkExponentRange(format.minExponent, format.maxExponent, format.precision);
+        int w = 65 - Long.numberOfLeadingZeros(bias);
+        if ((long) format.precision + w > maxWidth) {
+            throw new IllegalArgumentException("format is wider than " + maxWidth + " bits");
+        }
+        return w;
+    }
+    
+    private static int byteWidth(BinaryMathContext format, int w) {
+        long k = (long) format.precision + w;
+        if (k % 8 != 0) {
+            throw new IllegalArgumentException("format width is not a multiple of 8");
+        }
+        return (int) (k / 8);
+    }
+    
+    private static void checkBounds(int length, int offset, long count) {
+        if (offset < 0 || offset + count > length) {
+            throw new IndexOutOfBoundsException("encoding does not fit in array");
+        }
+    }
+    
+    private long encode(BinaryMathContext format, int w) {
+        int rnd = convertRoundingMode(format.roundingMode);
+        long bits;
+        boolean rounded;
+        ExponentRange.enter(emin(format.minExponent, format.precision), emax(format.maxExponent),
+                op(), null, null);
+        try {
+            bits = mpfr_java_encode64(op(), format.precision, w, rnd);
+            rounded = format.roundingMode == RoundingMode.UNNECESSARY && mpfr_inexflag_p();
+        } finally {
+            ExponentRange.exit();
+        }
+        throwArithmeticException(rounded, format);
+        return bits;
+    }
+    
+    private void encode(BinaryMathContext format, int w, long[] words, byte[] bytes, int offset) {
+        int rnd = convertRoundingMode(format.roundingMode);
+        boolean rounded;
+        ExponentRange.enter(emin(format.minExponent, format.precision), emax(format.maxExponent),
+                op(), null, null);
+        try {
+            if (words != null) {
+                rounded = mpfr_java_encode_words(words, offset, op(), format.precision, w, rnd) != 0;
+            } else {
+                rounded = mpfr_java_encode_bytes(bytes, offset, op(), format.precision, w, rnd) != 0;
+            }
+        } finally {
+            ExponentRange.exit();
+        }
+        throwArithmeticException(rounded, format);
+    }
+    
+    private static BigFloat decode(long bits, long[] words, byte[] bytes, int offset,
+            BinaryMathContext format, int w) {
+        int kind = words == null && bytes == null ? FastPath.kind(format) : FastPath.NONE;
+        if (kind != FastPath.NONE) {
+            double val = kind == FastPath.DOUBLE ? Double.longBitsToDouble(bits)
+                    : Float.intBitsToFloat((int) bits);
+            if (!Double.isNaN(val)) {
+                return new BigFloat(null, val, kind);
+            }
+        }
+        mpfr_t rop = new mpfr_t(format.precision);
+        ExponentRange.enter(emin(format.minExponent, format.precision), emax(format.maxExponent));
+        try {
+            if (words != null) {
+                mpfr_java_decode_words(rop, words, offset, format.precision, w);
+            } else if (bytes != null) {
+                mpfr_java_decode_bytes(rop, bytes, offset, format.precision, w);
+            } else {
+                mpfr_java_decode64(rop, bits, format.precision, w);
+            }
+        } finally {
+            ExponentRange.exit();
+        }
+        return new BigFloat(rop);
+    }
+    
     /**
      * Returns {@code true} if the specified number is a Not-a-Number (NaN)
      * value, {@code false} otherwise.
@@ -844,7 +1474,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return {@code} true if {@code this} is NaN; {@code false} otherwise.
      */
     public boolean isNaN() {
-        return mpfr_nan_p(op);
+        return op().exp() == MPFR_EXP_NAN;
     }
     
     /**
@@ -855,7 +1485,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * infinity; {@code false} otherwise.
      */
     public boolean isInfinite() {
-        return mpfr_inf_p(op);
+        return op().exp() == MPFR_EXP_INF;
     }
 
     /**
@@ -865,7 +1495,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return {@code} true if {@code this} is +0.0; {@code false} otherwise.
      */
     public boolean isPositiveZero() {
-        return mpfr_zero_p(op) && !mpfr_signbit(op);
+        return op().exp() == MPFR_EXP_ZERO && op().sign() > 0;
     }
     
     /**
@@ -875,7 +1505,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return {@code} true if {@code this} is -0.0; {@code false} otherwise.
      */
     public boolean isNegativeZero() {
-        return mpfr_zero_p(op) && mpfr_signbit(op);
+        return op().exp() == MPFR_EXP_ZERO && op().sign() < 0;
     }
     
     /**
@@ -892,10 +1522,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         if (isNaN() || isInfinite() || isPositiveZero() || isNegativeZero()) {
             return false;
         }
-        if (minExponent - (op._mpfr_exp - 1) > precision() - 1) {
+        if (minExponent - (op().exp() - 1) > precision() - 1) {
             throw new ArithmeticException("the specified BigFloat is not in the provided exponent range");
         }
-        return (op._mpfr_exp - 1) < minExponent;
+        return (op().exp() - 1) < minExponent;
     }
     
     /**
@@ -912,14 +1542,153 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public String toString() {
-        if (isInfinite() && sign()) {
-            return "-Infinity";
-        } else if (isInfinite()) {
-            return "Infinity";
-        } else if (isNaN()) {
-            return "NaN";
+        return mpfr_java_format(op(), false, 0, 0, "toString");
+    }
+    
+    /**
+     * Appends the string representation of this {@code BigFloat} returned by
+     * {@link #toString()} to {@code sb}, without creating a {@code String}.
+     * The representation is formatted into a buffer reused by the calling
+     * thread.
+     * @param sb the {@code StringBuilder} to append to.
+     * @return {@code sb}.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        mpfr_java_format(op(), false, 0, 0, "appendTo(StringBuilder)", sb);
+        return sb;
+    }
+    
+    /**
+     * Writes the string representation of this {@code BigFloat} returned by
+     * {@link #toString()}, which consists only of ASCII characters, to
+     * {@code dst} at {@code offset}, one byte per character.
+     * @param dst the array to write to.
+     * @param offset the index of the first byte to write.
+     * @return the number of bytes written.
+     * @throws IndexOutOfBoundsException if the representation does not fit in
+     * {@code dst} at {@code offset}, in which case nothing is written.
+     */
+    public int writeTo(byte[] dst, int offset) {
+        return mpfr_java_format(op(), false, 0, 0, "writeTo(byte[], int)", dst, offset);
+    }
+    
+    /**
+     * Writes the string representation of this {@code BigFloat} returned by
+     * {@link #toString()} to {@code dst} at its position, one byte per
+     * character, and advances the position past it.
+     * @param dst the buffer to write to.
+     * @throws java.nio.BufferOverflowException if the representation does not
+     * fit in the remaining bytes of {@code dst}, in which case nothing is
+     * written.
+     * @throws java.nio.ReadOnlyBufferException if {@code dst} is read-only.
+     */
+    public void writeTo(ByteBuffer dst) {
+        mpfr_java_format(op(), false, 0, 0, "writeTo(ByteBuffer)", dst);
+    }
+    
+    /**
+     * Returns the shortest string representation of this {@code BigFloat}
+     * rounded to the specified context. The representation is in the same
+     * scientific notation as {@link #toString()}, but has the fewest
+     * significant decimal digits which are converted back to the same value by
+     * {@link #BigFloat(String, BinaryMathContext)} in a context with the same
+     * precision and exponent range as {@code mc} and the rounding mode
+     * {@link RoundingMode#HALF_EVEN HALF_EVEN}. For example, the value of the
+     * {@code double} literal {@code 0.1} is represented as {@code "1e-01"} in
+     * {@link BinaryMathContext#BINARY64}, and the smallest subnormal number of
+     * {@link BinaryMathContext#BINARY32} as {@code "1e-45"}. Infinities and NaN
+     * are represented as by {@link #toString()}.
+     * @param mc the context to round to, and whose precision and exponent
+     * range the representation is read back in.
+     * @return the shortest representation of this {@code BigFloat} in
+     * {@code mc}.
+     * @throws ArithmeticException if this {@code BigFloat} is inexact in
+     * {@code mc} but the rounding mode is {@code UNNECESSARY}; or as in
+     * {@link #round(BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #round(BinaryMathContext)}.
+     */
+    public String toString(BinaryMathContext mc) {
+        return appendTo(new StringBuilder(), mc, "toString(BinaryMathContext)").toString();
+    }
+    
+    /**
+     * Appends the shortest string representation of this {@code BigFloat}
+     * rounded to the specified context, as returned by
+     * {@link #toString(BinaryMathContext)}, to {@code sb}.
+     * @param sb the {@code StringBuilder} to append to.
+     * @param mc the context to round to.
+     * @return {@code sb}.
+     * @throws ArithmeticException as in {@link #toString(BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #toString(BinaryMathContext)}.
+     */
+    public StringBuilder appendTo(StringBuilder sb, BinaryMathContext mc) {
+        return appendTo(sb, mc, "appendTo(StringBuilder, BinaryMathContext)");
+    }
+    
+    private StringBuilder appendTo(StringBuilder sb, BinaryMathContext mc, String operation) {
+        BigFloat x = round(mc);
+        long emin = emin(mc.minExponent, mc.precision);
+        long emax = emax(mc.maxExponent);
+        ExponentRange.enter(emin, emax, x.op(), null, null);
+        try {
+            mpfr_java_format(x.op(), true, emin, emax, operation, sb);
+        } finally {
+            ExponentRange.exit();
+        }
+        return sb;
+    }
+    
+    /**
+     * Writes the shortest string representation of this {@code BigFloat}
+     * rounded to the specified context, as returned by
+     * {@link #toString(BinaryMathContext)}, to {@code dst} at {@code offset},
+     * one byte per character.
+     * @param dst the array to write to.
+     * @param offset the index of the first byte to write.
+     * @param mc the context to round to.
+     * @return the number of bytes written.
+     * @throws ArithmeticException as in {@link #toString(BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #toString(BinaryMathContext)}.
+     * @throws IndexOutOfBoundsException if the representation does not fit in
+     * {@code dst} at {@code offset}, in which case nothing is written.
+     */
+    public int writeTo(byte[] dst, int offset, BinaryMathContext mc) {
+        BigFloat x = round(mc);
+        long emin = emin(mc.minExponent, mc.precision);
+        long emax = emax(mc.maxExponent);
+        ExponentRange.enter(emin, emax, x.op(), null, null);
+        try {
+            return mpfr_java_format(x.op(), true, emin, emax, "writeTo(byte[], int, BinaryMathContext)",
+                    dst, offset);
+        } finally {
+            ExponentRange.exit();
+        }
+    }
+    
+    /**
+     * Writes the shortest string representation of this {@code BigFloat}
+     * rounded to the specified context, as returned by
+     * {@link #toString(BinaryMathContext)}, to {@code dst} at its position,
+     * one byte per character, and advances the position past it.
+     * @param dst the buffer to write to.
+     * @param mc the context to round to.
+     * @throws ArithmeticException as in {@link #toString(BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #toString(BinaryMathContext)}.
+     * @throws java.nio.BufferOverflowException if the representation does not
+     * fit in the remaining bytes of {@code dst}, in which case nothing is
+     * written.
+     * @throws java.nio.ReadOnlyBufferException if {@code dst} is read-only.
+     */
+    public void writeTo(ByteBuffer dst, BinaryMathContext mc) {
+        BigFloat x = round(mc);
+        long emin = emin(mc.minExponent, mc.precision);
+        long emax = emax(mc.maxExponent);
+        ExponentRange.enter(emin, emax, x.op(), null, null);
+        try {
+            mpfr_java_format(x.op(), true, emin, emax, "writeTo(ByteBuffer, BinaryMathContext)", dst);
+        } finally {
+            ExponentRange.exit();
         }
-        return toString("%Re");
     }
     
     /**
@@ -934,7 +1703,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * to {@code format}.
      */
     public String toString(String format) {
-        return mpfr_asprintf(format, op);
+        return mpfr_asprintf(format, op());
     }
     
     /**
@@ -960,7 +1729,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code false} otherwise.
      */
     public boolean lessThan(BigFloat anotherBigFloat) {
-        return mpfr_less_p(op, anotherBigFloat.op);
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            return doubleVal < anotherBigFloat.doubleVal;
+        }
+        return !isNaN() && !anotherBigFloat.isNaN() && compareValue(anotherBigFloat) < 0;
     }
     
     /**
@@ -986,7 +1758,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code anotherBigFloat}; {@code false} otherwise.
      */
     public boolean greaterThan(BigFloat anotherBigFloat) {
-        return mpfr_greater_p(op, anotherBigFloat.op);
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            return doubleVal > anotherBigFloat.doubleVal;
+        }
+        return !isNaN() && !anotherBigFloat.isNaN() && compareValue(anotherBigFloat) > 0;
     }
     
     /**
@@ -1012,7 +1787,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code anotherBigFloat}; {@code false} otherwise.
      */
     public boolean lessThanOrEqualTo(BigFloat anotherBigFloat) {
-        return mpfr_lessequal_p(op, anotherBigFloat.op);
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            return doubleVal <= anotherBigFloat.doubleVal;
+        }
+        return !isNaN() && !anotherBigFloat.isNaN() && compareValue(anotherBigFloat) <= 0;
     }
     
     /**
@@ -1038,7 +1816,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code anotherBigFloat}; {@code false} otherwise.
      */
     public boolean greaterThanOrEqualTo(BigFloat anotherBigFloat) {
-        return mpfr_greaterequal_p(op, anotherBigFloat.op);
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            return doubleVal >= anotherBigFloat.doubleVal;
+        }
+        return !isNaN() && !anotherBigFloat.isNaN() && compareValue(anotherBigFloat) >= 0;
     }
     
     /**
@@ -1064,7 +1845,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * {@code anotherBigFloat}; {@code false} otherwise.
      */
     public boolean equalTo(BigFloat anotherBigFloat) {
-        return mpfr_equal_p(op, anotherBigFloat.op);
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            return doubleVal == anotherBigFloat.doubleVal;
+        }
+        return !isNaN() && !anotherBigFloat.isNaN() && compareValue(anotherBigFloat) == 0;
     }
     
     /**
@@ -1125,32 +1909,105 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      */
     @Override
     public int compareTo(BigFloat anotherBigFloat) {
-        if (this.lessThan(anotherBigFloat)) {
-            return -1;
-        }
-        if (this.greaterThan(anotherBigFloat)) {
-            return 1;
+        if (hasDouble && anotherBigFloat.hasDouble) {
+            // neither is NaN, and Double.compare orders -0.0 before 0.0
+            int res = Double.compare(doubleVal, anotherBigFloat.doubleVal);
+            if (res != 0) {
+                return res;
+            }
+            return Integer.valueOf(this.precision()).compareTo(anotherBigFloat.precision());
         }
-        if (this.isNegativeZero() && anotherBigFloat.isPositiveZero()) {
-            return -1;
+        int res;
+        if (this.isNaN() || anotherBigFloat.isNaN()) {
+            res = (this.isNaN() ? 1 : 0) - (anotherBigFloat.isNaN() ? 1 : 0);
+        } else {
+            res = compareFields(op(), anotherBigFloat.op());
+            if (res == SAME_EXPONENT) {
+                return mpfr_java_cmp_total(op(), anotherBigFloat.op());
+            } else if (res == 0 && op().exp() == MPFR_EXP_ZERO) {
+                // -0.0 is less than 0.0
+                res = Integer.signum(op().sign()) - Integer.signum(anotherBigFloat.op().sign());
+            }
         }
-        if (!this.isNaN() && anotherBigFloat.isNaN()) {
-            return -1;
+        if (res != 0) {
+            return res;
         }
-        if (this.isPositiveZero() && anotherBigFloat.isNegativeZero()) {
-            return 1;
+        return Integer.valueOf(this.precision()).compareTo(anotherBigFloat.precision());
+    }
+    
+    /**
+     * Returned by {@link #compareFields} if the numbers can only be compared
+     * by their significands.
+     */
+    private static final int SAME_EXPONENT = Integer.MIN_VALUE;
+    
+    /**
+     * Compares the values of two numbers, neither of which is NaN, as
+     * {@code mpfr_cmp} does, using only the sign and exponent fields which
+     * MPFR also uses to represent zeroes and infinities. Both zeroes are
+     * equal.
+     * @return -1, 0 or 1 as {@code op1} is less than, equal to or greater
+     * than {@code op2}, or {@link #SAME_EXPONENT} if both are regular numbers
+     * with the same sign and exponent.
+     */
+    private static int compareFields(mpfr_t op1, mpfr_t op2) {
+        long exp1 = op1.exp();
+        long exp2 = op2.exp();
+        int sign1 = op1.sign();
+        int sign2 = op2.sign();
+        boolean zero1 = exp1 == MPFR_EXP_ZERO;
+        boolean zero2 = exp2 == MPFR_EXP_ZERO;
+        if (zero1 || zero2) {
+            if (zero1 && zero2) {
+                return 0;
+            }
+            return zero1 ? -Integer.signum(sign2) : Integer.signum(sign1);
         }
-        if (this.isNaN() && !anotherBigFloat.isNaN()) {
-            return 1;
+        if (sign1 != sign2) {
+            return Integer.signum(sign1);
         }
-        if (this.isNaN() && anotherBigFloat.isNaN()) {
-            return Integer.valueOf(this.precision()).compareTo(anotherBigFloat.precision());
+        int magnitude;
+        if (exp1 == exp2) {
+            if (exp1 != MPFR_EXP_INF) {
+                return SAME_EXPONENT;
+            }
+            magnitude = 0;
+        } else if (exp1 == MPFR_EXP_INF || exp2 == MPFR_EXP_INF) {
+            magnitude = exp1 == MPFR_EXP_INF ? 1 : -1;
+        } else {
+            magnitude = exp1 > exp2 ? 1 : -1;
         }
-        int res = mpfr_cmp(op, anotherBigFloat.op);
-        if (res != 0) {
-            return res;
+        return sign1 < 0 ? -magnitude : magnitude;
+    }
+    
+    /**
+     * Compares the values of this {@code BigFloat} and another, neither of
+     * which is NaN, as {@code mpfr_cmp} does, calling into native code only
+     * if their significands must be compared.
+     */
+    private int compareValue(BigFloat anotherBigFloat) {
+        int res = compareFields(op(), anotherBigFloat.op());
+        if (res == SAME_EXPONENT) {
+            return mpfr_cmp(op(), anotherBigFloat.op());
         }
-        return Integer.valueOf(this.precision()).compareTo(anotherBigFloat.precision());
+        return res;
+    }
+    
+    /**
+     * Compares this {@code BigFloat} numerically with a {@code long}, without
+     * converting the {@code long} to a {@code BigFloat}. As in
+     * {@link #compareTo(BigFloat)}, NaN is considered to be greater than every
+     * {@code long}; both {@code 0.0} and {@code -0.0} are considered to be
+     * equal to {@code 0}.
+     * 
+     * @param val the {@code long} to be compared.
+     * @return the value {@code 0} if this {@code BigFloat} is numerically
+     * equal to {@code val}; a value less than {@code 0} if it is numerically
+     * less than {@code val}; and a value greater than {@code 0} if it is
+     * numerically greater than {@code val} or is NaN.
+     */
+    public int compareTo(long val) {
+        return mpfr_java_cmp_sj(op(), val);
     }
     
     /**
@@ -1200,10 +2057,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         // two BigFloats which have the same numeric value should convert
         // to the same double
         Double d = doubleValue();
-        return d.hashCode() * 31 + op._mpfr_prec;
+        return d.hashCode() * 31 + precision();
     }
     
-    private static int convertRoundingMode(RoundingMode mode) {
+    static int convertRoundingMode(RoundingMode mode) {
         switch (mode) {
             case HALF_EVEN:
             case UNNECESSARY: //unnecessary is handled separately
@@ -1221,28 +2078,21 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         }
     }
     
-    private static void throwArithmeticException(boolean rounded, BinaryMathContext mc) {
+    static void throwArithmeticException(boolean rounded, BinaryMathContext mc) {
         if (rounded && mc.roundingMode == RoundingMode.UNNECESSARY) {
             throw new ArithmeticException("rounding necessary");
         }
     }
     
     // would be private, but we want to unit test it
-    static boolean roundExponent(int ternary, mpfr_t x, BinaryMathContext mc) {
-        try {
-            setExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
-            ternary = mpfr_check_range(x, ternary, convertRoundingMode(mc.roundingMode));
-            boolean rounded = mpfr_subnormalize(x, ternary, convertRoundingMode(mc.roundingMode));
-            return rounded;
-        } finally {
-            resetExponentRange();
-        }
+    static boolean roundExponent(int ternary, mpfr_t x, BinaryMathContext mc) {
+        checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        return mpfr_java_round(x, ternary, convertRoundingMode(mc.roundingMode),
+                emin(mc.minExponent, mc.precision), emax(mc.maxExponent)) != 0;
     }
 
     static void resetExponentRange() {
-        boolean failed = mpfr_set_emin(MPFR_EMIN_DEFAULT);
-        failed |= mpfr_set_emax(MPFR_EMAX_DEFAULT);
-        assert !failed : "unexpected failure resetting exponent range";
+        ExponentRange.current().set(MPFR_EMIN_DEFAULT, MPFR_EMAX_DEFAULT);
     }
     
     static long eminMin(int precision) {
@@ -1251,32 +2101,147 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
     
     static long EMAX_MAX = MPFR_EMAX_DEFAULT - 1;
 
-    static void setExponentRange(long minExponent, long maxExponent, int precision) {
-        minExponent = minExponent - precision + 2;
-        maxExponent = maxExponent + 1;
-        if (minExponent < MPFR_EMIN_DEFAULT || maxExponent > MPFR_EMAX_DEFAULT) {
+    /**
+     * @return the MPFR minimum exponent which emulates subnormal arithmetic
+     * for the specified IEEE minimum exponent and precision.
+     */
+    static long emin(long minExponent, int precision) {
+        return minExponent - precision + 2;
+    }
+    
+    /**
+     * @return the MPFR maximum exponent corresponding to the specified IEEE
+     * maximum exponent.
+     */
+    static long emax(long maxExponent) {
+        return maxExponent + 1;
+    }
+    
+    static void checkExponentRange(long minExponent, long maxExponent, int precision) {
+        if (emin(minExponent, precision) < MPFR_EMIN_DEFAULT || emax(maxExponent) > MPFR_EMAX_DEFAULT) {
             throw new ArithmeticException("invalid exponent range for specified precision: "
                 + "maximum allowed exponent range for this precision is [" + eminMin(precision)
                 + "," + EMAX_MAX + "]");
         }
-        boolean failed = mpfr_set_emin(minExponent);
-        failed |= mpfr_set_emax(maxExponent);
-        if (failed) {
-            resetExponentRange();
-            assert false : "should never fail to set exponent range successfully";
-        }
+    }
+
+    static void setExponentRange(long minExponent, long maxExponent, int precision) {
+        checkExponentRange(minExponent, maxExponent, precision);
+        ExponentRange.current().set(emin(minExponent, precision), emax(maxExponent));
     }
 
     //TODO(dwightguth): fix with Java 8 and lambdas
-    private static abstract class Operation {
-        public abstract int doIt(mpfr_t rop, int rnd);
+    private static abstract class Operation implements ExponentRange.Operands {
+        private final int kind;
+        private final String name;
+        
+        /**
+         * The operands of the operation, or null.
+         */
+        private final mpfr_t a, b, c;
+        
+        /**
+         * @param kind the kind of operation counted by {@link Metrics}.
+         * @param name the name of the operation recorded by {@link Events}.
+         */
+        Operation(int kind, String name) {
+            this(kind, name, null, null, null);
+        }
+        
+        Operation(int kind, String name, mpfr_t a) {
+            this(kind, name, a, null, null);
+        }
+        
+        Operation(int kind, String name, mpfr_t a, mpfr_t b) {
+            this(kind, name, a, b, null);
+        }
+        
+        Operation(int kind, String name, mpfr_t a, mpfr_t b, mpfr_t c) {
+            this.kind = kind;
+            this.name = name;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+        
+        /**
+         * Checks the operands passed to the constructor. Operations with
+         * other operands override this.
+         */
+        @Override
+        public boolean within(long emin, long emax) {
+            return ExponentRange.within(a, emin, emax) && ExponentRange.within(b, emin, emax)
+                    && ExponentRange.within(c, emin, emax);
+        }
+        
+        /**
+         * Performs the operation and rounds the result to the MPFR exponent
+         * range [emin, emax]. Operations with a fused native entry point
+         * implement this directly, in order to cross into native code only
+         * once; the others extend {@link RoundedOperation}.
+         * @return the ternary value of the rounded result.
+         */
+        public abstract int doItAndRound(mpfr_t rop, int rnd, long emin, long emax);
         
         public BigFloat execute(BinaryMathContext mc) {
+            return result(compute(mc), mc);
+        }
+        
+        /**
+         * Performs the operation and rounds the result according to the
+         * context settings.
+         * @return the result.
+         */
+        public mpfr_t compute(BinaryMathContext mc) {
+            if (Metrics.enabled) {
+                Metrics.operation(kind);
+            }
+            Object event = Events.begin();
             mpfr_t rop = new mpfr_t(mc.precision);
-            int ternary = doIt(rop, convertRoundingMode(mc.roundingMode));
-            boolean rounded = roundExponent(ternary, rop, mc);
+            int rnd = convertRoundingMode(mc.roundingMode);
+            checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+            long emin = emin(mc.minExponent, mc.precision);
+            long emax = emax(mc.maxExponent);
+            boolean rounded;
+            ExponentRange.enter(emin, emax, this);
+            try {
+                rounded = doItAndRound(rop, rnd, emin, emax) != 0;
+            } finally {
+                ExponentRange.exit();
+            }
+            Events.end(event, name, mc.precision, mc.roundingMode);
             throwArithmeticException(rounded, mc);
-            return new BigFloat(rop);
+            return rop;
+        }
+    }
+    
+    /**
+     * An operation which is performed by an MPFR function which rounds only
+     * to the precision of the result, after which the result is rounded to
+     * the exponent range by a second native call.
+     */
+    private static abstract class RoundedOperation extends Operation {
+        RoundedOperation(int kind, String name) {
+            super(kind, name);
+        }
+        
+        RoundedOperation(int kind, String name, mpfr_t a) {
+            super(kind, name, a);
+        }
+        
+        RoundedOperation(int kind, String name, mpfr_t a, mpfr_t b) {
+            super(kind, name, a, b);
+        }
+        
+        RoundedOperation(int kind, String name, mpfr_t a, mpfr_t b, mpfr_t c) {
+            super(kind, name, a, b, c);
+        }
+        
+        public abstract int doIt(mpfr_t rop, int rnd);
+        
+        @Override
+        public final int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+            return mpfr_java_round(rop, doIt(rop, rnd), rnd, emin, emax);
         }
     }
     
@@ -1316,11 +2281,47 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat add(final BigFloat augend, BinaryMathContext mc) {
-        return new Operation() {
+        BigFloat r = hardware(FastPath.ADD, augend, this, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.ADD, "add", op(), augend.op()) {
             
             @Override
-            public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_add(rop, op, augend.op, rnd);
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_add(rop, op(), augend.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is {@code (this + augend)},
+     * whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision},
+     * and with rounding according to the context settings. The result is the
+     * same as that of {@link #add(BigFloat, BinaryMathContext)} applied to
+     * {@code augend} converted exactly to a {@code BigFloat}, but is computed
+     * without creating a {@code BigFloat} for {@code augend}, except that
+     * because a {@code long} zero has no sign, {@code -0.0 + 0} is {@code -0.0}.
+     * 
+     * @param augend value to be added to this {@code BigFloat}.
+     * @param mc the context to use.
+     * @return {@code this + augend} in the specified precision, rounded
+     * as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public BigFloat add(final long augend, BinaryMathContext mc) {
+        return new Operation(Metrics.ADD, "add", op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_add_sj(rop, op(), augend, rnd, emin, emax);
             }
         }.execute(mc);
     }
@@ -1371,11 +2372,46 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat subtract(final BigFloat subtrahend, BinaryMathContext mc) {
-        return new Operation() {
+        BigFloat r = hardware(FastPath.SUB, subtrahend, this, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.ADD, "subtract", op(), subtrahend.op()) {
             
             @Override
-            public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_sub(rop, op, subtrahend.op, rnd);
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_sub(rop, op(), subtrahend.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is {@code (this - subtrahend)},
+     * whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision},
+     * and with rounding according to the context settings. The result is the
+     * same as that of {@link #subtract(BigFloat, BinaryMathContext)} applied to
+     * {@code subtrahend} converted exactly to a {@code BigFloat}, but is computed
+     * without creating a {@code BigFloat} for {@code subtrahend}.
+     * 
+     * @param subtrahend value to be subtracted from this {@code BigFloat}.
+     * @param mc the context to use.
+     * @return {@code this - subtrahend} in the specified precision, rounded
+     * as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public BigFloat subtract(final long subtrahend, BinaryMathContext mc) {
+        return new Operation(Metrics.ADD, "subtract", op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_sub_sj(rop, op(), subtrahend, rnd, emin, emax);
             }
         }.execute(mc);
     }
@@ -1417,11 +2453,46 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat multiply(final BigFloat multiplicand, BinaryMathContext mc) {
-        return new Operation() {
+        BigFloat r = hardware(FastPath.MUL, multiplicand, this, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.MULTIPLY, "multiply", op(), multiplicand.op()) {
             
             @Override
-            public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_mul(rop, op, multiplicand.op, rnd);
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_mul(rop, op(), multiplicand.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is <tt>(this &times;
+     * multiplicand)</tt>, whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision},
+     * and with rounding according to the context settings. The result is the
+     * same as that of {@link #multiply(BigFloat, BinaryMathContext)} applied to
+     * {@code multiplicand} converted exactly to a {@code BigFloat}, but is computed
+     * without creating a {@code BigFloat} for {@code multiplicand}.
+     * 
+     * @param multiplicand value to be multiplied by this {@code BigFloat}.
+     * @param mc the context to use.
+     * @return <tt>this &times; multiplicand</tt> in the specified precision,
+     * rounded as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public BigFloat multiply(final long multiplicand, BinaryMathContext mc) {
+        return new Operation(Metrics.MULTIPLY, "multiply", op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_mul_sj(rop, op(), multiplicand, rnd, emin, emax);
             }
         }.execute(mc);
     }
@@ -1477,11 +2548,174 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat divide(final BigFloat divisor, BinaryMathContext mc) {
-        return new Operation() {
+        BigFloat r = hardware(FastPath.DIV, divisor, this, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.DIVIDE, "divide", op(), divisor.op()) {
             
             @Override
-            public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_div(rop, op, divisor.op, rnd);
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_div(rop, op(), divisor.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is {@code (this / divisor)},
+     * whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision},
+     * and with rounding according to the context settings. The result is the
+     * same as that of {@link #divide(BigFloat, BinaryMathContext)} applied to
+     * {@code divisor} converted exactly to a {@code BigFloat}, but is computed
+     * without creating a {@code BigFloat} for {@code divisor}.
+     * 
+     * @param divisor value by which this {@code BigFloat} is to be divided.
+     * @param mc the context to use.
+     * @return {@code this / divisor} in the specified precision, rounded
+     * as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public BigFloat divide(final long divisor, BinaryMathContext mc) {
+        return new Operation(Metrics.DIVIDE, "divide", op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_div_sj(rop, op(), divisor, rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+
+    /**
+     * Returns a {@code BigFloat} whose value is
+     * <tt>(this &times; multiplicand + addend)</tt>, whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision}, and with rounding
+     * according to the context settings. The exact result of the whole
+     * expression is rounded only once, so the result may differ from, and is
+     * at least as accurate as,
+     * {@code multiply(multiplicand, mc).add(addend, mc)}. Special cases are
+     * handled as in {@link #multiply(BigFloat, BinaryMathContext)} and
+     * {@link #add(BigFloat, BinaryMathContext)}.
+     * 
+     * @param multiplicand value to multiply this {@code BigFloat} by.
+     * @param addend value to be added to the product.
+     * @param mc the context to use.
+     * @return <tt>this &times; multiplicand + addend</tt> in the specified
+     * precision, rounded as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public BigFloat fma(final BigFloat multiplicand, final BigFloat addend, BinaryMathContext mc) {
+        BigFloat r = hardware(FastPath.FMA, multiplicand, addend, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.FUSED, "fma", op(), multiplicand.op(), addend.op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_fma(rop, op(), multiplicand.op(), addend.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is
+     * <tt>(this &times; multiplicand - subtrahend)</tt>, whose precision is
+     * equal to {@link BinaryMathContext#precision mc.precision}, and with
+     * rounding according to the context settings. The exact result of the
+     * whole expression is rounded only once, as in
+     * {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * 
+     * @param multiplicand value to multiply this {@code BigFloat} by.
+     * @param subtrahend value to be subtracted from the product.
+     * @param mc the context to use.
+     * @return <tt>this &times; multiplicand - subtrahend</tt> in the specified
+     * precision, rounded as necessary.
+     * @throws ArithmeticException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     */
+    public BigFloat fms(final BigFloat multiplicand, final BigFloat subtrahend, BinaryMathContext mc) {
+        BigFloat r = hardware(FastPath.FMS, multiplicand, subtrahend, mc);
+        if (r != null) {
+            return r;
+        }
+        return new Operation(Metrics.FUSED, "fms", op(), multiplicand.op(), subtrahend.op()) {
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_fms(rop, op(), multiplicand.op(), subtrahend.op(), rnd, emin, emax);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is
+     * <tt>(a &times; b + c &times; d)</tt>, whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision}, and with rounding
+     * according to the context settings. Both products are computed exactly
+     * and the exact result is rounded only once, as in
+     * {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * 
+     * @param a the first factor of the first product.
+     * @param b the second factor of the first product.
+     * @param c the first factor of the second product.
+     * @param d the second factor of the second product.
+     * @param mc the context to use.
+     * @return <tt>a &times; b + c &times; d</tt> in the specified precision,
+     * rounded as necessary.
+     * @throws ArithmeticException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     */
+    public static BigFloat fmma(BigFloat a, BigFloat b, BigFloat c, BigFloat d, BinaryMathContext mc) {
+        return fmma(a, b, c, d, false, mc);
+    }
+    
+    /**
+     * Returns a {@code BigFloat} whose value is
+     * <tt>(a &times; b - c &times; d)</tt>, whose precision is equal to
+     * {@link BinaryMathContext#precision mc.precision}, and with rounding
+     * according to the context settings. Both products are computed exactly
+     * and the exact result is rounded only once, as in
+     * {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * 
+     * @param a the first factor of the first product.
+     * @param b the second factor of the first product.
+     * @param c the first factor of the product to subtract.
+     * @param d the second factor of the product to subtract.
+     * @param mc the context to use.
+     * @return <tt>a &times; b - c &times; d</tt> in the specified precision,
+     * rounded as necessary.
+     * @throws ArithmeticException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #fma(BigFloat, BigFloat, BinaryMathContext)}.
+     */
+    public static BigFloat fmms(BigFloat a, BigFloat b, BigFloat c, BigFloat d, BinaryMathContext mc) {
+        return fmma(a, b, c, d, true, mc);
+    }
+    
+    private static BigFloat fmma(final BigFloat a, final BigFloat b, final BigFloat c, final BigFloat d,
+            final boolean sub, BinaryMathContext mc) {
+        return new Operation(Metrics.FUSED, "fmma", a.op(), b.op(), c.op()) {
+            
+            @Override
+            public boolean within(long emin, long emax) {
+                return super.within(emin, emax) && ExponentRange.within(d.op(), emin, emax);
+            }
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                return mpfr_java_fmma(rop, a.op(), b.op(), c.op(), d.op(), sub, rnd, emin, emax);
             }
         }.execute(mc);
     }
@@ -1522,11 +2756,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat remainder(final BigFloat divisor, BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.DIVIDE, "remainder", op(), divisor.op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_remainder(rop, op, divisor.op, rnd);
+                return mpfr_remainder(rop, op(), divisor.op(), rnd);
             }
         }.execute(mc);
     }
@@ -1656,11 +2890,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat pow(final BigFloat n, BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "pow", op(), n.op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_pow(rop, op, n.op, rnd);
+                return mpfr_pow(rop, op(), n.op(), rnd);
             }
         }.execute(mc);
     }
@@ -1698,11 +2932,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
         } else if (k < 0) {
             return new BigFloat(1, mc).divide(root(-k, mc), mc);
         } else {
-            return new Operation() {
+            return new RoundedOperation(Metrics.ROOT, "root", op()) {
     
                 @Override
                 public int doIt(mpfr_t rop, int rnd) {
-                    return mpfr_root(rop, op, k, rnd);
+                    return mpfr_root(rop, op(), k, rnd);
                 }
             }.execute(mc);
         }
@@ -1725,6 +2959,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat sqrt(BinaryMathContext mc) {
+        BigFloat r = hardware(FastPath.SQRT, this, this, mc);
+        if (r != null) {
+            return r;
+        }
         return root(2, mc);
     }
     
@@ -1774,11 +3012,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat abs(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "abs", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_abs(rop, op, rnd);
+                return mpfr_abs(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -1809,11 +3047,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat negate(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "negate", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_neg(rop, op, rnd);
+                return mpfr_neg(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -1866,10 +3104,10 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return the signum function of this {@code BigFloat}.
      */
     public double signum() {
-        if (mpfr_zero_p(op) || mpfr_nan_p(op)) {
+        if (op().exp() == MPFR_EXP_ZERO || isNaN()) {
             return doubleValueExact();
         }
-        if (mpfr_signbit(op)) {
+        if (sign()) {
             return -1.0;
         }
         return 1.0;
@@ -1894,11 +3132,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @see #plus(BinaryMathContext)
      */
     public BigFloat round(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "round", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_set(rop, op, rnd);
+                return mpfr_set(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -1922,11 +3160,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat sin(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "sin", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_sin(rop, op, rnd);
+                return mpfr_sin(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -1948,11 +3186,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat cos(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "cos", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_cos(rop, op, rnd);
+                return mpfr_cos(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -1974,11 +3212,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat sec(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "sec", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_sec(rop, op, rnd);
+                return mpfr_sec(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2002,11 +3240,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat csc(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "csc", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_csc(rop, op, rnd);
+                return mpfr_csc(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2030,11 +3268,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat cot(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "cot", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_cot(rop, op, rnd);
+                return mpfr_cot(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2058,11 +3296,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat tan(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "tan", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_tan(rop, op, rnd);
+                return mpfr_tan(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2087,11 +3325,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat asin(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "asin", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_asin(rop, op, rnd);
+                return mpfr_asin(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2114,11 +3352,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat acos(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "acos", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_acos(rop, op, rnd);
+                return mpfr_acos(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2143,11 +3381,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat atan(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "atan", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_atan(rop, op, rnd);
+                return mpfr_atan(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2214,11 +3452,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public static BigFloat atan2(final BigFloat y, final BigFloat x, BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "atan2", y.op(), x.op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_atan2(rop, y.op, x.op, rnd);
+                return mpfr_atan2(rop, y.op(), x.op(), rnd);
             }
         }.execute(mc);
     }
@@ -2252,11 +3490,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat sinh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "sinh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_sinh(rop, op, rnd);
+                return mpfr_sinh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2288,11 +3526,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat cosh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "cosh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_cosh(rop, op, rnd);
+                return mpfr_cosh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2331,11 +3569,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat tanh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "tanh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_tanh(rop, op, rnd);
+                return mpfr_tanh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2367,11 +3605,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat sech(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "sech", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_sech(rop, op, rnd);
+                return mpfr_sech(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2405,11 +3643,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat csch(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "csch", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_csch(rop, op, rnd);
+                return mpfr_csch(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2448,11 +3686,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat coth(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "coth", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_coth(rop, op, rnd);
+                return mpfr_coth(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2485,11 +3723,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat asinh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "asinh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_asinh(rop, op, rnd);
+                return mpfr_asinh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2521,11 +3759,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat acosh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "acosh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_acosh(rop, op, rnd);
+                return mpfr_acosh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2562,11 +3800,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat atanh(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "atanh", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_atanh(rop, op, rnd);
+                return mpfr_atanh(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2592,11 +3830,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat exp(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "exp", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_exp(rop, op, rnd);
+                return mpfr_exp(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2623,11 +3861,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat log(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.TRANSCENDENTAL, "log", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_log(rop, op, rnd);
+                return mpfr_log(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2653,11 +3891,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public BigFloat rint(BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "rint", op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_rint(rop, op, rnd);
+                return mpfr_rint(rop, op(), rnd);
             }
         }.execute(mc);
     }
@@ -2685,11 +3923,11 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public static BigFloat max(final BigFloat a, final BigFloat b, BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "max", a.op(), b.op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_max(rop, a.op, b.op, rnd);
+                return mpfr_max(rop, a.op(), b.op(), rnd);
             }
         }.execute(mc);
     }
@@ -2717,13 +3955,151 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
      */
     public static BigFloat min(final BigFloat a, final BigFloat b, BinaryMathContext mc) {
-        return new Operation() {
+        return new RoundedOperation(Metrics.OTHER, "min", a.op(), b.op()) {
             
             @Override
             public int doIt(mpfr_t rop, int rnd) {
-                return mpfr_min(rop, a.op, b.op, rnd);
+                return mpfr_min(rop, a.op(), b.op(), rnd);
+            }
+        }.execute(mc);
+    }
+    
+    /**
+     * Returns the sum of an array of {@code BigFloat} values, in the precision
+     * specified by context settings. The exact sum of all the terms is rounded
+     * only once, so the result is correctly rounded regardless of the number
+     * of terms or of any cancellation between them, and is independent of the
+     * order of the terms. Special cases are handled as in
+     * {@link #add(BigFloat, BinaryMathContext)}: in particular, the sum is NaN
+     * if any term is NaN or if terms are infinities of opposite signs. The sum
+     * of an empty array is positive zero.
+     * 
+     * @param terms the values to be added.
+     * @param mc the context to use.
+     * @return the sum of {@code terms} in the specified precision, rounded
+     * as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     * @throws OutOfMemoryError if native memory for the computation could not
+     * be allocated.
+     */
+    public static BigFloat sum(final BigFloat[] terms, BinaryMathContext mc) {
+        final long[] packed = new long[terms.length * MPFR_PACKED_SIZE];
+        for (int i = 0; i < terms.length; i++) {
+            mpfr_pack(terms[i].op(), packed, i);
+        }
+        BigFloat result = new Operation(Metrics.ADD, "sum") {
+            
+            @Override
+            public boolean within(long emin, long emax) {
+                return ExponentRange.within(packed, emin, emax);
+            }
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                int ternary = mpfr_java_sum(rop, packed, terms.length, rnd, emin, emax);
+                if (ternary == MPFR_JAVA_NOMEM) {
+                    throw new OutOfMemoryError("could not allocate memory to sum " + terms.length + " terms");
+                }
+                return ternary;
+            }
+        }.execute(mc);
+        // the terms are only referred to by address during the native call
+        NativeReclaimer.reachabilityFence(terms);
+        return result;
+    }
+    
+    /**
+     * Returns the sum of a collection of {@code BigFloat} values, in the
+     * precision specified by context settings, as in
+     * {@link #sum(BigFloat[], BinaryMathContext)}.
+     * 
+     * @param terms the values to be added.
+     * @param mc the context to use.
+     * @return the sum of {@code terms} in the specified precision, rounded
+     * as necessary.
+     * @throws ArithmeticException as in {@link #sum(BigFloat[], BinaryMathContext)}.
+     * @throws IllegalArgumentException as in {@link #sum(BigFloat[], BinaryMathContext)}.
+     */
+    public static BigFloat sum(Iterable<BigFloat> terms, BinaryMathContext mc) {
+        List<BigFloat> list = new ArrayList<BigFloat>();
+        for (BigFloat term : terms) {
+            list.add(term);
+        }
+        return sum(list.toArray(new BigFloat[list.size()]), mc);
+    }
+    
+    /**
+     * Returns the dot product of two arrays of {@code BigFloat} values, i.e.
+     * the sum of <tt>(x[i] &times; y[i])</tt> for every {@code i}, in the
+     * precision specified by context settings. Each product is computed
+     * exactly and the exact sum of the products is rounded only once, so the
+     * result is correctly rounded, as in
+     * {@link #sum(BigFloat[], BinaryMathContext)}. Special cases are handled
+     * as in {@link #multiply(BigFloat, BinaryMathContext)} and
+     * {@link #add(BigFloat, BinaryMathContext)}. The dot product of empty
+     * arrays is positive zero.
+     * 
+     * @param x the first factors of the products.
+     * @param y the second factors of the products.
+     * @param mc the context to use.
+     * @return the dot product of {@code x} and {@code y} in the specified
+     * precision, rounded as necessary.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), if the precision is less than 2, if the
+     * arrays have different lengths, or if the precisions of the factors are
+     * too high for their products to be computed exactly.
+     * @throws OutOfMemoryError if native memory for the computation could not
+     * be allocated.
+     */
+    public static BigFloat dot(final BigFloat[] x, final BigFloat[] y, BinaryMathContext mc) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("array lengths differ: " + x.length + " != " + y.length);
+        }
+        final long[] packedX = new long[x.length * MPFR_PACKED_SIZE];
+        final long[] packedY = new long[y.length * MPFR_PACKED_SIZE];
+        long precX = MPFR_PREC_MIN, precY = MPFR_PREC_MIN;
+        for (int i = 0; i < x.length; i++) {
+            mpfr_pack(x[i].op(), packedX, i);
+            mpfr_pack(y[i].op(), packedY, i);
+            precX = Math.max(precX, x[i].precision());
+            precY = Math.max(precY, y[i].precision());
+        }
+        final long prec = precX + precY;
+        if (prec > MPFR_PREC_MAX) {
+            throw new IllegalArgumentException("precision of products too high");
+        }
+        BigFloat result = new Operation(Metrics.FUSED, "dot") {
+            
+            @Override
+            public boolean within(long emin, long emax) {
+                return ExponentRange.within(packedX, emin, emax)
+                        && ExponentRange.within(packedY, emin, emax);
+            }
+            
+            @Override
+            public int doItAndRound(mpfr_t rop, int rnd, long emin, long emax) {
+                int ternary = mpfr_java_dot(rop, packedX, packedY, x.length, prec, rnd, emin, emax);
+                if (ternary == MPFR_JAVA_NOMEM) {
+                    throw new OutOfMemoryError("could not allocate memory for " + x.length + " products");
+                }
+                return ternary;
             }
         }.execute(mc);
+        // the factors are only referred to by address during the native call
+        NativeReclaimer.reachabilityFence(x);
+        NativeReclaimer.reachabilityFence(y);
+        return result;
     }
     
     /**
@@ -2813,21 +4189,7 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return The adjacent floating-point value closer to positive infinity.
      */
     public BigFloat nextUp(long minExponent, long maxExponent) {
-        mpfr_t rop = new mpfr_t(precision());
-        int ternary = mpfr_set(rop, op, MPFR_RNDN);
-        try {
-            setExponentRange(minExponent, maxExponent, precision());
-            ternary = mpfr_check_range(rop, ternary, MPFR_RNDN);
-            if (ternary != 0) {
-                //cannot represent this BigFloat in the provided exponent range
-                throw new ArithmeticException("the specified BigFloat is not in the provided exponent range");
-            }
-            mpfr_nextabove(rop);
-            mpfr_subnormalize(rop, 0, MPFR_RNDN);
-            return new BigFloat(rop);
-        } finally {
-            resetExponentRange();
-        }
+        return next(true, minExponent, maxExponent);
     }
     
     /**positive
@@ -2857,20 +4219,16 @@ public class BigFloat extends Number implements Comparable<BigFloat> {
      * @return The adjacent floating-point value closer to negative infinity.
      */
     public BigFloat nextDown(long minExponent, long maxExponent) {
+        return next(false, minExponent, maxExponent);
+    }
+    
+    private BigFloat next(boolean up, long minExponent, long maxExponent) {
+        checkExponentRange(minExponent, maxExponent, precision());
         mpfr_t rop = new mpfr_t(precision());
-        int ternary = mpfr_set(rop, op, MPFR_RNDN);
-        try {
-            setExponentRange(minExponent, maxExponent, precision());
-            ternary = mpfr_check_range(rop, ternary, MPFR_RNDN);
-            if (ternary != 0) {
-                //cannot represent this BigFloat in the provided exponent range
-                throw new ArithmeticException("the specified BigFloat is not in the provided exponent range");
-            }
-            mpfr_nextbelow(rop);
-            mpfr_subnormalize(rop, 0, MPFR_RNDN);
-            return new BigFloat(rop);
-        } finally {
-            resetExponentRange();
+        if (mpfr_java_next(rop, op(), up, emin(minExponent, precision()), emax(maxExponent)) != 0) {
+            //cannot represent this BigFloat in the provided exponent range
+            throw new ArithmeticException("the specified BigFloat is not in the provided exponent range");
         }
+        return new BigFloat(rop);
     }
 }
@@ -0,0 +1,697 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.kframework.mpfr.mpfr.mpfr_t;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * Performs the same {@link BigFloat} operation on every element of an array.
+ * Each method of this class is equivalent to applying the corresponding
+ * method of {@code BigFloat} to each element in turn, but crosses into native
+ * code only once for the whole array instead of at least once per element.
+ *
+ * <p>Methods which take an {@code out} parameter store the {@code i}-th result
+ * in {@code out[i]}, which may be the same array as one of the operands. If
+ * the rounding mode of the context is
+ * {@link java.math.RoundingMode#UNNECESSARY UNNECESSARY}, every result is
+ * stored before the {@code ArithmeticException} is thrown if any of them was
+ * rounded.
+ *
+ * <p>This class also sorts, searches and finds the least and greatest
+ * elements of arrays in the order of {@link BigFloat#compareTo(BigFloat)}.
+ * These methods extract a sort key from every element with a single native
+ * call and compare the keys in Java, comparing the elements themselves only
+ * when their keys are equal.
+ *
+ * <p>All methods of this class throw {@code NullPointerException} when passed
+ * a {@code null} array or an array containing a {@code null} element, and
+ * {@code IllegalArgumentException} when passed arrays of different lengths.
+ *
+ * @see BigFloat
+ * @author Dwight Guth
+ */
+public final class BigFloatArrays {
+    private BigFloatArrays() {}
+
+    /**
+     * The operations which can be applied to each element of an array by
+     * {@link BigFloatArrays#map(UnaryOperation, BigFloat[], BigFloat[], BinaryMathContext)}.
+     * Each has the same meaning as the {@code BigFloat} method of the same name.
+     */
+    public enum UnaryOperation {
+        ABS(0), NEGATE(1), SQRT(2), CBRT(3), EXP(4), LOG(5), SIN(6), COS(7), TAN(8),
+        ASIN(9), ACOS(10), ATAN(11), SINH(12), COSH(13), TANH(14), RINT(15);
+
+        // the code which identifies this operation in mpfr_java.h
+        final int code;
+
+        private UnaryOperation(int code) {
+            this.code = code;
+        }
+    }
+
+    /**
+     * The operations which can be applied to each pair of elements of two
+     * arrays by
+     * {@link BigFloatArrays#map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)}.
+     * Each has the same meaning as the {@code BigFloat} method of the same name.
+     */
+    public enum BinaryOperation {
+        ADD(0), SUBTRACT(1), MULTIPLY(2), DIVIDE(3), POW(4), MIN(5), MAX(6);
+
+        // the code which identifies this operation in mpfr_java.h
+        final int code;
+
+        private BinaryOperation(int code) {
+            this.code = code;
+        }
+    }
+
+    /**
+     * Stores {@code f(a[i])} in {@code out[i]} for every {@code i}, with
+     * rounding according to the context settings.
+     * @param f the operation to apply.
+     * @param a the operands.
+     * @param out the array to store the results in.
+     * @param mc the context to use.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public static void map(UnaryOperation f, BigFloat[] a, BigFloat[] out, BinaryMathContext mc) {
+        checkLength(a.length, out.length);
+        int rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        long[] op = pack(a);
+        mpfr_t[] rops = new mpfr_t[a.length];
+        long[] rop = allocate(rops, mc.precision);
+        long emin = BigFloat.emin(mc.minExponent, mc.precision);
+        long emax = BigFloat.emax(mc.maxExponent);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, ExponentRange.within(op, emin, emax));
+        try {
+            rounded = mpfr_java_map_unary(f.code, rop, op, a.length, rnd, emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(a);
+        store(rop, rops, out);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * Returns an array containing {@code f(a[i])} for every {@code i}, with
+     * rounding according to the context settings.
+     * @param f the operation to apply.
+     * @param a the operands.
+     * @param mc the context to use.
+     * @return the results.
+     * @throws ArithmeticException as in
+     * {@link #map(UnaryOperation, BigFloat[], BigFloat[], BinaryMathContext)}.
+     * @throws IllegalArgumentException as in
+     * {@link #map(UnaryOperation, BigFloat[], BigFloat[], BinaryMathContext)}.
+     */
+    public static BigFloat[] map(UnaryOperation f, BigFloat[] a, BinaryMathContext mc) {
+        BigFloat[] out = new BigFloat[a.length];
+        map(f, a, out, mc);
+        return out;
+    }
+
+    /**
+     * Stores {@code f(a[i], b[i])} in {@code out[i]} for every {@code i}, with
+     * rounding according to the context settings.
+     * @param f the operation to apply.
+     * @param a the first operands.
+     * @param b the second operands.
+     * @param out the array to store the results in.
+     * @param mc the context to use.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public static void map(BinaryOperation f, BigFloat[] a, BigFloat[] b, BigFloat[] out,
+            BinaryMathContext mc) {
+        checkLength(a.length, b.length);
+        map(f, a, pack(b), 1, out, mc);
+        NativeReclaimer.reachabilityFence(b);
+    }
+
+    /**
+     * Returns an array containing {@code f(a[i], b[i])} for every {@code i},
+     * with rounding according to the context settings.
+     * @param f the operation to apply.
+     * @param a the first operands.
+     * @param b the second operands.
+     * @param mc the context to use.
+     * @return the results.
+     * @throws ArithmeticException as in
+     * {@link #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)}.
+     * @throws IllegalArgumentException as in
+     * {@link #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)}.
+     */
+    public static BigFloat[] map(BinaryOperation f, BigFloat[] a, BigFloat[] b,
+            BinaryMathContext mc) {
+        BigFloat[] out = new BigFloat[a.length];
+        map(f, a, b, out, mc);
+        return out;
+    }
+
+    /**
+     * Stores {@code f(a[i], b)} in {@code out[i]} for every {@code i}, with
+     * rounding according to the context settings.
+     * @param f the operation to apply.
+     * @param a the first operands.
+     * @param b the second operand of every operation.
+     * @param out the array to store the results in.
+     * @param mc the context to use.
+     * @throws ArithmeticException as in
+     * {@link #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)}.
+     * @throws IllegalArgumentException as in
+     * {@link #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)}.
+     */
+    public static void map(BinaryOperation f, BigFloat[] a, BigFloat b, BigFloat[] out,
+            BinaryMathContext mc) {
+        map(f, a, pack(new BigFloat[] {b}), 0, out, mc);
+        NativeReclaimer.reachabilityFence(b);
+    }
+
+    private static void map(BinaryOperation f, BigFloat[] a, long[] op2, int stride2,
+            BigFloat[] out, BinaryMathContext mc) {
+        checkLength(a.length, out.length);
+        int rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        long[] op1 = pack(a);
+        mpfr_t[] rops = new mpfr_t[a.length];
+        long[] rop = allocate(rops, mc.precision);
+        long emin = BigFloat.emin(mc.minExponent, mc.precision);
+        long emax = BigFloat.emax(mc.maxExponent);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, ExponentRange.within(op1, emin, emax)
+                && ExponentRange.within(op2, emin, emax));
+        try {
+            rounded = mpfr_java_map_binary(f.code, rop, op1, 1, op2, stride2, a.length, rnd,
+                    emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(a);
+        store(rop, rops, out);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * Stores {@code (a[i] + b[i])} in {@code out[i]} for every {@code i}.
+     * @see BigFloat#add(BigFloat, BinaryMathContext)
+     * @see #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public static void add(BigFloat[] a, BigFloat[] b, BigFloat[] out, BinaryMathContext mc) {
+        map(BinaryOperation.ADD, a, b, out, mc);
+    }
+
+    /**
+     * Stores {@code (a[i] - b[i])} in {@code out[i]} for every {@code i}.
+     * @see BigFloat#subtract(BigFloat, BinaryMathContext)
+     * @see #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public static void subtract(BigFloat[] a, BigFloat[] b, BigFloat[] out, BinaryMathContext mc) {
+        map(BinaryOperation.SUBTRACT, a, b, out, mc);
+    }
+
+    /**
+     * Stores <tt>(a[i] &times; b[i])</tt> in {@code out[i]} for every {@code i}.
+     * @see BigFloat#multiply(BigFloat, BinaryMathContext)
+     * @see #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public static void multiply(BigFloat[] a, BigFloat[] b, BigFloat[] out, BinaryMathContext mc) {
+        map(BinaryOperation.MULTIPLY, a, b, out, mc);
+    }
+
+    /**
+     * Stores {@code (a[i] / b[i])} in {@code out[i]} for every {@code i}.
+     * @see BigFloat#divide(BigFloat, BinaryMathContext)
+     * @see #map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public static void divide(BigFloat[] a, BigFloat[] b, BigFloat[] out, BinaryMathContext mc) {
+        map(BinaryOperation.DIVIDE, a, b, out, mc);
+    }
+
+    /**
+     * Stores <tt>(a[i] &times; factor)</tt> in {@code out[i]} for every {@code i}.
+     * @see BigFloat#multiply(BigFloat, BinaryMathContext)
+     * @see #map(BinaryOperation, BigFloat[], BigFloat, BigFloat[], BinaryMathContext)
+     */
+    public static void scale(BigFloat[] a, BigFloat factor, BigFloat[] out, BinaryMathContext mc) {
+        map(BinaryOperation.MULTIPLY, a, factor, out, mc);
+    }
+
+    /**
+     * Arrays shorter than this are sorted by the calling thread by
+     * {@link #parallelSort(BigFloat[], ExecutorService)}.
+     */
+    static final int MIN_PARALLEL_SORT_LENGTH = 1 << 13;
+
+    private static final int INSERTION_SORT_LENGTH = 16;
+
+    /**
+     * The number of leading bits of the significand in a sort key. Elements
+     * whose keys are equal and whose precisions are no greater than this are
+     * equal in value.
+     */
+    private static final int KEY_BITS = 64;
+
+    /**
+     * The sort keys of the elements of a range of an array, which order them
+     * as {@link BigFloat#compareTo(BigFloat)} does unless the keys are equal.
+     * Elements are identified by their index relative to the start of the
+     * range.
+     */
+    private static final class SortKeys {
+        private final BigFloat[] a;
+        private final int from;
+        private final long[] keys;
+
+        SortKeys(BigFloat[] a, int from, int to) {
+            this.a = a;
+            this.from = from;
+            this.keys = new long[(to - from) * 3];
+        }
+
+        /**
+         * Extracts the keys of the elements {@code lo} (inclusive) to
+         * {@code hi} (exclusive). Distinct subranges can be extracted
+         * concurrently.
+         */
+        void extract(int lo, int hi) {
+            long[] op = pack(a, from + lo, from + hi);
+            if (hi - lo == keys.length / 3) {
+                mpfr_java_sort_keys(keys, op, hi - lo);
+            } else {
+                long[] k = new long[(hi - lo) * 3];
+                mpfr_java_sort_keys(k, op, hi - lo);
+                System.arraycopy(k, 0, keys, lo * 3, k.length);
+            }
+            NativeReclaimer.reachabilityFence(a);
+        }
+
+        int compare(int i, int j) {
+            int c = compare(keys[3 * i], keys[3 * j]);
+            if (c == 0) {
+                c = compare(keys[3 * i + 1], keys[3 * j + 1]);
+            }
+            if (c == 0) {
+                c = compare(keys[3 * i + 2] ^ Long.MIN_VALUE, keys[3 * j + 2] ^ Long.MIN_VALUE);
+            }
+            if (c != 0) {
+                return c;
+            }
+            BigFloat x = a[from + i];
+            BigFloat y = a[from + j];
+            if (x.precision() <= KEY_BITS && y.precision() <= KEY_BITS) {
+                return compare((long)x.precision(), (long)y.precision());
+            }
+            return x.compareTo(y);
+        }
+
+        private static int compare(long x, long y) {
+            return x < y ? -1 : x == y ? 0 : 1;
+        }
+
+        /**
+         * Sorts {@code order[lo, hi)} stably, using {@code tmp[lo, hi)} as
+         * scratch space.
+         */
+        void sort(int[] order, int[] tmp, int lo, int hi) {
+            if (hi - lo <= INSERTION_SORT_LENGTH) {
+                for (int i = lo + 1; i < hi; i++) {
+                    int x = order[i];
+                    int j = i;
+                    for (; j > lo && compare(order[j - 1], x) > 0; j--) {
+                        order[j] = order[j - 1];
+                    }
+                    order[j] = x;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            sort(order, tmp, lo, mid);
+            sort(order, tmp, mid, hi);
+            if (compare(order[mid - 1], order[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, lo, tmp, lo, hi - lo);
+            merge(tmp, order, lo, mid, hi);
+        }
+
+        /**
+         * Merges the sorted runs {@code src[lo, mid)} and {@code src[mid, hi)}
+         * into {@code dest[lo, hi)}.
+         */
+        void merge(int[] src, int[] dest, int lo, int mid, int hi) {
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || i < mid && compare(src[i], src[j]) <= 0) {
+                    dest[k] = src[i++];
+                } else {
+                    dest[k] = src[j++];
+                }
+            }
+        }
+
+        /**
+         * Rearranges the range so that its {@code i}-th element is the
+         * element previously at {@code order[i]}.
+         */
+        void permute(int[] order) {
+            BigFloat[] sorted = new BigFloat[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = a[from + order[i]];
+            }
+            System.arraycopy(sorted, 0, a, from, sorted.length);
+        }
+    }
+
+    /**
+     * Sorts the specified array into the order of
+     * {@link BigFloat#compareTo(BigFloat)}: NaN after every other value, -0
+     * before +0, and equal values by precision. The sort is stable.
+     * @param a the array to sort.
+     */
+    public static void sort(BigFloat[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the specified array as in
+     * {@link #sort(BigFloat[])}.
+     * @param a the array to sort.
+     * @param fromIndex the index of the first element to sort, inclusive.
+     * @param toIndex the index of the last element to sort, exclusive.
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}.
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     * {@code toIndex > a.length}.
+     */
+    public static void sort(BigFloat[] a, int fromIndex, int toIndex) {
+        checkRange(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex;
+        SortKeys keys = new SortKeys(a, fromIndex, toIndex);
+        keys.extract(0, n);
+        int[] order = identity(n);
+        keys.sort(order, new int[n], 0, n);
+        keys.permute(order);
+    }
+
+    /**
+     * Sorts the specified array as in {@link #sort(BigFloat[])}, dividing the
+     * work between tasks submitted to the specified executor. Each task
+     * extracts the keys of and sorts one part of the array, and the sorted
+     * parts are then merged pairwise, also by tasks of the executor. Arrays
+     * which are too short to benefit are sorted by the calling thread.
+     * @param a the array to sort.
+     * @param executor the executor to run the tasks.
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     * to finish, in which case the array is unchanged.
+     */
+    public static void parallelSort(BigFloat[] a, ExecutorService executor)
+            throws InterruptedException {
+        parallelSort(a, 0, a.length, executor);
+    }
+
+    /**
+     * Sorts the specified range of the specified array as in
+     * {@link #parallelSort(BigFloat[], ExecutorService)}.
+     * @param a the array to sort.
+     * @param fromIndex the index of the first element to sort, inclusive.
+     * @param toIndex the index of the last element to sort, exclusive.
+     * @param executor the executor to run the tasks.
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     * to finish, in which case the array is unchanged.
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}.
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     * {@code toIndex > a.length}.
+     */
+    public static void parallelSort(BigFloat[] a, int fromIndex, int toIndex,
+            ExecutorService executor) throws InterruptedException {
+        checkRange(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex;
+        int tasks = Math.min(n / MIN_PARALLEL_SORT_LENGTH, Runtime.getRuntime().availableProcessors());
+        if (tasks <= 1) {
+            sort(a, fromIndex, toIndex);
+            return;
+        }
+        final SortKeys keys = new SortKeys(a, fromIndex, toIndex);
+        final int[] order = identity(n);
+        final int[] tmp = new int[n];
+        int[] bounds = new int[tasks + 1];
+        List<Callable<Void>> sorts = new ArrayList<Callable<Void>>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int lo = (int)((long)n * t / tasks);
+            final int hi = (int)((long)n * (t + 1) / tasks);
+            bounds[t + 1] = hi;
+            sorts.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    keys.extract(lo, hi);
+                    keys.sort(order, tmp, lo, hi);
+                    return null;
+                }
+            });
+        }
+        invokeAll(executor, sorts);
+        int[] src = order;
+        int[] dest = tmp;
+        for (int width = 1; width < tasks; width *= 2) {
+            List<Callable<Void>> merges = new ArrayList<Callable<Void>>();
+            for (int t = 0; t < tasks; t += 2 * width) {
+                final int lo = bounds[t];
+                final int mid = bounds[Math.min(t + width, tasks)];
+                final int hi = bounds[Math.min(t + 2 * width, tasks)];
+                final int[] from = src;
+                final int[] to = dest;
+                merges.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        keys.merge(from, to, lo, mid, hi);
+                        return null;
+                    }
+                });
+            }
+            invokeAll(executor, merges);
+            int[] swap = src;
+            src = dest;
+            dest = swap;
+        }
+        keys.permute(src);
+    }
+
+    /**
+     * Searches the specified array, which must be sorted as by
+     * {@link #sort(BigFloat[])}, for the specified value, as
+     * {@link java.util.Arrays#binarySearch(Object[], Object)} does. Each
+     * comparison reads the fields of the two numbers and only crosses into
+     * native code if their exponents are equal.
+     * @param a the array to search.
+     * @param key the value to search for.
+     * @return the index of an element which compares equal to {@code key}, if
+     * any; otherwise <tt>(-(<i>insertion point</i>) - 1)</tt>.
+     */
+    public static int binarySearch(BigFloat[] a, BigFloat key) {
+        return binarySearch(a, 0, a.length, key);
+    }
+
+    /**
+     * Searches the specified range of the specified array as in
+     * {@link #binarySearch(BigFloat[], BigFloat)}.
+     * @param a the array to search.
+     * @param fromIndex the index of the first element to search, inclusive.
+     * @param toIndex the index of the last element to search, exclusive.
+     * @param key the value to search for.
+     * @return the index of an element which compares equal to {@code key}, if
+     * any; otherwise <tt>(-(<i>insertion point</i>) - 1)</tt>.
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}.
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     * {@code toIndex > a.length}.
+     */
+    public static int binarySearch(BigFloat[] a, int fromIndex, int toIndex, BigFloat key) {
+        checkRange(a.length, fromIndex, toIndex);
+        int lo = fromIndex;
+        int hi = toIndex - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = a[mid].compareTo(key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the least element of the specified array in the
+     * order of {@link BigFloat#compareTo(BigFloat)}, which is the first such
+     * index if there are several.
+     * @param a the array to search.
+     * @return the index of the least element, or -1 if {@code a} is empty.
+     */
+    public static int argmin(BigFloat[] a) {
+        return extreme(a, false);
+    }
+
+    /**
+     * Returns the index of the greatest element of the specified array in the
+     * order of {@link BigFloat#compareTo(BigFloat)}, which is the first such
+     * index if there are several. NaN is greater than every other value.
+     * @param a the array to search.
+     * @return the index of the greatest element, or -1 if {@code a} is empty.
+     */
+    public static int argmax(BigFloat[] a) {
+        return extreme(a, true);
+    }
+
+    /**
+     * Returns the least element of the specified array in the order of
+     * {@link BigFloat#compareTo(BigFloat)}.
+     * @param a the array to search.
+     * @return the least element.
+     * @throws NoSuchElementException if {@code a} is empty.
+     */
+    public static BigFloat min(BigFloat[] a) {
+        return element(a, argmin(a));
+    }
+
+    /**
+     * Returns the greatest element of the specified array in the order of
+     * {@link BigFloat#compareTo(BigFloat)}. Unlike
+     * {@link BigFloat#max(BigFloat, BigFloat, BinaryMathContext)}, this is NaN
+     * if any element is NaN.
+     * @param a the array to search.
+     * @return the greatest element.
+     * @throws NoSuchElementException if {@code a} is empty.
+     */
+    public static BigFloat max(BigFloat[] a) {
+        return element(a, argmax(a));
+    }
+
+    private static int extreme(BigFloat[] a, boolean greatest) {
+        if (a.length == 0) {
+            return -1;
+        }
+        SortKeys keys = new SortKeys(a, 0, a.length);
+        keys.extract(0, a.length);
+        int best = 0;
+        for (int i = 1; i < a.length; i++) {
+            int c = keys.compare(i, best);
+            if (greatest ? c > 0 : c < 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static BigFloat element(BigFloat[] a, int i) {
+        if (i < 0) {
+            throw new NoSuchElementException("empty array");
+        }
+        return a[i];
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks)
+            throws InterruptedException {
+        List<Future<Void>> results = new ArrayList<Future<Void>>(tasks.size());
+        try {
+            for (Callable<Void> task : tasks) {
+                results.add(executor.submit(task));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new AssertionError(cause);
+        } finally {
+            for (Future<Void> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    private static void checkRange(int length, int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex);
+        }
+        if (toIndex > length) {
+            throw new ArrayIndexOutOfBoundsException(toIndex);
+        }
+    }
+
+    private static void checkLength(int expected, int length) {
+        if (length != expected) {
+            throw new IllegalArgumentException("array lengths differ: " + expected + " != " + length);
+        }
+    }
+
+    private static long[] pack(BigFloat[] a) {
+        return pack(a, 0, a.length);
+    }
+
+    private static long[] pack(BigFloat[] a, int from, int to) {
+        long[] packed = new long[(to - from) * MPFR_PACKED_SIZE];
+        for (int i = from; i < to; i++) {
+            mpfr_pack(a[i].op(), packed, i - from);
+        }
+        return packed;
+    }
+
+    private static long[] allocate(mpfr_t[] rops, int precision) {
+        long[] packed = new long[rops.length * MPFR_PACKED_SIZE];
+        for (int i = 0; i < rops.length; i++) {
+            rops[i] = new mpfr_t(precision);
+            mpfr_pack(rops[i], packed, i);
+        }
+        return packed;
+    }
+
+    private static void store(long[] packed, mpfr_t[] rops, BigFloat[] out) {
+        for (int i = 0; i < rops.length; i++) {
+            mpfr_unpack(packed, i, rops[i]);
+            out[i] = new BigFloat(rops[i]);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+/**
+ * The management interface of the native memory and operation counts of
+ * this library, registered with the platform MBean server under the name
+ * {@value Metrics#OBJECT_NAME} the first time a {@link BigFloat} operation
+ * is performed.
+ *
+ * The struct, integer and operation counts are only collected while
+ * {@link #isEnabled()} is true, which it is initially if the system property
+ * {@value Metrics#ENABLED_PROPERTY} is {@code true}. Counts are cumulative
+ * from the time the JVM started; rates are obtained by sampling them. The
+ * native memory attributes are always available.
+ *
+ * @author Dwight Guth
+ *
+ */
+public interface BigFloatMXBean {
+
+    /**
+     * @return whether counts are currently being collected.
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops collecting counts. A struct or integer is counted as
+     * freed only if it was counted as allocated, so {@link #getLiveStructs()}
+     * and {@link #getLiveIntegers()} only include the structs and integers
+     * allocated while counts were being collected.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the number of {@code mpfr_t} structs allocated for
+     * {@link BigFloat} values and temporaries.
+     */
+    long getAllocatedStructs();
+
+    /**
+     * @return the number of {@code mpfr_t} structs freed, whether explicitly
+     * or after their owner was garbage collected.
+     */
+    long getFreedStructs();
+
+    /**
+     * @return the number of {@code mpfr_t} structs which have been allocated
+     * and not yet freed.
+     */
+    long getLiveStructs();
+
+    /**
+     * @return the number of bytes of native memory, including limbs, held by
+     * the live {@code mpfr_t} structs.
+     */
+    long getLiveStructBytes();
+
+    /**
+     * @return the number of {@code mpz_t} integers initialized to convert
+     * to and from {@link java.math.BigInteger}.
+     */
+    long getAllocatedIntegers();
+
+    /**
+     * @return the number of {@code mpz_t} integers initialized and not yet
+     * cleared.
+     */
+    long getLiveIntegers();
+
+    /**
+     * @return the number of objects owning native memory which have been
+     * garbage collected and whose memory has been freed by the reclaimer,
+     * rather than freed explicitly.
+     */
+    long getReclaimedObjects();
+
+    /**
+     * @return the number of objects owning native memory whose memory has not
+     * been freed yet, whether or not they are still reachable.
+     */
+    long getRegisteredObjects();
+
+    /**
+     * @return the number of bytes of native memory owned by those objects.
+     */
+    long getRegisteredBytes();
+
+    /**
+     * @return the number of bytes of native memory currently allocated by
+     * this library, GMP and MPFR, or only by this library if the system
+     * allocator is used.
+     */
+    long getNativeBytes();
+
+    /**
+     * @return the limit on the native memory allocated for structs and
+     * vectors, in bytes, or 0 if there is none.
+     */
+    long getNativeQuota();
+
+    /**
+     * Sets the limit on the native memory allocated for structs and vectors.
+     * @param bytes the limit in bytes, or 0 for none.
+     */
+    void setNativeQuota(long bytes);
+
+    /**
+     * @return the number of allocations refused because of the quota.
+     */
+    long getQuotaFailures();
+
+    /**
+     * @return the number of additions and subtractions, including sums.
+     */
+    long getAddCount();
+
+    /**
+     * @return the number of multiplications.
+     */
+    long getMultiplyCount();
+
+    /**
+     * @return the number of divisions and remainders.
+     */
+    long getDivideCount();
+
+    /**
+     * @return the number of fused multiply-adds and dot products.
+     */
+    long getFusedCount();
+
+    /**
+     * @return the number of square and higher roots.
+     */
+    long getRootCount();
+
+    /**
+     * @return the number of powers, exponentials, logarithms, and
+     * trigonometric and hyperbolic functions.
+     */
+    long getTranscendentalCount();
+
+    /**
+     * @return the number of conversions to {@link BigFloat} from numbers.
+     */
+    long getConvertCount();
+
+    /**
+     * @return the number of values parsed from strings.
+     */
+    long getParseCount();
+
+    /**
+     * @return the number of values formatted as strings.
+     */
+    long getFormatCount();
+
+    /**
+     * @return the number of other operations, such as {@code abs} and
+     * {@code round}.
+     */
+    long getOtherCount();
+
+    /**
+     * @return the number of operations, of any kind, whose result was
+     * computed in hardware instead of by MPFR.
+     */
+    long getFastPathCount();
+}
@@ -0,0 +1,533 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * Reads floating point numbers in bulk from text consisting of records
+ * separated by delimiters, such as a file of comma- or newline-separated
+ * numbers. Each record must be exactly a number accepted by
+ * {@link BigFloat#BigFloat(String, BinaryMathContext)}, and is rounded
+ * according to the context of the reader. Records are separated by runs of
+ * delimiter characters, so empty records are skipped.
+ *
+ * <p>The input is read in large chunks into a buffer which is reused for the
+ * whole input, and all the records of a chunk are split, parsed and rounded
+ * in a single native call, directly into the native memory of a
+ * {@link BigFloatVector}. This is much faster than constructing a
+ * {@code BigFloat} from a {@code String} for every record.
+ *
+ * <p>A record which is not a number does not stop the input from being read.
+ * Its value is NaN, and it is reported to the caller as an
+ * {@link InvalidRecord} instead of with an exception of its own. If the caller
+ * does not ask for them to be reported, a {@code NumberFormatException}
+ * describing the first of them is thrown once all the records have been read.
+ * Likewise, if the rounding mode of the context is
+ * {@link java.math.RoundingMode#UNNECESSARY UNNECESSARY}, every record is
+ * stored before the {@code ArithmeticException} is thrown if any of them was
+ * rounded.
+ *
+ * <p>Instances of this class are immutable, and may be shared by multiple
+ * threads.
+ *
+ * @see BigFloatVector
+ * @author Dwight Guth
+ */
+public final class BigFloatReader {
+
+    /**
+     * The delimiters used by {@link #BigFloatReader(BinaryMathContext)}:
+     * ASCII whitespace and commas.
+     */
+    public static final String DEFAULT_DELIMITERS = " \t\n\r\f,";
+
+    /**
+     * The number of bytes read from the input at a time.
+     */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * The number of records parsed by a single native call when the results
+     * are copied to a list.
+     */
+    private static final int BATCH_SIZE = 1 << 10;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private final BinaryMathContext mc;
+
+    /**
+     * For each byte b, nonzero if b is a delimiter.
+     */
+    private final byte[] delimiters = new byte[256];
+
+    /**
+     * A record of the input which is not a number.
+     */
+    public static final class InvalidRecord {
+        private final long record;
+        private final long offset;
+        private final String text;
+
+        InvalidRecord(long record, long offset, String text) {
+            this.record = record;
+            this.offset = offset;
+            this.text = text;
+        }
+
+        /**
+         * @return the index of the record among all the records read, starting
+         * from zero.
+         */
+        public long record() {
+            return record;
+        }
+
+        /**
+         * @return the offset in bytes of the record from the start of the input.
+         */
+        public long offset() {
+            return offset;
+        }
+
+        /**
+         * @return the text of the record, each byte of which is converted to
+         * the character with the same code.
+         */
+        public String text() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return "invalid record " + record + " at offset " + offset + ": \"" + text + "\"";
+        }
+    }
+
+    /**
+     * Constructs a reader of records separated by
+     * {@link #DEFAULT_DELIMITERS}.
+     * @param mc the context to round each record with.
+     * @throws ArithmeticException if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2.
+     */
+    public BigFloatReader(BinaryMathContext mc) {
+        this(mc, DEFAULT_DELIMITERS);
+    }
+
+    /**
+     * Constructs a reader of records separated by any of the specified
+     * characters.
+     * @param mc the context to round each record with.
+     * @param delimiters the characters which separate records.
+     * @throws ArithmeticException as in
+     * {@link #BigFloatReader(BinaryMathContext)}.
+     * @throws IllegalArgumentException as in
+     * {@link #BigFloatReader(BinaryMathContext)}; or if {@code delimiters}
+     * is empty or contains a character which is not in ASCII.
+     */
+    public BigFloatReader(BinaryMathContext mc, String delimiters) {
+        if (mc.precision < MPFR_PREC_MIN || mc.precision > MPFR_PREC_MAX) {
+            throw new IllegalArgumentException("invalid precision");
+        }
+        BigFloat.convertRoundingMode(mc.roundingMode);
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        if (delimiters.length() == 0) {
+            throw new IllegalArgumentException("no delimiters");
+        }
+        for (int i = 0; i < delimiters.length(); i++) {
+            char c = delimiters.charAt(i);
+            if (c >= 0x80) {
+                throw new IllegalArgumentException("delimiter is not in ASCII: " + c);
+            }
+            this.delimiters[c] = 1;
+        }
+        this.mc = mc;
+    }
+
+    /**
+     * @return the context used to round each record.
+     */
+    public BinaryMathContext mathContext() {
+        return mc;
+    }
+
+    /**
+     * Reads all the records from {@code in} until the end of its input, and
+     * appends their values to {@code out} in order.
+     * @param in a blocking channel to read from.
+     * @param out the list to append the values of the records to.
+     * @param errors the list to append each record which is not a number to,
+     * or {@code null} to throw an exception instead.
+     * @return the number of records read.
+     * @throws ArithmeticException if any record is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IOException if reading from {@code in} fails.
+     * @throws NumberFormatException if {@code errors} is {@code null} and any
+     * record is not a number.
+     */
+    public long read(ReadableByteChannel in, List<? super BigFloat> out,
+            List<? super InvalidRecord> errors) throws IOException {
+        BigFloatVector scratch = new BigFloatVector(BATCH_SIZE, mc);
+        try {
+            Parser parser = new Parser(scratch, 0, out, 0, 0, errors);
+            parser.read(in);
+            parser.finish();
+            return parser.records;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    /**
+     * Reads all the records in the remaining bytes of {@code in}, from its
+     * position to its limit, into the elements of {@code out} starting at
+     * {@code index}. The position of the buffer is not changed. The buffer may
+     * be a {@link java.nio.MappedByteBuffer} mapping a whole file.
+     * @param in the buffer to read from.
+     * @param out the vector to store the values of the records in, whose
+     * context must be equal to that of this reader.
+     * @param index the index of the element to store the first record in.
+     * @param errors the list to append each record which is not a number to,
+     * or {@code null} to throw an exception instead.
+     * @return the number of records read.
+     * @throws ArithmeticException if any record is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the context of {@code out} is not
+     * the context of this reader.
+     * @throws IndexOutOfBoundsException if {@code index} is out of range, or if
+     * there are more records than elements from {@code index} on. The elements
+     * are modified nonetheless.
+     * @throws NumberFormatException if {@code errors} is {@code null} and any
+     * record is not a number.
+     * @see #count(ByteBuffer)
+     */
+    public int read(ByteBuffer in, BigFloatVector out, int index, List<? super InvalidRecord> errors) {
+        checkVector(out, index);
+        Parser parser = new Parser(out, index, null, 0, 0, errors);
+        parser.read(in.duplicate());
+        parser.finish();
+        return (int) parser.records;
+    }
+
+    /**
+     * Reads all the records in the remaining bytes of {@code in} into the
+     * elements of {@code out} starting at {@code index}, as in
+     * {@link #read(ByteBuffer, BigFloatVector, int, List)}, dividing the
+     * buffer among tasks submitted to {@code executor}. The records are read
+     * by the calling thread instead if the underlying MPFR library is not
+     * thread safe. The result is the same either way.
+     * @param in the buffer to read from.
+     * @param out the vector to store the values of the records in.
+     * @param index the index of the element to store the first record in.
+     * @param errors the list to append each record which is not a number to,
+     * in order, or {@code null} to throw an exception instead.
+     * @param executor the executor to read the records with.
+     * @return the number of records read.
+     * @throws ArithmeticException if any record is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the context of {@code out} is not
+     * the context of this reader.
+     * @throws IndexOutOfBoundsException if {@code index} is out of range, or if
+     * there are more records than elements from {@code index} on, in which
+     * case no element is modified.
+     * @throws InterruptedException if the calling thread was interrupted
+     * while waiting for the records to be read, in which case the contents of
+     * {@code out} are unspecified.
+     * @throws NumberFormatException if {@code errors} is {@code null} and any
+     * record is not a number.
+     */
+    public int read(ByteBuffer in, BigFloatVector out, int index,
+            List<? super InvalidRecord> errors, ExecutorService executor) throws InterruptedException {
+        checkVector(out, index);
+        final ByteBuffer src = in.duplicate();
+        int tasks = Math.min(src.remaining() / CHUNK_SIZE + 1, Runtime.getRuntime().availableProcessors());
+        if (tasks <= 1 || !mpfr_buildopt_tls_p()) {
+            return read(in, out, index, errors);
+        }
+        // split the buffer at delimiters, so that no record spans two tasks
+        final int[] bounds = new int[tasks + 1];
+        bounds[0] = src.position();
+        bounds[tasks] = src.limit();
+        for (int t = 1; t < tasks; t++) {
+            int b = Math.max(bounds[t - 1],
+                    (int) (src.position() + (long) src.remaining() * t / tasks));
+            while (b < src.limit() && !isDelimiter(src.get(b))) {
+                b++;
+            }
+            bounds[t] = b;
+        }
+        List<Callable<Integer>> counts = new ArrayList<Callable<Integer>>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int from = bounds[t];
+            final int to = bounds[t + 1];
+            counts.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return count(src, from, to);
+                }
+            });
+        }
+        List<Integer> records = await(executor.invokeAll(counts));
+        long total = 0;
+        for (int n : records) {
+            total += n;
+        }
+        if (total > out.length() - index) {
+            throw new IndexOutOfBoundsException(total + " records do not fit in " + (out.length() - index)
+                    + " elements");
+        }
+        List<Parser> parsers = new ArrayList<Parser>(tasks);
+        List<Callable<Parser>> parses = new ArrayList<Callable<Parser>>(tasks);
+        long first = 0;
+        for (int t = 0; t < tasks; t++) {
+            final ByteBuffer chunk = src.duplicate();
+            chunk.limit(bounds[t + 1]).position(bounds[t]);
+            final Parser parser = new Parser(out, index + (int) first, null, first,
+                    bounds[t] - bounds[0], new ArrayList<InvalidRecord>());
+            parsers.add(parser);
+            parses.add(new Callable<Parser>() {
+                @Override
+                public Parser call() {
+                    parser.read(chunk);
+                    return parser;
+                }
+            });
+            first += records.get(t);
+        }
+        await(executor.invokeAll(parses));
+        // report the invalid records of all the tasks in order
+        Parser result = new Parser(out, index, null, 0, 0, errors);
+        for (Parser parser : parsers) {
+            result.records += parser.records;
+            result.rounded |= parser.rounded;
+            for (Object record : parser.errors) {
+                result.invalid((InvalidRecord) record);
+            }
+        }
+        result.finish();
+        return (int) result.records;
+    }
+
+    /**
+     * Counts the records in the remaining bytes of {@code in}, for example in
+     * order to create a {@link BigFloatVector} to read them into. The position
+     * of the buffer is not changed.
+     * @param in the buffer to count the records of.
+     * @return the number of records.
+     */
+    public int count(ByteBuffer in) {
+        return count(in, in.position(), in.limit());
+    }
+
+    private int count(ByteBuffer in, int from, int to) {
+        int n = 0;
+        boolean inRecord = false;
+        for (int i = from; i < to; i++) {
+            boolean delimiter = isDelimiter(in.get(i));
+            if (!delimiter && !inRecord) {
+                n++;
+            }
+            inRecord = !delimiter;
+        }
+        return n;
+    }
+
+    private boolean isDelimiter(byte b) {
+        return delimiters[b & 0xff] != 0;
+    }
+
+    private void checkVector(BigFloatVector out, int index) {
+        if (!out.mathContext().equals(mc)) {
+            throw new IllegalArgumentException("vector context " + out.mathContext()
+                    + " is not the context of the reader " + mc);
+        }
+        if (index < 0 || index > out.length()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + out.length());
+        }
+    }
+
+    private static <T> List<T> await(List<Future<T>> futures) throws InterruptedException {
+        List<T> results = new ArrayList<T>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new AssertionError(cause);
+        }
+        return results;
+    }
+
+    /**
+     * Reads records into consecutive elements of a vector, either to keep
+     * them there or, if {@code list} is not {@code null}, to copy them to a
+     * list, reusing the vector for each batch of records.
+     */
+    private final class Parser {
+        private final BigFloatVector out;
+        private final List<? super BigFloat> list;
+        private final List<? super InvalidRecord> errors;
+        private final long firstRecord;
+        private final int[] starts = new int[BATCH_SIZE];
+        private final int[] state = new int[2];
+        private byte[] buf = new byte[CHUNK_SIZE + 1];
+
+        /**
+         * The index of the element to store the next record in.
+         */
+        private int index;
+
+        /**
+         * The offset from the start of the input of the first byte of the
+         * buffer.
+         */
+        private long offset;
+
+        private InvalidRecord firstInvalid;
+        long records;
+        boolean rounded;
+
+        Parser(BigFloatVector out, int index, List<? super BigFloat> list, long firstRecord,
+                long offset, List<? super InvalidRecord> errors) {
+            this.out = out;
+            this.index = index;
+            this.list = list;
+            this.firstRecord = firstRecord;
+            this.offset = offset;
+            this.errors = errors;
+        }
+
+        void read(final ByteBuffer in) {
+            try {
+                read(new ReadableByteChannel() {
+                    @Override
+                    public int read(ByteBuffer dst) {
+                        if (!in.hasRemaining()) {
+                            return -1;
+                        }
+                        int n = Math.min(in.remaining(), dst.remaining());
+                        ByteBuffer src = in.duplicate();
+                        src.limit(src.position() + n);
+                        dst.put(src);
+                        in.position(src.position());
+                        return n;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return true;
+                    }
+
+                    @Override
+                    public void close() {}
+                });
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        void read(ReadableByteChannel in) throws IOException {
+            int len = 0;
+            boolean eof = false;
+            while (!eof) {
+                if (len == buf.length - 1) {
+                    // a single record fills the whole buffer
+                    buf = Arrays.copyOf(buf, 2 * len + 1);
+                }
+                ByteBuffer dst = ByteBuffer.wrap(buf, len, buf.length - 1 - len);
+                while (dst.hasRemaining() && !eof) {
+                    eof = in.read(dst) < 0;
+                }
+                len = dst.position();
+                // the last record may continue in the next chunk
+                int end = len;
+                if (!eof) {
+                    while (end > 0 && !isDelimiter(buf[end - 1])) {
+                        end--;
+                    }
+                }
+                parse(end);
+                System.arraycopy(buf, end, buf, 0, len - end);
+                offset += end;
+                len -= end;
+            }
+        }
+
+        /**
+         * Parses the records in the first {@code end} bytes of the buffer.
+         */
+        private void parse(int end) {
+            int p = 0;
+            while (p < end) {
+                int count = out.parse(index, buf, p, end, delimiters, starts, state);
+                if (count == 0 && state[0] < end) {
+                    throw new IndexOutOfBoundsException("more records than elements in vector of length "
+                            + out.length());
+                }
+                for (int i = 0; i < count; i++) {
+                    if (starts[i] < 0) {
+                        int start = ~starts[i];
+                        int stop = start;
+                        while (stop < end && !isDelimiter(buf[stop])) {
+                            stop++;
+                        }
+                        invalid(new InvalidRecord(firstRecord + records + i, offset + start,
+                                new String(buf, start, stop - start, ISO_8859_1)));
+                    }
+                }
+                if (list == null) {
+                    index += count;
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        list.add(out.get(i));
+                    }
+                }
+                records += count;
+                rounded |= state[1] != 0;
+                p = state[0];
+            }
+        }
+
+        void invalid(InvalidRecord record) {
+            if (firstInvalid == null) {
+                firstInvalid = record;
+            }
+            if (errors != null) {
+                errors.add(record);
+            }
+        }
+
+        /**
+         * Throws the exception for the records read, if any.
+         */
+        void finish() {
+            if (errors == null && firstInvalid != null) {
+                throw new NumberFormatException(firstInvalid.toString());
+            }
+            BigFloat.throwArithmeticException(rounded, mc);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.kframework.mpfr.BigFloatArrays.BinaryOperation;
+import org.kframework.mpfr.BigFloatArrays.UnaryOperation;
+import org.kframework.mpfr.NativeReclaimer.Reclaimable;
+import org.kframework.mpfr.mpfr.mpfr_t;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * A fixed-length vector of floating point numbers which all have the same
+ * precision, stored outside the Java heap. Unlike an array of {@link BigFloat},
+ * a {@code BigFloatVector} does not create a Java object or a separate native
+ * allocation for each element: the exponents, signs and significands of all
+ * the elements are stored contiguously in a single block of native memory,
+ * which is freed all at once.
+ *
+ * <p>Like {@link MutableBigFloat}, the precision, exponent range and rounding
+ * mode of a {@code BigFloatVector} are fixed by the {@link BinaryMathContext}
+ * it was created with, and every value stored in it is rounded according to
+ * that context, including emulation of subnormal arithmetic. Elements can be
+ * converted to and from {@code BigFloat} with {@link #get(int)} and
+ * {@link #set(int, BigFloat)}, and the elementwise operations of
+ * {@link BigFloatArrays} can be applied to whole vectors in a single native
+ * call.
+ *
+ * <p>If the rounding mode of the context is
+ * {@link java.math.RoundingMode#UNNECESSARY UNNECESSARY}, every result of an
+ * elementwise operation is stored before the {@code ArithmeticException} is
+ * thrown if any of them was rounded.
+ *
+ * <p>Instances of this class are not safe for use by multiple threads without
+ * external synchronization.
+ *
+ * @see BigFloatArrays
+ * @author Dwight Guth
+ */
+public final class BigFloatVector {
+
+    private final BinaryMathContext mc;
+    private final int rnd;
+    private final long emin;
+    private final long emax;
+    private final int length;
+    private final Reclaimable memory;
+
+    /**
+     * The address of the native memory of this vector, or 0 once it has been
+     * released by {@link #clear()}.
+     */
+    private long address;
+
+    /**
+     * Constructs a {@code BigFloatVector} of the specified length whose
+     * elements are all positive zero.
+     * @param length the number of elements.
+     * @param mc the context to use for all elements.
+     * @throws ArithmeticException if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), if the precision is less than 2, or if the
+     * length is negative.
+     * @throws OutOfMemoryError if the native memory could not be allocated.
+     */
+    public BigFloatVector(int length, BinaryMathContext mc) {
+        if (length < 0) {
+            throw new IllegalArgumentException("negative length");
+        }
+        if (mc.precision < MPFR_PREC_MIN || mc.precision > MPFR_PREC_MAX) {
+            throw new IllegalArgumentException("invalid precision");
+        }
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        this.mc = mc;
+        this.rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        this.emin = BigFloat.emin(mc.minExponent, mc.precision);
+        this.emax = BigFloat.emax(mc.maxExponent);
+        this.length = length;
+        long bytes = mpfr_java_vector_size(length, mc.precision);
+        NativeReclaimer.reserve(bytes);
+        long v = mpfr_java_vector_alloc(length, mc.precision);
+        // the vectors of collected owners may not have been freed yet
+        if (v == 0 && NativeReclaimer.drain() > 0) {
+            v = mpfr_java_vector_alloc(length, mc.precision);
+        }
+        if (v == 0) {
+            throw allocationFailed(bytes, "BigFloatVector");
+        }
+        address = v;
+        memory = new Slab(this, bytes, address, length, mc.precision);
+    }
+
+    /**
+     * Constructs a {@code BigFloatVector} whose elements are equal to the
+     * elements of {@code values}, with rounding according to the context
+     * settings.
+     * @param values the initial values of the elements.
+     * @param mc the context to use for all elements.
+     * @throws ArithmeticException if any value is inexact but the rounding
+     * mode is {@code UNNECESSARY}; otherwise as in
+     * {@link #BigFloatVector(int, BinaryMathContext)}.
+     * @throws IllegalArgumentException as in
+     * {@link #BigFloatVector(int, BinaryMathContext)}.
+     */
+    public BigFloatVector(BigFloat[] values, BinaryMathContext mc) {
+        this(values.length, mc);
+        for (int i = 0; i < values.length; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    /**
+     * Frees the native memory of a vector after it has been garbage collected.
+     */
+    private static final class Slab extends Reclaimable {
+        private final long address;
+        private final int length;
+        private final int precision;
+
+        Slab(BigFloatVector owner, long bytes, long address, int length, int precision) {
+            super(owner, bytes);
+            this.address = address;
+            this.length = length;
+            this.precision = precision;
+        }
+
+        @Override
+        void free() {
+            mpfr_java_vector_free(address, length, precision);
+        }
+    }
+
+    /**
+     * @return the number of elements of this vector.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the context used for all elements of this vector.
+     */
+    public BinaryMathContext mathContext() {
+        return mc;
+    }
+
+    private long address() {
+        if (address == 0) {
+            throw new IllegalStateException("BigFloatVector has been cleared");
+        }
+        return address;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Length: " + length);
+        }
+    }
+
+    private void checkLength(BigFloatVector v) {
+        if (v.length != length) {
+            throw new IllegalArgumentException("vector lengths differ: " + length + " != " + v.length);
+        }
+    }
+
+    /**
+     * @return true if the elements of {@code v}, which always lie within the
+     * exponent range of its own context, lie within the exponent range of
+     * this vector's context.
+     */
+    private boolean within(BigFloatVector v) {
+        return v.emin >= emin && v.emax <= emax;
+    }
+
+    /**
+     * Returns the element at the specified index.
+     * @param i the index of the element.
+     * @return a {@code BigFloat} equal to the element, whose precision is
+     * equal to {@link BinaryMathContext#precision mc.precision}.
+     * @throws IndexOutOfBoundsException if {@code i} is out of range.
+     */
+    public BigFloat get(int i) {
+        checkIndex(i);
+        mpfr_t rop = new mpfr_t(mc.precision);
+        mpfr_java_vector_get(rop, address(), length, mc.precision, i);
+        NativeReclaimer.reachabilityFence(this);
+        return new BigFloat(rop);
+    }
+
+    /**
+     * Sets the element at the specified index to {@code val}, with rounding
+     * according to the context settings.
+     * @param i the index of the element.
+     * @param val the new value.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}. The element is modified nonetheless.
+     * @throws IndexOutOfBoundsException if {@code i} is out of range.
+     */
+    public void set(int i, BigFloat val) {
+        checkIndex(i);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, val.op(), null, null);
+        try {
+            rounded = mpfr_java_vector_set(address(), length, mc.precision, i, val.op(),
+                    rnd, emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * @return an array containing the elements of this vector.
+     */
+    public BigFloat[] toArray() {
+        BigFloat[] result = new BigFloat[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Sets each element of this vector to {@code f(a[i])}, with rounding
+     * according to the context settings.
+     * @param f the operation to apply.
+     * @param a the operands, which may be this vector.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if {@code a} is not the same length
+     * as this vector.
+     * @see BigFloatArrays#map(UnaryOperation, BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public void map(UnaryOperation f, BigFloatVector a) {
+        checkLength(a);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, within(a));
+        try {
+            rounded = mpfr_java_vector_map_unary(f.code, address(), mc.precision,
+                    a.address(), a.mc.precision, length, rnd, emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        NativeReclaimer.reachabilityFence(a);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * Sets each element of this vector to {@code f(a[i], b[i])}, with rounding
+     * according to the context settings.
+     * @param f the operation to apply.
+     * @param a the first operands, which may be this vector.
+     * @param b the second operands, which may be this vector.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if {@code a} or {@code b} is not the
+     * same length as this vector.
+     * @see BigFloatArrays#map(BinaryOperation, BigFloat[], BigFloat[], BigFloat[], BinaryMathContext)
+     */
+    public void map(BinaryOperation f, BigFloatVector a, BigFloatVector b) {
+        checkLength(a);
+        checkLength(b);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, within(a) && within(b));
+        try {
+            rounded = mpfr_java_vector_map_binary(f.code, address(), mc.precision,
+                    a.address(), a.mc.precision, b.address(), b.mc.precision, null, length,
+                    rnd, emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        NativeReclaimer.reachabilityFence(a);
+        NativeReclaimer.reachabilityFence(b);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * Sets each element of this vector to {@code f(a[i], b)}, with rounding
+     * according to the context settings.
+     * @param f the operation to apply.
+     * @param a the first operands, which may be this vector.
+     * @param b the second operand of every operation.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if {@code a} is not the same length
+     * as this vector.
+     * @see BigFloatArrays#map(BinaryOperation, BigFloat[], BigFloat, BigFloat[], BinaryMathContext)
+     */
+    public void map(BinaryOperation f, BigFloatVector a, BigFloat b) {
+        checkLength(a);
+        boolean rounded;
+        ExponentRange.enter(emin, emax, within(a) && ExponentRange.within(b.op(), emin, emax));
+        try {
+            rounded = mpfr_java_vector_map_binary(f.code, address(), mc.precision,
+                    a.address(), a.mc.precision, 0, 0, b.op(), length, rnd, emin, emax) != 0;
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        NativeReclaimer.reachabilityFence(a);
+        BigFloat.throwArithmeticException(rounded, mc);
+    }
+
+    /**
+     * Sets each element of this vector to {@code (a[i] + b[i])}.
+     * @see #map(BinaryOperation, BigFloatVector, BigFloatVector)
+     */
+    public void add(BigFloatVector a, BigFloatVector b) {
+        map(BinaryOperation.ADD, a, b);
+    }
+
+    /**
+     * Sets each element of this vector to {@code (a[i] - b[i])}.
+     * @see #map(BinaryOperation, BigFloatVector, BigFloatVector)
+     */
+    public void subtract(BigFloatVector a, BigFloatVector b) {
+        map(BinaryOperation.SUBTRACT, a, b);
+    }
+
+    /**
+     * Sets each element of this vector to <tt>(a[i] &times; b[i])</tt>.
+     * @see #map(BinaryOperation, BigFloatVector, BigFloatVector)
+     */
+    public void multiply(BigFloatVector a, BigFloatVector b) {
+        map(BinaryOperation.MULTIPLY, a, b);
+    }
+
+    /**
+     * Sets each element of this vector to {@code (a[i] / b[i])}.
+     * @see #map(BinaryOperation, BigFloatVector, BigFloatVector)
+     */
+    public void divide(BigFloatVector a, BigFloatVector b) {
+        map(BinaryOperation.DIVIDE, a, b);
+    }
+
+    /**
+     * Sets each element of this vector to <tt>(a[i] &times; factor)</tt>.
+     * @see #map(BinaryOperation, BigFloatVector, BigFloat)
+     */
+    public void scale(BigFloatVector a, BigFloat factor) {
+        map(BinaryOperation.MULTIPLY, a, factor);
+    }
+
+    /**
+     * Sets this vector to the matrix product of {@code a} and {@code b}. The
+     * vectors are interpreted as matrices stored in row-major order: {@code a}
+     * has {@code m} rows and {@code k} columns, {@code b} has {@code k} rows
+     * and {@code n} columns, and this vector receives the {@code m} by
+     * {@code n} result. Each element of the result is the correctly rounded
+     * dot product of a row of {@code a} and a column of {@code b}, as in
+     * {@link BigFloat#dot(BigFloat[], BigFloat[], BinaryMathContext)}: it is
+     * rounded only once, according to the context settings.
+     * @param a the left matrix.
+     * @param b the right matrix.
+     * @param m the number of rows of {@code a} and of the result.
+     * @param k the number of columns of {@code a} and rows of {@code b}.
+     * @param n the number of columns of {@code b} and of the result.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException if the lengths of the vectors do not
+     * match the dimensions, if {@code a} or {@code b} is this vector, or if
+     * the precisions of {@code a} and {@code b} are too high for their
+     * products to be computed exactly.
+     * @throws OutOfMemoryError if native memory for the computation could not
+     * be allocated.
+     */
+    public void matmul(BigFloatVector a, BigFloatVector b, int m, int k, int n) {
+        checkMatmul(a, b, m, k, n);
+        int inexact = matmul(a, b, m, k, n, 0, m);
+        BigFloat.throwArithmeticException(inexact != 0, mc);
+    }
+
+    /**
+     * Sets this vector to the matrix product of {@code a} and {@code b}, as in
+     * {@link #matmul(BigFloatVector, BigFloatVector, int, int, int)}, dividing
+     * the rows of the result among tasks submitted to {@code executor}. The
+     * rows are computed by the calling thread instead if the underlying MPFR
+     * library is not thread safe. The result is the same either way.
+     * @param a the left matrix.
+     * @param b the right matrix.
+     * @param m the number of rows of {@code a} and of the result.
+     * @param k the number of columns of {@code a} and rows of {@code b}.
+     * @param n the number of columns of {@code b} and of the result.
+     * @param executor the executor to compute the rows with.
+     * @throws ArithmeticException if any result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     * @throws IllegalArgumentException as in
+     * {@link #matmul(BigFloatVector, BigFloatVector, int, int, int)}.
+     * @throws InterruptedException if the calling thread was interrupted
+     * while waiting for the rows to be computed, in which case the contents of
+     * this vector are unspecified.
+     * @throws OutOfMemoryError if native memory for the computation could not
+     * be allocated.
+     */
+    public void matmul(final BigFloatVector a, final BigFloatVector b, final int m, final int k,
+            final int n, ExecutorService executor) throws InterruptedException {
+        checkMatmul(a, b, m, k, n);
+        int tasks = Math.min(m, Runtime.getRuntime().availableProcessors());
+        if (tasks <= 1 || !mpfr_buildopt_tls_p()) {
+            matmul(a, b, m, k, n);
+            return;
+        }
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int from = (int)((long)m * t / tasks);
+            final int to = (int)((long)m * (t + 1) / tasks);
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return matmul(a, b, m, k, n, from, to);
+                }
+            }));
+        }
+        int inexact = 0;
+        try {
+            for (Future<Integer> result : results) {
+                inexact |= result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new AssertionError(cause);
+        } finally {
+            for (Future<Integer> result : results) {
+                result.cancel(false);
+            }
+        }
+        BigFloat.throwArithmeticException(inexact != 0, mc);
+    }
+
+    private void checkMatmul(BigFloatVector a, BigFloatVector b, int m, int k, int n) {
+        if (m < 0 || k < 0 || n < 0) {
+            throw new IllegalArgumentException("negative dimension");
+        }
+        if ((long)m * k != a.length || (long)k * n != b.length || (long)m * n != length) {
+            throw new IllegalArgumentException("vector lengths do not match dimensions " + m + "x" + k
+                    + " * " + k + "x" + n);
+        }
+        if (a == this || b == this) {
+            throw new IllegalArgumentException("result vector cannot be an operand");
+        }
+        if ((long)a.mc.precision + b.mc.precision > MPFR_PREC_MAX) {
+            throw new IllegalArgumentException("precision of products too high");
+        }
+    }
+
+    /**
+     * Computes rows {@code from} (inclusive) to {@code to} (exclusive) of the
+     * matrix product.
+     * @return nonzero if any element was rounded.
+     */
+    private int matmul(BigFloatVector a, BigFloatVector b, int m, int k, int n, int from, int to) {
+        int inexact;
+        ExponentRange.enter(emin, emax, within(a) && within(b));
+        try {
+            inexact = mpfr_java_vector_matmul(address(), mc.precision, a.address(), a.mc.precision,
+                    b.address(), b.mc.precision, m, k, n, from, to, rnd, emin, emax);
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        NativeReclaimer.reachabilityFence(a);
+        NativeReclaimer.reachabilityFence(b);
+        if (inexact == MPFR_JAVA_NOMEM) {
+            throw new OutOfMemoryError("could not allocate memory for " + k + " products");
+        }
+        return inexact;
+    }
+
+    /**
+     * Parses the records of {@code s} from {@code off} to {@code len} into the
+     * elements of this vector starting at {@code index}, until either the
+     * records or the elements run out, as described in
+     * {@link mpfr#mpfr_java_vector_parse}. {@code s} must be longer than
+     * {@code len}.
+     * @return the number of records parsed.
+     */
+    int parse(int index, byte[] s, int off, int len, byte[] delimiters, int[] starts, int[] state) {
+        int count;
+        Object event = Events.begin();
+        ExponentRange.enter(emin, emax);
+        try {
+            count = mpfr_java_vector_parse(address(), length, mc.precision, index, s, off, len,
+                    delimiters, starts, Math.min(starts.length, length - index), state, rnd, emin, emax);
+        } finally {
+            ExponentRange.exit();
+        }
+        NativeReclaimer.reachabilityFence(this);
+        if (Metrics.enabled) {
+            Metrics.operations(Metrics.PARSE, count);
+        }
+        Events.end(event, "BigFloatVector.parse", mc.precision, mc.roundingMode);
+        return count;
+    }
+
+    /**
+     * Releases the native memory of this vector immediately rather than
+     * waiting for it to be garbage collected. Any further use of this vector
+     * throws {@code IllegalStateException}.
+     */
+    public void clear() {
+        address = 0;
+        memory.release();
+    }
+}
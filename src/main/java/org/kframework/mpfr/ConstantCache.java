@@ -0,0 +1,182 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.kframework.mpfr.mpfr.mpfr_t;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * Caches the value of a mathematical constant such as Pi.
+ *
+ * Each cache keeps a single approximation of its constant, computed by MPFR at
+ * the highest precision requested so far. Requests for the same or a lower
+ * precision are answered by correctly rounding that approximation instead of
+ * computing the constant again; the approximation is only recomputed, at
+ * a higher precision, when a request needs more bits than it has. The most
+ * recently used results are also kept, keyed by {@link BinaryMathContext},
+ * so that asking for the same constant in the same context repeatedly does
+ * not even cross into native code.
+ *
+ * The memory used by a cache is bounded: approximations are never kept above
+ * {@link #MAX_PRECISION} bits, and at most {@link #MAX_RESULTS} results are
+ * kept. Constants requested at a higher precision are computed each time.
+ *
+ * All methods of this class are thread safe.
+ *
+ * @author Dwight Guth
+ */
+abstract class ConstantCache {
+
+    /**
+     * The highest precision at which an approximation is kept.
+     */
+    static final int MAX_PRECISION = 1 << 16;
+
+    /**
+     * The number of results kept by each cache.
+     */
+    static final int MAX_RESULTS = 64;
+
+    // extra bits computed so that rounding to the requested precision almost always succeeds
+    private static final int GUARD_BITS = 64;
+
+    static final ConstantCache PI = new ConstantCache() {
+        @Override
+        void compute(mpfr_t rop) {
+            mpfr_const_pi(rop, MPFR_RNDN);
+        }
+    };
+
+    static final ConstantCache E = new ConstantCache() {
+        @Override
+        void compute(mpfr_t rop) {
+            mpfr_t one = new mpfr_t(2);
+            mpfr_set_d(one, 1.0, MPFR_RNDN);
+            mpfr_exp(rop, one, MPFR_RNDN);
+        }
+    };
+
+    static final ConstantCache LN2 = new ConstantCache() {
+        @Override
+        void compute(mpfr_t rop) {
+            mpfr_const_log2(rop, MPFR_RNDN);
+        }
+    };
+
+    static final ConstantCache EULER = new ConstantCache() {
+        @Override
+        void compute(mpfr_t rop) {
+            mpfr_const_euler(rop, MPFR_RNDN);
+        }
+    };
+
+    static final ConstantCache CATALAN = new ConstantCache() {
+        @Override
+        void compute(mpfr_t rop) {
+            mpfr_const_catalan(rop, MPFR_RNDN);
+        }
+    };
+
+    private static final ConstantCache[] ALL = {PI, E, LN2, EULER, CATALAN};
+
+    /**
+     * The most precise approximation computed so far, or null.
+     */
+    private mpfr_t approximation;
+
+    private final Map<BinaryMathContext, BigFloat> results =
+            new LinkedHashMap<BinaryMathContext, BigFloat>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BinaryMathContext, BigFloat> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+
+    /**
+     * Sets rop to the constant, rounded to nearest. The constant must be
+     * positive and irrational.
+     */
+    abstract void compute(mpfr_t rop);
+
+    /**
+     * Returns the constant with rounding according to the context settings.
+     * @throws ArithmeticException if the rounding mode is {@code UNNECESSARY};
+     * if the specified exponent range to round to is not allowed by the
+     * underlying MPFR library; or if the precision is too high to be able to
+     * emulate subnormal arithmetic for the specified exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    synchronized BigFloat get(BinaryMathContext mc) {
+        BigFloat result = results.get(mc);
+        if (result == null) {
+            result = round(mc);
+            results.put(mc, result);
+        }
+        return result;
+    }
+
+    private BigFloat round(BinaryMathContext mc) {
+        int rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        mpfr_t rop = new mpfr_t(mc.precision);
+        long precision = (long)mc.precision + GUARD_BITS;
+        int ternary;
+        // the approximations are computed in the default exponent range
+        ExponentRange.enter(MPFR_EMIN_DEFAULT, MPFR_EMAX_DEFAULT);
+        try {
+            do {
+                ternary = mpfr_java_round_const(rop, approximate(precision), rnd,
+                        BigFloat.emin(mc.minExponent, mc.precision), BigFloat.emax(mc.maxExponent));
+                precision *= 2;
+            } while (ternary == MPFR_JAVA_CANNOT_ROUND);
+        } finally {
+            ExponentRange.exit();
+        }
+        BigFloat.throwArithmeticException(ternary != 0, mc);
+        return new BigFloat(rop);
+    }
+
+    /**
+     * @return an approximation of the constant with at least the specified
+     * precision, which is kept if it is not too large.
+     */
+    private mpfr_t approximate(long precision) {
+        if (approximation != null && approximation.prec() >= precision) {
+            return approximation;
+        }
+        if (approximation != null) {
+            // grow geometrically so that slowly increasing requests do not recompute every time
+            precision = Math.max(precision, Math.min(2L * approximation.prec(), MAX_PRECISION));
+        }
+        int prec = (int)Math.min(precision, Integer.MAX_VALUE);
+        mpfr_t op = new mpfr_t(prec);
+        compute(op);
+        if (prec <= MAX_PRECISION) {
+            approximation = op;
+        }
+        return op;
+    }
+
+    /**
+     * Discards every cached approximation and result.
+     */
+    synchronized void clear() {
+        approximation = null;
+        results.clear();
+    }
+
+    /**
+     * Discards the contents of every cache.
+     */
+    static void clearAll() {
+        for (ConstantCache cache : ALL) {
+            cache.clear();
+        }
+    }
+}
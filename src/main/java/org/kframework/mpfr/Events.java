@@ -0,0 +1,42 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.math.RoundingMode;
+
+/**
+ * Records slow operations as JDK Flight Recorder events, so that the time
+ * spent in a single high-precision operation or conversion can be attributed
+ * to it. Callers call {@link #begin()} before the operation and pass what it
+ * returned to {@link #end} afterwards.
+ *
+ * This is the implementation used before JDK 11, which records nothing. On
+ * JDK 11 and later the multi-release jar replaces it with an implementation
+ * under src/main/java11 which commits an {@code org.kframework.mpfr.Operation}
+ * event for each operation which takes longer than the threshold of that
+ * event in the running recording.
+ *
+ * @author Dwight Guth
+ */
+final class Events {
+    private Events() {}
+
+    /**
+     * @return an event which has begun, or null if the event is not being
+     * recorded.
+     */
+    static Object begin() {
+        return null;
+    }
+
+    /**
+     * Ends an event returned by {@link #begin()} and records it if it took
+     * long enough.
+     * @param event the event, which may be null.
+     * @param operation the name of the operation.
+     * @param precision the precision of the result or operand, in bits.
+     * @param roundingMode the rounding mode, or null if the operation does
+     * not round.
+     */
+    static void end(Object event, String operation, int precision, RoundingMode roundingMode) {
+    }
+}
@@ -0,0 +1,234 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * Tracks the exponent range currently set in the MPFR library, so that it is
+ * only changed with {@code mpfr_set_emin} and {@code mpfr_set_emax} when it
+ * actually changes.
+ *
+ * The exponent range is normally the MPFR default. Every operation computes
+ * its result in the current range and then rounds it to the exponent range of
+ * its context in native code, which restores the current range before
+ * returning. An {@link ExponentRangeScope} sets the current range to the
+ * exponent range of a context for a whole block of operations, so that
+ * operations in that context skip changing it altogether. Operations in any
+ * other context must still be computed in the default range, so before an
+ * operation computes its result it calls {@link #enter(long, long)}, which
+ * leaves the scope's range if necessary, and afterwards {@link #exit()},
+ * which restores it. So must operations in the scope's context whose operands
+ * lie outside its range, since MPFR requires the operands of every operation
+ * to lie within the current range.
+ *
+ * If MPFR was built with thread-local storage, each thread has its own
+ * exponent range and therefore its own tracker. Otherwise the exponent range
+ * is shared by all threads, and so is the tracker; as with MPFR itself, such a
+ * build is then not safe for use by multiple threads.
+ *
+ * @author Dwight Guth
+ */
+final class ExponentRange {
+
+    private static final boolean THREAD_LOCAL = mpfr_buildopt_tls_p();
+
+    private static final ExponentRange GLOBAL = new ExponentRange();
+
+    private static final ThreadLocal<ExponentRange> LOCAL = new ThreadLocal<ExponentRange>() {
+        @Override
+        protected ExponentRange initialValue() {
+            return new ExponentRange();
+        }
+    };
+
+    /**
+     * True once any scope has been opened. Until then the current range is
+     * always the default, and operations need not look up their tracker.
+     */
+    private static volatile boolean scoped;
+
+    /**
+     * The exponent range currently set in MPFR.
+     */
+    private long emin = MPFR_EMIN_DEFAULT;
+    private long emax = MPFR_EMAX_DEFAULT;
+
+    /**
+     * The innermost open scope, or null.
+     */
+    ExponentRangeScope scope;
+
+    /**
+     * True if an operation has left the range of the innermost scope, which
+     * must be set again by {@link #exit()}.
+     */
+    private boolean suspended;
+
+    private ExponentRange() {}
+
+    /**
+     * @return the tracker of the calling thread.
+     */
+    static ExponentRange current() {
+        return THREAD_LOCAL ? LOCAL.get() : GLOBAL;
+    }
+
+    /**
+     * Sets the exponent range of MPFR, calling into native code only for the
+     * bounds which differ from the current range.
+     */
+    void set(long emin, long emax) {
+        boolean failed = false;
+        if (emin != this.emin) {
+            failed |= mpfr_set_emin(emin);
+            this.emin = emin;
+        }
+        if (emax != this.emax) {
+            failed |= mpfr_set_emax(emax);
+            this.emax = emax;
+        }
+        assert !failed : "unexpected failure setting exponent range";
+    }
+
+    boolean isDefault() {
+        return emin == MPFR_EMIN_DEFAULT && emax == MPFR_EMAX_DEFAULT;
+    }
+
+    long emin() {
+        return emin;
+    }
+
+    long emax() {
+        return emax;
+    }
+
+    /**
+     * Records that a scope has been opened on some thread.
+     */
+    static void scopeOpened() {
+        scoped = true;
+    }
+
+    /**
+     * The operands of an operation, which must lie within the current range
+     * for the operation to be computed in it.
+     */
+    interface Operands {
+        /**
+         * @return true if every operand is singular or has an exponent within
+         * the MPFR exponent range [emin, emax].
+         */
+        boolean within(long emin, long emax);
+    }
+
+    /**
+     * @return true if x is null, singular, or has an exponent within the MPFR
+     * exponent range [emin, emax].
+     */
+    static boolean within(mpfr_t x, long emin, long emax) {
+        if (x == null) {
+            return true;
+        }
+        // the exponents of zero, NaN and infinity are all at most MPFR_EXP_INF
+        long exp = x.exp();
+        return exp <= MPFR_EXP_INF || (exp >= emin && exp <= emax);
+    }
+
+    /**
+     * @return true if every element of an array packed by
+     * {@link mpfr#mpfr_pack} is singular or has an exponent within the MPFR
+     * exponent range [emin, emax].
+     */
+    static boolean within(long[] packed, long emin, long emax) {
+        for (int i = MPFR_PACKED_EXP; i < packed.length; i += MPFR_PACKED_SIZE) {
+            long exp = packed[i];
+            if (exp > MPFR_EXP_INF && (exp < emin || exp > emax)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure that the result of an operation without floating-point
+     * operands which will be rounded to the MPFR exponent range [emin, emax]
+     * can be computed in the current range: if the current range is neither
+     * the default nor [emin, emax], the default range is set until
+     * {@link #exit()} is called.
+     */
+    static void enter(long emin, long emax) {
+        if (scoped) {
+            ExponentRange range = current();
+            range.suspend(emin, emax, range.is(emin, emax));
+        }
+    }
+
+    /**
+     * As {@link #enter(long, long)}, for an operation on up to three operands,
+     * any of which may be null. MPFR does not define the result of an
+     * operation on an operand which lies outside the current range, so unless
+     * the current range is the default, it is also left if any operand lies
+     * outside [emin, emax].
+     */
+    static void enter(long emin, long emax, mpfr_t a, mpfr_t b, mpfr_t c) {
+        if (scoped) {
+            ExponentRange range = current();
+            range.suspend(emin, emax, range.is(emin, emax)
+                    && within(a, emin, emax) && within(b, emin, emax) && within(c, emin, emax));
+        }
+    }
+
+    /**
+     * As {@link #enter(long, long, mpfr_t, mpfr_t, mpfr_t)}, for operands
+     * which are only checked if the current range is [emin, emax].
+     */
+    static void enter(long emin, long emax, Operands operands) {
+        if (scoped) {
+            ExponentRange range = current();
+            range.suspend(emin, emax, range.is(emin, emax) && operands.within(emin, emax));
+        }
+    }
+
+    /**
+     * As {@link #enter(long, long, mpfr_t, mpfr_t, mpfr_t)}, for operands
+     * which the caller has already checked.
+     * @param within whether every operand lies within [emin, emax].
+     */
+    static void enter(long emin, long emax, boolean within) {
+        if (scoped) {
+            ExponentRange range = current();
+            range.suspend(emin, emax, within && range.is(emin, emax));
+        }
+    }
+
+    /**
+     * Restores the range left by {@link #enter(long, long)}, if any.
+     */
+    static void exit() {
+        if (scoped) {
+            current().resume();
+        }
+    }
+
+    private boolean is(long emin, long emax) {
+        return emin == this.emin && emax == this.emax;
+    }
+
+    /**
+     * Leaves the current range for the default unless it is already the
+     * default or the operation can be computed in it.
+     */
+    private void suspend(long emin, long emax, boolean computable) {
+        if (!computable && !isDefault()) {
+            suspended = true;
+            set(MPFR_EMIN_DEFAULT, MPFR_EMAX_DEFAULT);
+        }
+    }
+
+    private void resume() {
+        if (suspended) {
+            suspended = false;
+            set(scope.emin, scope.emax);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.io.Closeable;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * A block of code in which operations in one {@link BinaryMathContext} are
+ * performed without changing the exponent range of the underlying MPFR
+ * library for each operation.
+ *
+ * <p>Every {@link BigFloat} operation computes its result and then rounds it
+ * to the exponent range of its context, emulating subnormal arithmetic. To do
+ * so, it normally switches MPFR to that exponent range and back again. While a
+ * scope is open on a thread, MPFR stays in the exponent range of the scope's
+ * context instead, so operations in that context compute and round their
+ * results directly in it. Operations in other contexts are still allowed, and
+ * still produce the same results, but they lose the benefit of the scope and
+ * pay for switching the range twice more. Scopes are used like this:
+ *
+ * <pre>
+ * ExponentRangeScope scope = ExponentRangeScope.open(mc);
+ * try {
+ *     // operations in mc
+ * } finally {
+ *     scope.close();
+ * }
+ * </pre>
+ *
+ * <p>Operations in the scope's context on operands which lie outside the
+ * scope's exponent range, such as values with a larger exponent produced in a
+ * wider context, still produce the same results as well. MPFR does not allow
+ * such operands, so these operations check the exponents of their operands
+ * and leave the scope's range while they compute, like operations in other
+ * contexts. Any value which is exactly representable in the context, such as
+ * the result of a previous operation in the same context, lies within the
+ * range.
+ *
+ * <p>Scopes belong to the thread which opened them. They may be nested, in
+ * which case the innermost scope is in effect, but must be closed in the
+ * reverse order from which they were opened. If the underlying MPFR library
+ * was not built with thread-local storage, its exponent range is shared by all
+ * threads, and scopes may only be used by single-threaded programs.
+ *
+ * @see BinaryMathContext
+ * @author Dwight Guth
+ */
+public final class ExponentRangeScope implements Closeable {
+
+    private final BinaryMathContext mc;
+
+    /**
+     * The MPFR exponent range in effect while this scope is open.
+     */
+    final long emin;
+    final long emax;
+
+    private final ExponentRange range;
+    private final ExponentRangeScope outer;
+    private boolean closed;
+
+    private ExponentRangeScope(BinaryMathContext mc, ExponentRange range, ExponentRangeScope outer) {
+        this.mc = mc;
+        this.emin = BigFloat.emin(mc.minExponent, mc.precision);
+        this.emax = BigFloat.emax(mc.maxExponent);
+        this.range = range;
+        this.outer = outer;
+    }
+
+    /**
+     * Opens a scope for operations in the specified context on the calling
+     * thread.
+     * @param mc the context whose exponent range is to be used.
+     * @return the new scope.
+     * @throws ArithmeticException if the specified exponent range is not
+     * allowed by the underlying MPFR library; or if the precision is too high
+     * to be able to emulate subnormal arithmetic for the specified exponent
+     * range.
+     */
+    public static ExponentRangeScope open(BinaryMathContext mc) {
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        ExponentRange range = ExponentRange.current();
+        ExponentRangeScope scope = new ExponentRangeScope(mc, range, range.scope);
+        ExponentRange.scopeOpened();
+        range.scope = scope;
+        range.set(scope.emin, scope.emax);
+        return scope;
+    }
+
+    /**
+     * @return the context whose exponent range is used by this scope.
+     */
+    public BinaryMathContext mathContext() {
+        return mc;
+    }
+
+    /**
+     * Closes this scope, restoring the exponent range in effect when it was
+     * opened. Closing a scope which is already closed has no effect.
+     * @throws IllegalStateException if this scope was opened by another
+     * thread, or if a scope nested within it is still open.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (ExponentRange.current() != range || range.scope != this) {
+            throw new IllegalStateException(
+                    "scopes must be closed in reverse order by the thread which opened them");
+        }
+        closed = true;
+        range.scope = outer;
+        if (outer == null) {
+            range.set(MPFR_EMIN_DEFAULT, MPFR_EMAX_DEFAULT);
+        } else {
+            range.set(outer.emin, outer.emax);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.math.RoundingMode;
+
+/**
+ * Computes operations in {@link BinaryMathContext#BINARY32} and
+ * {@link BinaryMathContext#BINARY64} with Java {@code float} and
+ * {@code double} arithmetic instead of MPFR.
+ *
+ * In those contexts, with the {@link RoundingMode#HALF_EVEN HALF_EVEN}
+ * rounding mode, MPFR emulating subnormal arithmetic produces exactly the
+ * correctly rounded IEEE 754 result which strict Java floating point
+ * arithmetic does. {@code float} operations are computed in {@code double}
+ * and then rounded to {@code float}; for addition, subtraction,
+ * multiplication, division and square root this double rounding is known to
+ * be innocuous, because a {@code double} has more than twice as many bits of
+ * precision as a {@code float}. The fused multiply-add of {@code float}
+ * operands is first rounded to odd in {@code double}, which makes rounding it
+ * again to {@code float} correct. There is no fused multiply-add of
+ * {@code double} operands before Java 9, so it is left to MPFR.
+ *
+ * Every method returns NaN if the operation cannot be computed here, which
+ * includes every operation with a NaN result, because MPFR does not produce
+ * the same sign bit for NaN that Java does.
+ *
+ * @author Dwight Guth
+ */
+strictfp final class FastPath {
+
+    static final int NONE = 0;
+    static final int FLOAT = 1;
+    static final int DOUBLE = 2;
+
+    static final int ADD = 0;
+    static final int SUB = 1;
+    static final int MUL = 2;
+    static final int DIV = 3;
+    static final int SQRT = 4;
+    static final int FMA = 5;
+    static final int FMS = 6;
+
+    private FastPath() {}
+
+    /**
+     * @return {@link #DOUBLE} or {@link #FLOAT} if operations in the specified
+     * context can be computed with that Java type, or {@link #NONE} otherwise.
+     */
+    static int kind(BinaryMathContext mc) {
+        if (mc == BinaryMathContext.BINARY64 || mc.equals(BinaryMathContext.BINARY64)) {
+            return DOUBLE;
+        }
+        if (mc == BinaryMathContext.BINARY32 || mc.equals(BinaryMathContext.BINARY32)) {
+            return FLOAT;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the precision of the specified kind of arithmetic, which is not
+     * {@link #NONE}.
+     */
+    static int precision(int kind) {
+        return kind == DOUBLE ? 53 : 24;
+    }
+
+    /**
+     * @return true if the specified value, which is not NaN, is an operand
+     * of the specified kind of arithmetic.
+     */
+    static boolean fits(int kind, double a) {
+        return kind == DOUBLE || (float) a == a;
+    }
+
+    /**
+     * @return {@code val} rounded to the specified kind of arithmetic.
+     */
+    static double round(int kind, double val) {
+        return kind == DOUBLE ? val : (float) val;
+    }
+
+    /**
+     * Computes the specified operation on operands which {@link #fits fit}
+     * the specified kind of arithmetic. Unary operations ignore {@code b}
+     * and {@code c}, and binary operations ignore {@code c}.
+     * @return the result, or NaN if it must be computed by MPFR.
+     */
+    static double apply(int fn, int kind, double a, double b, double c) {
+        double r;
+        switch (fn) {
+            case ADD:
+                r = round(kind, a + b);
+                break;
+            case SUB:
+                r = round(kind, a - b);
+                break;
+            case MUL:
+                r = round(kind, a * b);
+                break;
+            case DIV:
+                r = round(kind, a / b);
+                break;
+            case SQRT:
+                r = round(kind, Math.sqrt(a));
+                break;
+            case FMA:
+                r = kind == FLOAT ? fmaFloat(a, b, c) : Double.NaN;
+                break;
+            case FMS:
+                r = kind == FLOAT ? fmaFloat(a, b, -c) : Double.NaN;
+                break;
+            default:
+                throw new AssertionError("unknown operation " + fn);
+        }
+        return r;
+    }
+
+    /**
+     * @return {@code a * b + c} correctly rounded to {@code float}.
+     */
+    private static double fmaFloat(double a, double b, double c) {
+        // the product of two floats is exact in double
+        double p = a * b;
+        double s = p + c;
+        if (Double.isInfinite(s) || Double.isNaN(s)) {
+            return s;
+        }
+        // the exact error of the sum (TwoSum), used to round s to odd
+        double t = s - p;
+        double err = (p - (s - t)) + (c - t);
+        if (err != 0 && (Double.doubleToRawLongBits(s) & 1) == 0) {
+            s = Math.nextAfter(s, err > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+        }
+        return (float) s;
+    }
+}
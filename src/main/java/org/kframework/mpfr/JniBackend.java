@@ -0,0 +1,93 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+/**
+ * The default {@link NativeBackend}, which calls the JNI methods of
+ * {@link mpfr} generated by HawtJNI.
+ *
+ * @author Dwight Guth
+ */
+final class JniBackend extends NativeBackend {
+
+    @Override
+    int mpfr_java_round(long x, int t, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_round(x, t, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_next(long rop, long op, boolean up, long emin, long emax) {
+        return mpfr.mpfr_java_next(rop, op, up, emin, emax);
+    }
+    @Override
+    int mpfr_java_add(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_add(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_sub(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_sub(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_mul(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_mul(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_div(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_div(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_fma(long rop, long op1, long op2, long op3, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_fma(rop, op1, op2, op3, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_fms(long rop, long op1, long op2, long op3, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_fms(rop, op1, op2, op3, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_fmma(long rop, long op1, long op2, long op3, long op4, boolean sub, int rnd,
+            long emin, long emax) {
+        return mpfr.mpfr_java_fmma(rop, op1, op2, op3, op4, sub, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_set(long rop, long op, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_set(rop, op, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_set_sj(long rop, long op, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_set_sj(rop, op, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_add_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_add_sj(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_sub_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_sub_sj(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_mul_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_mul_sj(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_div_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        return mpfr.mpfr_java_div_sj(rop, op1, op2, rnd, emin, emax);
+    }
+    @Override
+    int mpfr_java_cmp_sj(long op1, long op2) {
+        return mpfr.mpfr_java_cmp_sj(op1, op2);
+    }
+    @Override
+    int mpfr_java_cmp_total(long op1, long op2) {
+        return mpfr.mpfr_java_cmp_total(op1, op2);
+    }
+    @Override
+    double mpfr_get_d(long op, int rnd) {
+        return mpfr.mpfr_get_d(op, rnd);
+    }
+    @Override
+    int mpfr_set_d(long rop, double op, int rnd) {
+        return mpfr.mpfr_set_d(rop, op, rnd);
+    }
+    @Override
+    int mpfr_cmp_d(long op1, double op2) {
+        return mpfr.mpfr_cmp_d(op1, op2);
+    }
+}
@@ -0,0 +1,267 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+/**
+ * Counts native allocations and operations, and publishes the counts and the
+ * state of native memory through a {@link BigFloatMXBean}.
+ *
+ * Callers test {@link #enabled} before counting anything, so that collecting
+ * no counts costs a single read of a field which is almost never written.
+ * Counts are kept in {@link StripedCounter}s, so that threads performing
+ * operations concurrently do not contend on the counters.
+ *
+ * @author Dwight Guth
+ *
+ */
+final class Metrics {
+    private Metrics() {}
+
+    static final String ENABLED_PROPERTY = "org.kframework.mpfr.metrics";
+
+    static final String OBJECT_NAME = "org.kframework.mpfr:type=BigFloat";
+
+    static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    // the kinds of operation counted by operation(int)
+    static final int ADD = 0;
+    static final int MULTIPLY = 1;
+    static final int DIVIDE = 2;
+    static final int FUSED = 3;
+    static final int ROOT = 4;
+    static final int TRANSCENDENTAL = 5;
+    static final int CONVERT = 6;
+    static final int PARSE = 7;
+    static final int FORMAT = 8;
+    static final int OTHER = 9;
+    private static final int KINDS = 10;
+
+    // the kind of each FastPath function
+    private static final int[] FAST_PATH_KINDS = new int[7];
+    static {
+        FAST_PATH_KINDS[FastPath.ADD] = ADD;
+        FAST_PATH_KINDS[FastPath.SUB] = ADD;
+        FAST_PATH_KINDS[FastPath.MUL] = MULTIPLY;
+        FAST_PATH_KINDS[FastPath.DIV] = DIVIDE;
+        FAST_PATH_KINDS[FastPath.SQRT] = ROOT;
+        FAST_PATH_KINDS[FastPath.FMA] = FUSED;
+        FAST_PATH_KINDS[FastPath.FMS] = FUSED;
+    }
+
+    private static final StripedCounter[] operations = new StripedCounter[KINDS];
+    static {
+        for (int i = 0; i < KINDS; i++) {
+            operations[i] = new StripedCounter();
+        }
+    }
+    private static final StripedCounter fastPathHits = new StripedCounter();
+    private static final StripedCounter structsAllocated = new StripedCounter();
+    private static final StripedCounter structsFreed = new StripedCounter();
+    private static final StripedCounter structBytes = new StripedCounter();
+    private static final StripedCounter integersAllocated = new StripedCounter();
+    private static final StripedCounter integersFreed = new StripedCounter();
+    private static final StripedCounter reclaimed = new StripedCounter();
+
+    private static final BigFloatMXBean BEAN = new Bean();
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(BEAN,
+                    new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            // already registered by another class loader, or JMX is unavailable;
+            // the counts are still collected
+        }
+    }
+
+    static void operation(int kind) {
+        operations[kind].increment();
+    }
+
+    static void operations(int kind, long count) {
+        operations[kind].add(count);
+    }
+
+    /**
+     * Counts an operation performed by {@link FastPath#apply}.
+     * @param fn the FastPath function code.
+     */
+    static void fastPath(int fn) {
+        fastPathHits.increment();
+        operations[FAST_PATH_KINDS[fn]].increment();
+    }
+
+    static void structAllocated(long bytes) {
+        structsAllocated.increment();
+        structBytes.add(bytes);
+    }
+
+    static void structFreed(long bytes) {
+        structsFreed.increment();
+        structBytes.add(-bytes);
+    }
+
+    static void integerAllocated() {
+        integersAllocated.increment();
+    }
+
+    static void integerFreed() {
+        integersFreed.increment();
+    }
+
+    static void reclaimed() {
+        reclaimed.increment();
+    }
+
+    static long operations(int kind) {
+        return operations[kind].sum();
+    }
+
+    /**
+     * @return the management interface registered under {@link #OBJECT_NAME}.
+     */
+    static BigFloatMXBean bean() {
+        return BEAN;
+    }
+
+    private static final class Bean implements BigFloatMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+            enabled = value;
+        }
+
+        @Override
+        public long getAllocatedStructs() {
+            return structsAllocated.sum();
+        }
+
+        @Override
+        public long getFreedStructs() {
+            return structsFreed.sum();
+        }
+
+        @Override
+        public long getLiveStructs() {
+            // read the frees first, so that a struct allocated and freed
+            // concurrently is not counted as freed but not allocated
+            long freed = structsFreed.sum();
+            return Math.max(0, structsAllocated.sum() - freed);
+        }
+
+        @Override
+        public long getLiveStructBytes() {
+            return Math.max(0, structBytes.sum());
+        }
+
+        @Override
+        public long getAllocatedIntegers() {
+            return integersAllocated.sum();
+        }
+
+        @Override
+        public long getLiveIntegers() {
+            long freed = integersFreed.sum();
+            return Math.max(0, integersAllocated.sum() - freed);
+        }
+
+        @Override
+        public long getReclaimedObjects() {
+            return reclaimed.sum();
+        }
+
+        @Override
+        public long getRegisteredObjects() {
+            return NativeReclaimer.registeredReferences();
+        }
+
+        @Override
+        public long getRegisteredBytes() {
+            return NativeReclaimer.registeredBytes();
+        }
+
+        @Override
+        public long getNativeBytes() {
+            return mpfr.mpfr_java_allocated_bytes();
+        }
+
+        @Override
+        public long getNativeQuota() {
+            return mpfr.mpfr_java_get_quota();
+        }
+
+        @Override
+        public void setNativeQuota(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("negative quota");
+            }
+            mpfr.mpfr_java_set_quota(bytes);
+        }
+
+        @Override
+        public long getQuotaFailures() {
+            return mpfr.mpfr_java_quota_failures();
+        }
+
+        @Override
+        public long getAddCount() {
+            return operations(ADD);
+        }
+
+        @Override
+        public long getMultiplyCount() {
+            return operations(MULTIPLY);
+        }
+
+        @Override
+        public long getDivideCount() {
+            return operations(DIVIDE);
+        }
+
+        @Override
+        public long getFusedCount() {
+            return operations(FUSED);
+        }
+
+        @Override
+        public long getRootCount() {
+            return operations(ROOT);
+        }
+
+        @Override
+        public long getTranscendentalCount() {
+            return operations(TRANSCENDENTAL);
+        }
+
+        @Override
+        public long getConvertCount() {
+            return operations(CONVERT);
+        }
+
+        @Override
+        public long getParseCount() {
+            return operations(PARSE);
+        }
+
+        @Override
+        public long getFormatCount() {
+            return operations(FORMAT);
+        }
+
+        @Override
+        public long getOtherCount() {
+            return operations(OTHER);
+        }
+
+        @Override
+        public long getFastPathCount() {
+            return fastPathHits.sum();
+        }
+    }
+}
@@ -0,0 +1,385 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import org.kframework.mpfr.mpfr.mpfr_t;
+
+import static org.kframework.mpfr.mpfr.*;
+
+/**
+ * Mutable, arbitrary-precision signed IEEE binary floating point accumulator.
+ * A {@code MutableBigFloat} has the same representation and rounding semantics
+ * as {@link BigFloat}, including emulation of subnormal arithmetic, but its
+ * precision, exponent range and rounding mode are fixed by the
+ * {@link BinaryMathContext} it was created with, and its arithmetic operations
+ * update it in place instead of returning a new object.
+ *
+ * <p>This class is intended for loops such as summations and iterative solvers
+ * which would otherwise allocate a new {@code BigFloat} for every intermediate
+ * result. Once a {@code MutableBigFloat} has performed its first operation,
+ * further operations allocate no memory on either the Java or the native heap.
+ * The current value can be obtained as a {@code BigFloat} with
+ * {@link #freeze()}, which does not copy the significand.
+ *
+ * <p>Every operation which modifies a {@code MutableBigFloat} is atomic with
+ * respect to exceptions: if an {@code ArithmeticException} is thrown because
+ * the rounding mode is {@link java.math.RoundingMode#UNNECESSARY UNNECESSARY}
+ * and rounding was necessary, the value is left unchanged.
+ *
+ * <p>Instances of this class are not safe for use by multiple threads without
+ * external synchronization.
+ *
+ * @see BigFloat
+ * @see BinaryMathContext
+ * @author Dwight Guth
+ */
+public final class MutableBigFloat {
+
+    private final BinaryMathContext mc;
+    private final int rnd;
+    private final long emin;
+    private final long emax;
+
+    /**
+     * The current value.
+     */
+    private mpfr_t op;
+
+    /**
+     * The struct the next result will be written to before it becomes the
+     * current value. Results are never written directly to the current value,
+     * because it is usually also an operand, and because the operation may
+     * have to be undone. Null if the last value was frozen.
+     */
+    private mpfr_t scratch;
+
+    /**
+     * True if the current value is shared with a {@code BigFloat} returned by
+     * {@link #freeze()}, in which case it must never be written to again.
+     */
+    private boolean frozen;
+
+    /**
+     * Constructs a {@code MutableBigFloat} equal to positive zero.
+     * @param mc the context to use for all operations.
+     * @throws ArithmeticException if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public MutableBigFloat(BinaryMathContext mc) {
+        BigFloat.checkExponentRange(mc.minExponent, mc.maxExponent, mc.precision);
+        this.mc = mc;
+        this.rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        this.emin = BigFloat.emin(mc.minExponent, mc.precision);
+        this.emax = BigFloat.emax(mc.maxExponent);
+        this.op = new mpfr_t(mc.precision);
+        mpfr_set_zero(op, 1);
+    }
+
+    /**
+     * Constructs a {@code MutableBigFloat} equal to {@code val}, with rounding
+     * according to the context settings.
+     * @param val the initial value.
+     * @param mc the context to use for all operations.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}; if the specified exponent range to round
+     * to is not allowed by the underlying MPFR library; or if the precision
+     * is too high to be able to emulate subnormal arithmetic for the specified
+     * exponent range.
+     * @throws IllegalArgumentException if the specified rounding mode is not supported
+     * (i.e. HALF_UP or HALF_DOWN), or if the precision is less than 2
+     */
+    public MutableBigFloat(BigFloat val, BinaryMathContext mc) {
+        this(mc);
+        set(val);
+    }
+
+    /**
+     * @return the context used for all operations on this {@code MutableBigFloat}.
+     */
+    public BinaryMathContext mathContext() {
+        return mc;
+    }
+
+    // the operations performed by apply
+    private static final int SET = 0;
+    private static final int SET_D = 1;
+    private static final int ADD = 2;
+    private static final int SUB = 3;
+    private static final int MUL = 4;
+    private static final int DIV = 5;
+    private static final int FMA = 6;
+
+    /**
+     * Performs an operation and makes its result the current value. The
+     * result is computed between
+     * {@link ExponentRange#enter(long, long, mpfr_t, mpfr_t, mpfr_t)} and
+     * {@link ExponentRange#exit()}, so that it leaves any
+     * {@link ExponentRangeScope} whose range the result cannot be computed in
+     * and restores it even if the operation throws.
+     * @param kind the kind of the operation, as counted by {@link Metrics}.
+     * @param fn the operation, one of the constants above.
+     * @param a the operand of {@code SET}, the second operand of {@code ADD},
+     * {@code SUB}, {@code MUL} and {@code DIV}, or the first factor of
+     * {@code FMA}.
+     * @param b the second factor of {@code FMA}, or null.
+     * @param d the operand of {@code SET_D}, or 0.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    private MutableBigFloat apply(int kind, int fn, mpfr_t a, mpfr_t b, double d) {
+        if (Metrics.enabled) {
+            Metrics.operation(kind);
+        }
+        if (scratch == null) {
+            scratch = new mpfr_t(mc.precision);
+        }
+        mpfr_t rop = scratch;
+        int ternary;
+        // the current value always lies within [emin, emax]
+        ExponentRange.enter(emin, emax, a, b, null);
+        try {
+            switch (fn) {
+            case SET:
+                ternary = mpfr_java_set(rop, a, rnd, emin, emax);
+                break;
+            case SET_D:
+                ternary = mpfr_java_round(rop, mpfr_set_d(rop, d, rnd), rnd, emin, emax);
+                break;
+            case ADD:
+                ternary = mpfr_java_add(rop, op, a, rnd, emin, emax);
+                break;
+            case SUB:
+                ternary = mpfr_java_sub(rop, op, a, rnd, emin, emax);
+                break;
+            case MUL:
+                ternary = mpfr_java_mul(rop, op, a, rnd, emin, emax);
+                break;
+            case DIV:
+                ternary = mpfr_java_div(rop, op, a, rnd, emin, emax);
+                break;
+            case FMA:
+                ternary = mpfr_java_fma(rop, a, b, op, rnd, emin, emax);
+                break;
+            default:
+                throw new AssertionError("unknown operation " + fn);
+            }
+        } finally {
+            ExponentRange.exit();
+        }
+        return commit(ternary);
+    }
+
+    /**
+     * Makes the scratch struct, which holds the result of the last operation,
+     * the current value, unless the result had to be rounded and the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    private MutableBigFloat commit(int ternary) {
+        BigFloat.throwArithmeticException(ternary != 0, mc);
+        mpfr_t old = op;
+        op = scratch;
+        scratch = frozen ? null : old;
+        frozen = false;
+        return this;
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code val}, with rounding according
+     * to the context settings.
+     * @param val the new value.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat set(BigFloat val) {
+        return apply(Metrics.OTHER, SET, val.op(), null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code val}, with rounding according
+     * to the context settings.
+     * @param val the new value.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat set(MutableBigFloat val) {
+        return apply(Metrics.OTHER, SET, val.op, null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code val}, with rounding according
+     * to the context settings.
+     * @param val the new value.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat set(double val) {
+        return apply(Metrics.CONVERT, SET_D, null, null, val);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this + augend)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#add(BigFloat, BinaryMathContext)}.
+     * @param augend value to be added to this {@code MutableBigFloat}.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat addInPlace(BigFloat augend) {
+        return apply(Metrics.ADD, ADD, augend.op(), null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this + augend)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#add(BigFloat, BinaryMathContext)}.
+     * @param augend value to be added to this {@code MutableBigFloat}.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat addInPlace(MutableBigFloat augend) {
+        return apply(Metrics.ADD, ADD, augend.op, null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this - subtrahend)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#subtract(BigFloat, BinaryMathContext)}.
+     * @param subtrahend value to be subtracted from this {@code MutableBigFloat}.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat subInPlace(BigFloat subtrahend) {
+        return apply(Metrics.ADD, SUB, subtrahend.op(), null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this - subtrahend)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#subtract(BigFloat, BinaryMathContext)}.
+     * @param subtrahend value to be subtracted from this {@code MutableBigFloat}.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat subInPlace(MutableBigFloat subtrahend) {
+        return apply(Metrics.ADD, SUB, subtrahend.op, null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to <tt>(this &times; multiplicand)</tt>,
+     * with rounding according to the context settings. Special cases are
+     * handled as in {@link BigFloat#multiply(BigFloat, BinaryMathContext)}.
+     * @param multiplicand value to multiply this {@code MutableBigFloat} by.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat mulInPlace(BigFloat multiplicand) {
+        return apply(Metrics.MULTIPLY, MUL, multiplicand.op(), null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to <tt>(this &times; multiplicand)</tt>,
+     * with rounding according to the context settings. Special cases are
+     * handled as in {@link BigFloat#multiply(BigFloat, BinaryMathContext)}.
+     * @param multiplicand value to multiply this {@code MutableBigFloat} by.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat mulInPlace(MutableBigFloat multiplicand) {
+        return apply(Metrics.MULTIPLY, MUL, multiplicand.op, null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this / divisor)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#divide(BigFloat, BinaryMathContext)}.
+     * @param divisor value by which this {@code MutableBigFloat} is to be divided.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat divInPlace(BigFloat divisor) {
+        return apply(Metrics.DIVIDE, DIV, divisor.op(), null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to {@code (this / divisor)}, with
+     * rounding according to the context settings. Special cases are handled
+     * as in {@link BigFloat#divide(BigFloat, BinaryMathContext)}.
+     * @param divisor value by which this {@code MutableBigFloat} is to be divided.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat divInPlace(MutableBigFloat divisor) {
+        return apply(Metrics.DIVIDE, DIV, divisor.op, null, 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to <tt>(this + a &times; b)</tt>,
+     * rounded only once according to the context settings.
+     * @param a the first factor of the product to add.
+     * @param b the second factor of the product to add.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat fmaInPlace(BigFloat a, BigFloat b) {
+        return apply(Metrics.FUSED, FMA, a.op(), b.op(), 0);
+    }
+
+    /**
+     * Sets this {@code MutableBigFloat} to <tt>(this + a &times; b)</tt>,
+     * rounded only once according to the context settings.
+     * @param a the first factor of the product to add.
+     * @param b the second factor of the product to add.
+     * @return this {@code MutableBigFloat}.
+     * @throws ArithmeticException if the result is inexact but the rounding
+     * mode is {@code UNNECESSARY}.
+     */
+    public MutableBigFloat fmaInPlace(MutableBigFloat a, MutableBigFloat b) {
+        return apply(Metrics.FUSED, FMA, a.op, b.op, 0);
+    }
+
+    /**
+     * Returns a {@code BigFloat} equal to the current value of this
+     * {@code MutableBigFloat}, with precision equal to the precision of the
+     * context. The significand is not copied; instead, the next operation
+     * which modifies this {@code MutableBigFloat} allocates new storage for it.
+     * @return the current value.
+     */
+    public BigFloat freeze() {
+        frozen = true;
+        return new BigFloat(op);
+    }
+
+    /**
+     * @return the current value converted to a {@code double}, as by
+     * {@link BigFloat#doubleValue()}.
+     */
+    public double doubleValue() {
+        return mpfr_get_d(op, MPFR_RNDN);
+    }
+
+    /**
+     * @return the string representation of the current value, as by
+     * {@link BigFloat#toString()}.
+     */
+    @Override
+    public String toString() {
+        // the temporary BigFloat never escapes, so the value need not be frozen
+        return new BigFloat(op).toString();
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+/**
+ * The native methods of {@link mpfr} which {@link BigFloat} calls most often,
+ * behind a class which can be implemented by a faster calling convention than
+ * JNI where the JDK provides one. The wrappers of these methods in
+ * {@link mpfr} call {@link #INSTANCE}. Each method takes the same arguments
+ * as the native method of the same name in {@link mpfr}.
+ *
+ * @author Dwight Guth
+ */
+abstract class NativeBackend {
+
+    /**
+     * The backend chosen by {@link NativeBackends#create()}: the JNI methods
+     * of {@link mpfr} unless the JDK provides something better.
+     */
+    static final NativeBackend INSTANCE = NativeBackends.create();
+
+    abstract int mpfr_java_round(long x, int t, int rnd, long emin, long emax);
+    abstract int mpfr_java_next(long rop, long op, boolean up, long emin, long emax);
+    abstract int mpfr_java_add(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_sub(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_mul(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_div(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_fma(long rop, long op1, long op2, long op3, int rnd, long emin,
+            long emax);
+    abstract int mpfr_java_fms(long rop, long op1, long op2, long op3, int rnd, long emin,
+            long emax);
+    abstract int mpfr_java_fmma(long rop, long op1, long op2, long op3, long op4, boolean sub,
+            int rnd, long emin, long emax);
+    abstract int mpfr_java_set(long rop, long op, int rnd, long emin, long emax);
+    abstract int mpfr_java_set_sj(long rop, long op, int rnd, long emin, long emax);
+    abstract int mpfr_java_add_sj(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_sub_sj(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_mul_sj(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_div_sj(long rop, long op1, long op2, int rnd, long emin, long emax);
+    abstract int mpfr_java_cmp_sj(long op1, long op2);
+    abstract int mpfr_java_cmp_total(long op1, long op2);
+    abstract double mpfr_get_d(long op, int rnd);
+    abstract int mpfr_set_d(long rop, double op, int rnd);
+    abstract int mpfr_cmp_d(long op1, double op2);
+}
@@ -0,0 +1,20 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+/**
+ * Chooses the {@link NativeBackend}.
+ *
+ * This is the implementation used before JDK 22, which always chooses the
+ * {@link JniBackend}. On JDK 22 and later the multi-release jar replaces it
+ * with an implementation under src/main/java22 which chooses the
+ * java.lang.foreign downcalls of that tree whenever they can be linked.
+ *
+ * @author Dwight Guth
+ */
+final class NativeBackends {
+    private NativeBackends() {}
+
+    static NativeBackend create() {
+        return new JniBackend();
+    }
+}
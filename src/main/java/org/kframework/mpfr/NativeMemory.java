@@ -0,0 +1,58 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * Reads and writes native memory at raw addresses, so that the fields of the
+ * structs allocated by native code can be accessed without calling into it.
+ *
+ * This is the only class which should use {@code sun.misc.Unsafe}. On JDK 8
+ * and earlier the pom compiles the sources with
+ * {@code -XDignore.symbol.file}, which stops javac warning that it is an
+ * internal proprietary API, so any other use of it would go unnoticed there.
+ * The multi-release jar replaces this class on JDK 22 and later with one
+ * under src/main/java22, which uses java.lang.foreign instead.
+ *
+ * @author Dwight Guth
+ *
+ */
+final class NativeMemory {
+    private NativeMemory() {}
+
+    private static final Unsafe UNSAFE;
+    static {
+        try {
+            Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static int getInt(long address) {
+        return UNSAFE.getInt(address);
+    }
+
+    static long getLong(long address) {
+        return UNSAFE.getLong(address);
+    }
+
+    /**
+     * @return the pointer stored at {@code address}.
+     */
+    static long getAddress(long address) {
+        return UNSAFE.getAddress(address);
+    }
+
+    static void putInt(long address, int value) {
+        UNSAFE.putInt(address, value);
+    }
+
+    static void putLong(long address, long value) {
+        UNSAFE.putLong(address, value);
+    }
+}
@@ -0,0 +1,272 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Releases the native memory owned by objects such as {@link mpfr.mpfr_t} once
+ * they become unreachable, without going through finalization.
+ *
+ * Every native allocation is paired with a {@link Reclaimable}, a phantom
+ * reference to the Java object which owns it. When the owner is collected, the
+ * reference is enqueued and the native memory is freed, either by the dedicated
+ * {@code mpfr-reclaimer} daemon thread or by a thread which is about to allocate.
+ * Owners which know exactly when they are done with their memory can also free
+ * it eagerly with {@link Reclaimable#release()}.
+ *
+ * Because the garbage collector cannot see how much native memory is held by
+ * the small Java objects which own it, the number of native bytes still owned
+ * by registered references is tracked. Once it exceeds a threshold,
+ * {@link #reserve(long)} applies back-pressure to allocating threads in the same
+ * way {@link java.nio.ByteBuffer#allocateDirect} does: it frees what is already
+ * enqueued, and if that is not enough, requests a garbage collection and waits
+ * a bounded amount of time for references to be enqueued. The threshold starts
+ * at the value of the {@value #THRESHOLD_PROPERTY} system property (in bytes,
+ * 64 MiB by default) and is adjusted after each collection to twice the amount
+ * of memory which survived it, so that a large live set does not cause a
+ * collection on every allocation.
+ *
+ * @author Dwight Guth
+ *
+ */
+final class NativeReclaimer {
+    private NativeReclaimer() {}
+
+    static final String THRESHOLD_PROPERTY = "org.kframework.mpfr.reclaimThreshold";
+
+    private static final long INITIAL_THRESHOLD = Long.getLong(THRESHOLD_PROPERTY, 64L << 20);
+
+    // the total time waited for the collector is 2^MAX_SLEEPS-1 milliseconds
+    private static final int MAX_SLEEPS = 9;
+
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    // phantom references are only enqueued if they themselves are still reachable
+    private static final Set<Reclaimable> registered = Collections.newSetFromMap(
+            new ConcurrentHashMap<Reclaimable, Boolean>());
+
+    private static final AtomicLong registeredBytes = new AtomicLong();
+
+    private static volatile long threshold = INITIAL_THRESHOLD;
+
+    private static final Object gcLock = new Object();
+
+    static {
+        Thread reclaimer = new Thread("mpfr-reclaimer") {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        reclaim((Reclaimable) queue.remove());
+                    } catch (InterruptedException e) {
+                        // keep reclaiming; this thread lives as long as the JVM
+                    }
+                }
+            }
+        };
+        reclaimer.setDaemon(true);
+        reclaimer.setPriority(Thread.MAX_PRIORITY - 2);
+        reclaimer.start();
+    }
+
+    /**
+     * A phantom reference to an object which owns native memory. Subclasses
+     * hold whatever information is needed to free that memory without access
+     * to the owner, which is no longer reachable by the time it is freed.
+     * @author Dwight Guth
+     *
+     */
+    abstract static class Reclaimable extends PhantomReference<Object> {
+        private final long bytes;
+
+        /**
+         * Registers the native memory owned by {@code owner}. Callers should
+         * call {@link NativeReclaimer#reserve(long)} before allocating the memory.
+         * @param owner the object whose reachability determines the lifetime of the memory.
+         * @param bytes the number of bytes of native memory owned.
+         */
+        Reclaimable(Object owner, long bytes) {
+            super(owner, queue);
+            this.bytes = bytes;
+            registered.add(this);
+            registeredBytes.addAndGet(bytes);
+        }
+
+        /**
+         * Frees the native memory. Called at most once.
+         */
+        abstract void free();
+
+        /**
+         * Frees the native memory unless it has already been freed. The owner
+         * must not use the memory again after calling this method.
+         * @return true if the memory was freed by this call.
+         */
+        final boolean release() {
+            if (registered.remove(this)) {
+                registeredBytes.addAndGet(-bytes);
+                free();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return the number of bytes of native memory owned.
+         */
+        final long bytes() {
+            return bytes;
+        }
+    }
+
+    private static void reclaim(Reclaimable ref) {
+        if (ref.release() && Metrics.enabled) {
+            Metrics.reclaimed();
+        }
+    }
+
+    /**
+     * Frees the memory of every owner which has already been collected.
+     * @return the number of references released.
+     */
+    static int drain() {
+        int count = 0;
+        Reclaimable ref;
+        while ((ref = (Reclaimable) queue.poll()) != null) {
+            reclaim(ref);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Called before allocating {@code bytes} of native memory. Blocks for a
+     * bounded amount of time if too much native memory is owned by registered
+     * references, in order to give the garbage collector a chance to find
+     * the owners which are no longer reachable.
+     * @param bytes the number of bytes about to be allocated.
+     */
+    static void reserve(long bytes) {
+        if (registeredBytes.get() + bytes <= threshold) {
+            return;
+        }
+        drain();
+        if (registeredBytes.get() + bytes <= threshold) {
+            return;
+        }
+        synchronized (gcLock) {
+            // another thread may have collected while we were waiting for the lock
+            drain();
+            if (registeredBytes.get() + bytes <= threshold) {
+                return;
+            }
+            System.gc();
+            long sleep = 1;
+            boolean interrupted = false;
+            try {
+                for (int i = 0; i < MAX_SLEEPS; i++) {
+                    drain();
+                    if (registeredBytes.get() + bytes <= threshold) {
+                        break;
+                    }
+                    try {
+                        Thread.sleep(sleep);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    sleep <<= 1;
+                }
+            } finally {
+                threshold = Math.max(INITIAL_THRESHOLD, 2 * (registeredBytes.get() + bytes));
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // never equal to a reference passed to reachabilityFence
+    private static volatile Object fence;
+    
+    /**
+     * Ensures that {@code ref} is not considered unreachable, and therefore
+     * that the native memory it owns is not freed, before this method is
+     * called. Needed when native memory is passed to native code by address
+     * rather than through the object which owns it.
+     *
+     * The reference is compared to a volatile field, a read which the compiler
+     * can neither remove nor move before a preceding native call. Unlike
+     * writing the reference to such a field, this costs no more than an
+     * ordinary read on most processors and does not contend between threads.
+     * @param ref the object to keep reachable.
+     */
+    static void reachabilityFence(Object ref) {
+        if (ref == fence) {
+            fence = null;
+        }
+    }
+    
+    /**
+     * Equivalent to calling {@link #reachabilityFence(Object)} on each
+     * argument.
+     */
+    static void reachabilityFence(Object a, Object b) {
+        Object f = fence;
+        if (a == f || b == f) {
+            fence = null;
+        }
+    }
+    
+    /**
+     * Equivalent to calling {@link #reachabilityFence(Object)} on each
+     * argument.
+     */
+    static void reachabilityFence(Object a, Object b, Object c) {
+        Object f = fence;
+        if (a == f || b == f || c == f) {
+            fence = null;
+        }
+    }
+    
+    /**
+     * Equivalent to calling {@link #reachabilityFence(Object)} on each
+     * argument.
+     */
+    static void reachabilityFence(Object a, Object b, Object c, Object d) {
+        Object f = fence;
+        if (a == f || b == f || c == f || d == f) {
+            fence = null;
+        }
+    }
+    
+    /**
+     * Equivalent to calling {@link #reachabilityFence(Object)} on each
+     * argument.
+     */
+    static void reachabilityFence(Object a, Object b, Object c, Object d, Object e) {
+        Object f = fence;
+        if (a == f || b == f || c == f || d == f || e == f) {
+            fence = null;
+        }
+    }
+    
+    /**
+     * @return the number of bytes of native memory owned by references which
+     * have not been released yet.
+     */
+    static long registeredBytes() {
+        return registeredBytes.get();
+    }
+
+    /**
+     * @return the number of references which have not been released yet.
+     */
+    static int registeredReferences() {
+        return registered.size();
+    }
+}
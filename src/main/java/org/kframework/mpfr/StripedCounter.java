@@ -0,0 +1,61 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which many threads can increment at once without contending on
+ * a single memory location, in the manner of Java 8's {@code LongAdder}.
+ *
+ * The count is split into stripes, each on its own cache line, and a thread
+ * always adds to the stripe selected by its id. Threads which share a stripe
+ * still update it atomically, so no increment is ever lost; they merely
+ * contend with each other. The value of the counter is the sum of the
+ * stripes, which is exact once every increment has completed.
+ *
+ * @author Dwight Guth
+ *
+ */
+final class StripedCounter {
+
+    // 16 longs, so that stripes never share a 64 or 128 byte cache line
+    private static final int SHIFT = 4;
+
+    private static final int STRIPES;
+    static {
+        int n = 1;
+        while (n < 2 * Runtime.getRuntime().availableProcessors()) {
+            n <<= 1;
+        }
+        STRIPES = n;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES << SHIFT);
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        // thread ids are mostly consecutive; spread them over the stripes
+        int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return (h & (STRIPES - 1)) << SHIFT;
+    }
+
+    void increment() {
+        cells.getAndIncrement(stripe());
+    }
+
+    void add(long x) {
+        cells.getAndAdd(stripe(), x);
+    }
+
+    /**
+     * @return the sum of the stripes. Increments concurrent with this call
+     * may or may not be included.
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i << SHIFT);
+        }
+        return sum;
+    }
+}
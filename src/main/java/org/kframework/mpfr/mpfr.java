@@ -7,13 +7,11 @@ import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
-import java.nio.charset.CodingErrorAction;
 import java.util.Arrays;
 
 import org.fusesource.hawtjni.runtime.*;
+import org.kframework.mpfr.NativeReclaimer.Reclaimable;
 
 import static org.fusesource.hawtjni.runtime.ArgFlag.*;
 import static org.fusesource.hawtjni.runtime.ClassFlag.*;
@@ -35,6 +33,10 @@ import static org.fusesource.hawtjni.runtime.MethodFlag.*;
  * For information detailing the behavior of native GMP functions, see
  * https://gmplib.org/manual/Integer-Functions.html
  * 
+ * The wrappers of the native methods which BigFloat calls most often call
+ * them through {@link NativeBackend}, which uses java.lang.foreign downcalls
+ * instead of JNI on JDK 22 and later.
+ * 
  * @author Dwight Guth
  *
  */
@@ -42,10 +44,29 @@ import static org.fusesource.hawtjni.runtime.MethodFlag.*;
 final class mpfr {
     private mpfr() {}
     
+    /**
+     * The system property which, if true, leaves GMP and MPFR allocating their
+     * internal memory with malloc rather than with the allocator of
+     * mpfr_java_alloc.c, which then only counts and limits the memory this
+     * library allocates itself.
+     */
+    static final String SYSTEM_ALLOCATOR_PROPERTY = "org.kframework.mpfr.systemAllocator";
+    
+    /**
+     * The system property which sets the initial value of
+     * {@link #mpfr_java_set_quota}, in bytes.
+     */
+    static final String QUOTA_PROPERTY = "org.kframework.mpfr.nativeQuota";
+    
     private static final Library LIBRARY = new Library("mpfr_java", mpfr.class);
     static {
         LIBRARY.load();
         init();
+        // must precede any allocation by GMP
+        if (!Boolean.getBoolean(SYSTEM_ALLOCATOR_PROPERTY)) {
+            mpfr_java_install_allocator();
+        }
+        mpfr_java_set_quota(Long.getLong(QUOTA_PROPERTY, 0));
     }
 
     @JniMethod(flags={CONSTANT_INITIALIZER})
@@ -54,14 +75,6 @@ final class mpfr {
     @JniMethod(cast="size_t")
     private static native int strlen(@JniArg(cast="char *") long str);
     
-    @JniMethod(cast="void *")
-    private static native long calloc(
-            @JniArg(cast="size_t") long num,
-            @JniArg(cast="size_t") long size);
-    
-    private static native void free(
-            @JniArg(cast="void *") long ptr);
-    
     private static native void memmove(
             @JniArg(cast="void *", flags={NO_IN, CRITICAL}) long dest, 
             @JniArg(cast="const void *", flags={NO_OUT, CRITICAL}) byte[] src, 
@@ -74,7 +87,12 @@ final class mpfr {
     private static native int mpfr_asprintf(
             @JniArg(cast="char **") long[] str,
             String template,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x);
+            @JniArg(cast="__mpfr_struct *") long x);
+    private static int mpfr_asprintf(long[] str, String template, mpfr_t x) {
+        int result = mpfr_asprintf(str, template, x.ptr);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
     
     private static native void mpfr_free_str(
             @JniArg(cast="char *") long ptr);
@@ -82,6 +100,10 @@ final class mpfr {
     static String mpfr_asprintf(
             String template,
             mpfr_t x) {
+        if (Metrics.enabled) {
+            Metrics.operation(Metrics.FORMAT);
+        }
+        Object event = Events.begin();
         long[] ptr = new long[1];
         try {
             int result = mpfr_asprintf(ptr, template, x);
@@ -93,339 +115,1028 @@ final class mpfr {
             return new String(bytes);
         } finally {
             mpfr_free_str(ptr[0]);
+            Events.end(event, "format", x.prec(), null);
+        }
+    }
+    
+    /**
+     * Writes the representation of x used by {@link BigFloat#toString()} to
+     * buf, followed by a NUL byte. Defined in mpfr_java.h.
+     * @return the length of the representation, which was truncated if it is
+     * not less than size.
+     */
+    private static native int mpfr_java_format(
+            @JniArg(cast="char *", flags={NO_IN, CRITICAL}) byte[] buf,
+            int size,
+            @JniArg(cast="__mpfr_struct *") long x);
+    private static int mpfr_java_format(byte[] buf, int size, mpfr_t x) {
+        int result = mpfr_java_format(buf, size, x.ptr);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
+    
+    /**
+     * Writes the shortest representation of x which is read back as x in the
+     * exponent range [emin, emax], as in {@link #mpfr_java_format}. Defined
+     * in mpfr_java.h.
+     * @return the length of the representation, or {@link #MPFR_JAVA_NOMEM}.
+     */
+    private static native int mpfr_java_format_shortest(
+            @JniArg(cast="char *", flags={NO_IN, CRITICAL}) byte[] buf,
+            int size,
+            @JniArg(cast="__mpfr_struct *") long x,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    private static int mpfr_java_format_shortest(byte[] buf, int size, mpfr_t x, long emin,
+            long emax) {
+        int result = mpfr_java_format_shortest(buf, size, x.ptr, emin, emax);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
+    
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    
+    /**
+     * Formats x into the string buffer of the calling thread, replacing it
+     * with a larger one if necessary. If {@code shortest} is true, x is
+     * formatted with the fewest digits which are read back as x in the
+     * exponent range [emin, emax]; otherwise emin and emax are ignored.
+     * The call is recorded as the named operation, which is the public method
+     * of {@link BigFloat} that formats x.
+     * The buffer must be passed to {@link #releaseStringBuffer} once the
+     * result has been copied out of it.
+     * @return the length of the result.
+     */
+    private static int format(mpfr_t x, boolean shortest, long emin, long emax, String operation) {
+        if (Metrics.enabled) {
+            Metrics.operation(Metrics.FORMAT);
+        }
+        Object event = Events.begin();
+        byte[] buf = STRING_BUFFER.get();
+        int len = format(buf, x, shortest, emin, emax);
+        if (len >= buf.length) {
+            buf = new byte[len + 1];
+            STRING_BUFFER.set(buf);
+            len = format(buf, x, shortest, emin, emax);
+        }
+        Events.end(event, operation, x.prec(), null);
+        return len;
+    }
+    
+    private static int format(byte[] buf, mpfr_t x, boolean shortest, long emin, long emax) {
+        int len = shortest ? mpfr_java_format_shortest(buf, buf.length, x, emin, emax)
+                : mpfr_java_format(buf, buf.length, x);
+        if (len == MPFR_JAVA_NOMEM) {
+            throw new OutOfMemoryError("could not allocate memory to format a BigFloat");
+        } else if (len < 0) {
+            throw new IllegalStateException("mpfr_snprintf call failed");
+        }
+        return len;
+    }
+    
+    private static void releaseStringBuffer() {
+        if (STRING_BUFFER.get().length > MAX_RETAINED_BUFFER) {
+            STRING_BUFFER.remove();
+        }
+    }
+    
+    /**
+     * @return the representation of x formatted as by
+     * {@link #format(mpfr_t, boolean, long, long, String)}.
+     */
+    static String mpfr_java_format(mpfr_t x, boolean shortest, long emin, long emax,
+            String operation) {
+        int len = format(x, shortest, emin, emax, operation);
+        String result = new String(STRING_BUFFER.get(), 0, len, ISO_8859_1);
+        releaseStringBuffer();
+        return result;
+    }
+    
+    /**
+     * Appends the representation of x formatted as by
+     * {@link #format(mpfr_t, boolean, long, long, String)} to sb.
+     */
+    static void mpfr_java_format(mpfr_t x, boolean shortest, long emin, long emax, String operation,
+            StringBuilder sb) {
+        int len = format(x, shortest, emin, emax, operation);
+        byte[] buf = STRING_BUFFER.get();
+        sb.ensureCapacity(sb.length() + len);
+        for (int i = 0; i < len; i++) {
+            sb.append((char) buf[i]);
+        }
+        releaseStringBuffer();
+    }
+    
+    /**
+     * Writes the representation of x formatted as by
+     * {@link #format(mpfr_t, boolean, long, long, String)} to dst at offset off.
+     * @return the number of bytes written.
+     * @throws IndexOutOfBoundsException if the representation does not fit,
+     * in which case nothing is written.
+     */
+    static int mpfr_java_format(mpfr_t x, boolean shortest, long emin, long emax, String operation,
+            byte[] dst, int off) {
+        if (off < 0 || off > dst.length) {
+            throw new IndexOutOfBoundsException("Offset: " + off + ", Length: " + dst.length);
+        }
+        int len = format(x, shortest, emin, emax, operation);
+        if (len > dst.length - off) {
+            releaseStringBuffer();
+            throw new IndexOutOfBoundsException(len + " bytes do not fit at offset " + off
+                    + " in array of length " + dst.length);
+        }
+        System.arraycopy(STRING_BUFFER.get(), 0, dst, off, len);
+        releaseStringBuffer();
+        return len;
+    }
+    
+    /**
+     * Writes the representation of x formatted as by
+     * {@link #format(mpfr_t, boolean, long, long, String)} to dst at its position,
+     * advancing it.
+     * @throws java.nio.BufferOverflowException if the representation does not
+     * fit, in which case nothing is written.
+     */
+    static void mpfr_java_format(mpfr_t x, boolean shortest, long emin, long emax, String operation,
+            ByteBuffer dst) {
+        int len = format(x, shortest, emin, emax, operation);
+        try {
+            dst.put(STRING_BUFFER.get(), 0, len);
+        } finally {
+            releaseStringBuffer();
         }
     }
     
     
-    private static native void mpfr_init2(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
-            @JniArg(cast="mpfr_prec_t") int prec);
     private static native void mpfr_init2(
             @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t_full x,
             @JniArg(cast="mpfr_prec_t") int prec);
-    private static native void mpfr_clear(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x);
     private static native void mpfr_clear(
             @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t_full x);
+    
+    /**
+     * Allocates an mpfr_t of the specified precision together with its limbs
+     * and sets it to NaN. Defined in mpfr_java.h.
+     * @return the address of the struct, or 0 if it could not be allocated.
+     */
+    @JniMethod(cast="__mpfr_struct *")
+    private static native long mpfr_java_new(
+            @JniArg(cast="mpfr_prec_t") int prec);
+    /**
+     * Allocates an mpfr_t as {@link #mpfr_java_new} does and sets it to d,
+     * which must be exact. Defined in mpfr_java.h.
+     */
+    @JniMethod(cast="__mpfr_struct *")
+    private static native long mpfr_java_new_d(
+            @JniArg(cast="mpfr_prec_t") int prec,
+            double d);
+    /**
+     * Frees an mpfr_t allocated by {@link #mpfr_java_new} whose Java object is
+     * no longer reachable. Defined in mpfr_java.h.
+     */
+    private static native void mpfr_java_free(
+            @JniArg(cast="__mpfr_struct *") long x);
+    
+    // the following are defined in mpfr_java_alloc.c.
+    private static native void mpfr_java_install_allocator();
+    /**
+     * @return the number of bytes of native memory currently allocated by
+     * this library, and by GMP and MPFR unless
+     * {@link #SYSTEM_ALLOCATOR_PROPERTY} is set.
+     */
+    @JniMethod(cast="int64_t")
+    static native long mpfr_java_allocated_bytes();
+    /**
+     * @return the quota set by {@link #mpfr_java_set_quota}, or 0 if there is
+     * none.
+     */
+    @JniMethod(cast="int64_t")
+    static native long mpfr_java_get_quota();
+    /**
+     * Limits {@link #mpfr_java_allocated_bytes} to the specified number of
+     * bytes, or removes the limit if it is not positive. Allocations of an
+     * mpfr_t, of a BigFloatVector and of scratch memory for a native call fail
+     * instead of exceeding the quota. Allocations made internally by GMP and
+     * MPFR cannot fail, so they are counted but never refused.
+     */
+    static native void mpfr_java_set_quota(@JniArg(cast="int64_t") long bytes);
+    /**
+     * @return the number of allocations which have failed because they would
+     * have exceeded the quota.
+     */
+    @JniMethod(cast="int64_t")
+    static native long mpfr_java_quota_failures();
+    
+    /**
+     * @return the error to throw when {@code bytes} bytes of native memory
+     * for {@code what} could not be allocated, saying whether this was
+     * because of the quota.
+     */
+    static OutOfMemoryError allocationFailed(long bytes, String what) {
+        String message = "could not allocate " + bytes + " bytes for " + what;
+        long quota = mpfr_java_get_quota();
+        if (quota > 0 && mpfr_java_allocated_bytes() + bytes > quota) {
+            message += ": native memory quota of " + quota + " bytes exceeded";
+        }
+        return new OutOfMemoryError(message);
+    }
 
-    static native boolean mpfr_nan_p(@JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
-    static native boolean mpfr_inf_p(@JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
-    static native boolean mpfr_zero_p(@JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
-    static native boolean mpfr_integer_p(@JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
+    static native boolean mpfr_nan_p(@JniArg(cast="__mpfr_struct *") long op);
+    static boolean mpfr_nan_p(mpfr_t op) {
+        boolean result = mpfr_nan_p(op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native boolean mpfr_inf_p(@JniArg(cast="__mpfr_struct *") long op);
+    static boolean mpfr_inf_p(mpfr_t op) {
+        boolean result = mpfr_inf_p(op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native boolean mpfr_zero_p(@JniArg(cast="__mpfr_struct *") long op);
+    static boolean mpfr_zero_p(mpfr_t op) {
+        boolean result = mpfr_zero_p(op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native boolean mpfr_integer_p(@JniArg(cast="__mpfr_struct *") long op);
+    static boolean mpfr_integer_p(mpfr_t op) {
+        boolean result = mpfr_integer_p(op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
 
     static native float mpfr_get_flt(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static float mpfr_get_flt(mpfr_t op, int rnd) {
+        float result = mpfr_get_flt(op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
     static native double mpfr_get_d(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static double mpfr_get_d(mpfr_t op, int rnd) {
+        double result = NativeBackend.INSTANCE.mpfr_get_d(op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
     static native int mpfr_get_z(
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_get_z(mpz_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_get_z(rop, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
     @JniMethod(cast="mpfr_exp_t")
     static native long mpfr_get_z_2exp(
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
+            @JniArg(cast="__mpfr_struct *") long op);
+    static long mpfr_get_z_2exp(mpz_t rop, mpfr_t op) {
+        long result = mpfr_get_z_2exp(rop, op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
 
     static native int mpfr_set(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_set(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_set(
             @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t_full rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set(mpfr_t_full rop, mpfr_t op, int rnd) {
+        int result = mpfr_set(rop, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
     static native int mpfr_set(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t_full op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set(mpfr_t rop, mpfr_t_full op, int rnd) {
+        int result = mpfr_set(rop.ptr, op, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     static native int mpfr_set_si_2exp(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             int op,
             @JniArg(cast="mpfr_exp_t") long e,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set_si_2exp(mpfr_t rop, int op, long e, int rnd) {
+        int result = mpfr_set_si_2exp(rop.ptr, op, e, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     static native int mpfr_set_d(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             double op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set_d(mpfr_t rop, double op, int rnd) {
+        int result = NativeBackend.INSTANCE.mpfr_set_d(rop.ptr, op, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     static native int mpfr_set_z(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_set_z(mpfr_t rop, mpz_t op, int rnd) {
+        int result = mpfr_set_z(rop.ptr, op, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     static native int mpfr_set_z_2exp(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t op,
             @JniArg(cast="mpfr_exp_t") long e,
             @JniArg(cast="mpfr_rnd_t") int rnd);
-    private static native int mpfr_strtofr(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            long nptr,
-            @JniArg(cast="char **")long[] endptr,
+    static int mpfr_set_z_2exp(mpfr_t rop, mpz_t op, long e, int rnd) {
+        int result = mpfr_set_z_2exp(rop.ptr, op, e, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    /**
+     * Sets rop to the number in the first len bytes of s, which must be
+     * followed by a NUL byte, and then rounds it as in
+     * {@link #mpfr_java_round}. Defined in mpfr_java.h.
+     * @return the ternary value of the rounded result, or
+     * {@link #MPFR_JAVA_NOT_A_NUMBER} if those bytes are not exactly a number.
+     */
+    private static native int mpfr_java_strtofr(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="const char *", flags={NO_OUT, CRITICAL}) byte[] s,
+            int len,
             int base,
-            @JniArg(cast="mpfr_rnd_t") int rnd);
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    private static int mpfr_java_strtofr(mpfr_t rop, byte[] s, int len, int base, int rnd,
+            long emin, long emax) {
+        int result = mpfr_java_strtofr(rop.ptr, s, len, base, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     
     /**
-     * Wraps {@link #mpfr_set_str(mpfr_t, byte[], int, int)} to accept a String.
-     * Because MPFR does not accept Unicode strings, we use the US-ASCII charset and
-     * throw a NumberFormatException if the string is not expressible in ASCII.
-     * @param rop the struct to initialize
-     * @param s the String to read a float from
-     * @param base The base to pass to {@link #mpfr_strtofr}.
-     * @param rnd The rounding mode to pass to {@link #mpfr_strtofr}
-     * @return true if the result was rounded; false otherwise
-     * @throws NumberFormatException if the string did not parse as a float.
+     * The largest string buffer kept for reuse by each thread. Longer strings
+     * are parsed from a buffer of their own.
+     */
+    private static final int MAX_RETAINED_BUFFER = 1 << 12;
+    
+    private static final ThreadLocal<byte[]> STRING_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[64];
+        }
+    };
+    
+    /**
+     * @return a buffer of the calling thread with room for a string of the
+     * specified length and its terminating NUL byte.
+     */
+    private static byte[] stringBuffer(int len) {
+        byte[] buf = STRING_BUFFER.get();
+        if (buf.length <= len) {
+            buf = new byte[Math.max(len + 1, buf.length * 2)];
+            if (buf.length <= MAX_RETAINED_BUFFER) {
+                STRING_BUFFER.set(buf);
+            }
+        }
+        return buf;
+    }
+    
+    /**
+     * Parses the string of the specified length in {@code buf}, which has
+     * been filled by one of the wrappers of {@link #mpfr_java_strtofr}.
+     * @return the ternary value, or {@link #MPFR_JAVA_NOT_A_NUMBER}.
+     */
+    private static int strtofr(mpfr_t rop, byte[] buf, int len, int base, int rnd,
+            long emin, long emax) {
+        buf[len] = 0;
+        return mpfr_java_strtofr(rop, buf, len, base, rnd, emin, emax);
+    }
+    
+    /**
+     * Wraps {@link #mpfr_java_strtofr} to parse the characters of {@code s}
+     * from {@code start} to {@code end}. Because MPFR does not accept
+     * Unicode strings, each character is converted to a single byte, and a
+     * NumberFormatException is thrown if it is not in ASCII. No charset
+     * encoder is involved, and the characters are copied only once, into a
+     * buffer reused by the calling thread.
+     * @param rop the struct to set
+     * @param s the characters to read a float from
+     * @param base The base to pass to {@code mpfr_strtofr}.
+     * @param rnd The rounding mode to pass to {@code mpfr_strtofr}
+     * @return the ternary value of the result rounded to [emin, emax]
+     * @throws NumberFormatException if the characters did not parse as a float.
      */
     static int mpfr_set_str(
             mpfr_t rop,
-            String s,
+            CharSequence s,
+            int start,
+            int end,
             int base,
-            int rnd) {
-        try {
-            ByteBuffer bytes = Charset.forName("US-ASCII").newEncoder()
-                    .onMalformedInput(CodingErrorAction.REPORT)
-                    .onUnmappableCharacter(CodingErrorAction.REPORT)
-                    .encode(CharBuffer.wrap(s.toCharArray()));
-            byte[] byteArray = new byte[bytes.remaining()];
-            bytes.get(byteArray);
-            return mpfr_set_str(rop, byteArray, base, rnd);
-        } catch (CharacterCodingException e) {
-            throw new NumberFormatException(s);
-        }
-    }
-    
-    /**
-     * In order to support {@link RoundingMode.UNNECESSARY}, we need the ternary result of
-     * {@link #mpfr_strtofr}. However, making this function act like MPFR's 
-     * {@code mpfr_set_str} is nontrivial, because you have to allocate
-     * the string being read on the native heap, then call {@link #strlen} on the
-     * value returned in endptr. But this is all functionality specific
-     * to C and JNI rather than anything relevant to floating points, so I encapsulate
-     * this functionality in this class instead of putting it in {@link BigFloat}.
-     * @param rop the struct to initialize
-     * @return true if the result was rounded; false otherwise
-     * @throws NumberFormatException if the string did not parse as a float.
+            int rnd,
+            long emin,
+            long emax) {
+        int len = end - start;
+        byte[] buf = stringBuffer(len);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(start + i);
+            if (c >= 0x80) {
+                throw new NumberFormatException(s.subSequence(start, end).toString());
+            }
+            buf[i] = (byte) c;
+        }
+        int result = strtofr(rop, buf, len, base, rnd, emin, emax);
+        if (result == MPFR_JAVA_NOT_A_NUMBER) {
+            throw new NumberFormatException(s.subSequence(start, end).toString());
+        }
+        return result;
+    }
+    
+    /**
+     * Wraps {@link #mpfr_java_strtofr} to parse the {@code len} bytes of
+     * {@code s} starting at {@code off}, which are copied once into a buffer
+     * reused by the calling thread so that they can be NUL-terminated.
+     * @throws NumberFormatException if the bytes did not parse as a float.
+     * @see #mpfr_set_str(mpfr_t, CharSequence, int, int, int, int, long, long)
      */
     static int mpfr_set_str(
             mpfr_t rop,
             byte[] s,
+            int off,
+            int len,
             int base,
-            int rnd) {
-        long ptr = 0;
-        try {
-            ptr = calloc(s.length + 1, 1); // +1 for null byte
-            memmove(ptr, s, s.length);
-            long[] endptr = new long[1];
-            int result = mpfr_strtofr(rop, ptr, endptr, base, rnd);
-            if (strlen(endptr[0]) != 0) {
-                //didn't read the entire string, therefore, it was not a float
-                throw new NumberFormatException(new String(s));
-            }
-            return result;
-        } finally {
-            if (ptr != 0) {
-                free(ptr);
-            }
+            int rnd,
+            long emin,
+            long emax) {
+        byte[] buf = stringBuffer(len);
+        System.arraycopy(s, off, buf, 0, len);
+        int result = strtofr(rop, buf, len, base, rnd, emin, emax);
+        if (result == MPFR_JAVA_NOT_A_NUMBER) {
+            throw new NumberFormatException(new String(s, off, len));
+        }
+        return result;
+    }
+    
+    /**
+     * Wraps {@link #mpfr_java_strtofr} to parse the remaining bytes of
+     * {@code s}, without changing its position. Like the bytes of an array,
+     * they are copied once into a buffer reused by the calling thread.
+     * @throws NumberFormatException if the bytes did not parse as a float.
+     * @see #mpfr_set_str(mpfr_t, CharSequence, int, int, int, int, long, long)
+     */
+    static int mpfr_set_str(
+            mpfr_t rop,
+            ByteBuffer s,
+            int base,
+            int rnd,
+            long emin,
+            long emax) {
+        if (s.hasArray()) {
+            return mpfr_set_str(rop, s.array(), s.arrayOffset() + s.position(), s.remaining(),
+                    base, rnd, emin, emax);
+        }
+        int len = s.remaining();
+        byte[] buf = stringBuffer(len);
+        s.duplicate().get(buf, 0, len);
+        int result = strtofr(rop, buf, len, base, rnd, emin, emax);
+        if (result == MPFR_JAVA_NOT_A_NUMBER) {
+            throw new NumberFormatException(new String(buf, 0, len));
         }
+        return result;
+    }
+    
+    /**
+     * Sets {@code rop} to the number in {@code s}, without rounding it to any
+     * exponent range other than the default.
+     * @param rop the struct to set
+     * @param s the String to read a float from
+     * @param base The base to pass to {@code mpfr_strtofr}.
+     * @param rnd The rounding mode to pass to {@code mpfr_strtofr}
+     * @return the ternary value of the result
+     * @throws NumberFormatException if the string did not parse as a float.
+     */
+    static int mpfr_set_str(
+            mpfr_t rop,
+            String s,
+            int base,
+            int rnd) {
+        return mpfr_set_str(rop, s, 0, s.length(), base, rnd, MPFR_EMIN_DEFAULT, MPFR_EMAX_DEFAULT);
     }
     
     static native void mpfr_set_inf(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long x,
             int sign);
+    static void mpfr_set_inf(mpfr_t x, int sign) {
+        mpfr_set_inf(x.ptr, sign);
+        NativeReclaimer.reachabilityFence(x);
+    }
     static native void mpfr_set_zero(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long x,
             int sign);
+    static void mpfr_set_zero(mpfr_t x, int sign) {
+        mpfr_set_zero(x.ptr, sign);
+        NativeReclaimer.reachabilityFence(x);
+    }
     
     static native int mpfr_add(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_add(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_add(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_sub(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_sub(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_sub(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_mul(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_mul(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_mul(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_div(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_div(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_div(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_remainder(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t r,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t y,
+            @JniArg(cast="__mpfr_struct *") long r,
+            @JniArg(cast="__mpfr_struct *") long x,
+            @JniArg(cast="__mpfr_struct *") long y,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_remainder(mpfr_t r, mpfr_t x, mpfr_t y, int rnd) {
+        int result = mpfr_remainder(r.ptr, x.ptr, y.ptr, rnd);
+        NativeReclaimer.reachabilityFence(r, x, y);
+        return result;
+    }
     static native int mpfr_pow(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_pow(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_pow(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_root(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             int k,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_root(mpfr_t rop, mpfr_t op, int k, int rnd) {
+        int result = mpfr_root(rop.ptr, op.ptr, k, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_neg(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_neg(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_neg(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_abs(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_abs(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_abs(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_log(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_log(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_log(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_log10(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_log10(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_log10(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_exp(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_exp(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_exp(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_exp10(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_exp10(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_exp10(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_sin(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_sin(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_sin(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_cos(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_cos(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_cos(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_tan(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_tan(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_tan(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_sec(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_sec(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_sec(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_csc(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_csc(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_csc(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_cot(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_cot(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_cot(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_asin(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_asin(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_asin(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_acos(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_acos(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_acos(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_atan(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_atan(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_atan(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_atan2(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t y,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long y,
+            @JniArg(cast="__mpfr_struct *") long x,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_atan2(mpfr_t rop, mpfr_t y, mpfr_t x, int rnd) {
+        int result = mpfr_atan2(rop.ptr, y.ptr, x.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, y, x);
+        return result;
+    }
     static native int mpfr_cosh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_cosh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_cosh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_sinh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_sinh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_sinh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_tanh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_tanh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_tanh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_sech(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_sech(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_sech(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_csch(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_csch(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_csch(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_coth(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_coth(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_coth(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_acosh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_acosh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_acosh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_asinh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_asinh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_asinh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_atanh(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_atanh(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_atanh(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_rint(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_rint(mpfr_t rop, mpfr_t op, int rnd) {
+        int result = mpfr_rint(rop.ptr, op.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native int mpfr_min(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_min(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_min(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_max(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_max(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd) {
+        int result = mpfr_max(rop.ptr, op1.ptr, op2.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
     static native int mpfr_const_pi(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_const_pi(mpfr_t rop, int rnd) {
+        int result = mpfr_const_pi(rop.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
     static native int mpfr_const_euler(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_const_euler(mpfr_t rop, int rnd) {
+        int result = mpfr_const_euler(rop.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    static native int mpfr_const_log2(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_const_log2(mpfr_t rop, int rnd) {
+        int result = mpfr_const_log2(rop.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    static native int mpfr_const_catalan(
+            @JniArg(cast="__mpfr_struct *") long rop,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_const_catalan(mpfr_t rop, int rnd) {
+        int result = mpfr_const_catalan(rop.ptr, rnd);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    static native void mpfr_free_cache();
+    /**
+     * Sets rop to the correct rounding of a positive irrational constant
+     * given an approximation op of it rounded to nearest; defined in mpfr_java.h.
+     * @return the ternary value, or {@link #MPFR_JAVA_CANNOT_ROUND} if op is not
+     * precise enough.
+     */
+    static native int mpfr_java_round_const(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_round_const(mpfr_t rop, mpfr_t op, int rnd, long emin, long emax) {
+        int result = mpfr_java_round_const(rop.ptr, op.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     static native void mpfr_nexttoward(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t y);
+            @JniArg(cast="__mpfr_struct *") long x,
+            @JniArg(cast="__mpfr_struct *") long y);
+    static void mpfr_nexttoward(mpfr_t x, mpfr_t y) {
+        mpfr_nexttoward(x.ptr, y.ptr);
+        NativeReclaimer.reachabilityFence(x, y);
+    }
     static native void mpfr_nextabove(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x);
+            @JniArg(cast="__mpfr_struct *") long x);
+    static void mpfr_nextabove(mpfr_t x) {
+        mpfr_nextabove(x.ptr);
+        NativeReclaimer.reachabilityFence(x);
+    }
     static native void mpfr_nextbelow(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x);
+            @JniArg(cast="__mpfr_struct *") long x);
+    static void mpfr_nextbelow(mpfr_t x) {
+        mpfr_nextbelow(x.ptr);
+        NativeReclaimer.reachabilityFence(x);
+    }
 
     static native int mpfr_cmp(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static int mpfr_cmp(mpfr_t op1, mpfr_t op2) {
+        int result = mpfr_cmp(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native int mpfr_cmp_d(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
+            @JniArg(cast="__mpfr_struct *") long op1,
             double op2);
+    static int mpfr_cmp_d(mpfr_t op1, double op2) {
+        int result = NativeBackend.INSTANCE.mpfr_cmp_d(op1.ptr, op2);
+        NativeReclaimer.reachabilityFence(op1);
+        return result;
+    }
+    /**
+     * Like {@code mpfr_cmp_si}, but takes a 64-bit integer on every platform
+     * and considers NaN greater than every integer. Defined in mpfr_java.h.
+     */
+    static native int mpfr_java_cmp_sj(
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="int64_t") long op2);
+    static int mpfr_java_cmp_sj(mpfr_t op1, long op2) {
+        int result = NativeBackend.INSTANCE.mpfr_java_cmp_sj(op1.ptr, op2);
+        NativeReclaimer.reachabilityFence(op1);
+        return result;
+    }
+    /**
+     * Compares op1 and op2 in the total order of
+     * {@link BigFloat#compareTo(BigFloat)}. Defined in mpfr_java.h.
+     */
+    static native int mpfr_java_cmp_total(
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static int mpfr_java_cmp_total(mpfr_t op1, mpfr_t op2) {
+        int result = NativeBackend.INSTANCE.mpfr_java_cmp_total(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native boolean mpfr_greater_p(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static boolean mpfr_greater_p(mpfr_t op1, mpfr_t op2) {
+        boolean result = mpfr_greater_p(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native boolean mpfr_greaterequal_p(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static boolean mpfr_greaterequal_p(mpfr_t op1, mpfr_t op2) {
+        boolean result = mpfr_greaterequal_p(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native boolean mpfr_less_p(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static boolean mpfr_less_p(mpfr_t op1, mpfr_t op2) {
+        boolean result = mpfr_less_p(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native boolean mpfr_lessequal_p(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static boolean mpfr_lessequal_p(mpfr_t op1, mpfr_t op2) {
+        boolean result = mpfr_lessequal_p(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     static native boolean mpfr_equal_p(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op1,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op2);
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2);
+    static boolean mpfr_equal_p(mpfr_t op1, mpfr_t op2) {
+        boolean result = mpfr_equal_p(op1.ptr, op2.ptr);
+        NativeReclaimer.reachabilityFence(op1, op2);
+        return result;
+    }
     
     static native boolean mpfr_prec_round(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long x,
             @JniArg(cast="mpfr_prec_t") int prec,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static boolean mpfr_prec_round(mpfr_t x, int prec, int rnd) {
+        boolean result = mpfr_prec_round(x.ptr, prec, rnd);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
     
 
     static native boolean mpfr_set_emin(
@@ -433,21 +1144,549 @@ final class mpfr {
     static native boolean mpfr_set_emax(
             @JniArg(cast="mpfr_exp_t") long exp);
     static native int mpfr_check_range(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long x,
             int t,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_check_range(mpfr_t x, int t, int rnd) {
+        int result = mpfr_check_range(x.ptr, t, rnd);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
     static native boolean mpfr_subnormalize(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t x,
+            @JniArg(cast="__mpfr_struct *") long x,
             int t,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static boolean mpfr_subnormalize(mpfr_t x, int t, int rnd) {
+        boolean result = mpfr_subnormalize(x.ptr, t, rnd);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
+    
+    /**
+     * Performs {@link #mpfr_check_range} and {@link #mpfr_subnormalize} in the
+     * specified exponent range, and then restores the previous exponent range,
+     * all in a single native call. Defined in mpfr_java.h.
+     * @return the ternary value of the rounded result.
+     */
+    static native int mpfr_java_round(
+            @JniArg(cast="__mpfr_struct *") long x,
+            int t,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_round(mpfr_t x, int t, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_round(x.ptr, t, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(x);
+        return result;
+    }
+    /**
+     * Sets rop to the number adjacent to op in the specified exponent range,
+     * in a single native call. Defined in mpfr_java.h.
+     * @return nonzero if op is not in the specified exponent range.
+     */
+    static native int mpfr_java_next(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
+            boolean up,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_next(mpfr_t rop, mpfr_t op, boolean up, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_next(rop.ptr, op.ptr, up, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
+    
+    // the following perform an operation followed by mpfr_java_round; defined in mpfr_java.h.
+    static native int mpfr_java_add(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_add(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_add(rop.ptr, op1.ptr, op2.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
+    static native int mpfr_java_sub(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_sub(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_sub(rop.ptr, op1.ptr, op2.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
+    static native int mpfr_java_mul(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_mul(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_mul(rop.ptr, op1.ptr, op2.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
+    static native int mpfr_java_div(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_div(mpfr_t rop, mpfr_t op1, mpfr_t op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_div(rop.ptr, op1.ptr, op2.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2);
+        return result;
+    }
+    static native int mpfr_java_fma(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="__mpfr_struct *") long op3,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_fma(mpfr_t rop, mpfr_t op1, mpfr_t op2, mpfr_t op3, int rnd, long emin,
+            long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_fma(rop.ptr, op1.ptr, op2.ptr, op3.ptr, rnd,
+                emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2, op3);
+        return result;
+    }
+    static native int mpfr_java_fms(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="__mpfr_struct *") long op3,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_fms(mpfr_t rop, mpfr_t op1, mpfr_t op2, mpfr_t op3, int rnd, long emin,
+            long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_fms(rop.ptr, op1.ptr, op2.ptr, op3.ptr, rnd,
+                emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2, op3);
+        return result;
+    }
+    static native int mpfr_java_fmma(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="__mpfr_struct *") long op2,
+            @JniArg(cast="__mpfr_struct *") long op3,
+            @JniArg(cast="__mpfr_struct *") long op4,
+            boolean sub,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_fmma(mpfr_t rop, mpfr_t op1, mpfr_t op2, mpfr_t op3, mpfr_t op4,
+            boolean sub, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_fmma(rop.ptr, op1.ptr, op2.ptr, op3.ptr,
+                op4.ptr, sub, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1, op2, op3, op4);
+        return result;
+    }
+    static native int mpfr_java_set(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_set(mpfr_t rop, mpfr_t op, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_set(rop.ptr, op.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
+    static native int mpfr_java_set_sj(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="int64_t") long op,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_set_sj(mpfr_t rop, long op, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_set_sj(rop.ptr, op, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    static native int mpfr_java_add_sj(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="int64_t") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_add_sj(mpfr_t rop, mpfr_t op1, long op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_add_sj(rop.ptr, op1.ptr, op2, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1);
+        return result;
+    }
+    static native int mpfr_java_sub_sj(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="int64_t") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_sub_sj(mpfr_t rop, mpfr_t op1, long op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_sub_sj(rop.ptr, op1.ptr, op2, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1);
+        return result;
+    }
+    static native int mpfr_java_mul_sj(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="int64_t") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_mul_sj(mpfr_t rop, mpfr_t op1, long op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_mul_sj(rop.ptr, op1.ptr, op2, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1);
+        return result;
+    }
+    static native int mpfr_java_div_sj(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op1,
+            @JniArg(cast="int64_t") long op2,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_div_sj(mpfr_t rop, mpfr_t op1, long op2, int rnd, long emin, long emax) {
+        int result = NativeBackend.INSTANCE.mpfr_java_div_sj(rop.ptr, op1.ptr, op2, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop, op1);
+        return result;
+    }
+    
+    /**
+     * The number of elements of a {@code long[]} occupied by each mpfr_t
+     * packed by {@link #mpfr_pack}. Must match MPFR_JAVA_PACKED_SIZE in
+     * mpfr_java.h.
+     */
+    static final int MPFR_PACKED_SIZE = 4;
+    
+    /**
+     * The offset of the exponent within each packed mpfr_t.
+     */
+    static final int MPFR_PACKED_EXP = 2;
+    
+    /**
+     * Packs the fields of the specified mpfr_t into the {@code i}-th element
+     * of an array of packed mpfr_t, so that a whole array of them can be passed
+     * to a single native call. The packed struct shares its limbs with
+     * {@code x}, which must remain reachable while the packed struct is in use.
+     */
+    static void mpfr_pack(mpfr_t x, long[] packed, int i) {
+        int offset = i * MPFR_PACKED_SIZE;
+        packed[offset] = x.prec();
+        packed[offset + 1] = x.sign();
+        packed[offset + MPFR_PACKED_EXP] = x.exp();
+        packed[offset + 3] = x.limbs();
+    }
+    
+    /**
+     * Copies the fields of the {@code i}-th element of an array of packed
+     * mpfr_t which can be modified by an operation back into {@code x}.
+     */
+    static void mpfr_unpack(long[] packed, int i, mpfr_t x) {
+        int offset = i * MPFR_PACKED_SIZE;
+        x.setSignAndExp((int) packed[offset + 1], packed[offset + MPFR_PACKED_EXP]);
+    }
+    
+    // the following apply an operation to arrays of packed mpfr_t; defined in mpfr_java.h.
+    static native int mpfr_java_map_unary(
+            int fn,
+            @JniArg(cast="int64_t *") long[] rop,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] op,
+            int n,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static native int mpfr_java_map_binary(
+            int fn,
+            @JniArg(cast="int64_t *") long[] rop,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] op1,
+            int stride1,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] op2,
+            int stride2,
+            int n,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    
+    /**
+     * Stores three sort keys for each of the {@code n} packed mpfr_t in
+     * {@code op} in {@code keys}. Defined in mpfr_java.h.
+     */
+    static native void mpfr_java_sort_keys(
+            @JniArg(cast="int64_t *", flags={NO_IN}) long[] keys,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] op,
+            int n);
+    
+    /**
+     * Sets {@code rop} to the correctly rounded sum of the {@code n} packed
+     * mpfr_t in {@code tab}, and then rounds it as in {@link #mpfr_java_round}.
+     * Defined in mpfr_java.h.
+     * @return the ternary value of the rounded result, or
+     * {@link #MPFR_JAVA_NOMEM} if native memory could not be allocated.
+     */
+    static native int mpfr_java_sum(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] tab,
+            int n,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_sum(mpfr_t rop, long[] tab, int n, int rnd, long emin, long emax) {
+        int result = mpfr_java_sum(rop.ptr, tab, n, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    
+    /**
+     * Sets rop to the dot product of the n packed mpfr_t in x and y, rounded
+     * only once, using temporaries of precision prec for the exact products.
+     * @return the ternary value, or
+     * {@link #MPFR_JAVA_NOMEM} if native memory could not be allocated.
+     */
+    static native int mpfr_java_dot(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] x,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] y,
+            int n,
+            @JniArg(cast="mpfr_prec_t") long prec,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_dot(mpfr_t rop, long[] x, long[] y, int n, long prec, int rnd, long emin,
+            long emax) {
+        int result = mpfr_java_dot(rop.ptr, x, y, n, prec, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(rop);
+        return result;
+    }
+    
+    // the following operate on the native memory of a BigFloatVector; defined in mpfr_java.h.
+    @JniMethod(cast="size_t")
+    static native long mpfr_java_vector_size(
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec);
+    @JniMethod(cast="void *")
+    static native long mpfr_java_vector_alloc(
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec);
+    static native void mpfr_java_vector_free(
+            @JniArg(cast="void *") long v,
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec);
+    static native void mpfr_java_vector_get(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="void *") long v,
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec,
+            int i);
+    static void mpfr_java_vector_get(mpfr_t rop, long v, int n, int prec, int i) {
+        mpfr_java_vector_get(rop.ptr, v, n, prec, i);
+        NativeReclaimer.reachabilityFence(rop);
+    }
+    static native int mpfr_java_vector_set(
+            @JniArg(cast="void *") long v,
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec,
+            int i,
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_vector_set(long v, int n, int prec, int i, mpfr_t op, int rnd, long emin,
+            long emax) {
+        int result = mpfr_java_vector_set(v, n, prec, i, op.ptr, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native int mpfr_java_vector_map_unary(
+            int fn,
+            @JniArg(cast="void *") long r,
+            @JniArg(cast="mpfr_prec_t") int rprec,
+            @JniArg(cast="void *") long a,
+            @JniArg(cast="mpfr_prec_t") int aprec,
+            int n,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static native int mpfr_java_vector_map_binary(
+            int fn,
+            @JniArg(cast="void *") long r,
+            @JniArg(cast="mpfr_prec_t") int rprec,
+            @JniArg(cast="void *") long a,
+            @JniArg(cast="mpfr_prec_t") int aprec,
+            @JniArg(cast="void *") long b,
+            @JniArg(cast="mpfr_prec_t") int bprec,
+            @JniArg(cast="__mpfr_struct *") long scalar,
+            int n,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    static int mpfr_java_vector_map_binary(int fn, long r, int rprec, long a, int aprec, long b,
+            int bprec, mpfr_t scalar, int n, int rnd, long emin, long emax) {
+        // scalar is null unless the second operand is the same for every element
+        int result = mpfr_java_vector_map_binary(fn, r, rprec, a, aprec, b, bprec,
+                scalar == null ? 0 : scalar.ptr, n, rnd, emin, emax);
+        NativeReclaimer.reachabilityFence(scalar);
+        return result;
+    }
+    
+    /**
+     * Sets rop to the product of the m by k matrix a and the k by n matrix b,
+     * all stored as the native memory of a BigFloatVector in row-major order,
+     * computing only rows from (inclusive) to to (exclusive).
+     * Each element is rounded only once.
+     * @return nonzero if any element is inexact, or
+     * {@link #MPFR_JAVA_NOMEM} if native memory could not be allocated.
+     */
+    static native int mpfr_java_vector_matmul(
+            @JniArg(cast="void *") long c,
+            @JniArg(cast="mpfr_prec_t") int cprec,
+            @JniArg(cast="void *") long a,
+            @JniArg(cast="mpfr_prec_t") int aprec,
+            @JniArg(cast="void *") long b,
+            @JniArg(cast="mpfr_prec_t") int bprec,
+            int m,
+            int k,
+            int n,
+            int from,
+            int to,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    
+    /**
+     * Parses the records in s from offset off to offset len into elements
+     * index, index + 1, ... of the vector v, stopping after max records.
+     * Records are separated by runs of the bytes b for which delim[b] is
+     * nonzero. s must be longer than len.
+     * @param starts receives the offset of each record, or its complement if
+     * it is not a number.
+     * @param state receives the offset at which parsing stopped, and whether
+     * any element is inexact.
+     * @return the number of records parsed.
+     */
+    static native int mpfr_java_vector_parse(
+            @JniArg(cast="void *") long v,
+            int n,
+            @JniArg(cast="mpfr_prec_t") int prec,
+            int index,
+            @JniArg(cast="char *", flags={CRITICAL}) byte[] s,
+            int off,
+            int len,
+            @JniArg(cast="const int8_t *", flags={NO_OUT, CRITICAL}) byte[] delim,
+            @JniArg(cast="int32_t *", flags={NO_IN, CRITICAL}) int[] starts,
+            int max,
+            @JniArg(cast="int32_t *", flags={NO_IN, CRITICAL}) int[] state,
+            @JniArg(cast="mpfr_rnd_t") int rnd,
+            @JniArg(cast="mpfr_exp_t") long emin,
+            @JniArg(cast="mpfr_exp_t") long emax);
+    
+    // the following convert between mpfr_t and IEEE 754 interchange encodings
+    // with precision p and w exponent bits; defined in mpfr_java.h.
+    static native int mpfr_java_encode_words(
+            @JniArg(cast="int64_t *", flags={NO_IN}) long[] bits,
+            int off,
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w,
+            @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_java_encode_words(long[] bits, int off, mpfr_t op, int p, int w, int rnd) {
+        int result = mpfr_java_encode_words(bits, off, op.ptr, p, w, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native int mpfr_java_encode_bytes(
+            @JniArg(cast="int8_t *", flags={NO_IN}) byte[] bytes,
+            int off,
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w,
+            @JniArg(cast="mpfr_rnd_t") int rnd);
+    static int mpfr_java_encode_bytes(byte[] bytes, int off, mpfr_t op, int p, int w, int rnd) {
+        int result = mpfr_java_encode_bytes(bytes, off, op.ptr, p, w, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    /**
+     * Returns the encoding of op in a format of at most 64 bits. Since it has
+     * no other way to return the ternary value, it sets the inexact flag if
+     * the result is inexact and clears it otherwise.
+     */
+    @JniMethod(cast="int64_t")
+    static native long mpfr_java_encode64(
+            @JniArg(cast="__mpfr_struct *") long op,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w,
+            @JniArg(cast="mpfr_rnd_t") int rnd);
+    static long mpfr_java_encode64(mpfr_t op, int p, int w, int rnd) {
+        long result = mpfr_java_encode64(op.ptr, p, w, rnd);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
+    static native void mpfr_java_decode_words(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="const int64_t *", flags={NO_OUT}) long[] bits,
+            int off,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w);
+    static void mpfr_java_decode_words(mpfr_t rop, long[] bits, int off, int p, int w) {
+        mpfr_java_decode_words(rop.ptr, bits, off, p, w);
+        NativeReclaimer.reachabilityFence(rop);
+    }
+    static native void mpfr_java_decode_bytes(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="const int8_t *", flags={NO_OUT}) byte[] bytes,
+            int off,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w);
+    static void mpfr_java_decode_bytes(mpfr_t rop, byte[] bytes, int off, int p, int w) {
+        mpfr_java_decode_bytes(rop.ptr, bytes, off, p, w);
+        NativeReclaimer.reachabilityFence(rop);
+    }
+    static native void mpfr_java_decode64(
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="int64_t") long bits,
+            @JniArg(cast="mpfr_prec_t") int p,
+            int w);
+    static void mpfr_java_decode64(mpfr_t rop, long bits, int p, int w) {
+        mpfr_java_decode64(rop.ptr, bits, p, w);
+        NativeReclaimer.reachabilityFence(rop);
+    }
+    static native boolean mpfr_inexflag_p();
+    
+    /**
+     * @return true if MPFR was built with thread-local caches, and so can be
+     * safely called from several threads at once.
+     */
+    static native boolean mpfr_buildopt_tls_p();
     
     static native boolean mpfr_signbit(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op);
+            @JniArg(cast="__mpfr_struct *") long op);
+    static boolean mpfr_signbit(mpfr_t op) {
+        boolean result = mpfr_signbit(op.ptr);
+        NativeReclaimer.reachabilityFence(op);
+        return result;
+    }
     static native boolean mpfr_setsign(
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t rop,
-            @JniArg(cast="mpfr_ptr", flags={POINTER_ARG}) mpfr_t op,
+            @JniArg(cast="__mpfr_struct *") long rop,
+            @JniArg(cast="__mpfr_struct *") long op,
             boolean s,
             @JniArg(cast="mpfr_rnd_t") int rnd);
+    static boolean mpfr_setsign(mpfr_t rop, mpfr_t op, boolean s, int rnd) {
+        boolean result = mpfr_setsign(rop.ptr, op.ptr, s, rnd);
+        NativeReclaimer.reachabilityFence(rop, op);
+        return result;
+    }
     
     @JniField(flags={CONSTANT})
     static int MPFR_RNDN; // round to nearest, with ties to even
@@ -469,34 +1708,104 @@ final class mpfr {
     @JniField(flags={CONSTANT}, accessor="mpfr_get_emin()")
     static long MPFR_EMIN_DEFAULT;
     
+    // the exponents which MPFR stores in _mpfr_exp to represent special values
+    @JniField(flags={CONSTANT}, accessor="__MPFR_EXP_ZERO")
+    static long MPFR_EXP_ZERO;
+    @JniField(flags={CONSTANT}, accessor="__MPFR_EXP_NAN")
+    static long MPFR_EXP_NAN;
+    @JniField(flags={CONSTANT}, accessor="__MPFR_EXP_INF")
+    static long MPFR_EXP_INF;
+    
     @JniField(flags={CONSTANT}, accessor="sizeof(mp_limb_t)")
     static short LIMB_SIZE;
+    
+    // the layout of __mpfr_struct, which mpfr_t reads and writes directly
+    @JniField(flags={CONSTANT}, accessor="sizeof(__mpfr_struct)")
+    static int MPFR_STRUCT_SIZE;
+    @JniField(flags={CONSTANT}, accessor="offsetof(__mpfr_struct, _mpfr_prec)")
+    static int MPFR_PREC_OFFSET;
+    @JniField(flags={CONSTANT}, accessor="sizeof(mpfr_prec_t)")
+    static int MPFR_PREC_SIZE;
+    @JniField(flags={CONSTANT}, accessor="offsetof(__mpfr_struct, _mpfr_sign)")
+    static int MPFR_SIGN_OFFSET;
+    @JniField(flags={CONSTANT}, accessor="offsetof(__mpfr_struct, _mpfr_exp)")
+    static int MPFR_EXP_OFFSET;
+    @JniField(flags={CONSTANT}, accessor="sizeof(mpfr_exp_t)")
+    static int MPFR_EXP_SIZE;
+    @JniField(flags={CONSTANT}, accessor="offsetof(__mpfr_struct, _mpfr_d)")
+    static int MPFR_D_OFFSET;
+    
+    @JniField(flags={CONSTANT})
+    static int MPFR_JAVA_NOMEM; // returned by mpfr_java.h functions which fail to allocate memory
+    @JniField(flags={CONSTANT})
+    static int MPFR_JAVA_CANNOT_ROUND; // returned by mpfr_java_round_const
+    @JniField(flags={CONSTANT})
+    static int MPFR_JAVA_NOT_A_NUMBER; // returned by mpfr_java_strtofr
 
     /**
-     * A Java representation of the C mpfr_t type.
+     * A C mpfr_t which lives in native memory, together with its limbs, for as
+     * long as this object is reachable.
      * 
-     * Technically accessing the struct directly is a hack because we're not supposed to
-     * look internally at the struct that mpfr_t contains, however, it's the only way to
-     * do this with the JNI framework we're using.
+     * Only the address of the struct is held in Java, so native methods take
+     * that address instead of copying the fields of the struct in and out on
+     * every call. The fields are read and written directly in native memory
+     * by the accessors of this class. Technically accessing the struct
+     * directly is a hack because we're not supposed to look internally at the
+     * struct that mpfr_t contains, however, BigFloat relies on it to answer
+     * most queries without calling into native code.
      * @author Dwight Guth
      *
      */
-    @JniClass(name="__mpfr_struct", flags={STRUCT, TYPEDEF})
     static final class mpfr_t implements Serializable {
         static {
             LIBRARY.load();
         } 
         
+        private static final long PREC_OFFSET = MPFR_PREC_OFFSET;
+        private static final boolean LONG_PREC = MPFR_PREC_SIZE == 8;
+        private static final long SIGN_OFFSET = MPFR_SIGN_OFFSET;
+        private static final long EXP_OFFSET = MPFR_EXP_OFFSET;
+        private static final boolean LONG_EXP = MPFR_EXP_SIZE == 8;
+        private static final long D_OFFSET = MPFR_D_OFFSET;
+        
         /**
          * Construct a new mpfr_t object and initialize it with the specified
-         * {@code precision}.
-         * @param precision The bits of precision to call {@link mpfr#mpfr_init2} with.
+         * {@code precision}, set to NaN.
+         * @param precision The bits of precision of the struct.
          */
         mpfr_t(int precision) {
+            this(precision, Double.NaN, false);
+        }
+        
+        /**
+         * Construct a new mpfr_t object with the specified {@code precision}
+         * and set it to {@code d}, with a single native call.
+         * @param precision The bits of precision of the struct.
+         * @param d The value, which must be exactly representable in that precision.
+         */
+        mpfr_t(int precision, double d) {
+            this(precision, d, true);
+        }
+        
+        private mpfr_t(int precision, double d, boolean set) {
             if (precision < MPFR_PREC_MIN || precision > MPFR_PREC_MAX) {
                 throw new IllegalArgumentException("invalid precision");
             }
-            mpfr_init2(this, precision);
+            long bytes = allocatedBytes(precision);
+            NativeReclaimer.reserve(bytes);
+            long p = set ? mpfr_java_new_d(precision, d) : mpfr_java_new(precision);
+            // the structs of collected owners may not have been freed yet
+            if (p == 0 && NativeReclaimer.drain() > 0) {
+                p = set ? mpfr_java_new_d(precision, d) : mpfr_java_new(precision);
+            }
+            if (p == 0) {
+                throw allocationFailed(bytes, "mpfr_t");
+            }
+            ptr = p;
+            reclaimable = new Struct(this, bytes, ptr);
+            if (reclaimable.counted) {
+                Metrics.structAllocated(bytes);
+            }
         }
         
         /**
@@ -504,7 +1813,7 @@ final class mpfr {
          * @param copy The struct to copy.
          */
         mpfr_t(mpfr_t copy) {
-            mpfr_init2(this, copy._mpfr_prec);
+            this(copy.prec());
             int i = mpfr_set(this, copy, MPFR_RNDN);
             assert i == 0 : "should not ever lose copying an mpfr_t";
         }
@@ -514,27 +1823,106 @@ final class mpfr {
          * @param copy The struct to copy.
          */
         mpfr_t(mpfr_t_full copy) {
-            mpfr_init2(this, copy._mpfr_prec);
-            _mpfr_prec = copy._mpfr_prec;
-            _mpfr_sign = copy._mpfr_sign;
-            _mpfr_exp = copy._mpfr_exp;
-            memmove(_mpfr_d, copy._mpfr_d, copy._mpfr_d.length);
+            this(copy._mpfr_prec);
+            setSignAndExp(copy._mpfr_sign, copy._mpfr_exp);
+            memmove(limbs(), copy._mpfr_d, copy._mpfr_d.length);
         }
         
         /**
-         * Release native resources for this struct.
+         * Release native resources for this struct immediately rather than
+         * waiting for it to be garbage collected. The struct must not be used
+         * after calling this method.
          */
-        @Override
-        protected void finalize() throws Throwable {
-            if (_mpfr_d != 0) {
-                mpfr_clear(this);
+        void clear() {
+            reclaimable.release();
+        }
+        
+        /**
+         * Frees the struct and its limbs after the mpfr_t has been garbage
+         * collected.
+         */
+        private static final class Struct extends Reclaimable {
+            private final long ptr;
+            
+            // whether the allocation was counted, so that the free is counted too
+            final boolean counted = Metrics.enabled;
+            
+            Struct(mpfr_t owner, long bytes, long ptr) {
+                super(owner, bytes);
+                this.ptr = ptr;
+            }
+            
+            @Override
+            void free() {
+                mpfr_java_free(ptr);
+                if (counted) {
+                    Metrics.structFreed(bytes());
+                }
             }
         }
         
-        @JniField(cast="mpfr_prec_t") int _mpfr_prec;
-        @JniField(cast="mpfr_sign_t") int _mpfr_sign;
-        @JniField(cast="mpfr_exp_t") long _mpfr_exp;
-        @JniField(cast="mp_limb_t *") long _mpfr_d;
+        private final transient Struct reclaimable;
+        
+        /**
+         * The address of the __mpfr_struct, which is passed to native methods
+         * as an {@code mpfr_ptr}.
+         */
+        final transient long ptr;
+        
+        /**
+         * @return the {@code _mpfr_prec} field of the struct.
+         */
+        int prec() {
+            long prec = LONG_PREC ? NativeMemory.getLong(ptr + PREC_OFFSET)
+                    : NativeMemory.getInt(ptr + PREC_OFFSET);
+            NativeReclaimer.reachabilityFence(this);
+            return (int) prec;
+        }
+        
+        /**
+         * @return the {@code _mpfr_sign} field of the struct, which is 1 or -1.
+         */
+        int sign() {
+            int sign = NativeMemory.getInt(ptr + SIGN_OFFSET);
+            NativeReclaimer.reachabilityFence(this);
+            return sign;
+        }
+        
+        /**
+         * @return the {@code _mpfr_exp} field of the struct, which is one of
+         * the special exponents {@link #MPFR_EXP_ZERO}, {@link #MPFR_EXP_NAN}
+         * and {@link #MPFR_EXP_INF} if the value is not a regular number.
+         */
+        long exp() {
+            long exp = LONG_EXP ? NativeMemory.getLong(ptr + EXP_OFFSET)
+                    : NativeMemory.getInt(ptr + EXP_OFFSET);
+            NativeReclaimer.reachabilityFence(this);
+            return exp;
+        }
+        
+        /**
+         * @return the {@code _mpfr_d} field of the struct, the address of
+         * the limbs, which are only valid while this object is reachable.
+         */
+        long limbs() {
+            long d = NativeMemory.getAddress(ptr + D_OFFSET);
+            NativeReclaimer.reachabilityFence(this);
+            return d;
+        }
+        
+        /**
+         * Sets the {@code _mpfr_sign} and {@code _mpfr_exp} fields of the
+         * struct, as computed by native code for a copy of it.
+         */
+        void setSignAndExp(int sign, long exp) {
+            NativeMemory.putInt(ptr + SIGN_OFFSET, sign);
+            if (LONG_EXP) {
+                NativeMemory.putLong(ptr + EXP_OFFSET, exp);
+            } else {
+                NativeMemory.putInt(ptr + EXP_OFFSET, (int) exp);
+            }
+            NativeReclaimer.reachabilityFence(this);
+        }
         
         private Object writeReplace() throws ObjectStreamException {
             return new mpfr_t_full(this);
@@ -573,11 +1961,12 @@ final class mpfr {
          */
         mpfr_t_full(mpfr_t copy) {
             //mpfr_init2(this, copy._mpfr_prec);
-            _mpfr_prec = copy._mpfr_prec;
-            _mpfr_sign = copy._mpfr_sign;
-            _mpfr_exp = copy._mpfr_exp;
+            _mpfr_prec = copy.prec();
+            _mpfr_sign = copy.sign();
+            _mpfr_exp = copy.exp();
             _mpfr_d = new byte[getNumberOfBytesInLimbs()];
-            memmove(_mpfr_d, copy._mpfr_d, _mpfr_d.length);
+            memmove(_mpfr_d, copy.limbs(), _mpfr_d.length);
+            NativeReclaimer.reachabilityFence(copy);
         }
         
         @JniField(cast="mpfr_prec_t") int _mpfr_prec;
@@ -599,6 +1988,15 @@ final class mpfr {
         return (x + n - 1) / n;
     }
     
+    /**
+     * @return the number of bytes {@code mpfr_java_new} allocates for the
+     * specified precision: the struct followed by its limbs.
+     */
+    static long allocatedBytes(int precision) {
+        long bits = LIMB_SIZE * 8;
+        return MPFR_STRUCT_SIZE + (precision + bits - 1) / bits * LIMB_SIZE;
+    }
+    
     private static native void mpz_init(
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t x);
     private static native void mpz_clear(
@@ -611,10 +2009,41 @@ final class mpfr {
             byte[] str,
             int base,
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t op);
-    private static native int mpz_set_str(
+    
+    /**
+     * Sets {@code rop} to the integer with the specified big-endian magnitude
+     * and sign. Defined in mpfr_java.h.
+     */
+    private static native void mpz_java_import(
             @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t rop,
-            String str,
-            int base);
+            @JniArg(cast="const void *", flags={NO_OUT, CRITICAL}) byte[] bytes,
+            @JniArg(cast="size_t") long len,
+            boolean negative);
+    @JniMethod(cast="void *")
+    private static native long mpz_export(
+            @JniArg(cast="void *", flags={NO_IN, CRITICAL}) byte[] rop,
+            @JniArg(cast="size_t *") long countp,
+            int order,
+            @JniArg(cast="size_t") long size,
+            int endian,
+            @JniArg(cast="size_t") long nails,
+            @JniArg(cast="mpz_ptr", flags={POINTER_ARG}) mpz_t op);
+    
+    /**
+     * Converts the specified mpz_t object to a {@link BigInteger} by copying its
+     * limbs, which takes time linear in the size of the integer, unlike
+     * converting through a decimal string.
+     * @param op The mpz_t to convert
+     * @return A {@code BigInteger} with the same value as {@code op}.
+     */
+    static BigInteger mpz_get_BigInteger(mpz_t op) {
+        if (op._mp_size == 0) {
+            return BigInteger.ZERO;
+        }
+        byte[] magnitude = new byte[(mpz_sizeinbase(op, 2) + 7) / 8];
+        mpz_export(magnitude, 0, 1, 1, 0, 0, op);
+        return new BigInteger(Integer.signum(op._mp_size), magnitude);
+    }
     
     /**
      * Return a string containing the digits of the specified mpz_t object in the specified base.
@@ -644,6 +2073,11 @@ final class mpfr {
      * Technically accessing the struct directly is a hack because we're not supposed to
      * look internally at the struct that mpz_t contains, however, it's the only way to
      * do this with the JNI framework we're using.
+     * 
+     * Unlike {@link mpfr_t}, GMP reallocates the limbs of an mpz_t whenever its value grows,
+     * so its native memory cannot be reclaimed once the Java object has been collected.
+     * Instead, an mpz_t is only ever used as a temporary, and must be released with
+     * {@link #clear()} when it is no longer needed.
      * @author Dwight Guth
      *
      */
@@ -654,6 +2088,10 @@ final class mpfr {
          */
         mpz_t() {
             mpz_init(this);
+            counted = Metrics.enabled;
+            if (counted) {
+                Metrics.integerAllocated();
+            }
         }
         
         /**
@@ -662,22 +2100,30 @@ final class mpfr {
          * @param val The value to initialize the struct with.
          */
         mpz_t(BigInteger val) {
-            mpz_init(this);
-            mpz_set_str(this, val.toString(), 10);
+            this();
+            byte[] magnitude = val.abs().toByteArray();
+            mpz_java_import(this, magnitude, magnitude.length, val.signum() < 0);
         }
         
         /**
-         * Release native resources for this struct.
+         * Release native resources for this struct. The struct must not be used
+         * after calling this method.
          */
-        @Override
-        protected void finalize() throws Throwable {
+        void clear() {
             if (_mp_d != 0) {
                 mpz_clear(this);
+                _mp_d = 0;
+                if (counted) {
+                    Metrics.integerFreed();
+                }
             }
         }
         
         int _mp_alloc;
         int _mp_size;
         @JniField(cast="mp_limb_t *") long _mp_d;
+        
+        // whether the initialization was counted, so that the clear is counted too
+        @JniField(flags={FIELD_SKIP}) private final boolean counted;
     }
 }	
@@ -0,0 +1,101 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import java.math.RoundingMode;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Records slow operations as JDK Flight Recorder events, so that the time
+ * spent in a single high-precision operation or conversion can be attributed
+ * to it. Callers call {@link #begin()} before the operation and pass what it
+ * returned to {@link #end} afterwards.
+ *
+ * This is the implementation used on JDK 11 and later, which the
+ * multi-release jar selects in place of the one under src/main/java. It
+ * commits an {@code org.kframework.mpfr.Operation} event for each operation
+ * which takes longer than the threshold of that event: 10 ms unless the
+ * settings of the recording say otherwise, for instance with
+ * {@code -XX:StartFlightRecording:+org.kframework.mpfr.Operation#threshold=1ms}
+ * (the {@code +} is needed because the event is registered after the
+ * recording starts).
+ * While no recording enables the event, {@link #begin()} allocates nothing.
+ *
+ * @author Dwight Guth
+ */
+final class Events {
+    private Events() {}
+
+    @Name("org.kframework.mpfr.Operation")
+    @Label("BigFloat Operation")
+    @Category("MPFR")
+    @Description("An arithmetic operation, conversion, parse or format of a BigFloat")
+    @Threshold("10 ms")
+    @StackTrace(true)
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Precision")
+        @DataAmount(DataAmount.BITS)
+        int precision;
+
+        @Label("Rounding Mode")
+        String roundingMode;
+    }
+
+    // null if the event cannot be registered, e.g. if JFR is not available
+    private static final EventType TYPE = eventType();
+
+    private static EventType eventType() {
+        try {
+            return EventType.getEventType(OperationEvent.class);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an event which has begun, or null if the event is not being
+     * recorded.
+     */
+    static Object begin() {
+        if (TYPE == null || !TYPE.isEnabled()) {
+            return null;
+        }
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event returned by {@link #begin()} and records it if it took
+     * long enough.
+     * @param event the event, which may be null.
+     * @param operation the name of the operation.
+     * @param precision the precision of the result or operand, in bits.
+     * @param roundingMode the rounding mode, or null if the operation does
+     * not round.
+     */
+    static void end(Object event, String operation, int precision, RoundingMode roundingMode) {
+        if (event == null) {
+            return;
+        }
+        OperationEvent e = (OperationEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.operation = operation;
+            e.precision = precision;
+            e.roundingMode = roundingMode == null ? null : roundingMode.name();
+            e.commit();
+        }
+    }
+}
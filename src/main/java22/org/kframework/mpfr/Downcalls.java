@@ -0,0 +1,292 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static java.lang.foreign.ValueLayout.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.Optional;
+
+/**
+ * The {@link NativeBackend} used on JDK 22 and later whenever it can be
+ * linked, which calls into the native library without going through JNI.
+ *
+ * Each method makes a java.lang.foreign downcall to the mpfr_java_foreign_*
+ * function of the same name, exported by the library which HawtJNI has
+ * already loaded. Since an mpfr_t is only ever an address in Java, no memory
+ * segments are needed: addresses are passed as 64-bit integers, and the
+ * downcalls are only linked where both pointers and mpfr_exp_t are 64 bits
+ * wide. The operations whose cost is at most linear in the precision are
+ * linked as critical, without a thread state transition; multiplication and
+ * division, which may run for a long time at high precision, are not.
+ *
+ * @author Dwight Guth
+ */
+final class Downcalls extends NativeBackend {
+    private Downcalls() {}
+
+    private static final ValueLayout PTR = JAVA_LONG;
+    private static final ValueLayout RND = JAVA_INT;
+    private static final ValueLayout EXP = JAVA_LONG;
+
+    private static final boolean LP64 = ADDRESS.byteSize() == 8 && mpfr.MPFR_EXP_SIZE == 8;
+
+    private static final MethodHandle ROUND = downcall("round", true, JAVA_INT, PTR, JAVA_INT, RND,
+            EXP, EXP);
+    private static final MethodHandle NEXT = downcall("next", true, JAVA_INT, PTR, PTR, JAVA_INT,
+            EXP, EXP);
+    private static final MethodHandle ADD = downcall("add", true, JAVA_INT, PTR, PTR, PTR, RND, EXP,
+            EXP);
+    private static final MethodHandle SUB = downcall("sub", true, JAVA_INT, PTR, PTR, PTR, RND, EXP,
+            EXP);
+    private static final MethodHandle MUL = downcall("mul", false, JAVA_INT, PTR, PTR, PTR, RND,
+            EXP, EXP);
+    private static final MethodHandle DIV = downcall("div", false, JAVA_INT, PTR, PTR, PTR, RND,
+            EXP, EXP);
+    private static final MethodHandle FMA = downcall("fma", false, JAVA_INT, PTR, PTR, PTR, PTR,
+            RND, EXP, EXP);
+    private static final MethodHandle FMS = downcall("fms", false, JAVA_INT, PTR, PTR, PTR, PTR,
+            RND, EXP, EXP);
+    private static final MethodHandle FMMA = downcall("fmma", false, JAVA_INT, PTR, PTR, PTR, PTR,
+            PTR, JAVA_INT, RND, EXP, EXP);
+    private static final MethodHandle SET = downcall("set", true, JAVA_INT, PTR, PTR, RND, EXP,
+            EXP);
+    private static final MethodHandle SET_SJ = downcall("set_sj", true, JAVA_INT, PTR, JAVA_LONG,
+            RND, EXP, EXP);
+    private static final MethodHandle ADD_SJ = downcall("add_sj", true, JAVA_INT, PTR, PTR,
+            JAVA_LONG, RND, EXP, EXP);
+    private static final MethodHandle SUB_SJ = downcall("sub_sj", true, JAVA_INT, PTR, PTR,
+            JAVA_LONG, RND, EXP, EXP);
+    private static final MethodHandle MUL_SJ = downcall("mul_sj", true, JAVA_INT, PTR, PTR,
+            JAVA_LONG, RND, EXP, EXP);
+    private static final MethodHandle DIV_SJ = downcall("div_sj", true, JAVA_INT, PTR, PTR,
+            JAVA_LONG, RND, EXP, EXP);
+    private static final MethodHandle CMP_SJ = downcall("cmp_sj", true, JAVA_INT, PTR, JAVA_LONG);
+    private static final MethodHandle CMP_TOTAL = downcall("cmp_total", true, JAVA_INT, PTR, PTR);
+    private static final MethodHandle GET_D = downcall("get_d", true, JAVA_DOUBLE, PTR, RND);
+    private static final MethodHandle SET_D = downcall("set_d", true, JAVA_INT, PTR, JAVA_DOUBLE,
+            RND);
+    private static final MethodHandle CMP_D = downcall("cmp_d", true, JAVA_INT, PTR, JAVA_DOUBLE);
+
+    /**
+     * @return the downcalls, or null if any function cannot be linked, for
+     * instance because native access is denied or the library was loaded by
+     * another class loader.
+     */
+    static Downcalls link() {
+        if (ROUND != null && NEXT != null && ADD != null && SUB != null && MUL != null &&
+                DIV != null && FMA != null && FMS != null && FMMA != null && SET != null &&
+                SET_SJ != null && ADD_SJ != null && SUB_SJ != null && MUL_SJ != null &&
+                DIV_SJ != null && CMP_SJ != null && CMP_TOTAL != null && GET_D != null &&
+                SET_D != null && CMP_D != null) {
+            return new Downcalls();
+        }
+        return null;
+    }
+
+    /**
+     * @return a downcall handle for mpfr_java_foreign_{@code name}, or null if
+     * it cannot be linked.
+     */
+    private static MethodHandle downcall(String name, boolean critical, ValueLayout result,
+            MemoryLayout... args) {
+        if (!LP64) {
+            return null;
+        }
+        try {
+            Optional<MemorySegment> symbol =
+                    SymbolLookup.loaderLookup().find("mpfr_java_foreign_" + name);
+            if (symbol.isEmpty()) {
+                return null;
+            }
+            FunctionDescriptor descriptor = FunctionDescriptor.of(result, args);
+            if (critical) {
+                return Linker.nativeLinker().downcallHandle(symbol.get(), descriptor,
+                        Linker.Option.critical(false));
+            }
+            return Linker.nativeLinker().downcallHandle(symbol.get(), descriptor);
+        } catch (RuntimeException e) {
+            // e.g. IllegalCallerException if native access is not enabled
+            return null;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new AssertionError(t);
+    }
+
+    @Override
+    int mpfr_java_round(long x, int t, int rnd, long emin, long emax) {
+        try {
+            return (int) ROUND.invokeExact(x, t, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_next(long rop, long op, boolean up, long emin, long emax) {
+        try {
+            return (int) NEXT.invokeExact(rop, op, up ? 1 : 0, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_add(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) ADD.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_sub(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) SUB.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_mul(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) MUL.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_div(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) DIV.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_fma(long rop, long op1, long op2, long op3, int rnd, long emin,
+            long emax) {
+        try {
+            return (int) FMA.invokeExact(rop, op1, op2, op3, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_fms(long rop, long op1, long op2, long op3, int rnd, long emin,
+            long emax) {
+        try {
+            return (int) FMS.invokeExact(rop, op1, op2, op3, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_fmma(long rop, long op1, long op2, long op3, long op4, boolean sub,
+            int rnd, long emin, long emax) {
+        try {
+            return (int) FMMA.invokeExact(rop, op1, op2, op3, op4, sub ? 1 : 0, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_set(long rop, long op, int rnd, long emin, long emax) {
+        try {
+            return (int) SET.invokeExact(rop, op, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_set_sj(long rop, long op, int rnd, long emin, long emax) {
+        try {
+            return (int) SET_SJ.invokeExact(rop, op, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_add_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) ADD_SJ.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_sub_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) SUB_SJ.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_mul_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) MUL_SJ.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_div_sj(long rop, long op1, long op2, int rnd, long emin, long emax) {
+        try {
+            return (int) DIV_SJ.invokeExact(rop, op1, op2, rnd, emin, emax);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_cmp_sj(long op1, long op2) {
+        try {
+            return (int) CMP_SJ.invokeExact(op1, op2);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_java_cmp_total(long op1, long op2) {
+        try {
+            return (int) CMP_TOTAL.invokeExact(op1, op2);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    double mpfr_get_d(long op, int rnd) {
+        try {
+            return (double) GET_D.invokeExact(op, rnd);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_set_d(long rop, double op, int rnd) {
+        try {
+            return (int) SET_D.invokeExact(rop, op, rnd);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    @Override
+    int mpfr_cmp_d(long op1, double op2) {
+        try {
+            return (int) CMP_D.invokeExact(op1, op2);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+/**
+ * Chooses the {@link NativeBackend}.
+ *
+ * This is the implementation used on JDK 22 and later, which the
+ * multi-release jar selects in place of the one under src/main/java. It
+ * chooses the {@link Downcalls} if they can be linked, and the
+ * {@link JniBackend} otherwise.
+ *
+ * @author Dwight Guth
+ */
+final class NativeBackends {
+    private NativeBackends() {}
+
+    static NativeBackend create() {
+        NativeBackend downcalls = Downcalls.link();
+        return downcalls != null ? downcalls : new JniBackend();
+    }
+}
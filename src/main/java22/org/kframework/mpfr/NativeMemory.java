@@ -0,0 +1,50 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static java.lang.foreign.ValueLayout.*;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Reads and writes native memory at raw addresses, so that the fields of the
+ * structs allocated by native code can be accessed without calling into it.
+ *
+ * This is the implementation used on JDK 22 and later, which the
+ * multi-release jar selects in place of the one under src/main/java, since
+ * JDK 23 deprecates the memory accessors of {@code sun.misc.Unsafe} for
+ * removal. It accesses memory through a segment which starts at address zero
+ * and spans the whole address space, so an address is its own offset.
+ * Creating that segment is a restricted method, which like the
+ * {@link Downcalls} needs native access.
+ *
+ * @author Dwight Guth
+ *
+ */
+final class NativeMemory {
+    private NativeMemory() {}
+
+    private static final MemorySegment ALL = MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+    static int getInt(long address) {
+        return ALL.get(JAVA_INT, address);
+    }
+
+    static long getLong(long address) {
+        return ALL.get(JAVA_LONG, address);
+    }
+
+    /**
+     * @return the pointer stored at {@code address}.
+     */
+    static long getAddress(long address) {
+        return ALL.get(ADDRESS, address).address();
+    }
+
+    static void putInt(long address, int value) {
+        ALL.set(JAVA_INT, address, value);
+    }
+
+    static void putLong(long address, long value) {
+        ALL.set(JAVA_LONG, address, value);
+    }
+}
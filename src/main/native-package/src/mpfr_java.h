@@ -2,6 +2,1120 @@
 #ifndef INCLUDED_PLATFORM_H
 #define INCLUDED_PLATFORM_H
 
+#include <limits.h>
+#include <stddef.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+/* declares mpfr_set_sj */
+#define MPFR_USE_INTMAX_T
 #include <mpfr.h>
 
+/*
+ * Allocates and frees native memory through the allocator defined in
+ * mpfr_java_alloc.c, which counts the bytes allocated. mpfr_java_allocate
+ * returns NULL if the memory could not be allocated or would exceed the quota
+ * set with mpfr_java_set_quota, and mpfr_java_release must be passed the same
+ * size as the block was allocated with.
+ */
+void *mpfr_java_allocate(size_t size);
+void mpfr_java_release(void *p, size_t size);
+void mpfr_java_install_allocator(void);
+int64_t mpfr_java_allocated_bytes(void);
+int64_t mpfr_java_get_quota(void);
+void mpfr_java_set_quota(int64_t bytes);
+int64_t mpfr_java_quota_failures(void);
+
+/*
+ * The size of the block allocated by mpfr_java_new for an mpfr_t of precision
+ * prec: the struct, immediately followed by its limbs.
+ */
+static inline size_t mpfr_java_size(mpfr_prec_t prec) {
+    return sizeof(__mpfr_struct) + mpfr_custom_get_size(prec);
+}
+
+/*
+ * Allocates an mpfr_t of precision prec and its limbs in a single block, so
+ * that Java can hold the address of the struct instead of a copy of its
+ * fields, and sets it to NaN as mpfr_init2 does. The struct must be freed with
+ * mpfr_java_free, never with mpfr_clear, and its precision must not be changed.
+ * Returns NULL if the memory could not be allocated.
+ */
+static inline mpfr_ptr mpfr_java_new(mpfr_prec_t prec) {
+    mpfr_ptr x = (mpfr_ptr) mpfr_java_allocate(mpfr_java_size(prec));
+    if (x == NULL) {
+        return NULL;
+    }
+    mpfr_custom_init(x + 1, prec);
+    mpfr_custom_init_set(x, MPFR_NAN_KIND, 0, prec, x + 1);
+    return x;
+}
+
+static inline void mpfr_java_free(mpfr_ptr x) {
+    mpfr_java_release(x, mpfr_java_size(mpfr_get_prec(x)));
+}
+
+/*
+ * Rounds x, the result of an operation performed in the default exponent range
+ * with ternary value t, to the exponent range [emin, emax], emulating IEEE
+ * subnormal arithmetic. The exponent range in effect on entry is restored
+ * before returning, so that a BigFloat operation can be carried out with a
+ * single call into native code. Returns the new ternary value.
+ */
+static inline int mpfr_java_round(mpfr_ptr x, int t, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_exp_t old_emin = mpfr_get_emin();
+    mpfr_exp_t old_emax = mpfr_get_emax();
+    /* inside an ExponentRangeScope, the range is usually already [emin, emax] */
+    if (old_emin != emin) {
+        mpfr_set_emin(emin);
+    }
+    if (old_emax != emax) {
+        mpfr_set_emax(emax);
+    }
+    t = mpfr_check_range(x, t, rnd);
+    t = mpfr_subnormalize(x, t, rnd);
+    if (old_emin != emin) {
+        mpfr_set_emin(old_emin);
+    }
+    if (old_emax != emax) {
+        mpfr_set_emax(old_emax);
+    }
+    return t;
+}
+
+/*
+ * Sets rop to the number adjacent to op, in the direction of positive infinity
+ * if up is nonzero and of negative infinity otherwise, in the exponent range
+ * [emin, emax]. Returns nonzero without computing it if op is not in that
+ * exponent range.
+ */
+static inline int mpfr_java_next(mpfr_ptr rop, mpfr_srcptr op, int up,
+        mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_exp_t old_emin = mpfr_get_emin();
+    mpfr_exp_t old_emax = mpfr_get_emax();
+    int t = mpfr_set(rop, op, MPFR_RNDN);
+    mpfr_set_emin(emin);
+    mpfr_set_emax(emax);
+    t = mpfr_check_range(rop, t, MPFR_RNDN);
+    if (t == 0) {
+        if (up) {
+            mpfr_nextabove(rop);
+        } else {
+            mpfr_nextbelow(rop);
+        }
+        mpfr_subnormalize(rop, 0, MPFR_RNDN);
+    }
+    mpfr_set_emin(old_emin);
+    mpfr_set_emax(old_emax);
+    return t;
+}
+
+/*
+ * Extends the exponent range as far as possible, so that the exact products
+ * of operands in any exponent range can be computed, saving the previous
+ * range in *emin and *emax.
+ */
+static inline void mpfr_java_widen_range(mpfr_exp_t *emin, mpfr_exp_t *emax) {
+    *emin = mpfr_get_emin();
+    *emax = mpfr_get_emax();
+    mpfr_set_emin(mpfr_get_emin_min());
+    mpfr_set_emax(mpfr_get_emax_max());
+}
+
+static inline void mpfr_java_restore_range(mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_set_emin(emin);
+    mpfr_set_emax(emax);
+}
+
+/*
+ * Defines mpfr_java_<op>, which performs the binary operation mpfr_<op> and
+ * then rounds the result as in mpfr_java_round.
+ */
+#define MPFR_JAVA_ROUNDED_BINARY(op) \
+static inline int mpfr_java_##op(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, \
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) { \
+    return mpfr_java_round(rop, mpfr_##op(rop, op1, op2, rnd), rnd, emin, emax); \
+}
+
+MPFR_JAVA_ROUNDED_BINARY(add)
+MPFR_JAVA_ROUNDED_BINARY(sub)
+MPFR_JAVA_ROUNDED_BINARY(mul)
+MPFR_JAVA_ROUNDED_BINARY(div)
+
+/*
+ * Sets rop to op1 * op2 + op3 with a single rounding, and then rounds the
+ * result as in mpfr_java_round.
+ */
+static inline int mpfr_java_fma(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, mpfr_srcptr op3,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_round(rop, mpfr_fma(rop, op1, op2, op3, rnd), rnd, emin, emax);
+}
+
+/*
+ * Sets rop to (op1 * op2) - op3, and then rounds the result as in
+ * mpfr_java_round.
+ */
+static inline int mpfr_java_fms(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, mpfr_srcptr op3,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_round(rop, mpfr_fms(rop, op1, op2, op3, rnd), rnd, emin, emax);
+}
+
+/*
+ * Sets rop to (op1 * op2) + (op3 * op4), or to (op1 * op2) - (op3 * op4) if
+ * sub is nonzero, rounded only once, and then rounds the result as in
+ * mpfr_java_round. The products are computed exactly into temporaries,
+ * because mpfr_fmma is not available before MPFR 4.
+ */
+static inline int mpfr_java_fmma(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2,
+        mpfr_srcptr op3, mpfr_srcptr op4, int sub,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_t p, q;
+    mpfr_exp_t old_emin, old_emax;
+    int t;
+    mpfr_init2(p, mpfr_get_prec(op1) + mpfr_get_prec(op2));
+    mpfr_init2(q, mpfr_get_prec(op3) + mpfr_get_prec(op4));
+    mpfr_java_widen_range(&old_emin, &old_emax);
+    mpfr_mul(p, op1, op2, MPFR_RNDN);
+    mpfr_mul(q, op3, op4, MPFR_RNDN);
+    t = sub ? mpfr_sub(rop, p, q, rnd) : mpfr_add(rop, p, q, rnd);
+    mpfr_java_restore_range(old_emin, old_emax);
+    mpfr_clear(p);
+    mpfr_clear(q);
+    return mpfr_java_round(rop, t, rnd, emin, emax);
+}
+
+/*
+ * Allocates an mpfr_t as in mpfr_java_new and sets it to d, which must be
+ * exactly representable in the precision, so that a value computed in Java
+ * costs one native call. The range is widened while setting it, so that the
+ * value is exact whatever exponent range is current.
+ */
+static inline mpfr_ptr mpfr_java_new_d(mpfr_prec_t prec, double d) {
+    mpfr_exp_t old_emin, old_emax;
+    mpfr_ptr x = mpfr_java_new(prec);
+    if (x != NULL) {
+        mpfr_java_widen_range(&old_emin, &old_emax);
+        mpfr_set_d(x, d, MPFR_RNDN);
+        mpfr_java_restore_range(old_emin, old_emax);
+    }
+    return x;
+}
+
+/*
+ * Sets rop to op, and then rounds the result as in mpfr_java_round.
+ */
+static inline int mpfr_java_set(mpfr_ptr rop, mpfr_srcptr op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_round(rop, mpfr_set(rop, op, rnd), rnd, emin, emax);
+}
+
+/* returned by mpfr_java_strtofr if the string is not a number */
+#define MPFR_JAVA_NOT_A_NUMBER (INT_MIN + 1)
+
+/*
+ * Sets rop to the number in the first len bytes of s, which must be followed
+ * by a NUL byte, read in the specified base, and then rounds the result as in
+ * mpfr_java_round. Returns the ternary value, or MPFR_JAVA_NOT_A_NUMBER if
+ * those bytes are not exactly a number.
+ */
+static inline int mpfr_java_strtofr(mpfr_ptr rop, const char *s, int len, int base,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    char *end;
+    int t = mpfr_strtofr(rop, s, &end, base, rnd);
+    if (end != s + len) {
+        return MPFR_JAVA_NOT_A_NUMBER;
+    }
+    return mpfr_java_round(rop, t, rnd, emin, emax);
+}
+
+/* returned by mpfr_java_round_const if the approximation is not accurate enough */
+#define MPFR_JAVA_CANNOT_ROUND INT_MAX
+
+/*
+ * Sets rop to the correct rounding of a positive irrational constant, given
+ * an approximation op of it rounded to nearest, and then rounds the result as
+ * in mpfr_java_round. Returns MPFR_JAVA_CANNOT_ROUND without modifying rop if
+ * op is not precise enough to determine the result and its ternary value.
+ */
+static inline int mpfr_java_round_const(mpfr_ptr rop, mpfr_srcptr op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_prec_t prec = mpfr_get_prec(rop);
+    mpfr_t t;
+    int ternary;
+    /* the constant is strictly between two consecutive numbers with one more bit */
+    if (!mpfr_can_round(op, mpfr_get_prec(op), MPFR_RNDN, MPFR_RNDZ, prec + 1)) {
+        return MPFR_JAVA_CANNOT_ROUND;
+    }
+    mpfr_init2(t, prec + 1);
+    mpfr_set(t, op, MPFR_RNDZ);
+    /* so any number between them, such as their midpoint, rounds the same way */
+    mpfr_prec_round(t, prec + 2, MPFR_RNDN);
+    mpfr_nextabove(t);
+    ternary = mpfr_set(rop, t, rnd);
+    mpfr_clear(t);
+    return mpfr_java_round(rop, ternary, rnd, emin, emax);
+}
+
+/*
+ * Sets rop to the 64-bit integer op, and then rounds the result as in
+ * mpfr_java_round.
+ */
+static inline int mpfr_java_set_sj(mpfr_ptr rop, int64_t op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_round(rop, mpfr_set_sj(rop, op, rnd), rnd, emin, emax);
+}
+
+/*
+ * Defines mpfr_java_<op>_sj, which performs the binary operation mpfr_<op>_si
+ * with a 64-bit integer second operand and then rounds the result as in
+ * mpfr_java_round. On platforms where a C long is narrower than 64 bits,
+ * operands which do not fit in a long are first copied exactly to a
+ * temporary mpfr_t.
+ */
+#define MPFR_JAVA_ROUNDED_BINARY_SJ(op) \
+static inline int mpfr_java_##op##_sj(mpfr_ptr rop, mpfr_srcptr op1, int64_t op2, \
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) { \
+    int t; \
+    if (op2 >= LONG_MIN && op2 <= LONG_MAX) { \
+        t = mpfr_##op##_si(rop, op1, (long) op2, rnd); \
+    } else { \
+        mpfr_t tmp; \
+        mpfr_init2(tmp, 64); \
+        mpfr_set_sj(tmp, op2, MPFR_RNDN); \
+        t = mpfr_##op(rop, op1, tmp, rnd); \
+        mpfr_clear(tmp); \
+    } \
+    return mpfr_java_round(rop, t, rnd, emin, emax); \
+}
+
+MPFR_JAVA_ROUNDED_BINARY_SJ(add)
+MPFR_JAVA_ROUNDED_BINARY_SJ(sub)
+MPFR_JAVA_ROUNDED_BINARY_SJ(mul)
+MPFR_JAVA_ROUNDED_BINARY_SJ(div)
+
+/*
+ * Compares op with the 64-bit integer i as mpfr_cmp_si does, except that NaN
+ * is greater than every integer.
+ */
+static inline int mpfr_java_cmp_sj(mpfr_srcptr op, int64_t i) {
+    int r;
+    mpfr_t tmp;
+    if (mpfr_nan_p(op)) {
+        return 1;
+    }
+    if (i >= LONG_MIN && i <= LONG_MAX) {
+        return mpfr_cmp_si(op, (long) i);
+    }
+    mpfr_init2(tmp, 64);
+    mpfr_set_sj(tmp, i, MPFR_RNDN);
+    r = mpfr_cmp(op, tmp);
+    mpfr_clear(tmp);
+    return r;
+}
+
+/*
+ * Compares op1 and op2 in the total order of BigFloat.compareTo: NaN is
+ * greater than every other value, -0 is less than +0, and equal values are
+ * ordered by precision. Returns a negative, zero or positive value.
+ */
+static inline int mpfr_java_cmp_total(mpfr_srcptr op1, mpfr_srcptr op2) {
+    int c;
+    if (mpfr_nan_p(op1) || mpfr_nan_p(op2)) {
+        c = !mpfr_nan_p(op2) - !mpfr_nan_p(op1);
+    } else if (mpfr_zero_p(op1) && mpfr_zero_p(op2)) {
+        c = !mpfr_signbit(op1) - !mpfr_signbit(op2);
+    } else {
+        c = mpfr_cmp(op1, op2);
+    }
+    if (c == 0) {
+        c = (mpfr_get_prec(op1) > mpfr_get_prec(op2)) - (mpfr_get_prec(op1) < mpfr_get_prec(op2));
+    }
+    return c;
+}
+
+/*
+ * The operations which can be applied to whole arrays by mpfr_java_map_unary
+ * and mpfr_java_map_binary. These must match the codes of
+ * BigFloatArrays.UnaryOperation and BigFloatArrays.BinaryOperation.
+ */
+static inline int mpfr_java_unary(int fn, mpfr_ptr rop, mpfr_srcptr op, mpfr_rnd_t rnd) {
+    switch (fn) {
+    case 0: return mpfr_abs(rop, op, rnd);
+    case 1: return mpfr_neg(rop, op, rnd);
+    case 2: return mpfr_root(rop, op, 2, rnd);
+    case 3: return mpfr_root(rop, op, 3, rnd);
+    case 4: return mpfr_exp(rop, op, rnd);
+    case 5: return mpfr_log(rop, op, rnd);
+    case 6: return mpfr_sin(rop, op, rnd);
+    case 7: return mpfr_cos(rop, op, rnd);
+    case 8: return mpfr_tan(rop, op, rnd);
+    case 9: return mpfr_asin(rop, op, rnd);
+    case 10: return mpfr_acos(rop, op, rnd);
+    case 11: return mpfr_atan(rop, op, rnd);
+    case 12: return mpfr_sinh(rop, op, rnd);
+    case 13: return mpfr_cosh(rop, op, rnd);
+    case 14: return mpfr_tanh(rop, op, rnd);
+    case 15: return mpfr_rint(rop, op, rnd);
+    default: mpfr_set_nan(rop); return 0;
+    }
+}
+
+static inline int mpfr_java_binary(int fn, mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, mpfr_rnd_t rnd) {
+    switch (fn) {
+    case 0: return mpfr_add(rop, op1, op2, rnd);
+    case 1: return mpfr_sub(rop, op1, op2, rnd);
+    case 2: return mpfr_mul(rop, op1, op2, rnd);
+    case 3: return mpfr_div(rop, op1, op2, rnd);
+    case 4: return mpfr_pow(rop, op1, op2, rnd);
+    case 5: return mpfr_min(rop, op1, op2, rnd);
+    case 6: return mpfr_max(rop, op1, op2, rnd);
+    default: mpfr_set_nan(rop); return 0;
+    }
+}
+
+/*
+ * An mpfr_t packed into an array of 64-bit integers by mpfr.mpfr_pack, so that
+ * a whole array of them can be passed to native code at once.
+ */
+#define MPFR_JAVA_PACKED_SIZE 4
+
+static inline void mpfr_java_unpack(mpfr_ptr x, const int64_t *packed) {
+    x->_mpfr_prec = (mpfr_prec_t) packed[0];
+    x->_mpfr_sign = (mpfr_sign_t) packed[1];
+    x->_mpfr_exp = (mpfr_exp_t) packed[2];
+    x->_mpfr_d = (mp_limb_t *) (intptr_t) packed[3];
+}
+
+static inline void mpfr_java_repack(int64_t *packed, mpfr_srcptr x) {
+    packed[1] = x->_mpfr_sign;
+    packed[2] = x->_mpfr_exp;
+}
+
+/*
+ * Applies the unary operation fn to each of the n packed mpfr_t in op, storing
+ * the results in the corresponding packed mpfr_t in rop, each rounded as in
+ * mpfr_java_round. Returns nonzero if any of the results is inexact.
+ */
+static inline int mpfr_java_map_unary(int fn, int64_t *rop, const int64_t *op, int n,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct r, x;
+    int i, inexact = 0;
+    for (i = 0; i < n; i++) {
+        mpfr_java_unpack(&r, rop + i * MPFR_JAVA_PACKED_SIZE);
+        mpfr_java_unpack(&x, op + i * MPFR_JAVA_PACKED_SIZE);
+        inexact |= mpfr_java_round(&r, mpfr_java_unary(fn, &r, &x, rnd), rnd, emin, emax);
+        mpfr_java_repack(rop + i * MPFR_JAVA_PACKED_SIZE, &r);
+    }
+    return inexact;
+}
+
+/*
+ * Applies the binary operation fn elementwise as in mpfr_java_map_unary. The
+ * i-th operands are found at index i * stride of op1 and op2, so that a stride
+ * of 0 applies the operation to the same operand every time.
+ */
+static inline int mpfr_java_map_binary(int fn, int64_t *rop, const int64_t *op1, int stride1,
+        const int64_t *op2, int stride2, int n, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct r, x, y;
+    int i, inexact = 0;
+    for (i = 0; i < n; i++) {
+        mpfr_java_unpack(&r, rop + i * MPFR_JAVA_PACKED_SIZE);
+        mpfr_java_unpack(&x, op1 + i * stride1 * MPFR_JAVA_PACKED_SIZE);
+        mpfr_java_unpack(&y, op2 + i * stride2 * MPFR_JAVA_PACKED_SIZE);
+        inexact |= mpfr_java_round(&r, mpfr_java_binary(fn, &r, &x, &y, rnd), rnd, emin, emax);
+        mpfr_java_repack(rop + i * MPFR_JAVA_PACKED_SIZE, &r);
+    }
+    return inexact;
+}
+
+/*
+ * Stores a sort key for each of the n packed mpfr_t in op in three consecutive
+ * elements of keys: a rank (-Inf, negative, -0, +0, positive, +Inf, NaN), the
+ * exponent and the leading 64 bits of the significand, the last two negated
+ * for negative numbers. Comparing keys lexicographically, the last element as
+ * an unsigned integer, agrees with mpfr_java_cmp_total whenever they differ.
+ */
+static inline void mpfr_java_sort_keys(int64_t *keys, const int64_t *op, int n) {
+    __mpfr_struct x;
+    int i;
+    for (i = 0; i < n; i++) {
+        int negative;
+        int64_t rank, exp = 0;
+        uint64_t bits = 0;
+        mpfr_java_unpack(&x, op + i * MPFR_JAVA_PACKED_SIZE);
+        negative = mpfr_signbit(&x) != 0;
+        if (mpfr_nan_p(&x)) {
+            rank = 6;
+        } else if (mpfr_inf_p(&x)) {
+            rank = negative ? 0 : 5;
+        } else if (mpfr_zero_p(&x)) {
+            rank = negative ? 2 : 3;
+        } else {
+            long k = (mpfr_get_prec(&x) + GMP_NUMB_BITS - 1) / GMP_NUMB_BITS - 1;
+            int shift = 64;
+            for (; shift > 0 && k >= 0; k--) {
+                shift -= GMP_NUMB_BITS;
+                bits |= (uint64_t)x._mpfr_d[k] << shift;
+            }
+            exp = mpfr_get_exp(&x);
+            rank = negative ? 1 : 4;
+            if (negative) {
+                exp = -exp;
+                bits = ~bits;
+            }
+        }
+        keys[3 * i] = rank;
+        keys[3 * i + 1] = exp;
+        keys[3 * i + 2] = (int64_t) bits;
+    }
+}
+
+/*
+ * Returned instead of a ternary value if native memory could not be allocated.
+ * Ternary values are always -1, 0 or 1 in practice, so this cannot be confused
+ * with one.
+ */
+#define MPFR_JAVA_NOMEM INT_MIN
+
+/*
+ * Sets rop to the sum of the n packed mpfr_t in tab, rounded once with
+ * mpfr_sum and then as in mpfr_java_round.
+ */
+static inline int mpfr_java_sum(mpfr_ptr rop, const int64_t *tab, int n,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    int i, t;
+    __mpfr_struct *xs = mpfr_java_allocate((size_t) n * sizeof(__mpfr_struct));
+    mpfr_ptr *ps = mpfr_java_allocate((size_t) n * sizeof(mpfr_ptr));
+    if (xs == NULL || ps == NULL) {
+        mpfr_java_release(xs, (size_t) n * sizeof(__mpfr_struct));
+        mpfr_java_release(ps, (size_t) n * sizeof(mpfr_ptr));
+        return MPFR_JAVA_NOMEM;
+    }
+    for (i = 0; i < n; i++) {
+        mpfr_java_unpack(&xs[i], tab + i * MPFR_JAVA_PACKED_SIZE);
+        ps[i] = &xs[i];
+    }
+    t = mpfr_sum(rop, ps, n, rnd);
+    mpfr_java_release(xs, (size_t) n * sizeof(__mpfr_struct));
+    mpfr_java_release(ps, (size_t) n * sizeof(mpfr_ptr));
+    return mpfr_java_round(rop, t, rnd, emin, emax);
+}
+
+/*
+ * Writes the representation of x used by BigFloat.toString to buf, which has
+ * room for size bytes, followed by a NUL byte. Returns the length of the
+ * representation; if it is not less than size, the representation was
+ * truncated.
+ */
+static inline int mpfr_java_format(char *buf, int size, mpfr_srcptr x) {
+    if (mpfr_inf_p(x)) {
+        return snprintf(buf, size, "%s", mpfr_signbit(x) ? "-Infinity" : "Infinity");
+    } else if (mpfr_nan_p(x)) {
+        return snprintf(buf, size, "%s", "NaN");
+    }
+    return mpfr_snprintf(buf, size, "%Re", x);
+}
+
+/*
+ * Stores in digits the n significant decimal digits of x rounded in direction
+ * rnd, as in mpfr_get_str, and returns nonzero if they are read back as x when
+ * rounded to nearest to the precision of y and then as in mpfr_java_round.
+ * s must have room for n + 32 bytes.
+ */
+static inline int mpfr_java_round_trips(char *digits, mpfr_exp_t *e, char *s, mpfr_ptr y,
+        mpfr_srcptr x, int n, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    int t;
+    mpfr_get_str(digits, e, 10, n, x, rnd);
+    sprintf(s, "%se%ld", digits, (long) (*e - n));
+    t = mpfr_strtofr(y, s, NULL, 10, MPFR_RNDN);
+    mpfr_java_round(y, t, MPFR_RNDN, emin, emax);
+    return mpfr_equal_p(x, y);
+}
+
+/*
+ * Writes to buf, as in mpfr_java_format, the representation of x in the same
+ * notation but with the fewest significant digits which are read back as x
+ * when rounded to nearest to the precision of x and then as in
+ * mpfr_java_round. x must be representable in that exponent range. Returns
+ * the length of the representation, or MPFR_JAVA_NOMEM.
+ */
+static inline int mpfr_java_format_shortest(char *buf, int size, mpfr_srcptr x,
+        mpfr_exp_t emin, mpfr_exp_t emax) {
+    char small[2 * 64];
+    char *digits, *s;
+    const char *d;
+    mpfr_t y;
+    mpfr_exp_t e;
+    mpfr_prec_t p = mpfr_get_prec(x);
+    /* at least 1 + ceil(p * log10(2)) digits, which always read back as x */
+    int max = 2 + (int) (p * 1234 / 4096);
+    int lo = 1, hi = max, n, len;
+    mpfr_rnd_t rnd = MPFR_RNDN;
+    if (!mpfr_number_p(x)) {
+        return mpfr_java_format(buf, size, x);
+    } else if (mpfr_zero_p(x)) {
+        return snprintf(buf, size, "%s", mpfr_signbit(x) ? "-0e+00" : "0e+00");
+    }
+    if (max + 32 <= 64) {
+        digits = small;
+    } else {
+        digits = mpfr_java_allocate(2 * ((size_t) max + 32));
+        if (digits == NULL) {
+            return MPFR_JAVA_NOMEM;
+        }
+    }
+    s = digits + max + 32;
+    mpfr_init2(y, p);
+    /*
+     * Some n-digit decimal reads back as x if and only if the nearest one does,
+     * except that if x is a power of two, the numbers which read back as x
+     * extend further away from zero than towards it, so the nearest n-digit
+     * decimal away from zero may read back as x when the nearest does not.
+     * Whether some n-digit decimal reads back as x is monotonic in n.
+     */
+    while (lo < hi) {
+        n = lo + (hi - lo) / 2;
+        if (mpfr_java_round_trips(digits, &e, s, y, x, n, MPFR_RNDN, emin, emax)
+                || (mpfr_min_prec(x) == 1
+                    && mpfr_java_round_trips(digits, &e, s, y, x, n, MPFR_RNDA, emin, emax))) {
+            hi = n;
+        } else {
+            lo = n + 1;
+        }
+    }
+    if (!mpfr_java_round_trips(digits, &e, s, y, x, lo, MPFR_RNDN, emin, emax)) {
+        rnd = MPFR_RNDA;
+    }
+    mpfr_get_str(digits, &e, 10, lo, x, rnd);
+    mpfr_clear(y);
+    d = digits[0] == '-' ? digits + 1 : digits;
+    len = snprintf(buf, size, "%s%c%s%se%c%02ld", d == digits ? "" : "-", d[0], lo > 1 ? "." : "",
+            d + 1, e - 1 < 0 ? '-' : '+', labs((long) (e - 1)));
+    if (digits != small) {
+        mpfr_java_release(digits, 2 * ((size_t) max + 32));
+    }
+    return len;
+}
+
+/*
+ * A BigFloatVector of n elements of precision prec is a single block of native
+ * memory holding an array of n exponents, an array of n signs, and then the
+ * significands of each element, each mpfr_custom_get_size(prec) bytes long.
+ */
+static inline size_t mpfr_java_vector_limbs_offset(int n) {
+    size_t header = (size_t) n * (sizeof(mpfr_exp_t) + sizeof(mpfr_sign_t));
+    return (header + sizeof(mp_limb_t) - 1) / sizeof(mp_limb_t) * sizeof(mp_limb_t);
+}
+
+static inline size_t mpfr_java_vector_size(int n, mpfr_prec_t prec) {
+    return mpfr_java_vector_limbs_offset(n) + (size_t) n * mpfr_custom_get_size(prec);
+}
+
+/*
+ * Sets x to refer to the i-th element of the vector v. x shares its
+ * significand with the vector; its sign and exponent must be written back
+ * with mpfr_java_vector_store if it is modified.
+ */
+static inline void mpfr_java_vector_load(mpfr_ptr x, void *v, int n, mpfr_prec_t prec, int i) {
+    char *base = (char *) v;
+    x->_mpfr_prec = prec;
+    x->_mpfr_exp = ((mpfr_exp_t *) base)[i];
+    x->_mpfr_sign = ((mpfr_sign_t *) (base + n * sizeof(mpfr_exp_t)))[i];
+    x->_mpfr_d = (mp_limb_t *) (base + mpfr_java_vector_limbs_offset(n)
+            + (size_t) i * mpfr_custom_get_size(prec));
+}
+
+static inline void mpfr_java_vector_store(void *v, int n, int i, mpfr_srcptr x) {
+    char *base = (char *) v;
+    ((mpfr_exp_t *) base)[i] = x->_mpfr_exp;
+    ((mpfr_sign_t *) (base + n * sizeof(mpfr_exp_t)))[i] = x->_mpfr_sign;
+}
+
+/*
+ * Allocates a vector of n elements of precision prec, each equal to positive
+ * zero. Returns NULL if the memory could not be allocated.
+ */
+static inline void *mpfr_java_vector_alloc(int n, mpfr_prec_t prec) {
+    __mpfr_struct x;
+    int i;
+    void *v = mpfr_java_allocate(mpfr_java_vector_size(n, prec));
+    if (v == NULL) {
+        return NULL;
+    }
+    for (i = 0; i < n; i++) {
+        mpfr_java_vector_load(&x, v, n, prec, i);
+        mpfr_custom_init(x._mpfr_d, prec);
+        mpfr_custom_init_set(&x, MPFR_ZERO_KIND, 0, prec, x._mpfr_d);
+        mpfr_java_vector_store(v, n, i, &x);
+    }
+    return v;
+}
+
+static inline void mpfr_java_vector_free(void *v, int n, mpfr_prec_t prec) {
+    mpfr_java_release(v, mpfr_java_vector_size(n, prec));
+}
+
+/*
+ * Copies the i-th element of the vector v into rop, which must have
+ * precision prec.
+ */
+static inline void mpfr_java_vector_get(mpfr_ptr rop, void *v, int n, mpfr_prec_t prec, int i) {
+    __mpfr_struct x;
+    mpfr_java_vector_load(&x, v, n, prec, i);
+    mpfr_set(rop, &x, MPFR_RNDN);
+}
+
+/*
+ * Sets the i-th element of the vector v to op, rounded as in mpfr_java_round.
+ */
+static inline int mpfr_java_vector_set(void *v, int n, mpfr_prec_t prec, int i, mpfr_srcptr op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct x;
+    int t;
+    mpfr_java_vector_load(&x, v, n, prec, i);
+    t = mpfr_java_round(&x, mpfr_set(&x, op, rnd), rnd, emin, emax);
+    mpfr_java_vector_store(v, n, i, &x);
+    return t;
+}
+
+/*
+ * Applies the unary operation fn to each element of the vector a, storing the
+ * results in the corresponding elements of the vector r, each rounded as in
+ * mpfr_java_round. r may be the same vector as a. Returns nonzero if any of
+ * the results is inexact.
+ */
+static inline int mpfr_java_vector_map_unary(int fn, void *r, mpfr_prec_t rprec,
+        void *a, mpfr_prec_t aprec, int n, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct rx, ax;
+    /* MPFR only supports overlapping operands which are the same struct */
+    mpfr_ptr x = a == r ? &rx : &ax;
+    int i, inexact = 0;
+    for (i = 0; i < n; i++) {
+        mpfr_java_vector_load(&rx, r, n, rprec, i);
+        mpfr_java_vector_load(x, a, n, aprec, i);
+        inexact |= mpfr_java_round(&rx, mpfr_java_unary(fn, &rx, x, rnd), rnd, emin, emax);
+        mpfr_java_vector_store(r, n, i, &rx);
+    }
+    return inexact;
+}
+
+/*
+ * Applies the binary operation fn elementwise as in mpfr_java_vector_map_unary.
+ * If b is NULL, the second operand of every operation is scalar instead.
+ */
+static inline int mpfr_java_vector_map_binary(int fn, void *r, mpfr_prec_t rprec,
+        void *a, mpfr_prec_t aprec, void *b, mpfr_prec_t bprec, mpfr_srcptr scalar, int n,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct rx, ax, bx;
+    /* MPFR only supports overlapping operands which are the same struct */
+    mpfr_ptr x = a == r ? &rx : &ax;
+    mpfr_ptr y = b == NULL ? (mpfr_ptr) scalar : b == r ? &rx : b == a ? x : &bx;
+    int i, inexact = 0;
+    for (i = 0; i < n; i++) {
+        mpfr_java_vector_load(&rx, r, n, rprec, i);
+        mpfr_java_vector_load(x, a, n, aprec, i);
+        if (b != NULL) {
+            mpfr_java_vector_load(y, b, n, bprec, i);
+        }
+        inexact |= mpfr_java_round(&rx, mpfr_java_binary(fn, &rx, x, y, rnd), rnd, emin, emax);
+        mpfr_java_vector_store(r, n, i, &rx);
+    }
+    return inexact;
+}
+
+/*
+ * Temporaries used to compute a dot product of n terms with a single rounding:
+ * each product is computed exactly into a temporary with enough precision,
+ * and the products are then added with mpfr_sum.
+ */
+typedef struct {
+    __mpfr_struct *products;
+    mpfr_ptr *ptrs;
+    int n;
+} mpfr_java_dot_scratch;
+
+/*
+ * Initializes s to hold n products of precision prec. Returns zero if the
+ * memory could not be allocated.
+ */
+static inline int mpfr_java_dot_init(mpfr_java_dot_scratch *s, int n, mpfr_prec_t prec) {
+    int i;
+    s->products = mpfr_java_allocate((size_t) n * sizeof(__mpfr_struct));
+    s->ptrs = mpfr_java_allocate((size_t) n * sizeof(mpfr_ptr));
+    s->n = n;
+    if (s->products == NULL || s->ptrs == NULL) {
+        mpfr_java_release(s->products, (size_t) n * sizeof(__mpfr_struct));
+        mpfr_java_release(s->ptrs, (size_t) n * sizeof(mpfr_ptr));
+        return 0;
+    }
+    for (i = 0; i < n; i++) {
+        mpfr_init2(&s->products[i], prec);
+        s->ptrs[i] = &s->products[i];
+    }
+    return 1;
+}
+
+static inline void mpfr_java_dot_clear(mpfr_java_dot_scratch *s) {
+    int i;
+    for (i = 0; i < s->n; i++) {
+        mpfr_clear(&s->products[i]);
+    }
+    mpfr_java_release(s->products, (size_t) s->n * sizeof(__mpfr_struct));
+    mpfr_java_release(s->ptrs, (size_t) s->n * sizeof(mpfr_ptr));
+}
+
+/*
+ * Sets rop to the dot product of the n packed mpfr_t in x and y, rounded once
+ * and then as in mpfr_java_round. prec must be at least the sum of the
+ * precisions of any x[i] and y[i], so that each product is exact.
+ */
+static inline int mpfr_java_dot(mpfr_ptr rop, const int64_t *x, const int64_t *y, int n,
+        mpfr_prec_t prec, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_java_dot_scratch s;
+    __mpfr_struct xi, yi;
+    mpfr_exp_t old_emin, old_emax;
+    int i, t;
+    if (!mpfr_java_dot_init(&s, n, prec)) {
+        return MPFR_JAVA_NOMEM;
+    }
+    mpfr_java_widen_range(&old_emin, &old_emax);
+    for (i = 0; i < n; i++) {
+        mpfr_java_unpack(&xi, x + i * MPFR_JAVA_PACKED_SIZE);
+        mpfr_java_unpack(&yi, y + i * MPFR_JAVA_PACKED_SIZE);
+        mpfr_mul(s.ptrs[i], &xi, &yi, MPFR_RNDN);
+    }
+    t = mpfr_sum(rop, s.ptrs, n, rnd);
+    mpfr_java_restore_range(old_emin, old_emax);
+    mpfr_java_dot_clear(&s);
+    return mpfr_java_round(rop, t, rnd, emin, emax);
+}
+
+/*
+ * Sets the vector c to the product of the m by k matrix a and the k by n
+ * matrix b, each stored in row-major order, but only computes rows from
+ * (inclusive) to to (exclusive) of c. Each element of c is rounded once and
+ * then as in mpfr_java_round. Returns nonzero if any result is inexact, or
+ * MPFR_JAVA_NOMEM.
+ */
+static inline int mpfr_java_vector_matmul(void *c, mpfr_prec_t cprec, void *a, mpfr_prec_t aprec,
+        void *b, mpfr_prec_t bprec, int m, int k, int n, int from, int to,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    mpfr_java_dot_scratch s;
+    __mpfr_struct ci, ai, bi;
+    mpfr_exp_t old_emin, old_emax;
+    int i, j, l, inexact = 0;
+    if (!mpfr_java_dot_init(&s, k, aprec + bprec)) {
+        return MPFR_JAVA_NOMEM;
+    }
+    /* mpfr_java_round restores the widened range after rounding each element */
+    mpfr_java_widen_range(&old_emin, &old_emax);
+    for (i = from; i < to; i++) {
+        for (j = 0; j < n; j++) {
+            for (l = 0; l < k; l++) {
+                mpfr_java_vector_load(&ai, a, m * k, aprec, i * k + l);
+                mpfr_java_vector_load(&bi, b, k * n, bprec, l * n + j);
+                mpfr_mul(s.ptrs[l], &ai, &bi, MPFR_RNDN);
+            }
+            mpfr_java_vector_load(&ci, c, m * n, cprec, i * n + j);
+            inexact |= mpfr_java_round(&ci, mpfr_sum(&ci, s.ptrs, k, rnd), rnd, emin, emax);
+            mpfr_java_vector_store(c, m * n, i * n + j, &ci);
+        }
+    }
+    mpfr_java_restore_range(old_emin, old_emax);
+    mpfr_java_dot_clear(&s);
+    return inexact;
+}
+
+/*
+ * Parses the records of the bytes of s from offset off to offset len into
+ * elements index, index + 1, ... of the vector v, each rounded as in
+ * mpfr_java_round. Records are separated by runs of the bytes b for which
+ * delim[b] is nonzero. Each record is terminated in place while it is parsed,
+ * so s[len] must exist; it is restored afterwards. At most max records are
+ * parsed. starts[i] receives the offset of the i-th record parsed, or its
+ * complement if the record is not exactly a number, in which case the element
+ * is set to NaN. state[0] receives the offset at which parsing stopped, which
+ * is len if every record was parsed, and state[1] is set to nonzero if any
+ * result is inexact. Returns the number of records parsed.
+ */
+static inline int mpfr_java_vector_parse(void *v, int n, mpfr_prec_t prec, int index,
+        char *s, int off, int len, const int8_t *delim, int32_t *starts, int max, int32_t *state,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    __mpfr_struct x;
+    char *end;
+    char c;
+    int p = off, q, t, count = 0, inexact = 0;
+    for (;;) {
+        while (p < len && delim[(unsigned char) s[p]]) {
+            p++;
+        }
+        if (p == len || count == max) {
+            break;
+        }
+        for (q = p; q < len && !delim[(unsigned char) s[q]]; q++) {}
+        c = s[q];
+        s[q] = '\0';
+        mpfr_java_vector_load(&x, v, n, prec, index + count);
+        t = mpfr_strtofr(&x, s + p, &end, 0, rnd);
+        s[q] = c;
+        if (end != s + q) {
+            mpfr_set_nan(&x);
+            starts[count] = ~p;
+        } else {
+            inexact |= mpfr_java_round(&x, t, rnd, emin, emax);
+            starts[count] = p;
+        }
+        mpfr_java_vector_store(v, n, index + count, &x);
+        count++;
+        p = q;
+    }
+    state[0] = p;
+    state[1] = inexact;
+    return count;
+}
+
+/*
+ * Returns the 64 bits starting at bit pos, which may be negative, of the
+ * natural number stored in the n limbs at d, least significant limb first.
+ * Bits outside the limbs are zero.
+ */
+static inline uint64_t mpfr_java_limb_bits(const mp_limb_t *d, long n, long pos) {
+    uint64_t r = 0;
+    long j = pos >= 0 ? pos / GMP_NUMB_BITS : -((GMP_NUMB_BITS - 1 - pos) / GMP_NUMB_BITS);
+    for (; j * GMP_NUMB_BITS < pos + 64; j++) {
+        long shift = j * GMP_NUMB_BITS - pos;
+        uint64_t v;
+        if (j < 0 || j >= n) {
+            continue;
+        }
+        v = (uint64_t)d[j];
+        r |= shift >= 0 ? v << shift : v >> -shift;
+    }
+    return r;
+}
+
+/*
+ * Returns the i-th 64-bit word, least significant first, of the IEEE 754
+ * interchange encoding with precision p and w exponent bits of x, which has
+ * precision p and has already been rounded to the exponent range of that
+ * format. NaN is encoded as a quiet NaN without payload; its sign, like that of
+ * any other value, is given by negative.
+ */
+static inline uint64_t mpfr_java_encoded_word(mpfr_srcptr x, int negative, mpfr_prec_t p, int w,
+        long i) {
+    long k = p + w, lo = 64 * i;
+    mpfr_exp_t bias = ((mpfr_exp_t)1 << (w - 1)) - 1;
+    uint64_t r = 0, e = 0;
+    if (mpfr_nan_p(x) || mpfr_inf_p(x)) {
+        e = ((uint64_t)1 << w) - 1;
+        if (mpfr_nan_p(x) && p - 2 >= lo && p - 2 < lo + 64) {
+            r = (uint64_t)1 << (p - 2 - lo);
+        }
+    } else if (!mpfr_zero_p(x)) {
+        const mp_limb_t *d = (const mp_limb_t *)mpfr_custom_get_significand(x);
+        long n = (p - 1) / GMP_NUMB_BITS + 1;
+        /* the position in the limbs of the least significant bit of the field */
+        long base = n * GMP_NUMB_BITS - p;
+        mpfr_exp_t exp = mpfr_get_exp(x) - 1;
+        if (exp >= 1 - bias) {
+            e = (uint64_t)(exp + bias);
+        } else {
+            base += (1 - bias) - exp;
+        }
+        if (lo < p - 1) {
+            r = mpfr_java_limb_bits(d, n, base + lo);
+            if (p - 1 - lo < 64) {
+                r &= ((uint64_t)1 << (p - 1 - lo)) - 1;
+            }
+        }
+    }
+    if (p - 1 >= lo && p - 1 < lo + 64) {
+        r |= e << (p - 1 - lo);
+    } else if (p - 1 < lo && lo - (p - 1) < 64) {
+        r |= e >> (lo - (p - 1));
+    }
+    if (negative && k - 1 >= lo && k - 1 < lo + 64) {
+        r |= (uint64_t)1 << (k - 1 - lo);
+    }
+    return r;
+}
+
+/*
+ * The number of limbs which are allocated on the stack when encoding, enough
+ * for the precision of binary128.
+ */
+#define MPFR_JAVA_ENCODE_LIMBS ((128 + GMP_NUMB_BITS - 1) / GMP_NUMB_BITS)
+
+/*
+ * Rounds op to the IEEE 754 interchange format with precision p and w exponent
+ * bits, and writes its encoding to the ceil((p + w) / 64) words at bits, least
+ * significant first, and to the (p + w) / 8 big-endian bytes at bytes, either
+ * of which may be NULL. Returns the ternary value of the rounded result.
+ */
+static inline int mpfr_java_encode(int64_t *bits, int8_t *bytes, mpfr_srcptr op,
+        mpfr_prec_t p, int w, mpfr_rnd_t rnd) {
+    mp_limb_t small[MPFR_JAVA_ENCODE_LIMBS];
+    __mpfr_struct x;
+    mpfr_exp_t bias = ((mpfr_exp_t)1 << (w - 1)) - 1;
+    long k = p + w, i, j;
+    int heap = mpfr_custom_get_size(p) > sizeof(small);
+    int t;
+    if (heap) {
+        mpfr_init2(&x, p);
+    } else {
+        mpfr_custom_init_set(&x, MPFR_ZERO_KIND, 0, p, small);
+    }
+    t = mpfr_set(&x, op, rnd);
+    t = mpfr_java_round(&x, t, rnd, (1 - bias) - p + 2, bias + 1);
+    for (i = 0; 64 * i < k; i++) {
+        uint64_t word = mpfr_java_encoded_word(&x, mpfr_signbit(op), p, w, i);
+        if (bits != NULL) {
+            bits[i] = (int64_t)word;
+        }
+        for (j = 0; bytes != NULL && j < 8 && 8 * i + j < k / 8; j++) {
+            bytes[k / 8 - 1 - (8 * i + j)] = (int8_t)(word >> (8 * j));
+        }
+    }
+    if (heap) {
+        mpfr_clear(&x);
+    }
+    return t;
+}
+
+static inline int mpfr_java_encode_words(int64_t *bits, int off, mpfr_srcptr op,
+        mpfr_prec_t p, int w, mpfr_rnd_t rnd) {
+    return mpfr_java_encode(bits + off, NULL, op, p, w, rnd);
+}
+
+static inline int mpfr_java_encode_bytes(int8_t *bytes, int off, mpfr_srcptr op,
+        mpfr_prec_t p, int w, mpfr_rnd_t rnd) {
+    return mpfr_java_encode(NULL, bytes + off, op, p, w, rnd);
+}
+
+/*
+ * Returns the encoding of op in an interchange format of at most 64 bits, as
+ * in mpfr_java_encode. Since it has no other way to return it, the ternary
+ * value of the rounded result is reported by the inexact flag, which is set
+ * if it is nonzero and cleared otherwise.
+ */
+static inline int64_t mpfr_java_encode64(mpfr_srcptr op, mpfr_prec_t p, int w, mpfr_rnd_t rnd) {
+    int64_t bits;
+    if (mpfr_java_encode(&bits, NULL, op, p, w, rnd)) {
+        mpfr_set_inexflag();
+    } else {
+        mpfr_clear_inexflag();
+    }
+    return bits;
+}
+
+/*
+ * Returns the 64 bits starting at bit pos of the k-bit encoding stored either
+ * in the words at bits, least significant first, or else in the big-endian
+ * bytes at bytes. Bits past the end of the encoding are zero.
+ */
+static inline uint64_t mpfr_java_encoded_bits(const int64_t *bits, const int8_t *bytes, long k,
+        long pos) {
+    uint64_t r = 0;
+    long j;
+    if (bits != NULL) {
+        r = (uint64_t)bits[pos / 64] >> (pos % 64);
+        if (pos % 64 != 0 && pos / 64 + 1 < (k + 63) / 64) {
+            r |= (uint64_t)bits[pos / 64 + 1] << (64 - pos % 64);
+        }
+        return r;
+    }
+    for (j = pos / 8; j < k / 8 && 8 * j < pos + 64; j++) {
+        long shift = 8 * j - pos;
+        uint64_t v = (uint8_t)bytes[k / 8 - 1 - j];
+        r |= shift >= 0 ? v << shift : v >> -shift;
+    }
+    return r;
+}
+
+/*
+ * Sets rop, which has precision p, to the value of the IEEE 754 interchange
+ * encoding with precision p and w exponent bits stored as described in
+ * mpfr_java_encoded_bits. The result is always exact, provided that the
+ * current exponent range contains the exponent range of the format. All NaNs
+ * decode to NaN with the sign of the encoding.
+ */
+static inline void mpfr_java_decode(mpfr_ptr rop, const int64_t *bits, const int8_t *bytes,
+        mpfr_prec_t p, int w) {
+    long k = p + w, pos, top;
+    mpfr_exp_t bias = ((mpfr_exp_t)1 << (w - 1)) - 1;
+    uint64_t emask = ((uint64_t)1 << w) - 1;
+    uint64_t e = mpfr_java_encoded_bits(bits, bytes, k, p - 1) & emask;
+    int negative = (int)(mpfr_java_encoded_bits(bits, bytes, k, k - 1) & 1);
+    mpfr_exp_t lsb;
+    if (e == emask) {
+        mpfr_set_inf(rop, negative ? -1 : 1);
+        for (pos = 0; pos < p - 1; pos += 64) {
+            uint64_t t = mpfr_java_encoded_bits(bits, bytes, k, pos);
+            if (p - 1 - pos < 64) {
+                t &= ((uint64_t)1 << (p - 1 - pos)) - 1;
+            }
+            if (t != 0) {
+                mpfr_set_nan(rop);
+                mpfr_setsign(rop, rop, negative, MPFR_RNDN);
+                break;
+            }
+        }
+        return;
+    }
+    /* the exponent of the least significant bit of the significand */
+    lsb = (e != 0 ? (mpfr_exp_t)e : 1) - bias - (p - 1);
+    if (p <= 64) {
+        uint64_t m = mpfr_java_encoded_bits(bits, bytes, k, 0) & (((uint64_t)1 << (p - 1)) - 1);
+        if (e != 0) {
+            m |= (uint64_t)1 << (p - 1);
+        }
+        mpfr_set_uj_2exp(rop, m, lsb, MPFR_RNDN);
+    } else {
+        /* accumulate the significand 32 bits at a time, which is always exact */
+        top = (p - 1) / 32 * 32;
+        for (pos = top; pos >= 0; pos -= 32) {
+            uint64_t c = mpfr_java_encoded_bits(bits, bytes, k, pos) & 0xffffffff;
+            if (pos == top) {
+                c &= ((uint64_t)1 << (p - 1 - pos)) - 1;
+                if (e != 0) {
+                    c |= (uint64_t)1 << (p - 1 - pos);
+                }
+                mpfr_set_ui(rop, (unsigned long)c, MPFR_RNDN);
+            } else {
+                mpfr_mul_2ui(rop, rop, 32, MPFR_RNDN);
+                mpfr_add_ui(rop, rop, (unsigned long)c, MPFR_RNDN);
+            }
+        }
+        mpfr_mul_2si(rop, rop, lsb, MPFR_RNDN);
+    }
+    if (negative) {
+        mpfr_neg(rop, rop, MPFR_RNDN);
+    }
+}
+
+static inline void mpfr_java_decode_words(mpfr_ptr rop, const int64_t *bits, int off,
+        mpfr_prec_t p, int w) {
+    mpfr_java_decode(rop, bits + off, NULL, p, w);
+}
+
+static inline void mpfr_java_decode_bytes(mpfr_ptr rop, const int8_t *bytes, int off,
+        mpfr_prec_t p, int w) {
+    mpfr_java_decode(rop, NULL, bytes + off, p, w);
+}
+
+static inline void mpfr_java_decode64(mpfr_ptr rop, int64_t bits, mpfr_prec_t p, int w) {
+    mpfr_java_decode(rop, &bits, NULL, p, w);
+}
+
+/*
+ * Sets rop to the integer whose magnitude is given by the len big-endian
+ * bytes at bytes, negated if negative is nonzero.
+ */
+static inline void mpz_java_import(mpz_ptr rop, const void *bytes, size_t len, int negative) {
+    mpz_import(rop, len, 1, 1, 0, 0, bytes);
+    if (negative) {
+        mpz_neg(rop, rop);
+    }
+}
+
 #endif // INCLUDED_PLATFORM_H
@@ -0,0 +1,206 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+/*
+ * The allocator behind every block of native memory used by BigFloat: the
+ * mpfr_t and vectors allocated by mpfr_java.h, their scratch memory, and,
+ * once mpfr_java_install_allocator has been called, everything GMP and MPFR
+ * allocate internally, since MPFR allocates through the GMP memory functions.
+ *
+ * Small blocks are the common case: an mpfr_t of up to 256 bits of precision
+ * and its limbs occupy at most 64 bytes. Each thread keeps a bounded free list
+ * of recently freed blocks of each small size class, so that allocating and
+ * freeing temporaries in a loop neither takes a malloc arena lock nor
+ * fragments the heap. A block freed by another thread, such as the
+ * mpfr-reclaimer thread, goes to that thread's free list, and once that list
+ * is full, back to malloc.
+ *
+ * The number of bytes currently allocated is counted exactly. An optional
+ * quota limits it: an allocation through mpfr_java_allocate which would exceed
+ * the quota fails by returning NULL, which Java reports as an
+ * OutOfMemoryError, instead of letting the process run out of memory. GMP
+ * cannot recover from a failed allocation, so its allocations are counted but
+ * never refused.
+ */
+#include <pthread.h>
+#include <string.h>
+#include <gmp.h>
+#include "mpfr_java.h"
+
+/* size classes are multiples of MPFR_JAVA_CLASS_BYTES up to MPFR_JAVA_SMALL_BYTES */
+#define MPFR_JAVA_CLASS_BYTES 16
+#define MPFR_JAVA_SMALL_BYTES 128
+#define MPFR_JAVA_CLASSES (MPFR_JAVA_SMALL_BYTES / MPFR_JAVA_CLASS_BYTES)
+/* the most free blocks of each class kept by a thread */
+#define MPFR_JAVA_CACHED_BLOCKS 64
+
+typedef struct {
+    void *blocks[MPFR_JAVA_CLASSES];
+    int counts[MPFR_JAVA_CLASSES];
+    /* 0 before first use, 1 while in use, 2 once freed at thread exit */
+    int state;
+} mpfr_java_cache;
+
+static __thread mpfr_java_cache cache;
+static pthread_key_t cache_key;
+static pthread_once_t cache_key_once = PTHREAD_ONCE_INIT;
+
+static int64_t live_bytes;
+static int64_t quota;
+static int64_t quota_failures;
+
+/* returns the blocks cached by an exiting thread to malloc */
+static void mpfr_java_cache_destroy(void *arg) {
+    mpfr_java_cache *c = arg;
+    int i;
+    for (i = 0; i < MPFR_JAVA_CLASSES; i++) {
+        while (c->blocks[i] != NULL) {
+            void *next = *(void **) c->blocks[i];
+            free(c->blocks[i]);
+            c->blocks[i] = next;
+        }
+        c->counts[i] = 0;
+    }
+    c->state = 2;
+}
+
+static void mpfr_java_cache_key_create(void) {
+    pthread_key_create(&cache_key, mpfr_java_cache_destroy);
+}
+
+/* returns the free lists of this thread, or NULL if it is exiting */
+static inline mpfr_java_cache *mpfr_java_thread_cache(void) {
+    if (cache.state == 0) {
+        pthread_once(&cache_key_once, mpfr_java_cache_key_create);
+        pthread_setspecific(cache_key, &cache);
+        cache.state = 1;
+    }
+    return cache.state == 1 ? &cache : NULL;
+}
+
+static inline int mpfr_java_size_class(size_t size) {
+    return size == 0 ? 0 : (int) ((size - 1) / MPFR_JAVA_CLASS_BYTES);
+}
+
+/* allocates size bytes without counting them */
+static inline void *mpfr_java_take(size_t size) {
+    if (size <= MPFR_JAVA_SMALL_BYTES) {
+        int i = mpfr_java_size_class(size);
+        mpfr_java_cache *c = mpfr_java_thread_cache();
+        if (c != NULL && c->blocks[i] != NULL) {
+            void *p = c->blocks[i];
+            c->blocks[i] = *(void **) p;
+            c->counts[i]--;
+            return p;
+        }
+        return malloc((size_t) (i + 1) * MPFR_JAVA_CLASS_BYTES);
+    }
+    return malloc(size);
+}
+
+/* frees a block of size bytes allocated by mpfr_java_take without counting it */
+static inline void mpfr_java_give(void *p, size_t size) {
+    if (size <= MPFR_JAVA_SMALL_BYTES) {
+        int i = mpfr_java_size_class(size);
+        mpfr_java_cache *c = mpfr_java_thread_cache();
+        if (c != NULL && c->counts[i] < MPFR_JAVA_CACHED_BLOCKS) {
+            *(void **) p = c->blocks[i];
+            c->blocks[i] = p;
+            c->counts[i]++;
+            return;
+        }
+    }
+    free(p);
+}
+
+void *mpfr_java_allocate(size_t size) {
+    int64_t limit = __atomic_load_n(&quota, __ATOMIC_RELAXED);
+    void *p;
+    if (limit > 0) {
+        int64_t live = __atomic_load_n(&live_bytes, __ATOMIC_RELAXED);
+        do {
+            if (live + (int64_t) size > limit) {
+                __atomic_add_fetch(&quota_failures, 1, __ATOMIC_RELAXED);
+                return NULL;
+            }
+        } while (!__atomic_compare_exchange_n(&live_bytes, &live, live + (int64_t) size, 1,
+                __ATOMIC_RELAXED, __ATOMIC_RELAXED));
+    } else {
+        __atomic_add_fetch(&live_bytes, (int64_t) size, __ATOMIC_RELAXED);
+    }
+    p = mpfr_java_take(size);
+    if (p == NULL) {
+        __atomic_sub_fetch(&live_bytes, (int64_t) size, __ATOMIC_RELAXED);
+    }
+    return p;
+}
+
+void mpfr_java_release(void *p, size_t size) {
+    if (p != NULL) {
+        __atomic_sub_fetch(&live_bytes, (int64_t) size, __ATOMIC_RELAXED);
+        mpfr_java_give(p, size);
+    }
+}
+
+static void *mpfr_java_gmp_allocate(size_t size) {
+    void *p = mpfr_java_take(size);
+    if (p == NULL) {
+        /* as the default GMP allocation function does */
+        fprintf(stderr, "GNU MP: Cannot allocate memory (size=%lu)\n", (unsigned long) size);
+        abort();
+    }
+    __atomic_add_fetch(&live_bytes, (int64_t) size, __ATOMIC_RELAXED);
+    return p;
+}
+
+static void *mpfr_java_gmp_reallocate(void *p, size_t old_size, size_t new_size) {
+    void *q;
+    if (old_size > MPFR_JAVA_SMALL_BYTES && new_size > MPFR_JAVA_SMALL_BYTES) {
+        q = realloc(p, new_size);
+    } else if (old_size <= MPFR_JAVA_SMALL_BYTES && new_size <= MPFR_JAVA_SMALL_BYTES
+            && mpfr_java_size_class(old_size) == mpfr_java_size_class(new_size)) {
+        q = p;
+    } else {
+        q = mpfr_java_take(new_size);
+        if (q != NULL) {
+            memcpy(q, p, old_size < new_size ? old_size : new_size);
+            mpfr_java_give(p, old_size);
+        }
+    }
+    if (q == NULL) {
+        fprintf(stderr, "GNU MP: Cannot reallocate memory (old_size=%lu new_size=%lu)\n",
+                (unsigned long) old_size, (unsigned long) new_size);
+        abort();
+    }
+    __atomic_add_fetch(&live_bytes, (int64_t) new_size - (int64_t) old_size, __ATOMIC_RELAXED);
+    return q;
+}
+
+static void mpfr_java_gmp_release(void *p, size_t size) {
+    mpfr_java_release(p, size);
+}
+
+/*
+ * Makes GMP, and therefore MPFR, allocate through this allocator. As GMP
+ * requires, this must happen before GMP allocates anything: a block freed
+ * here is reused for any size in its size class, which a block allocated by
+ * malloc for a smaller size may not have room for.
+ */
+void mpfr_java_install_allocator(void) {
+    mp_set_memory_functions(mpfr_java_gmp_allocate, mpfr_java_gmp_reallocate,
+            mpfr_java_gmp_release);
+}
+
+int64_t mpfr_java_allocated_bytes(void) {
+    return __atomic_load_n(&live_bytes, __ATOMIC_RELAXED);
+}
+
+int64_t mpfr_java_get_quota(void) {
+    return __atomic_load_n(&quota, __ATOMIC_RELAXED);
+}
+
+void mpfr_java_set_quota(int64_t bytes) {
+    __atomic_store_n(&quota, bytes, __ATOMIC_RELAXED);
+}
+
+int64_t mpfr_java_quota_failures(void) {
+    return __atomic_load_n(&quota_failures, __ATOMIC_RELAXED);
+}
@@ -0,0 +1,88 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+/*
+ * Exported entry points for the operations which BigFloat performs most
+ * often, so that on JDK 22 and later they can be called with java.lang.foreign
+ * downcalls instead of JNI (see Downcalls.java under src/main/java22). Most of
+ * the helpers in mpfr_java.h are static inline, and many MPFR functions are
+ * also macros, so neither necessarily has a symbol of its own. Each function
+ * here is mpfr_java_foreign_<name>, which performs <name> with the arguments
+ * of the corresponding native method of org.kframework.mpfr.mpfr.
+ */
+#include "mpfr_java.h"
+
+#define MPFR_JAVA_FOREIGN_ROUNDED_BINARY(op) \
+int mpfr_java_foreign_##op(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, \
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) { \
+    return mpfr_java_##op(rop, op1, op2, rnd, emin, emax); \
+}
+
+#define MPFR_JAVA_FOREIGN_ROUNDED_BINARY_SJ(op) \
+int mpfr_java_foreign_##op##_sj(mpfr_ptr rop, mpfr_srcptr op1, int64_t op2, \
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) { \
+    return mpfr_java_##op##_sj(rop, op1, op2, rnd, emin, emax); \
+}
+
+int mpfr_java_foreign_round(mpfr_ptr x, int t, mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_round(x, t, rnd, emin, emax);
+}
+
+int mpfr_java_foreign_next(mpfr_ptr rop, mpfr_srcptr op, int up,
+        mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_next(rop, op, up, emin, emax);
+}
+
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY(add)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY(sub)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY(mul)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY(div)
+
+int mpfr_java_foreign_fma(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, mpfr_srcptr op3,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_fma(rop, op1, op2, op3, rnd, emin, emax);
+}
+
+int mpfr_java_foreign_fms(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2, mpfr_srcptr op3,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_fms(rop, op1, op2, op3, rnd, emin, emax);
+}
+
+int mpfr_java_foreign_fmma(mpfr_ptr rop, mpfr_srcptr op1, mpfr_srcptr op2,
+        mpfr_srcptr op3, mpfr_srcptr op4, int sub,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_fmma(rop, op1, op2, op3, op4, sub, rnd, emin, emax);
+}
+
+int mpfr_java_foreign_set(mpfr_ptr rop, mpfr_srcptr op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_set(rop, op, rnd, emin, emax);
+}
+
+int mpfr_java_foreign_set_sj(mpfr_ptr rop, int64_t op,
+        mpfr_rnd_t rnd, mpfr_exp_t emin, mpfr_exp_t emax) {
+    return mpfr_java_set_sj(rop, op, rnd, emin, emax);
+}
+
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY_SJ(add)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY_SJ(sub)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY_SJ(mul)
+MPFR_JAVA_FOREIGN_ROUNDED_BINARY_SJ(div)
+
+int mpfr_java_foreign_cmp_sj(mpfr_srcptr op, int64_t i) {
+    return mpfr_java_cmp_sj(op, i);
+}
+
+int mpfr_java_foreign_cmp_total(mpfr_srcptr op1, mpfr_srcptr op2) {
+    return mpfr_java_cmp_total(op1, op2);
+}
+
+double mpfr_java_foreign_get_d(mpfr_srcptr op, mpfr_rnd_t rnd) {
+    return mpfr_get_d(op, rnd);
+}
+
+int mpfr_java_foreign_set_d(mpfr_ptr rop, double op, mpfr_rnd_t rnd) {
+    return mpfr_set_d(rop, op, rnd);
+}
+
+int mpfr_java_foreign_cmp_d(mpfr_srcptr op1, double op2) {
+    return mpfr_cmp_d(op1, op2);
+}
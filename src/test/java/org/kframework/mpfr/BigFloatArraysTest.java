@@ -0,0 +1,247 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.kframework.mpfr.BigFloatArrays.BinaryOperation;
+import org.kframework.mpfr.BigFloatArrays.UnaryOperation;
+
+public class BigFloatArraysTest {
+
+    private BinaryMathContext mc = BinaryMathContext.BINARY32;
+
+    private BigFloat[] values = {
+            new BigFloat(0.5, mc), new BigFloat(-0.0, mc), new BigFloat(3, mc),
+            new BigFloat(1.0/0.0, mc), new BigFloat(0.0/0.0, mc), BigFloat.pi(mc),
+            BigFloat.minValue(24, mc.minExponent), BigFloat.maxValue(24, mc.maxExponent),
+            new BigFloat(-2.75, mc), new BigFloat("0.1", BinaryMathContext.BINARY128)};
+
+    private static BigFloat unary(UnaryOperation f, BigFloat x, BinaryMathContext mc) {
+        switch (f) {
+            case ABS: return x.abs(mc);
+            case NEGATE: return x.negate(mc);
+            case SQRT: return x.sqrt(mc);
+            case CBRT: return x.cbrt(mc);
+            case EXP: return x.exp(mc);
+            case LOG: return x.log(mc);
+            case SIN: return x.sin(mc);
+            case COS: return x.cos(mc);
+            case TAN: return x.tan(mc);
+            case ASIN: return x.asin(mc);
+            case ACOS: return x.acos(mc);
+            case ATAN: return x.atan(mc);
+            case SINH: return x.sinh(mc);
+            case COSH: return x.cosh(mc);
+            case TANH: return x.tanh(mc);
+            case RINT: return x.rint(mc);
+            default: throw new AssertionError();
+        }
+    }
+
+    private static BigFloat binary(BinaryOperation f, BigFloat x, BigFloat y, BinaryMathContext mc) {
+        switch (f) {
+            case ADD: return x.add(y, mc);
+            case SUBTRACT: return x.subtract(y, mc);
+            case MULTIPLY: return x.multiply(y, mc);
+            case DIVIDE: return x.divide(y, mc);
+            case POW: return x.pow(y, mc);
+            case MIN: return BigFloat.min(x, y, mc);
+            case MAX: return BigFloat.max(x, y, mc);
+            default: throw new AssertionError();
+        }
+    }
+
+    @Test
+    public void testUnary() {
+        for (UnaryOperation f : UnaryOperation.values()) {
+            BigFloat[] out = BigFloatArrays.map(f, values, mc);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(f + " " + values[i], unary(f, values[i], mc), out[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testBinary() {
+        BigFloat[] reversed = new BigFloat[values.length];
+        for (int i = 0; i < values.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+        }
+        for (BinaryOperation f : BinaryOperation.values()) {
+            BigFloat[] out = BigFloatArrays.map(f, values, reversed, mc);
+            BigFloat[] scalar = new BigFloat[values.length];
+            BigFloatArrays.map(f, values, values[2], scalar, mc);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(f + " " + values[i], binary(f, values[i], reversed[i], mc), out[i]);
+                assertEquals(f + " " + values[i], binary(f, values[i], values[2], mc), scalar[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testInPlace() {
+        BigFloat[] a = {new BigFloat(1, mc), new BigFloat(2, mc)};
+        BigFloatArrays.scale(a, new BigFloat(3, mc), a, mc);
+        assertEquals(3.0, a[0].doubleValue(), 0);
+        assertEquals(6.0, a[1].doubleValue(), 0);
+        BigFloatArrays.add(a, a, a, mc);
+        assertEquals(6.0, a[0].doubleValue(), 0);
+        assertEquals(12.0, a[1].doubleValue(), 0);
+        assertEquals(0, BigFloatArrays.map(UnaryOperation.EXP, new BigFloat[0], mc).length);
+    }
+
+    @Test
+    public void testUnnecessary() {
+        BinaryMathContext exact = mc.withRoundingMode(RoundingMode.UNNECESSARY);
+        BigFloat[] a = {new BigFloat(1, mc), new BigFloat(2, mc)};
+        BigFloat[] out = new BigFloat[2];
+        try {
+            BigFloatArrays.divide(a, new BigFloat[] {new BigFloat(4, mc), new BigFloat(3, mc)}, out, exact);
+            fail();
+        } catch (ArithmeticException e) {}
+        assertEquals(0.25, out[0].doubleValue(), 0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testLengthMismatch() {
+        BigFloatArrays.add(values, new BigFloat[1], new BigFloat[values.length], mc);
+    }
+
+    /**
+     * @return an array of n numbers of several precisions, including special
+     * values, equal values of different precisions, and values which differ
+     * only after their first 64 bits.
+     */
+    private static BigFloat[] randomArray(int n) {
+        Random random = new Random(42);
+        BinaryMathContext[] contexts = {BinaryMathContext.BINARY32, BinaryMathContext.BINARY64,
+                BinaryMathContext.BINARY128, new BinaryMathContext(200, 20)};
+        BigFloat tiny = new BigFloat(2, BinaryMathContext.BINARY128).pow(
+                new BigFloat(-100, BinaryMathContext.BINARY128), BinaryMathContext.BINARY128);
+        BigFloat[] a = new BigFloat[n];
+        for (int i = 0; i < n; i++) {
+            BinaryMathContext mc = contexts[random.nextInt(contexts.length)];
+            switch (random.nextInt(6)) {
+                case 0:
+                    a[i] = new BigFloat(new double[] {0.0, -0.0, 1.0 / 0.0, -1.0 / 0.0, 0.0 / 0.0,
+                            1.0, -1.0}[random.nextInt(7)], mc);
+                    break;
+                case 1:
+                    a[i] = new BigFloat(random.nextInt(10) - 5, mc);
+                    break;
+                case 2:
+                    BigFloat x = new BigFloat(random.nextInt(10) - 5, BinaryMathContext.BINARY128);
+                    a[i] = x.add(tiny.multiply(new BigFloat(random.nextInt(5) - 2, mc),
+                            BinaryMathContext.BINARY128), BinaryMathContext.BINARY128);
+                    break;
+                default:
+                    a[i] = new BigFloat(random.nextGaussian() * Math.scalb(1.0, random.nextInt(200) - 100), mc);
+                    break;
+            }
+        }
+        return a;
+    }
+
+    private static void assertSorted(BigFloat[] unsorted, BigFloat[] sorted) {
+        BigFloat[] expected = unsorted.clone();
+        Arrays.sort(expected);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame("index " + i, expected[i], sorted[i]);
+        }
+    }
+
+    @Test
+    public void testSort() {
+        BigFloat[] unsorted = randomArray(5000);
+        BigFloat[] a = unsorted.clone();
+        BigFloatArrays.sort(a);
+        assertSorted(unsorted, a);
+        a = unsorted.clone();
+        BigFloatArrays.sort(a, 100, 200);
+        BigFloat[] range = Arrays.copyOfRange(unsorted, 100, 200);
+        assertSorted(range, Arrays.copyOfRange(a, 100, 200));
+        assertSame(unsorted[99], a[99]);
+        assertSame(unsorted[200], a[200]);
+        BigFloatArrays.sort(new BigFloat[0]);
+        try {
+            BigFloatArrays.sort(a, 2, 1);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            BigFloatArrays.sort(a, 0, a.length + 1);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void testParallelSort() throws InterruptedException {
+        BigFloat[] unsorted = randomArray(5 * BigFloatArrays.MIN_PARALLEL_SORT_LENGTH + 17);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BigFloat[] a = unsorted.clone();
+            BigFloatArrays.parallelSort(a, executor);
+            assertSorted(unsorted, a);
+            a = unsorted.clone();
+            BigFloatArrays.parallelSort(a, 1, a.length - 1, executor);
+            assertSorted(Arrays.copyOfRange(unsorted, 1, a.length - 1),
+                    Arrays.copyOfRange(a, 1, a.length - 1));
+            a = unsorted.clone();
+            a[a.length / 2] = null;
+            try {
+                BigFloatArrays.parallelSort(a, executor);
+                fail();
+            } catch (NullPointerException e) {}
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        BigFloat[] a = randomArray(1000);
+        BigFloatArrays.sort(a);
+        for (int i = 0; i < a.length; i++) {
+            assertEquals(0, a[BigFloatArrays.binarySearch(a, a[i])].compareTo(a[i]));
+        }
+        BigFloat half = new BigFloat(0.5, BinaryMathContext.BINARY64);
+        int i = BigFloatArrays.binarySearch(a, half);
+        assertTrue(i < 0);
+        assertTrue(a[-i - 2].compareTo(half) < 0);
+        assertTrue(a[-i - 1].compareTo(half) > 0);
+        assertEquals(-1, BigFloatArrays.binarySearch(a, 0, 0, half));
+        assertEquals(-11, BigFloatArrays.binarySearch(a, 10, 10, half));
+        // -Infinity with less precision than any element
+        assertEquals(-1, BigFloatArrays.binarySearch(a, new BigFloat(-1.0 / 0.0, new BinaryMathContext(2, 8))));
+    }
+
+    @Test
+    public void testMinMax() {
+        BigFloat[] a = randomArray(1000);
+        BigFloat[] sorted = a.clone();
+        Arrays.sort(sorted);
+        assertEquals(0, sorted[0].compareTo(BigFloatArrays.min(a)));
+        assertSame(BigFloatArrays.min(a), a[BigFloatArrays.argmin(a)]);
+        assertEquals(0, sorted[a.length - 1].compareTo(BigFloatArrays.max(a)));
+        assertTrue(BigFloatArrays.max(a).isNaN());
+        assertSame(values[8], BigFloatArrays.min(values));
+        assertEquals(4, BigFloatArrays.argmax(values));
+        // the first of several equal elements
+        BigFloat[] equal = {new BigFloat(1, mc), new BigFloat(2, mc), new BigFloat(1, mc),
+                new BigFloat(2, mc)};
+        assertEquals(0, BigFloatArrays.argmin(equal));
+        assertEquals(1, BigFloatArrays.argmax(equal));
+        assertEquals(-1, BigFloatArrays.argmin(new BigFloat[0]));
+        try {
+            BigFloatArrays.max(new BigFloat[0]);
+            fail();
+        } catch (NoSuchElementException e) {}
+    }
+}
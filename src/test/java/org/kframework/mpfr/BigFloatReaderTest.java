@@ -0,0 +1,222 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import org.kframework.mpfr.BigFloatReader.InvalidRecord;
+
+public class BigFloatReaderTest {
+
+    private BinaryMathContext mc = BinaryMathContext.BINARY64;
+    private BigFloatReader reader = new BigFloatReader(mc);
+
+    private List<BigFloat> read(BigFloatReader reader, String text, List<InvalidRecord> errors)
+            throws IOException {
+        List<BigFloat> out = new ArrayList<BigFloat>();
+        long n = reader.read(Channels.newChannel(new ByteArrayInputStream(text.getBytes())), out, errors);
+        assertEquals(out.size(), n);
+        return out;
+    }
+
+    /**
+     * @return a large input of random records, and the expected value of each
+     * in {@code expected}.
+     */
+    private String randomRecords(int n, List<BigFloat> expected) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            String s = Double.isNaN(d) ? "@nan@" : Double.toString(d).replace("Infinity", "@inf@");
+            sb.append(s).append(random.nextBoolean() ? "\n" : ", ");
+            expected.add(new BigFloat(s, mc));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        List<InvalidRecord> errors = new ArrayList<InvalidRecord>();
+        List<BigFloat> out = read(reader, "  0.5,0.1\n\n-1e10 ,,\t0x10\r\n@inf@", errors);
+        assertEquals(5, out.size());
+        assertEquals(new BigFloat(0.5, mc), out.get(0));
+        assertEquals(new BigFloat(0.1, mc), out.get(1));
+        assertEquals(new BigFloat(-1e10, mc), out.get(2));
+        assertEquals(new BigFloat(16, mc), out.get(3));
+        assertTrue(out.get(4).isInfinite());
+        assertTrue(errors.isEmpty());
+        assertTrue(read(reader, "", errors).isEmpty());
+        assertTrue(read(reader, " ,\n", errors).isEmpty());
+        assertEquals(1, read(reader, "1", errors).size());
+    }
+
+    @Test
+    public void testInvalidRecords() throws IOException {
+        List<InvalidRecord> errors = new ArrayList<InvalidRecord>();
+        List<BigFloat> out = read(reader, "1.5 foo 2.5\n1.5x \u00e9", errors);
+        assertEquals(5, out.size());
+        assertEquals(new BigFloat(2.5, mc), out.get(2));
+        assertTrue(out.get(1).isNaN());
+        assertTrue(out.get(3).isNaN());
+        assertTrue(out.get(4).isNaN());
+        assertEquals(3, errors.size());
+        assertEquals(1, errors.get(0).record());
+        assertEquals(4, errors.get(0).offset());
+        assertEquals("foo", errors.get(0).text());
+        assertEquals(3, errors.get(1).record());
+        assertEquals(12, errors.get(1).offset());
+        assertEquals("1.5x", errors.get(1).text());
+        assertEquals(4, errors.get(2).record());
+        try {
+            read(reader, "1 2 three 4 five", null);
+            fail();
+        } catch (NumberFormatException e) {
+            assertTrue(e.getMessage().contains("three"));
+        }
+    }
+
+    @Test
+    public void testRounding() throws IOException {
+        BigFloatReader exact = new BigFloatReader(mc.withRoundingMode(RoundingMode.UNNECESSARY));
+        assertEquals(new BigFloat(0.5, mc), read(exact, "0.5", null).get(0));
+        List<BigFloat> out = new ArrayList<BigFloat>();
+        try {
+            exact.read(Channels.newChannel(new ByteArrayInputStream("0.5 0.1 2".getBytes())), out, null);
+            fail();
+        } catch (ArithmeticException e) {}
+        assertEquals(3, out.size());
+        BigFloatReader single = new BigFloatReader(BinaryMathContext.BINARY32);
+        assertEquals(new BigFloat(0.1f, BinaryMathContext.BINARY32), read(single, "0.1", null).get(0));
+        // subnormal emulation
+        assertEquals(new BigFloat(Float.MIN_VALUE, BinaryMathContext.BINARY32),
+                read(single, "1e-45", null).get(0));
+    }
+
+    @Test
+    public void testDelimiters() throws IOException {
+        BigFloatReader semicolons = new BigFloatReader(mc, ";");
+        List<InvalidRecord> errors = new ArrayList<InvalidRecord>();
+        List<BigFloat> out = read(semicolons, "1;2,5;3 4", errors);
+        assertEquals(3, out.size());
+        assertEquals(new BigFloat(1, mc), out.get(0));
+        assertEquals(2, errors.size());
+        try {
+            new BigFloatReader(mc, "");
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            new BigFloatReader(mc, "\u00a0");
+            fail();
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        List<BigFloat> expected = new ArrayList<BigFloat>();
+        final byte[] text = randomRecords(20000, expected).getBytes();
+        assertTrue(text.length > 3 * BigFloatReader.CHUNK_SIZE);
+        // a channel which returns few bytes at a time, so records span reads
+        InputStream in = new ByteArrayInputStream(text) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        List<BigFloat> out = new ArrayList<BigFloat>();
+        assertEquals(expected.size(), reader.read(Channels.newChannel(in), out, null));
+        assertEquals(expected, out);
+
+        // a record longer than a chunk
+        StringBuilder sb = new StringBuilder("1 0.");
+        for (int i = 0; i < 3 * BigFloatReader.CHUNK_SIZE; i++) {
+            sb.append('3');
+        }
+        sb.append(" 2");
+        out = read(reader, sb.toString(), null);
+        assertEquals(3, out.size());
+        assertEquals(new BigFloat(1, mc).divide(new BigFloat(3, mc), mc), out.get(1));
+        assertEquals(new BigFloat(2, mc), out.get(2));
+    }
+
+    @Test
+    public void testVector() {
+        ByteBuffer in = ByteBuffer.wrap("x 0.5 foo 0.25 ".getBytes());
+        in.position(1);
+        assertEquals(3, reader.count(in));
+        BigFloatVector out = new BigFloatVector(5, mc);
+        List<InvalidRecord> errors = new ArrayList<InvalidRecord>();
+        assertEquals(3, reader.read(in, out, 1, errors));
+        assertEquals(1, in.position());
+        assertTrue(out.get(0).isPositiveZero());
+        assertEquals(new BigFloat(0.5, mc), out.get(1));
+        assertTrue(out.get(2).isNaN());
+        assertEquals(new BigFloat(0.25, mc), out.get(3));
+        assertEquals(1, errors.size());
+        assertEquals(5, errors.get(0).offset());
+        try {
+            reader.read(in, out, 3, errors);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+        try {
+            reader.read(in, new BigFloatVector(3, BinaryMathContext.BINARY32), 0, errors);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        ByteBuffer direct = ByteBuffer.allocateDirect(8);
+        direct.put("1 2 3".getBytes()).flip();
+        assertEquals(3, reader.read(direct, out, 0, null));
+        assertEquals(new BigFloat(3, mc), out.get(2));
+    }
+
+    @Test
+    public void testParallel() throws InterruptedException {
+        List<BigFloat> expected = new ArrayList<BigFloat>();
+        StringBuilder sb = new StringBuilder(randomRecords(50000, expected));
+        // invalid records in several chunks, inserted between records
+        sb.insert(sb.indexOf("\n", sb.length() / 3), " bad1 ");
+        sb.insert(sb.indexOf("\n", 2 * sb.length() / 3), " bad2 ").append(" bad3");
+        ByteBuffer in = ByteBuffer.allocateDirect(sb.length());
+        in.put(sb.toString().getBytes()).flip();
+        int n = reader.count(in);
+        assertEquals(expected.size() + 3, n);
+
+        BigFloatVector sequential = new BigFloatVector(n, mc);
+        List<InvalidRecord> sequentialErrors = new ArrayList<InvalidRecord>();
+        assertEquals(n, reader.read(in, sequential, 0, sequentialErrors));
+        assertEquals(3, sequentialErrors.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BigFloatVector parallel = new BigFloatVector(n, mc);
+            List<InvalidRecord> parallelErrors = new ArrayList<InvalidRecord>();
+            assertEquals(n, reader.read(in, parallel, 0, parallelErrors, executor));
+            assertArrayEquals(sequential.toArray(), parallel.toArray());
+            assertEquals(sequentialErrors.toString(), parallelErrors.toString());
+            try {
+                reader.read(in, parallel, 1, parallelErrors, executor);
+                fail();
+            } catch (IndexOutOfBoundsException e) {}
+            try {
+                reader.read(in, parallel, 0, null, executor);
+                fail();
+            } catch (NumberFormatException e) {
+                assertTrue(e.getMessage().contains("bad1"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
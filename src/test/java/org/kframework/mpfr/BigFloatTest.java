@@ -8,7 +8,13 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 import java.math.RoundingMode;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -294,6 +300,70 @@ public class BigFloatTest {
         } catch (IllegalArgumentException e) {}
     }
     
+    @Test
+    public void testParseSlices() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        BigFloat half = new BigFloat(0.5, mc);
+        BigFloat tenth = new BigFloat("0.1", mc);
+        assertEquals(0.1, tenth.doubleValueExact(), 0);
+        byte[] bytes = "x0.5,0.1,foo".getBytes();
+        assertEquals(half, new BigFloat(bytes, 1, 3, mc));
+        assertEquals(tenth, new BigFloat(bytes, 5, 3, mc));
+        StringBuilder sb = new StringBuilder("[0.5, 0.1]");
+        assertEquals(half, new BigFloat(sb, 1, 4, mc));
+        assertEquals(tenth, new BigFloat(sb, 6, 9, mc));
+        assertEquals(new BigFloat("255", mc), new BigFloat("a 0xff", 2, 6, mc));
+        
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 5, 3);
+        assertEquals(tenth, new BigFloat(heap, mc));
+        assertEquals(5, heap.position());
+        assertEquals(tenth, new BigFloat(heap.slice(), mc));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.position(1).limit(4);
+        assertEquals(half, new BigFloat(direct, mc));
+        assertEquals(1, direct.position());
+        
+        // strings longer than the buffer retained by each thread
+        StringBuilder digits = new StringBuilder("0.");
+        for (int i = 0; i < 10000; i++) {
+            digits.append('3');
+        }
+        BigFloat third = new BigFloat(1, mc).divide(new BigFloat(3, mc), mc);
+        assertEquals(third, new BigFloat(digits, 0, digits.length(), mc));
+        assertEquals(third, new BigFloat(digits.toString().getBytes(), mc));
+        assertEquals(half, new BigFloat(bytes, 1, 3, mc));
+        
+        try {
+            new BigFloat(digits, 0, digits.length(), mc.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+        try {
+            new BigFloat(bytes, 1, 4, mc);
+            fail();
+        } catch (NumberFormatException e) {}
+        try {
+            new BigFloat(bytes, 9, 3, mc);
+            fail();
+        } catch (NumberFormatException e) {}
+        try {
+            new BigFloat("0.5\u00e9", mc);
+            fail();
+        } catch (NumberFormatException e) {}
+        try {
+            new BigFloat("0.5\u00005", mc);
+            fail();
+        } catch (NumberFormatException e) {}
+        try {
+            new BigFloat(bytes, 10, 3, mc);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+        try {
+            new BigFloat(sb, 4, 1, mc);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+    }
+    
     @Test
     public void testOverflowConversion() {
         BigFloat f = new BigFloat(Byte.MAX_VALUE + 1, BinaryMathContext.BINARY128);
@@ -357,6 +427,127 @@ public class BigFloatTest {
         assertEquals(f, new BigFloat(f.toString(), BinaryMathContext.BINARY32));
     }
     
+    @Test
+    public void testWriteTo() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        BigFloat[] values = {new BigFloat(0.1, mc), new BigFloat(-2.5, mc),
+                new BigFloat(Double.POSITIVE_INFINITY, mc), new BigFloat(Double.NEGATIVE_INFINITY, mc),
+                new BigFloat(Double.NaN, mc), BigFloat.negativeZero(53), BigFloat.pi(BinaryMathContext.BINARY128)};
+        assertEquals("Infinity", values[2].toString());
+        assertEquals("-Infinity", values[3].toString());
+        assertEquals("NaN", values[4].toString());
+        StringBuilder sb = new StringBuilder("[");
+        byte[] bytes = new byte[1000];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+        int offset = 1;
+        for (BigFloat value : values) {
+            String s = value.toString();
+            if (!value.isInfinite() && !value.isNaN()) {
+                assertEquals(value.toString("%Re"), s);
+            }
+            assertSame(sb, value.appendTo(sb));
+            sb.append(',');
+            assertEquals(s.length(), value.writeTo(bytes, offset));
+            offset += s.length();
+            value.writeTo(buffer);
+        }
+        assertEquals('[', sb.charAt(0));
+        String joined = sb.substring(1).replace(",", "");
+        assertEquals(joined, new String(bytes, 1, offset - 1));
+        buffer.flip();
+        byte[] fromBuffer = new byte[buffer.remaining()];
+        buffer.get(fromBuffer);
+        assertEquals(joined, new String(fromBuffer));
+        
+        // longer than the buffer retained by each thread
+        BigFloat precise = BigFloat.pi(new BinaryMathContext(20000, 15));
+        assertEquals(precise.toString(), precise.appendTo(new StringBuilder()).toString());
+        assertTrue(precise.toString().length() > 6000);
+        
+        byte[] small = new byte[5];
+        try {
+            values[0].writeTo(small, 1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+        assertArrayEquals(new byte[5], small);
+        try {
+            values[0].writeTo(small, 6);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+        ByteBuffer full = ByteBuffer.allocate(5);
+        try {
+            values[0].writeTo(full);
+            fail();
+        } catch (BufferOverflowException e) {}
+        assertEquals(0, full.position());
+    }
+    
+    /**
+     * @return the fewest significant digits with which {@code d} can be
+     * written, found by trying each number of digits in turn.
+     */
+    private static int shortestDigits(double d) {
+        BigDecimal exact = new BigDecimal(d);
+        for (int n = 1; ; n++) {
+            for (RoundingMode mode : new RoundingMode[] {RoundingMode.HALF_EVEN, RoundingMode.UP}) {
+                if (Double.parseDouble(exact.round(new MathContext(n, mode)).toString()) == d) {
+                    return n;
+                }
+            }
+        }
+    }
+    
+    private static int significantDigits(String s) {
+        return s.substring(0, s.indexOf('e')).replaceAll("[-.]", "").length();
+    }
+    
+    @Test
+    public void testShortestString() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        assertEquals("1e-01", new BigFloat(0.1, mc).toString(mc));
+        assertEquals("-2.5e+00", new BigFloat(-2.5, mc).toString(mc));
+        assertEquals("1.2345e+300", new BigFloat(1.2345e300, mc).toString(mc));
+        assertEquals("5e-324", new BigFloat(Double.MIN_VALUE, mc).toString(mc));
+        assertEquals("1.7976931348623157e+308", new BigFloat(Double.MAX_VALUE, mc).toString(mc));
+        assertEquals("0e+00", BigFloat.zero(53).toString(mc));
+        assertEquals("-0e+00", BigFloat.negativeZero(53).toString(mc));
+        assertEquals("-Infinity", new BigFloat(Double.NEGATIVE_INFINITY, mc).toString(mc));
+        assertEquals("NaN", new BigFloat(Double.NaN, mc).toString(mc));
+        BinaryMathContext single = BinaryMathContext.BINARY32;
+        assertEquals("1e-01", new BigFloat(0.1, mc).toString(single));
+        assertEquals("1e-45", new BigFloat(Float.MIN_VALUE, single).toString(single));
+        assertEquals("1.0000000149011612e-01", new BigFloat(0.1f, single).toString(mc));
+        try {
+            new BigFloat(0.1, mc).toString(single.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+        
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (i % 5 == 0) {
+                // powers of two, whose neighbors are not equally far away
+                d = Math.scalb(1.0, random.nextInt(2098) - 1074);
+            } else if (i % 5 == 1) {
+                d = Math.scalb((double) random.nextInt(1000000), random.nextInt(60) - 30);
+            }
+            if (Double.isNaN(d) || Double.isInfinite(d) || d == 0) {
+                continue;
+            }
+            BigFloat x = new BigFloat(d, mc);
+            String s = x.toString(mc);
+            assertEquals(s, d, Double.parseDouble(s), 0);
+            assertEquals(s, shortestDigits(d), significantDigits(s));
+            StringBuilder sb = new StringBuilder();
+            byte[] bytes = new byte[30];
+            ByteBuffer buffer = ByteBuffer.allocate(30);
+            x.writeTo(buffer, mc);
+            assertEquals(s, x.appendTo(sb, mc).toString());
+            assertEquals(s, new String(bytes, 0, x.writeTo(bytes, 0, mc)));
+            assertEquals(s, new String(buffer.array(), 0, buffer.position()));
+        }
+    }
+    
     @Test
     public void testIEEECompare() {
         BigFloat f = new BigFloat(0.5, BinaryMathContext.BINARY32);
@@ -421,6 +612,69 @@ public class BigFloatTest {
         assertTrue(nan.compareTo(nan2) < 0);
     }
     
+    /**
+     * @return the order of {@link BigFloat#compareTo} computed with the MPFR
+     * predicates.
+     */
+    private static int referenceCompare(BigFloat a, BigFloat b) {
+        boolean aNaN = mpfr.mpfr_nan_p(a.op());
+        boolean bNaN = mpfr.mpfr_nan_p(b.op());
+        int res;
+        if (aNaN || bNaN) {
+            res = (aNaN ? 1 : 0) - (bNaN ? 1 : 0);
+        } else if (mpfr.mpfr_less_p(a.op(), b.op())) {
+            res = -1;
+        } else if (mpfr.mpfr_greater_p(a.op(), b.op())) {
+            res = 1;
+        } else {
+            res = (mpfr.mpfr_signbit(b.op()) ? 1 : 0) - (mpfr.mpfr_signbit(a.op()) ? 1 : 0);
+        }
+        return res != 0 ? res : Integer.signum(a.precision() - b.precision());
+    }
+    
+    @Test
+    public void testTotalOrder() {
+        Random random = new Random(42);
+        BinaryMathContext[] contexts = {BinaryMathContext.BINARY32, BinaryMathContext.BINARY64,
+                BinaryMathContext.BINARY128};
+        List<BigFloat> values = new ArrayList<BigFloat>();
+        for (BinaryMathContext mc : contexts) {
+            values.add(BigFloat.NaN(mc.precision));
+            values.add(BigFloat.zero(mc.precision));
+            values.add(BigFloat.negativeZero(mc.precision));
+            values.add(BigFloat.positiveInfinity(mc.precision));
+            values.add(BigFloat.negativeInfinity(mc.precision));
+            values.add(BigFloat.minValue(mc.precision, mc.minExponent));
+            values.add(BigFloat.maxValue(mc.precision, mc.maxExponent).negate());
+            for (int i = 0; i < 40; i++) {
+                // values with the same exponent, which differ only in their significands
+                values.add(new BigFloat(random.nextInt(8) - 4, mc).add(
+                        new BigFloat(random.nextInt(4), mc).divide(new BigFloat(8, mc), mc), mc));
+                values.add(new BigFloat(random.nextGaussian() * 1000, mc));
+            }
+        }
+        for (BigFloat a : values) {
+            for (BigFloat b : values) {
+                boolean ordered = !a.isNaN() && !b.isNaN();
+                int cmp = ordered ? mpfr.mpfr_cmp(a.op(), b.op()) : 0;
+                String msg = a + " " + b;
+                assertEquals(msg, referenceCompare(a, b), Integer.signum(a.compareTo(b)));
+                assertEquals(msg, referenceCompare(a, b), Integer.signum(mpfr.mpfr_java_cmp_total(a.op(), b.op())));
+                assertEquals(msg, ordered && cmp < 0, a.lessThan(b));
+                assertEquals(msg, ordered && cmp > 0, a.greaterThan(b));
+                assertEquals(msg, ordered && cmp <= 0, a.lessThanOrEqualTo(b));
+                assertEquals(msg, ordered && cmp >= 0, a.greaterThanOrEqualTo(b));
+                assertEquals(msg, ordered && cmp == 0, a.equalTo(b));
+                assertEquals(msg, referenceCompare(a, b) == 0, a.equals(b));
+            }
+            assertEquals(mpfr.mpfr_nan_p(a.op()), a.isNaN());
+            assertEquals(mpfr.mpfr_inf_p(a.op()), a.isInfinite());
+            assertEquals(mpfr.mpfr_signbit(a.op()), a.sign());
+            assertEquals(mpfr.mpfr_zero_p(a.op()) && !mpfr.mpfr_signbit(a.op()), a.isPositiveZero());
+            assertEquals(mpfr.mpfr_zero_p(a.op()) && mpfr.mpfr_signbit(a.op()), a.isNegativeZero());
+        }
+    }
+    
     @Test
     public void testArithmetic() {
         BinaryMathContext mc = BinaryMathContext.BINARY32.withRoundingMode(RoundingMode.UNNECESSARY);
@@ -747,6 +1001,109 @@ public class BigFloatTest {
         assertEquals(0, half.rint(mc.withRoundingMode(RoundingMode.HALF_EVEN)).longValueExact());
     }
     
+    @Test
+    public void testLongArithmetic() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        long[] values = {0, 1, -1, 3, 1L << 53, (1L << 53) + 1, Long.MAX_VALUE, Long.MIN_VALUE};
+        BigFloat[] floats = {one, pi, new BigFloat(-1e300, mc), subnormal, negzero, inf, nan};
+        for (long l : values) {
+            assertEquals(new BigFloat(BigInteger.valueOf(l), mc), new BigFloat(l, mc));
+            BigFloat lf = new BigFloat(BigInteger.valueOf(l), BinaryMathContext.BINARY128);
+            for (BigFloat f : floats) {
+                if (f.isNegativeZero() && l == 0) {
+                    assertEquals(negzero.round(mc), f.add(l, mc));
+                } else {
+                    assertEquals(f.add(lf, mc), f.add(l, mc));
+                }
+                assertEquals(f.subtract(lf, mc), f.subtract(l, mc));
+                assertEquals(f.multiply(lf, mc), f.multiply(l, mc));
+                assertEquals(f.divide(lf, mc), f.divide(l, mc));
+                if (f.isNaN()) {
+                    assertTrue(f.compareTo(l) > 0);
+                } else {
+                    int expected = f.lessThan(lf) ? -1 : f.greaterThan(lf) ? 1 : 0;
+                    assertEquals(expected, Integer.signum(f.compareTo(l)));
+                }
+            }
+        }
+        assertEquals(new BigFloat(1L << 53, mc), new BigFloat((1L << 53) + 1, mc));
+        try {
+            new BigFloat((1L << 53) + 1, mc.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+        assertEquals(0, new BigFloat(Long.MIN_VALUE, mc).compareTo(Long.MIN_VALUE));
+        assertTrue(new BigFloat(Long.MAX_VALUE, mc).compareTo(Long.MAX_VALUE) > 0);
+    }
+    
+    @Test
+    public void testSum() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        BigFloat big = new BigFloat(1e100, mc);
+        BigFloat[] terms = {big, one, big.negate(), one};
+        // chained additions lose both ones to the large term
+        assertDoubleEquals(1.0, big.add(one, mc).add(big.negate(), mc).add(one, mc).doubleValue());
+        assertDoubleEquals(2.0, BigFloat.sum(terms, mc).doubleValue());
+        assertEquals(BigFloat.sum(terms, mc), BigFloat.sum(java.util.Arrays.asList(terms), mc));
+        assertTrue(BigFloat.sum(new BigFloat[0], mc).isPositiveZero());
+        assertTrue(BigFloat.sum(new BigFloat[] {one, nan}, mc).isNaN());
+        assertTrue(BigFloat.sum(new BigFloat[] {inf, neginf}, mc).isNaN());
+        assertEquals(inf.round(mc), BigFloat.sum(new BigFloat[] {inf, one}, mc));
+        // rounded once into the subnormal range
+        BigFloat min = BigFloat.minValue(53, mc.minExponent);
+        BigFloat quarter = min.divide(new BigFloat(4, mc), BinaryMathContext.BINARY128);
+        assertEquals(min, BigFloat.sum(new BigFloat[] {min, quarter}, mc));
+        assertEquals(min.add(min, mc), BigFloat.sum(new BigFloat[] {min, quarter, quarter, quarter, quarter, quarter}, mc));
+        BigFloat[] tenths = new BigFloat[1000];
+        java.util.Arrays.fill(tenths, new BigFloat("0.1", BinaryMathContext.BINARY128));
+        assertEquals(new BigFloat(100, mc), BigFloat.sum(tenths, mc));
+        try {
+            BigFloat.sum(new BigFloat[] {one, BigFloat.pi(BinaryMathContext.BINARY128)}, mc.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+    }
+    
+    @Test
+    public void testFma() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        // (1 + 2^-52) * (1 - 2^-52) - 1 == -2^-104, which is lost if the product is rounded first
+        BigFloat a = new BigFloat(1 + Math.ulp(1.0), mc);
+        BigFloat b = new BigFloat(1 - Math.ulp(1.0), mc);
+        BigFloat minusOne = new BigFloat(-1, mc);
+        assertDoubleEquals(-Math.pow(2, -104), a.fma(b, minusOne, mc).doubleValue());
+        assertDoubleEquals(-Math.pow(2, -104), a.fms(b, one, mc).doubleValue());
+        assertDoubleEquals(0.0, a.multiply(b, mc).add(minusOne, mc).doubleValue());
+        assertDoubleEquals(-Math.pow(2, -104), BigFloat.fmma(a, b, one, minusOne, mc).doubleValue());
+        assertDoubleEquals(-Math.pow(2, -104), BigFloat.fmms(a, b, one, one, mc).doubleValue());
+        assertDoubleEquals(7.0, new BigFloat(2, mc).fma(new BigFloat(3, mc), one, mc).doubleValue());
+        assertTrue(BigFloat.fmma(negzero, one, zero, one, mc).isPositiveZero());
+        assertTrue(inf.fma(zero, one, mc).isNaN());
+        assertTrue(BigFloat.fmms(inf, one, inf, one, mc).isNaN());
+        // rounded once into the subnormal range
+        BigFloat min = BigFloat.minValue(53, mc.minExponent);
+        assertEquals(min, new BigFloat(0.5, mc).fma(min, min.divide(new BigFloat(4, mc), BinaryMathContext.BINARY128), mc));
+        try {
+            a.fma(a, minusOne, mc.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+    }
+    
+    @Test
+    public void testDot() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        // (1 + 2^-52) * (1 - 2^-52) - 1 == -2^-104, which is lost if the product is rounded first
+        BigFloat[] x = {new BigFloat(1 + Math.ulp(1.0), mc), one};
+        BigFloat[] y = {new BigFloat(1 - Math.ulp(1.0), mc), new BigFloat(-1, mc)};
+        assertDoubleEquals(-Math.pow(2, -104), BigFloat.dot(x, y, mc).doubleValue());
+        BigFloat[] products = {x[0].multiply(y[0], BinaryMathContext.BINARY128), x[1].multiply(y[1], mc)};
+        assertEquals(BigFloat.sum(products, mc), BigFloat.dot(x, y, mc));
+        assertTrue(BigFloat.dot(new BigFloat[0], new BigFloat[0], mc).isPositiveZero());
+        assertTrue(BigFloat.dot(new BigFloat[] {inf}, new BigFloat[] {new BigFloat(0, mc)}, mc).isNaN());
+        try {
+            BigFloat.dot(x, new BigFloat[] {one}, mc);
+            fail();
+        } catch (IllegalArgumentException e) {}
+    }
+    
     @Test
     public void testRoundingModes() {
         assertEquals(4, new BigFloat(5, new BinaryMathContext(2, RoundingMode.HALF_EVEN)).longValueExact());
@@ -909,6 +1266,212 @@ public class BigFloatTest {
         assertFalse(new BigFloat(false, BigInteger.ONE, emax + 1, mc).sign());
     }
     
+    @Test
+    public void testInterchangeBinary32() {
+        BinaryMathContext mc = BinaryMathContext.BINARY32;
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            int bits = random.nextInt();
+            float f = Float.intBitsToFloat(bits);
+            if (Float.isNaN(f)) {
+                continue;
+            }
+            BigFloat bf = new BigFloat(f, mc);
+            assertEquals(bits, bf.toIntBits(mc));
+            assertEquals(bf, BigFloat.fromIntBits(bits, mc));
+        }
+        for (float f : regularExamples) {
+            BigFloat bf = new BigFloat(f, mc);
+            assertEquals(Float.floatToIntBits(f), bf.toIntBits(mc));
+            assertFloatEquals(f, BigFloat.fromIntBits(Float.floatToIntBits(f), mc).floatValueExact());
+        }
+        assertEquals(0x7f800000, inf.toIntBits(mc));
+        assertEquals(0xff800000, neginf.toIntBits(mc));
+        assertEquals(0x80000000, negzero.toIntBits(mc));
+        assertEquals(0x7fc00000, nan.toIntBits(mc));
+        assertEquals(0xffc00000, nan.negate().toIntBits(mc));
+        assertTrue(BigFloat.fromIntBits(0x7f800001, mc).isNaN());
+        assertTrue(BigFloat.fromIntBits(0xffc00000, mc).sign());
+        assertTrue(BigFloat.fromIntBits(0x80000000, mc).isNegativeZero());
+        assertEquals(1, BigFloat.fromIntBits(1, mc).compareTo(zero));
+        assertEquals(subnormal, BigFloat.fromIntBits(1, mc));
+        assertEquals(24, BigFloat.fromIntBits(1, mc).precision());
+    }
+    
+    @Test
+    public void testInterchangeRounding() {
+        BinaryMathContext mc = BinaryMathContext.BINARY32;
+        BigFloat d = new BigFloat(1 + Math.scalb(1.0, -30), BinaryMathContext.BINARY64);
+        assertEquals(0x3f800000, d.toIntBits(mc));
+        assertEquals(0x3f800001, d.toIntBits(mc.withRoundingMode(RoundingMode.UP)));
+        assertEquals(0x3f800000, one.toIntBits(mc.withRoundingMode(RoundingMode.UNNECESSARY)));
+        try {
+            d.toIntBits(mc.withRoundingMode(RoundingMode.UNNECESSARY));
+            fail();
+        } catch (ArithmeticException e) {}
+        try {
+            d.toBits(mc.withRoundingMode(RoundingMode.UNNECESSARY), new long[1], 0);
+            fail();
+        } catch (ArithmeticException e) {}
+        BigFloat huge = new BigFloat(1e300, BinaryMathContext.BINARY64);
+        assertEquals(0x7f800000, huge.toIntBits(mc));
+        assertEquals(0x7f7fffff, huge.toIntBits(mc.withRoundingMode(RoundingMode.DOWN)));
+        BigFloat tiny = new BigFloat(Float.MIN_VALUE * 0.75, BinaryMathContext.BINARY64);
+        assertEquals(1, tiny.toIntBits(mc));
+        assertEquals(0, tiny.toIntBits(mc.withRoundingMode(RoundingMode.FLOOR)));
+        BigFloat subnormal64 = new BigFloat(Float.MIN_NORMAL * 0.375, BinaryMathContext.BINARY64);
+        assertEquals(Float.floatToIntBits(Float.MIN_NORMAL * 0.375f), subnormal64.toIntBits(mc));
+    }
+    
+    @Test
+    public void testInterchangeBinary64() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long bits = random.nextLong();
+            double d = Double.longBitsToDouble(bits);
+            if (Double.isNaN(d)) {
+                continue;
+            }
+            BigFloat bf = new BigFloat(d, mc);
+            assertEquals(bits, bf.toLongBits(mc));
+            assertEquals(bf, BigFloat.fromLongBits(bits, mc));
+            long[] words = new long[2];
+            bf.toBits(mc, words, 1);
+            assertEquals(bits, words[1]);
+            assertEquals(bf, BigFloat.fromBits(words, 1, mc));
+        }
+        assertEquals(Double.doubleToLongBits(Double.MIN_VALUE),
+                new BigFloat(Double.MIN_VALUE, mc).toLongBits(mc));
+        assertEquals(0x7ff8000000000000L, BigFloat.NaN(53).toLongBits(mc));
+        assertEquals(Double.doubleToLongBits(Float.MIN_VALUE),
+                BigFloat.fromIntBits(1, BinaryMathContext.BINARY32).toLongBits(mc));
+    }
+    
+    @Test
+    public void testInterchangeBinary16() {
+        BinaryMathContext mc = BinaryMathContext.BINARY16;
+        assertEquals(0x3c00, new BigFloat(1, mc).toIntBits(mc));
+        assertEquals(0x7bff, BigFloat.maxValue(mc.precision, mc.maxExponent).toIntBits(mc));
+        assertEquals(0x0001, BigFloat.minValue(mc.precision, mc.minExponent).toIntBits(mc));
+        assertEquals(0x0400, BigFloat.minNormal(mc.precision, mc.minExponent).toIntBits(mc));
+        assertEquals(0x7c00, new BigFloat(65520, BinaryMathContext.BINARY32).toIntBits(mc));
+        assertEquals(0xc000, new BigFloat(-2, mc).toIntBits(mc));
+        assertEquals(0x7e00, BigFloat.NaN(11).toIntBits(mc));
+        assertEquals(new BigFloat(65504, mc), BigFloat.fromIntBits(0x7bff, mc));
+        assertEquals(new BigFloat(Math.scalb(1.0, -24), mc), BigFloat.fromIntBits(0xffff0001, mc));
+        for (int bits = 0; bits < 0x10000; bits++) {
+            BigFloat bf = BigFloat.fromIntBits(bits, mc);
+            if (!bf.isNaN()) {
+                assertEquals(bits, bf.toIntBits(mc));
+                byte[] bytes = new byte[2];
+                bf.toBytes(mc, bytes, 0);
+                assertEquals(bits, (bytes[0] & 0xff) << 8 | bytes[1] & 0xff);
+            }
+        }
+    }
+    
+    @Test
+    public void testInterchangeBinary128() {
+        BinaryMathContext mc = BinaryMathContext.BINARY128;
+        long[] words = new long[2];
+        BigFloat.pi(mc).toBits(mc, words, 0);
+        assertEquals(0x4000921fb54442d1L, words[1]);
+        assertEquals(0x8469898cc51701b8L, words[0]);
+        assertEquals(BigFloat.pi(mc), BigFloat.fromBits(words, 0, mc));
+        byte[] bytes = new byte[17];
+        BigFloat.pi(mc).toBytes(mc, bytes, 1);
+        assertEquals(0x40, bytes[1]);
+        assertEquals((byte) 0xb8, bytes[16]);
+        assertEquals(BigFloat.pi(mc), BigFloat.fromBytes(bytes, 1, mc));
+        BigFloat.minValue(mc.precision, mc.minExponent).negate().toBits(mc, words, 0);
+        assertEquals(0x8000000000000000L, words[1]);
+        assertEquals(1, words[0]);
+        BigFloat.positiveInfinity(mc.precision).toBits(mc, words, 0);
+        assertEquals(0x7fff000000000000L, words[1]);
+        assertEquals(0, words[0]);
+        assertTrue(BigFloat.fromBits(new long[] {1, 0x7fff000000000000L}, 0, mc).isNaN());
+        
+        // agrees with the sign, exponent and significand
+        Random random = new Random(42);
+        long emin = mc.minExponent;
+        long emax = mc.maxExponent;
+        for (int i = 0; i < 1000; i++) {
+            words[0] = random.nextLong();
+            words[1] = random.nextLong();
+            BigFloat bf = BigFloat.fromBits(words, 0, mc);
+            if (bf.isNaN()) {
+                continue;
+            }
+            BigInteger bits = BigInteger.valueOf(bf.sign() ? 1 : 0)
+                    .shiftLeft(15).or(BigInteger.valueOf(bf.exponent(emin, emax) + emax))
+                    .shiftLeft(112).or(bf.significand(emin, emax).clearBit(112));
+            assertEquals(bits, new BigInteger(1, longsToBytes(words)));
+            BigFloat reconstructed = new BigFloat(bf.sign(), bf.significand(emin, emax),
+                    bf.exponent(emin, emax), mc);
+            long[] encoded = new long[2];
+            reconstructed.toBits(mc, encoded, 0);
+            assertArrayEquals(words, encoded);
+        }
+    }
+    
+    @Test
+    public void testInterchangeArbitrary() {
+        // 224 bits: 20 exponent bits and 204 bits of precision
+        BinaryMathContext mc = new BinaryMathContext(204, 20);
+        BigFloat x = BigFloat.pi(mc).divide(new BigFloat(3, mc), mc);
+        long[] words = new long[4];
+        x.toBits(mc, words, 0);
+        assertEquals(0, words[3] >>> 32);
+        assertEquals(x, BigFloat.fromBits(words, 0, mc));
+        byte[] bytes = new byte[28];
+        x.toBytes(mc, bytes, 0);
+        assertEquals(x, BigFloat.fromBytes(bytes, 0, mc));
+        BigFloat min = BigFloat.minValue(mc.precision, mc.minExponent);
+        min.toBits(mc, words, 0);
+        assertArrayEquals(new long[] {1, 0, 0, 0}, words);
+        assertEquals(min, BigFloat.fromBits(words, 0, mc));
+        BigFloat sub = min.multiply(new BigFloat(Math.scalb(1.0, 150) + 1, mc), mc);
+        sub.toBits(mc, words, 0);
+        assertEquals(sub, BigFloat.fromBits(words, 0, mc));
+        assertEquals(sub, BigFloat.fromBytes(bytesOf(sub, mc), 0, mc));
+        
+        // a 12-bit format fits in an int
+        BinaryMathContext small = new BinaryMathContext(7, 5);
+        assertEquals(0x3c0, new BigFloat(1, small).toIntBits(small));
+        assertEquals(new BigFloat(1, small), BigFloat.fromIntBits(0x3c0, small));
+        try {
+            new BigFloat(1, small).toBytes(small, new byte[2], 0);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            one.toIntBits(BinaryMathContext.BINARY64);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            one.toBits(new BinaryMathContext(24, -100, 100, RoundingMode.HALF_EVEN), new long[1], 0);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            one.toBits(BinaryMathContext.BINARY128, new long[2], 1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+    }
+    
+    private static byte[] bytesOf(BigFloat x, BinaryMathContext mc) {
+        byte[] bytes = new byte[(mc.precision + 20) / 8];
+        x.toBytes(mc, bytes, 0);
+        return bytes;
+    }
+    
+    private static byte[] longsToBytes(long[] words) {
+        byte[] bytes = new byte[words.length * 8];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[bytes.length - 1 - i] = (byte) (words[i / 8] >>> (8 * (i % 8)));
+        }
+        return bytes;
+    }
+    
     private float reconstruct(float f) {
         BinaryMathContext mc = BinaryMathContext.BINARY32;
         long emin = mc.minExponent;
@@ -0,0 +1,158 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.math.RoundingMode;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.kframework.mpfr.BigFloatArrays.BinaryOperation;
+import org.kframework.mpfr.BigFloatArrays.UnaryOperation;
+
+public class BigFloatVectorTest {
+
+    private BinaryMathContext mc = BinaryMathContext.BINARY64;
+
+    private BigFloat[] values = {
+            new BigFloat(0.5, mc), new BigFloat(-0.0, mc), new BigFloat(3, mc),
+            new BigFloat(1.0/0.0, mc), new BigFloat(0.0/0.0, mc), BigFloat.pi(mc),
+            BigFloat.minValue(53, mc.minExponent), BigFloat.maxValue(53, mc.maxExponent),
+            new BigFloat(-2.75, mc), new BigFloat("0.1", BinaryMathContext.BINARY128)};
+
+    @Test
+    public void testGetSet() {
+        BigFloatVector v = new BigFloatVector(3, mc);
+        assertEquals(3, v.length());
+        assertTrue(v.get(2).isPositiveZero());
+        v.set(1, BigFloat.pi(BinaryMathContext.BINARY128));
+        assertEquals(BigFloat.pi(mc), v.get(1));
+        v = new BigFloatVector(values, mc);
+        BigFloat[] array = v.toArray();
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i].round(mc), array[i]);
+        }
+        try {
+            v.get(values.length);
+            fail();
+        } catch (IndexOutOfBoundsException e) {}
+        assertEquals(0, new BigFloatVector(0, mc).toArray().length);
+    }
+
+    @Test
+    public void testSubnormal() {
+        BigFloatVector v = new BigFloatVector(1, BinaryMathContext.BINARY32);
+        v.set(0, new BigFloat(Float.MIN_VALUE * 1.25, mc));
+        assertEquals(Float.MIN_VALUE, v.get(0).floatValue(), 0);
+    }
+
+    @Test
+    public void testMatchesArrays() {
+        BigFloatVector a = new BigFloatVector(values, mc);
+        BigFloatVector r = new BigFloatVector(values.length, BinaryMathContext.BINARY32);
+        for (UnaryOperation f : UnaryOperation.values()) {
+            r.map(f, a);
+            assertArrayEquals(f.toString(),
+                    BigFloatArrays.map(f, a.toArray(), BinaryMathContext.BINARY32), r.toArray());
+        }
+        BigFloat[] reversed = new BigFloat[values.length];
+        for (int i = 0; i < values.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+        }
+        BigFloatVector b = new BigFloatVector(reversed, mc);
+        for (BinaryOperation f : BinaryOperation.values()) {
+            r.map(f, a, b);
+            assertArrayEquals(f.toString(),
+                    BigFloatArrays.map(f, a.toArray(), b.toArray(), BinaryMathContext.BINARY32), r.toArray());
+            r.map(f, a, values[2]);
+            BigFloat[] expected = new BigFloat[values.length];
+            BigFloatArrays.map(f, a.toArray(), values[2], expected, BinaryMathContext.BINARY32);
+            assertArrayEquals(f.toString(), expected, r.toArray());
+        }
+    }
+
+    @Test
+    public void testInPlace() {
+        BigFloatVector v = new BigFloatVector(new BigFloat[] {new BigFloat(1, mc), new BigFloat(2, mc)}, mc);
+        v.scale(v, new BigFloat(3, mc));
+        v.add(v, v);
+        v.multiply(v, v);
+        assertEquals(36.0, v.get(0).doubleValue(), 0);
+        assertEquals(144.0, v.get(1).doubleValue(), 0);
+        v.map(UnaryOperation.SQRT, v);
+        assertEquals(6.0, v.get(0).doubleValue(), 0);
+        assertEquals(12.0, v.get(1).doubleValue(), 0);
+    }
+
+    @Test
+    public void testUnnecessary() {
+        BinaryMathContext exact = mc.withRoundingMode(RoundingMode.UNNECESSARY);
+        BigFloatVector v = new BigFloatVector(new BigFloat[] {new BigFloat(1, mc), new BigFloat(3, mc)}, exact);
+        try {
+            v.map(UnaryOperation.SQRT, v);
+            fail();
+        } catch (ArithmeticException e) {}
+        assertEquals(1.0, v.get(0).doubleValue(), 0);
+    }
+
+    private static BigFloat[] randomMatrix(java.util.Random random, int length, BinaryMathContext mc) {
+        BigFloat[] result = new BigFloat[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = new BigFloat(random.nextGaussian() * Math.pow(2, random.nextInt(64) - 32), mc);
+        }
+        return result;
+    }
+
+    @Test
+    public void testMatmul() throws InterruptedException {
+        java.util.Random random = new java.util.Random(42);
+        int m = 7, k = 13, n = 5;
+        BigFloat[] a = randomMatrix(random, m * k, mc);
+        BigFloat[] b = randomMatrix(random, k * n, mc);
+        BinaryMathContext single = BinaryMathContext.BINARY32;
+        BigFloatVector c = new BigFloatVector(m * n, single);
+        c.matmul(new BigFloatVector(a, mc), new BigFloatVector(b, mc), m, k, n);
+        BigFloatVector parallel = new BigFloatVector(m * n, single);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            parallel.matmul(new BigFloatVector(a, mc), new BigFloatVector(b, mc), m, k, n, executor);
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                BigFloat[] row = new BigFloat[k];
+                BigFloat[] column = new BigFloat[k];
+                for (int l = 0; l < k; l++) {
+                    row[l] = a[i * k + l];
+                    column[l] = b[l * n + j];
+                }
+                assertEquals(BigFloat.dot(row, column, single), c.get(i * n + j));
+                assertEquals(c.get(i * n + j), parallel.get(i * n + j));
+            }
+        }
+        BigFloatVector empty = new BigFloatVector(0, mc);
+        new BigFloatVector(m * n, mc).matmul(new BigFloatVector(m * 0, mc), empty, m, 0, n);
+        try {
+            c.matmul(c, new BigFloatVector(n * n, single), m, n, n);
+            fail();
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testClear() {
+        BigFloatVector v = new BigFloatVector(values, mc);
+        v.clear();
+        try {
+            v.get(0);
+            fail();
+        } catch (IllegalStateException e) {}
+        v.clear();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testLengthMismatch() {
+        new BigFloatVector(2, mc).add(new BigFloatVector(2, mc), new BigFloatVector(3, mc));
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+import static org.kframework.mpfr.mpfr.*;
+
+import java.math.RoundingMode;
+
+import org.junit.Test;
+import org.kframework.mpfr.mpfr.mpfr_t;
+
+public class ConstantCacheTest {
+
+    private static final RoundingMode[] MODES = {RoundingMode.HALF_EVEN, RoundingMode.UP,
+        RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR};
+
+    private static BigFloat direct(ConstantCache cache, BinaryMathContext mc) {
+        mpfr_t rop = new mpfr_t(mc.precision);
+        int rnd = BigFloat.convertRoundingMode(mc.roundingMode);
+        if (cache == ConstantCache.PI) {
+            mpfr_const_pi(rop, rnd);
+        } else if (cache == ConstantCache.LN2) {
+            mpfr_const_log2(rop, rnd);
+        } else if (cache == ConstantCache.EULER) {
+            mpfr_const_euler(rop, rnd);
+        } else if (cache == ConstantCache.CATALAN) {
+            mpfr_const_catalan(rop, rnd);
+        } else {
+            mpfr_t one = new mpfr_t(2);
+            mpfr_set_d(one, 1.0, MPFR_RNDN);
+            mpfr_exp(rop, one, rnd);
+        }
+        return new BigFloat(rop);
+    }
+
+    @Test
+    public void testMatchesMpfr() {
+        ConstantCache[] caches = {ConstantCache.PI, ConstantCache.E, ConstantCache.LN2,
+            ConstantCache.EULER, ConstantCache.CATALAN};
+        BigFloat.freeCache();
+        for (ConstantCache cache : caches) {
+            // the first request determines the precision of the approximation
+            cache.get(new BinaryMathContext(1000, RoundingMode.HALF_EVEN));
+            for (int precision = 2; precision < 2000; precision += 37) {
+                for (RoundingMode mode : MODES) {
+                    BinaryMathContext mc = new BinaryMathContext(precision, mode);
+                    assertEquals(precision + " " + mode, direct(cache, mc), cache.get(mc));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBigFloat() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        assertEquals(Math.PI, BigFloat.pi(mc).doubleValue(), 0);
+        assertEquals(Math.E, BigFloat.e(mc).doubleValue(), 0);
+        assertEquals(Math.log(2), BigFloat.ln2(mc).doubleValue(), 0);
+        assertEquals(0.5772156649015329, BigFloat.euler(mc).doubleValue(), 0);
+        assertEquals(0.915965594177219, BigFloat.catalan(mc).doubleValue(), 0);
+        assertSame(BigFloat.pi(mc), BigFloat.pi(mc));
+        BigFloat.freeCache();
+        assertEquals(Math.PI, BigFloat.pi(mc).doubleValue(), 0);
+    }
+}
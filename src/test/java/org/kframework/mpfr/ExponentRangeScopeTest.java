@@ -0,0 +1,135 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ExponentRangeScopeTest {
+
+    private BinaryMathContext mc = BinaryMathContext.BINARY32;
+
+    private BigFloat[] compute(BinaryMathContext mc) {
+        BigFloat min = BigFloat.minValue(mc.precision, mc.minExponent);
+        BigFloat max = BigFloat.maxValue(mc.precision, mc.maxExponent);
+        BigFloat three = new BigFloat(3, mc);
+        MutableBigFloat acc = new MutableBigFloat(max, mc);
+        acc.mulInPlace(three);
+        return new BigFloat[] {
+                min.divide(three, mc), BigFloat.minNormal(mc.precision, mc.minExponent).divide(three, mc),
+                max.multiply(three, mc), max.add(max, mc).subtract(max, mc), new BigFloat(1e300, mc),
+                new BigFloat("1e-40", mc), BigFloat.pi(mc), max.fma(three, max.negate(), mc),
+                BigFloat.dot(new BigFloat[] {max, max}, new BigFloat[] {max, max.negate()}, mc),
+                BigFloatArrays.map(BigFloatArrays.UnaryOperation.EXP, new BigFloat[] {three}, mc)[0],
+                new BigFloatVector(new BigFloat[] {min.divide(three, mc)}, mc).get(0),
+                acc.freeze(), min.nextDown(mc.minExponent, mc.maxExponent)};
+    }
+
+    @Test
+    public void testSameResults() {
+        BigFloat[] expected = compute(mc);
+        BigFloat[] wide = compute(BinaryMathContext.BINARY64);
+        ExponentRangeScope scope = ExponentRangeScope.open(mc);
+        try {
+            assertSame(mc, scope.mathContext());
+            assertArrayEquals(expected, compute(mc));
+            // operations in other contexts leave the scope's range while they compute
+            assertArrayEquals(wide, compute(BinaryMathContext.BINARY64));
+            assertArrayEquals(expected, compute(mc));
+        } finally {
+            scope.close();
+        }
+        assertArrayEquals(wide, compute(BinaryMathContext.BINARY64));
+    }
+
+    private Object[] computeOutsideRange(BinaryMathContext mc) {
+        BinaryMathContext wide = BinaryMathContext.BINARY128;
+        BigFloat big = new BigFloat(2, wide).pow(new BigFloat(300, wide), wide);
+        BigFloat tiny = new BigFloat(1, wide).divide(big, wide);
+        BigFloat three = new BigFloat(3, mc);
+        MutableBigFloat acc = new MutableBigFloat(three, mc);
+        acc.fmaInPlace(big, tiny);
+        BigFloatVector v = new BigFloatVector(1, mc);
+        v.map(BigFloatArrays.BinaryOperation.MULTIPLY, new BigFloatVector(new BigFloat[] {big}, wide), tiny);
+        return new Object[] {
+                big.multiply(tiny, mc), big.divide(big.add(big, wide), mc), tiny.add(three, mc),
+                big.sqrt(mc), tiny.exp(mc), BigFloat.fmma(big, tiny, tiny, big, mc), big.fma(tiny, three, mc),
+                BigFloat.sum(new BigFloat[] {big, big.negate(), three}, mc),
+                BigFloat.dot(new BigFloat[] {big}, new BigFloat[] {tiny}, mc),
+                BigFloatArrays.map(BigFloatArrays.BinaryOperation.MULTIPLY, new BigFloat[] {big},
+                        new BigFloat[] {tiny}, mc)[0],
+                acc.freeze(), v.get(0), big.toIntBits(mc), tiny.toIntBits(mc), big.toString(mc)};
+    }
+
+    private boolean leavesRange(ExponentRangeScope scope, BigFloat x) {
+        ExponentRange.enter(scope.emin, scope.emax, x.op(), null, null);
+        try {
+            return ExponentRange.current().isDefault();
+        } finally {
+            ExponentRange.exit();
+        }
+    }
+
+    @Test
+    public void testOperandsOutsideRange() {
+        Object[] expected = computeOutsideRange(mc);
+        ExponentRangeScope scope = ExponentRangeScope.open(mc);
+        try {
+            assertArrayEquals(expected, computeOutsideRange(mc));
+            // the scope's range is restored after each operation
+            assertEquals(scope.emin, ExponentRange.current().emin());
+            assertEquals(scope.emax, ExponentRange.current().emax());
+            // MPFR mostly tolerates such operands, so check that the range is left for them
+            BigFloat big = new BigFloat(1e300, BinaryMathContext.BINARY64);
+            assertFalse(leavesRange(scope, new BigFloat(3, mc)));
+            assertFalse(leavesRange(scope, BigFloat.minValue(mc.precision, mc.minExponent)));
+            assertFalse(leavesRange(scope, new BigFloat(Double.NaN, BinaryMathContext.BINARY64)));
+            assertTrue(leavesRange(scope, big));
+            assertTrue(leavesRange(scope, new BigFloat(1e-300, BinaryMathContext.BINARY64)));
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void testNested() {
+        BigFloat[] expected = compute(mc);
+        BigFloat[] wide = compute(BinaryMathContext.BINARY64);
+        ExponentRangeScope outer = ExponentRangeScope.open(mc);
+        ExponentRangeScope inner = ExponentRangeScope.open(BinaryMathContext.BINARY64);
+        assertArrayEquals(wide, compute(BinaryMathContext.BINARY64));
+        assertArrayEquals(expected, compute(mc));
+        try {
+            outer.close();
+            fail();
+        } catch (IllegalStateException e) {}
+        inner.close();
+        inner.close();
+        assertArrayEquals(expected, compute(mc));
+        assertArrayEquals(wide, compute(BinaryMathContext.BINARY64));
+        outer.close();
+        assertArrayEquals(wide, compute(BinaryMathContext.BINARY64));
+    }
+
+    @Test
+    public void testOtherThread() throws InterruptedException {
+        final ExponentRangeScope scope = ExponentRangeScope.open(mc);
+        final Throwable[] thrown = new Throwable[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    scope.close();
+                } catch (Throwable e) {
+                    thrown[0] = e;
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        scope.close();
+        if (mpfr.mpfr_buildopt_tls_p()) {
+            assertTrue(thrown[0] instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FastPathTest {
+
+    private static final int N = 20000;
+
+    private final Random random = new Random(42);
+
+    private final BigFloatMXBean bean = Metrics.bean();
+    private boolean enabled;
+
+    @Before
+    public void enable() {
+        enabled = bean.isEnabled();
+        bean.setEnabled(true);
+    }
+
+    @After
+    public void restore() {
+        bean.setEnabled(enabled);
+    }
+
+    /**
+     * @return an equal {@code BigFloat} which does not hold its value as a
+     * {@code double}, so that operations on it are performed by MPFR.
+     */
+    private static BigFloat mpfr(BigFloat x) {
+        return new BigFloat(new mpfr.mpfr_t(x.op()));
+    }
+
+    private double randomDouble() {
+        switch (random.nextInt(8)) {
+            case 0:
+                // subnormal
+                return Double.longBitsToDouble(random.nextLong() & 0x800fffffffffffffL);
+            case 1:
+                // near the overflow threshold
+                return Double.longBitsToDouble(random.nextLong() & 0x800fffffffffffffL | 0x7fe0000000000000L);
+            case 2:
+                // near the underflow threshold
+                return Double.longBitsToDouble(random.nextLong() & 0x800fffffffffffffL | 0x0010000000000000L);
+            case 3:
+                return new double[] {0.0, -0.0, 1.0, -1.0, Double.POSITIVE_INFINITY,
+                        Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE}[random.nextInt(8)];
+            case 4:
+                // few significant bits, so that results are often exact
+                return Math.scalb((double) (random.nextInt(2000) - 1000), random.nextInt(40) - 20);
+            default:
+                double d = Double.longBitsToDouble(random.nextLong());
+                return Double.isNaN(d) ? 1.5 : d;
+        }
+    }
+
+    private float randomFloat() {
+        switch (random.nextInt(8)) {
+            case 0:
+                return Float.intBitsToFloat(random.nextInt() & 0x807fffff);
+            case 1:
+                return Float.intBitsToFloat(random.nextInt() & 0x807fffff | 0x7f000000);
+            case 2:
+                return Float.intBitsToFloat(random.nextInt() & 0x807fffff | 0x00800000);
+            case 3:
+                return new float[] {0.0f, -0.0f, 1.0f, -1.0f, Float.POSITIVE_INFINITY,
+                        Float.NEGATIVE_INFINITY, Float.MIN_VALUE, Float.MAX_VALUE}[random.nextInt(8)];
+            case 4:
+                return Math.scalb((float) (random.nextInt(2000) - 1000), random.nextInt(40) - 20);
+            default:
+                float f = Float.intBitsToFloat(random.nextInt());
+                return Float.isNaN(f) ? 1.5f : f;
+        }
+    }
+
+    private BigFloat random(BinaryMathContext mc) {
+        double d = mc == BinaryMathContext.BINARY64 ? randomDouble() : randomFloat();
+        BigFloat x = new BigFloat(d, mc);
+        assertTrue(x.hasDoubleValue());
+        return x;
+    }
+
+    private static BigFloat apply(int fn, BigFloat a, BigFloat b, BigFloat c, BinaryMathContext mc) {
+        switch (fn) {
+            case FastPath.ADD:
+                return a.add(b, mc);
+            case FastPath.SUB:
+                return a.subtract(b, mc);
+            case FastPath.MUL:
+                return a.multiply(b, mc);
+            case FastPath.DIV:
+                return a.divide(b, mc);
+            case FastPath.SQRT:
+                return a.sqrt(mc);
+            case FastPath.FMA:
+                return a.fma(b, c, mc);
+            case FastPath.FMS:
+                return a.fms(b, c, mc);
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static void assertIdentical(BigFloat expected, BigFloat actual) {
+        assertEquals(expected.precision(), actual.precision());
+        assertEquals(expected.sign(), actual.sign());
+        assertEquals(expected, actual);
+        if (!expected.isNaN()) {
+            BinaryMathContext mc = expected.precision() == 24 ? BinaryMathContext.BINARY32
+                    : BinaryMathContext.BINARY64;
+            assertEquals(expected.toLongBits(mc), actual.toLongBits(mc));
+        }
+    }
+
+    private void testDifferential(BinaryMathContext mc) {
+        for (int fn = FastPath.ADD; fn <= FastPath.FMS; fn++) {
+            for (int i = 0; i < N; i++) {
+                BigFloat a = random(mc);
+                BigFloat b = random(mc);
+                BigFloat c = random(mc);
+                if (fn >= FastPath.FMA && random.nextBoolean()) {
+                    // make the addend cancel most of the product
+                    c = new BigFloat(-a.doubleValue() * b.doubleValue(), mc);
+                }
+                long hits = bean.getFastPathCount();
+                BigFloat fast = apply(fn, a, b, c, mc);
+                boolean hardware = bean.getFastPathCount() > hits;
+                BigFloat slow = apply(fn, mpfr(a), mpfr(b), mpfr(c), mc);
+                assertEquals(!slow.isNaN()
+                        && (fn < FastPath.FMA || mc == BinaryMathContext.BINARY32), hardware);
+                // results computed by MPFR are held as doubles too
+                assertEquals(!slow.isNaN(), slow.hasDoubleValue());
+                assertEquals(!fast.isNaN(), fast.hasDoubleValue());
+                assertIdentical(slow, fast);
+            }
+        }
+    }
+
+    @Test
+    public void testBinary64() {
+        testDifferential(BinaryMathContext.BINARY64);
+    }
+
+    @Test
+    public void testBinary32() {
+        testDifferential(BinaryMathContext.BINARY32);
+    }
+
+    @Test
+    public void testFmaRoundToOdd() {
+        BinaryMathContext mc = BinaryMathContext.BINARY32;
+        // (1 + 2^-12)^2 = 1 + 2^-11 + 2^-24 is halfway between two floats, so
+        // a tiny addend decides the rounding, but is lost when rounding to double
+        BigFloat a = new BigFloat(1 + Math.scalb(1.0, -12), mc);
+        for (double tiny : new double[] {Math.scalb(1.0, -80), -Math.scalb(1.0, -80), 0.0}) {
+            BigFloat c = new BigFloat(tiny, mc);
+            BigFloat fast = a.fma(a, c, mc);
+            assertTrue(fast.hasDoubleValue());
+            assertIdentical(mpfr(a).fma(mpfr(a), mpfr(c), mc), fast);
+        }
+        assertEquals(1 + Math.scalb(1.0, -11) + Math.scalb(1.0, -23),
+                a.fma(a, new BigFloat(Math.scalb(1.0, -80), mc), mc).doubleValue(), 0);
+        assertEquals(1 + Math.scalb(1.0, -11),
+                a.fma(a, new BigFloat(-Math.scalb(1.0, -80), mc), mc).doubleValue(), 0);
+    }
+
+    @Test
+    public void testFallback() {
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        BigFloat two = new BigFloat(2.0, mc);
+        long hits = bean.getFastPathCount();
+        assertTrue(two.add(two, mc).hasDoubleValue());
+        assertEquals(hits + 1, bean.getFastPathCount());
+        // other contexts and rounding modes
+        assertFalse(two.add(two, BinaryMathContext.BINARY128).hasDoubleValue());
+        assertFalse(two.add(two, mc.withRoundingMode(RoundingMode.FLOOR)).hasDoubleValue());
+        // double operands which are not floats
+        BigFloat third = new BigFloat(1.0 / 3, mc);
+        BigFloat sum = third.add(two, BinaryMathContext.BINARY32);
+        assertEquals(mpfr(third).add(two, BinaryMathContext.BINARY32), sum);
+        // fma of doubles
+        BigFloat fma = two.fma(two, two, mc);
+        assertEquals(hits + 1, bean.getFastPathCount());
+        assertTrue(sum.hasDoubleValue());
+        assertTrue(fma.hasDoubleValue());
+        // NaN results
+        BigFloat inf = new BigFloat(Double.POSITIVE_INFINITY, mc);
+        assertTrue(inf.subtract(inf, mc).isNaN());
+        assertFalse(inf.subtract(inf, mc).hasDoubleValue());
+        assertFalse(new BigFloat(Double.NaN, mc).hasDoubleValue());
+        // rounding on construction
+        assertEquals(new BigFloat(0.1, BinaryMathContext.BINARY32).doubleValue(), 0.1f, 0);
+    }
+
+    @Test
+    public void testResultsHeldAsDouble() {
+        for (BinaryMathContext mc : new BinaryMathContext[] {BinaryMathContext.BINARY32,
+                BinaryMathContext.BINARY64}) {
+            for (int i = 0; i < N / 10; i++) {
+                BigFloat x = random(mc);
+                long l = random.nextLong() >> random.nextInt(64);
+                BigFloat[] values = {
+                        new BigFloat(l, mc), new BigFloat(BigInteger.valueOf(l), mc),
+                        new BigFloat(x.toString(), mc), x.exp(mc), x.pow(x, mc), x.sin(mc),
+                        BigFloat.fromLongBits(x.toLongBits(BinaryMathContext.BINARY64),
+                                BinaryMathContext.BINARY64),
+                        BigFloat.fromIntBits(x.toIntBits(BinaryMathContext.BINARY32),
+                                BinaryMathContext.BINARY32)};
+                for (BigFloat v : values) {
+                    assertEquals(!v.isNaN(), v.hasDoubleValue());
+                    assertIdentical(mpfr(v), v);
+                    if (!v.isNaN()) {
+                        assertEquals(mpfr.mpfr_get_d(v.op(), mpfr.MPFR_RNDN), v.doubleValue(), 0);
+                    }
+                }
+                // the conversion from long rounds like MPFR
+                assertIdentical(new BigFloat(BigInteger.valueOf(l), mc), new BigFloat(l, mc));
+            }
+        }
+    }
+
+    @Test
+    public void testComparisons() {
+        for (BinaryMathContext mc : new BinaryMathContext[] {BinaryMathContext.BINARY32,
+                BinaryMathContext.BINARY64}) {
+            for (int i = 0; i < N; i++) {
+                BigFloat a = random(mc);
+                BigFloat b = random.nextInt(4) == 0 ? a.negate() : random(mc);
+                if (random.nextInt(4) == 0) {
+                    b = new BigFloat(a.doubleValue(), BinaryMathContext.BINARY64);
+                }
+                BigFloat sa = mpfr(a);
+                BigFloat sb = mpfr(b);
+                assertEquals(sa.lessThan(sb), a.lessThan(b));
+                assertEquals(sa.greaterThan(sb), a.greaterThan(b));
+                assertEquals(sa.lessThanOrEqualTo(sb), a.lessThanOrEqualTo(b));
+                assertEquals(sa.greaterThanOrEqualTo(sb), a.greaterThanOrEqualTo(b));
+                assertEquals(sa.equalTo(sb), a.equalTo(b));
+                assertEquals(Integer.signum(sa.compareTo(sb)), Integer.signum(a.compareTo(b)));
+                assertEquals(sa.equals(sb), a.equals(b));
+                assertEquals(sa.hashCode(), a.hashCode());
+                assertEquals(Double.doubleToRawLongBits(sa.doubleValue()),
+                        Double.doubleToRawLongBits(a.doubleValue()));
+                assertEquals(Float.floatToRawIntBits(sa.floatValue()),
+                        Float.floatToRawIntBits(a.floatValue()));
+            }
+        }
+    }
+}
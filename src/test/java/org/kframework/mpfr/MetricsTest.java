@@ -0,0 +1,104 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.mpfr.mpfr.mpfr_t;
+import org.kframework.mpfr.mpfr.mpz_t;
+
+public class MetricsTest {
+
+    private final BigFloatMXBean bean = Metrics.bean();
+    private boolean enabled;
+
+    @Before
+    public void enable() {
+        enabled = bean.isEnabled();
+        bean.setEnabled(true);
+    }
+
+    @After
+    public void restore() {
+        bean.setEnabled(enabled);
+    }
+
+    @Test
+    public void testRegistered() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+        assertEquals(mpfr.mpfr_java_get_quota(), server.getAttribute(name, "NativeQuota"));
+    }
+
+    @Test
+    public void testOperations() {
+        BinaryMathContext mc = new BinaryMathContext(200, 20);
+        long add = bean.getAddCount();
+        long multiply = bean.getMultiplyCount();
+        long transcendental = bean.getTranscendentalCount();
+        long parse = bean.getParseCount();
+        long format = bean.getFormatCount();
+        BigFloat x = new BigFloat("1.5", mc);
+        BigFloat y = x.add(x, mc).multiply(x, mc).sin(mc);
+        y.toString();
+        assertTrue(bean.getAddCount() >= add + 1);
+        assertTrue(bean.getMultiplyCount() >= multiply + 1);
+        assertTrue(bean.getTranscendentalCount() >= transcendental + 1);
+        assertTrue(bean.getParseCount() >= parse + 1);
+        assertTrue(bean.getFormatCount() >= format + 1);
+
+        long fastPath = bean.getFastPathCount();
+        BigFloat d = new BigFloat(1.5, BinaryMathContext.BINARY64);
+        d.add(d, BinaryMathContext.BINARY64);
+        assertTrue(bean.getFastPathCount() >= fastPath + 1);
+    }
+
+    @Test
+    public void testStructs() {
+        long allocated = bean.getAllocatedStructs();
+        long freed = bean.getFreedStructs();
+        mpfr_t x = new mpfr_t(1 << 16);
+        assertTrue(bean.getAllocatedStructs() >= allocated + 1);
+        assertTrue(bean.getLiveStructs() >= 1);
+        assertTrue(bean.getLiveStructBytes() >= mpfr.allocatedBytes(1 << 16));
+        x.clear();
+        assertTrue(bean.getFreedStructs() >= freed + 1);
+
+        long integers = bean.getAllocatedIntegers();
+        mpz_t z = new mpz_t(BigInteger.TEN);
+        assertTrue(bean.getAllocatedIntegers() >= integers + 1);
+        z.clear();
+    }
+
+    @Test
+    public void testDisabled() {
+        bean.setEnabled(false);
+        mpfr_t x = new mpfr_t(64);
+        bean.setEnabled(true);
+        long freed = bean.getFreedStructs();
+        x.clear();
+        // a struct allocated while disabled is not counted as freed
+        assertEquals(freed, bean.getFreedStructs());
+
+        // keeps the live integers positive, so that a decrease is visible
+        mpz_t counted = new mpz_t(BigInteger.ONE);
+        bean.setEnabled(false);
+        mpz_t z = new mpz_t(BigInteger.TEN);
+        bean.setEnabled(true);
+        long live = bean.getLiveIntegers();
+        z.clear();
+        // nor is an integer initialized while disabled counted as cleared
+        assertEquals(live, bean.getLiveIntegers());
+        counted.clear();
+    }
+}
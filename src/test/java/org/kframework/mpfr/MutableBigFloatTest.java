@@ -0,0 +1,121 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+public class MutableBigFloatTest {
+
+    private BinaryMathContext mc = BinaryMathContext.BINARY64;
+
+    @Test
+    public void testArithmetic() {
+        MutableBigFloat acc = new MutableBigFloat(mc);
+        assertEquals(Double.valueOf(0.0), Double.valueOf(acc.doubleValue()));
+        acc.set(1.5).addInPlace(new BigFloat(2.5, mc)).mulInPlace(new BigFloat(3, mc));
+        assertEquals(12.0, acc.doubleValue(), 0);
+        acc.subInPlace(new BigFloat(2, mc)).divInPlace(new BigFloat(4, mc));
+        assertEquals(2.5, acc.doubleValue(), 0);
+        acc.addInPlace(acc).mulInPlace(acc);
+        assertEquals(25.0, acc.doubleValue(), 0);
+        acc.fmaInPlace(new BigFloat(3, mc), new BigFloat(5, mc));
+        assertEquals(40.0, acc.doubleValue(), 0);
+    }
+
+    @Test
+    public void testMutableOperands() {
+        MutableBigFloat two = new MutableBigFloat(new BigFloat(2, mc), mc);
+        MutableBigFloat three = new MutableBigFloat(new BigFloat(3, mc), mc);
+        MutableBigFloat acc = new MutableBigFloat(new BigFloat(10, mc), mc);
+        acc.subInPlace(two).divInPlace(two);
+        assertEquals(4.0, acc.doubleValue(), 0);
+        acc.fmaInPlace(two, three).fmaInPlace(acc, acc);
+        assertEquals(110.0, acc.doubleValue(), 0);
+        assertEquals(2.0, two.doubleValue(), 0);
+        assertEquals(3.0, three.doubleValue(), 0);
+    }
+
+    @Test
+    public void testMatchesBigFloat() {
+        BigFloat tenth = new BigFloat("0.1", mc);
+        BigFloat sum = BigFloat.zero(mc.precision);
+        MutableBigFloat acc = new MutableBigFloat(mc);
+        for (int i = 0; i < 100; i++) {
+            sum = sum.add(tenth, mc);
+            acc.addInPlace(tenth);
+        }
+        assertEquals(sum, acc.freeze());
+        assertEquals(sum.doubleValue(), acc.doubleValue(), 0);
+    }
+
+    @Test
+    public void testFmaRoundsOnce() {
+        // (1 + 2^-52) * (1 - 2^-52) - 1 == -2^-104, which is lost if the product is rounded first
+        BigFloat a = new BigFloat(1 + Math.ulp(1.0), mc);
+        BigFloat b = new BigFloat(1 - Math.ulp(1.0), mc);
+        MutableBigFloat acc = new MutableBigFloat(new BigFloat(-1, mc), mc);
+        acc.fmaInPlace(a, b);
+        assertEquals(-Math.pow(2, -104), acc.doubleValue(), 0);
+        assertEquals(0.0, a.multiply(b, mc).subtract(new BigFloat(1, mc), mc).doubleValue(), 0);
+    }
+
+    @Test
+    public void testSubnormal() {
+        MutableBigFloat acc = new MutableBigFloat(new BigFloat(Double.MIN_NORMAL, mc), mc);
+        acc.divInPlace(new BigFloat(3, mc));
+        assertEquals(Double.MIN_NORMAL / 3, acc.doubleValue(), 0);
+        acc.set(Double.MIN_VALUE).divInPlace(new BigFloat(2, mc));
+        assertEquals(0.0, acc.doubleValue(), 0);
+        acc.set(Double.MAX_VALUE).mulInPlace(new BigFloat(2, mc));
+        assertEquals(Double.POSITIVE_INFINITY, acc.doubleValue(), 0);
+    }
+
+    @Test
+    public void testFreeze() {
+        MutableBigFloat acc = new MutableBigFloat(new BigFloat(1, mc), mc);
+        BigFloat frozen = acc.freeze();
+        assertEquals(frozen, acc.freeze());
+        acc.addInPlace(frozen);
+        acc.addInPlace(frozen);
+        assertEquals(1.0, frozen.doubleValue(), 0);
+        assertEquals(3.0, acc.doubleValue(), 0);
+        BigFloat three = acc.freeze();
+        acc.set(frozen);
+        assertEquals(3.0, three.doubleValue(), 0);
+        assertEquals(1.0, acc.doubleValue(), 0);
+    }
+
+    @Test
+    public void testUnnecessary() {
+        BinaryMathContext exact = mc.withRoundingMode(RoundingMode.UNNECESSARY);
+        MutableBigFloat acc = new MutableBigFloat(new BigFloat(1, exact), exact);
+        try {
+            acc.divInPlace(new BigFloat(3, exact));
+            fail();
+        } catch (ArithmeticException e) {}
+        assertEquals(1.0, acc.doubleValue(), 0);
+        acc.divInPlace(new BigFloat(4, exact));
+        assertEquals(0.25, acc.doubleValue(), 0);
+    }
+
+    @Test
+    public void testScopeRestoredAfterException() {
+        BinaryMathContext narrow = BinaryMathContext.BINARY32;
+        MutableBigFloat acc = new MutableBigFloat(mc);
+        ExponentRangeScope scope = ExponentRangeScope.open(narrow);
+        try {
+            long emin = ExponentRange.current().emin();
+            try {
+                acc.addInPlace((BigFloat) null);
+                fail();
+            } catch (NullPointerException e) {}
+            // the range of the scope must have been set again
+            assertEquals(emin, ExponentRange.current().emin());
+        } finally {
+            scope.close();
+        }
+    }
+}
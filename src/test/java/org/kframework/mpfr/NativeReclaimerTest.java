@@ -0,0 +1,134 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.kframework.mpfr.mpfr.*;
+
+public class NativeReclaimerTest {
+
+    @Test
+    public void testClear() {
+        long before = NativeReclaimer.registeredBytes();
+        mpfr_t x = new mpfr_t(1000);
+        assertTrue(NativeReclaimer.registeredBytes() >= before + allocatedBytes(1000));
+        long after = NativeReclaimer.registeredBytes();
+        x.clear();
+        assertTrue(NativeReclaimer.registeredBytes() <= after - allocatedBytes(1000));
+        // clearing twice must not free the struct twice
+        x.clear();
+    }
+
+    @Test
+    public void testAllocatedBytes() {
+        assertEquals(MPFR_STRUCT_SIZE + LIMB_SIZE, allocatedBytes(1));
+        assertEquals(MPFR_STRUCT_SIZE + LIMB_SIZE, allocatedBytes(LIMB_SIZE * 8));
+        assertEquals(MPFR_STRUCT_SIZE + 2 * LIMB_SIZE, allocatedBytes(LIMB_SIZE * 8 + 1));
+    }
+
+    @Test
+    public void testReclaimUnreachable() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            new mpfr_t(1 << 16);
+        }
+        long bytes = 1000 * allocatedBytes(1 << 16);
+        long registered = NativeReclaimer.registeredBytes();
+        for (int i = 0; i < 100 && NativeReclaimer.registeredBytes() > registered - bytes; i++) {
+            System.gc();
+            NativeReclaimer.drain();
+            Thread.sleep(10);
+        }
+        assertTrue(NativeReclaimer.registeredBytes() <= registered - bytes);
+    }
+
+    @Test
+    public void testMpzClear() {
+        mpz_t x = new mpz_t(BigInteger.ONE.shiftLeft(1000));
+        assertEquals(BigInteger.ONE.shiftLeft(1000).toString(), mpz_get_str(10, x));
+        x.clear();
+        assertEquals(0, x._mp_d);
+        x.clear();
+    }
+
+    @Test
+    public void testNativeAccounting() {
+        // other threads can only free memory concurrently
+        long before = mpfr_java_allocated_bytes();
+        mpfr_t x = new mpfr_t(1 << 16);
+        long after = mpfr_java_allocated_bytes();
+        assertTrue(after <= before + allocatedBytes(1 << 16));
+        assertTrue(after >= allocatedBytes(1 << 16));
+        x.clear();
+        assertTrue(mpfr_java_allocated_bytes() <= after - allocatedBytes(1 << 16));
+        BigFloatVector v = new BigFloatVector(1000, BinaryMathContext.BINARY128);
+        after = mpfr_java_allocated_bytes();
+        v.clear();
+        assertTrue(mpfr_java_allocated_bytes() <= after - 1000 * 16);
+        // memory allocated by GMP is counted too
+        mpz_t z = new mpz_t(BigInteger.ONE.shiftLeft(1 << 16));
+        after = mpfr_java_allocated_bytes();
+        z.clear();
+        assertTrue(mpfr_java_allocated_bytes() <= after - (1 << 13));
+    }
+
+    @Test
+    public void testThreadCaches() throws InterruptedException {
+        long before = mpfr_java_allocated_bytes();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    List<mpfr_t> xs = new ArrayList<mpfr_t>();
+                    for (int j = 0; j < 10000; j++) {
+                        xs.add(new mpfr_t(1 + j % 300));
+                        if (j % 3 == 0) {
+                            xs.remove(xs.size() / 2).clear();
+                        }
+                    }
+                    for (mpfr_t x : xs) {
+                        x.clear();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(mpfr_java_allocated_bytes() <= before);
+    }
+
+    @Test
+    public void testQuota() {
+        long failures = mpfr_java_quota_failures();
+        mpfr_java_set_quota(1);
+        try {
+            assertEquals(1, mpfr_java_get_quota());
+            try {
+                new mpfr_t(64);
+                fail();
+            } catch (OutOfMemoryError e) {
+                assertTrue(e.getMessage().contains("quota"));
+            }
+            try {
+                new BigFloatVector(10, BinaryMathContext.BINARY64);
+                fail();
+            } catch (OutOfMemoryError e) {
+                assertTrue(e.getMessage().contains("quota"));
+            }
+            // allocations by GMP are never refused
+            new mpz_t(BigInteger.ONE.shiftLeft(1000)).clear();
+        } finally {
+            mpfr_java_set_quota(0);
+        }
+        assertTrue(mpfr_java_quota_failures() >= failures + 2);
+        new mpfr_t(64).clear();
+    }
+}
@@ -5,7 +5,9 @@ import static org.junit.Assert.*;
 
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.Random;
 
+import org.junit.Assume;
 import org.junit.Test;
 import static org.kframework.mpfr.mpfr.*;
 
@@ -14,7 +16,24 @@ public class mpfrTest {
     public void testLoadLibrary() {
         mpfr_t nan = new mpfr_t(5);
         assertTrue(mpfr_nan_p(nan));
-        assertEquals(5, nan._mpfr_prec);
+        assertEquals(5, nan.prec());
+    }
+    
+    @Test
+    public void testStructFields() {
+        mpfr_t x = new mpfr_t(100, -0.75);
+        assertEquals(100, x.prec());
+        assertEquals(-1, x.sign());
+        assertEquals(0, x.exp());
+        mpfr_t y = new mpfr_t(x);
+        assertEquals(0, mpfr_cmp(x, y));
+        assertTrue(y.limbs() != x.limbs());
+        y.setSignAndExp(1, 3);
+        assertEquals(6.0, mpfr_get_d(y, MPFR_RNDN), 0);
+        mpfr_set_d(y, 0.0, MPFR_RNDN);
+        assertEquals(MPFR_EXP_ZERO, y.exp());
+        assertTrue(mpfr_nan_p(new mpfr_t(2)));
+        assertEquals(MPFR_EXP_NAN, new mpfr_t(2).exp());
     }
     
     @Test
@@ -71,6 +90,29 @@ public class mpfrTest {
         assertEquals("9223372036854775808", mpz_get_str(10, x));
     }
     
+    @Test
+    public void testMpzBigInteger() {
+        Random random = new Random(42);
+        for (int bits : new int[] {1, 7, 8, 63, 64, 65, 1000, 1 << 16}) {
+            for (int i = 0; i < 10; i++) {
+                BigInteger val = new BigInteger(bits, random);
+                if (i % 2 == 1) {
+                    val = val.negate();
+                }
+                mpz_t x = new mpz_t(val);
+                try {
+                    assertEquals(val.toString(16), mpz_get_str(16, x));
+                    assertEquals(val, mpz_get_BigInteger(x));
+                } finally {
+                    x.clear();
+                }
+            }
+        }
+        mpz_t zero = new mpz_t(BigInteger.ZERO);
+        assertEquals(BigInteger.ZERO, mpz_get_BigInteger(zero));
+        zero.clear();
+    }
+    
     @Test
     public void testExponentRounding() {
         mpfr_t x = new mpfr_t(24);
@@ -83,6 +125,62 @@ public class mpfrTest {
         assertFalse(rounded);
     }
     
+    @Test
+    public void testFusedRound() {
+        mpfr_t x = new mpfr_t(53);
+        mpfr_t y = new mpfr_t(53);
+        mpfr_set_d(x, Double.MIN_NORMAL, MPFR_RNDN);
+        mpfr_set_d(y, 3.0, MPFR_RNDN);
+        mpfr_t rop = new mpfr_t(53);
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        int ternary = mpfr_java_div(rop, x, y, MPFR_RNDN, 
+                BigFloat.emin(mc.minExponent, mc.precision), BigFloat.emax(mc.maxExponent));
+        assertNotEquals(0, ternary);
+        assertEquals(Double.MIN_NORMAL / 3.0, mpfr_get_d(rop, MPFR_RNDN), 0.0);
+        assertEquals(MPFR_EMIN_DEFAULT, BigFloat.emin(BigFloat.eminMin(53), 53));
+        mpfr_set_d(x, Double.MAX_VALUE, MPFR_RNDN);
+        // exponent range must have been restored, so this must not overflow
+        rop = new mpfr_t(106);
+        ternary = mpfr_mul(rop, x, x, MPFR_RNDN);
+        assertEquals(0, ternary);
+        assertFalse(mpfr_inf_p(rop));
+    }
+    
+    @Test
+    public void testDowncalls() {
+        NativeBackend backend = NativeBackend.INSTANCE;
+        Assume.assumeFalse(backend instanceof JniBackend);
+        // the backend must agree with the JNI methods it replaces
+        Random random = new Random(42);
+        BinaryMathContext mc = BinaryMathContext.BINARY64;
+        long emin = BigFloat.emin(mc.minExponent, mc.precision);
+        long emax = BigFloat.emax(mc.maxExponent);
+        mpfr_t x = new mpfr_t(53);
+        mpfr_t y = new mpfr_t(53);
+        mpfr_t jni = new mpfr_t(53);
+        mpfr_t foreign = new mpfr_t(53);
+        for (int i = 0; i < 1000; i++) {
+            double a = Double.longBitsToDouble(random.nextLong());
+            double b = Double.longBitsToDouble(random.nextLong());
+            long l = random.nextLong();
+            assertEquals(mpfr_set_d(x.ptr, a, MPFR_RNDN), backend.mpfr_set_d(y.ptr, a, MPFR_RNDN));
+            assertEquals(mpfr_cmp_d(x.ptr, a), backend.mpfr_cmp_d(y.ptr, a));
+            assertEquals(mpfr_get_d(x.ptr, MPFR_RNDN), backend.mpfr_get_d(y.ptr, MPFR_RNDN), 0.0);
+            mpfr_set_d(y.ptr, b, MPFR_RNDN);
+            assertEquals(mpfr_java_mul(jni.ptr, x.ptr, y.ptr, MPFR_RNDN, emin, emax),
+                    backend.mpfr_java_mul(foreign.ptr, x.ptr, y.ptr, MPFR_RNDN, emin, emax));
+            assertEquals(0, mpfr_java_cmp_total(jni.ptr, foreign.ptr));
+            assertEquals(mpfr_java_add_sj(jni.ptr, x.ptr, l, MPFR_RNDZ, emin, emax),
+                    backend.mpfr_java_add_sj(foreign.ptr, x.ptr, l, MPFR_RNDZ, emin, emax));
+            assertEquals(0, backend.mpfr_java_cmp_total(jni.ptr, foreign.ptr));
+            assertEquals(mpfr_java_next(jni.ptr, x.ptr, true, emin, emax),
+                    backend.mpfr_java_next(foreign.ptr, x.ptr, true, emin, emax));
+            assertEquals(0, mpfr_java_cmp_total(jni.ptr, foreign.ptr));
+            assertEquals(mpfr_java_cmp_sj(x.ptr, l), backend.mpfr_java_cmp_sj(x.ptr, l));
+        }
+        NativeReclaimer.reachabilityFence(x, y, jni, foreign);
+    }
+    
     @Test
     public void testMpfrTFull() {
         mpfr_t x = new mpfr_t(24);
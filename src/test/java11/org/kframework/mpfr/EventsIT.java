@@ -0,0 +1,73 @@
+// Copyright (c) 2014 K Team. All Rights Reserved.
+package org.kframework.mpfr;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Checks the JDK Flight Recorder events committed by the implementation of
+ * {@link Events} under src/main/java11, which is only loaded from the
+ * multi-release jar.
+ *
+ * @author Dwight Guth
+ */
+public class EventsIT {
+
+    private static final String NAME = "org.kframework.mpfr.Operation";
+
+    @Test
+    public void testOperationEvents() throws IOException {
+        BinaryMathContext mc = new BinaryMathContext(200, RoundingMode.HALF_EVEN);
+        // registers the event before the recording starts
+        new BigFloat("1", mc);
+        Path file = Files.createTempFile("mpfr", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(NAME).withThreshold(Duration.ZERO);
+                recording.start();
+                BigFloat x = new BigFloat("1.5", mc);
+                BigFloat y = x.add(x, mc);
+                y.toString();
+                y.toString(BinaryMathContext.BINARY64);
+                y.appendTo(new StringBuilder());
+                assertEquals(3, y.toBigInteger().intValue());
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEvent(events, "BigFloat(CharSequence)", 200, "HALF_EVEN");
+            assertEvent(events, "add", 200, "HALF_EVEN");
+            assertEvent(events, "toString", 200, null);
+            assertEvent(events, "toString(BinaryMathContext)", 53, null);
+            assertEvent(events, "appendTo(StringBuilder)", 200, null);
+            assertEvent(events, "toBigInteger", 200, "DOWN");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertEvent(List<RecordedEvent> events, String operation, int precision,
+            String roundingMode) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(NAME)
+                    && operation.equals(event.getString("operation"))) {
+                assertEquals(precision, event.getInt("precision"));
+                assertEquals(roundingMode, event.getString("roundingMode"));
+                return;
+            }
+        }
+        fail("no " + NAME + " event for " + operation + " in " + events);
+    }
+}